@@ -40,7 +40,9 @@ import io.atomix.map.impl.ConsistentMapOperations.TransactionRollback;
 import io.atomix.map.impl.MapUpdate.Type;
 import io.atomix.primitive.service.AbstractPrimitiveService;
 import io.atomix.primitive.service.Commit;
+import io.atomix.primitive.service.MapSnapshotTracker;
 import io.atomix.primitive.service.ServiceExecutor;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.session.Session;
 import io.atomix.storage.buffer.BufferInput;
 import io.atomix.storage.buffer.BufferOutput;
@@ -59,6 +61,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -110,8 +114,17 @@ public class ConsistentMapService extends AbstractPrimitiveService {
       .register(new HashMap().keySet().getClass())
       .build());
 
+  /**
+   * Version of the format written by {@link #backup(BufferOutput)}, which writes map entries one at a time.
+   * <p>
+   * The version is written negated so it can be told apart from the unversioned format, in which the map was written
+   * as a single object following the non-negative length of the serialized listeners.
+   */
+  private static final int FORMAT_VERSION = 1;
+
   protected Map<Long, Session> listeners = new LinkedHashMap<>();
-  private Map<String, MapEntryValue> map;
+  private ConcurrentMap<String, MapEntryValue> map;
+  protected final MapSnapshotTracker<String, MapEntryValue> snapshots = new MapSnapshotTracker<>();
   protected Set<String> preparedKeys = Sets.newHashSet();
   protected Map<TransactionId, TransactionScope> activeTransactions = Maps.newHashMap();
   protected long currentVersion;
@@ -120,11 +133,11 @@ public class ConsistentMapService extends AbstractPrimitiveService {
     map = createMap();
   }
 
-  protected Map<String, MapEntryValue> createMap() {
-    return Maps.newHashMap();
+  protected ConcurrentMap<String, MapEntryValue> createMap() {
+    return new ConcurrentHashMap<>();
   }
 
-  protected Map<String, MapEntryValue> entries() {
+  protected ConcurrentMap<String, MapEntryValue> entries() {
     return map;
   }
 
@@ -134,23 +147,100 @@ public class ConsistentMapService extends AbstractPrimitiveService {
 
   @Override
   public void backup(BufferOutput<?> writer) {
-    writer.writeObject(Sets.newHashSet(listeners.keySet()), serializer()::encode);
+    writeState(writer, Sets.newHashSet(listeners.keySet()), preparedKeys, activeTransactions, currentVersion);
+    entries().forEach((key, value) -> writeEntry(writer, key, value));
+    writer.writeBoolean(false);
+  }
+
+  @Override
+  public ServiceSnapshot snapshot() {
+    Set<Long> listeners = Sets.newHashSet(this.listeners.keySet());
+    Set<String> preparedKeys = Sets.newHashSet(this.preparedKeys);
+    Map<TransactionId, TransactionScope> activeTransactions = Maps.newHashMap(this.activeTransactions);
+    long currentVersion = this.currentVersion;
+    MapSnapshotTracker<String, MapEntryValue>.View entries = snapshots.freeze(entries());
+    return new ServiceSnapshot() {
+      @Override
+      public void write(BufferOutput<?> writer) {
+        writeState(writer, listeners, preparedKeys, activeTransactions, currentVersion);
+        entries.forEach((key, value) -> writeEntry(writer, key, value));
+        writer.writeBoolean(false);
+      }
+
+      @Override
+      public void close() {
+        entries.close();
+      }
+    };
+  }
+
+  /**
+   * Writes the service state other than the map entries to the given buffer.
+   */
+  private void writeState(
+      BufferOutput<?> writer,
+      Set<Long> listeners,
+      Set<String> preparedKeys,
+      Map<TransactionId, TransactionScope> activeTransactions,
+      long currentVersion) {
+    writer.writeInt(-FORMAT_VERSION);
+    writer.writeObject(listeners, serializer()::encode);
     writer.writeObject(preparedKeys, serializer()::encode);
-    writer.writeObject(entries(), serializer()::encode);
     writer.writeObject(activeTransactions, serializer()::encode);
     writer.writeLong(currentVersion);
   }
 
+  /**
+   * Writes a map entry to the given buffer.
+   */
+  private void writeEntry(BufferOutput<?> writer, String key, MapEntryValue value) {
+    writer.writeBoolean(true);
+    writer.writeString(key);
+    writer.writeObject(value, serializer()::encode);
+  }
+
   @Override
   public void restore(BufferInput<?> reader) {
-    listeners = new LinkedHashMap<>();
-    for (Long sessionId : reader.<Set<Long>>readObject(serializer()::decode)) {
-      listeners.put(sessionId, sessions().getSession(sessionId));
+    int formatVersion = reader.readInt();
+    if (formatVersion >= 0) {
+      restoreUnversioned(reader, formatVersion);
+      return;
     }
+    checkState(-formatVersion == FORMAT_VERSION, "unknown snapshot format version %s", -formatVersion);
+
+    restoreListeners(reader.readObject(serializer()::decode));
     preparedKeys = reader.readObject(serializer()::decode);
-    map = reader.readObject(serializer()::decode);
     activeTransactions = reader.readObject(serializer()::decode);
     currentVersion = reader.readLong();
+    map = createMap();
+    while (reader.readBoolean()) {
+      map.put(reader.readString(), reader.readObject(serializer()::decode));
+    }
+  }
+
+  /**
+   * Restores the service from the unversioned format, in which the map was written as a single object.
+   *
+   * @param reader the reader from which to restore the service
+   * @param length the length of the serialized listeners, which has already been read
+   */
+  private void restoreUnversioned(BufferInput<?> reader, int length) {
+    restoreListeners(serializer().decode(reader.readBytes(length)));
+    preparedKeys = reader.readObject(serializer()::decode);
+    map = createMap();
+    map.putAll(reader.<Map<String, MapEntryValue>>readObject(serializer()::decode));
+    activeTransactions = reader.readObject(serializer()::decode);
+    currentVersion = reader.readLong();
+  }
+
+  /**
+   * Restores the listeners for the given session IDs.
+   */
+  private void restoreListeners(Set<Long> sessionIds) {
+    listeners = new LinkedHashMap<>();
+    for (Long sessionId : sessionIds) {
+      listeners.put(sessionId, sessions().getSession(sessionId));
+    }
   }
 
   @Override
@@ -363,6 +453,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
             key,
             toVersioned(oldValue));
       }
+      snapshots.beforeUpdate(key);
       entries().put(commit.value().key(),
           new MapEntryValue(MapEntryValue.Type.VALUE, newValue.version(), newValue.value()));
       Versioned<byte[]> result = toVersioned(oldValue);
@@ -377,6 +468,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
             key,
             toVersioned(oldValue));
       }
+      snapshots.beforeUpdate(key);
       entries().put(commit.value().key(),
           new MapEntryValue(MapEntryValue.Type.VALUE, newValue.version(), newValue.value()));
       Versioned<byte[]> result = toVersioned(oldValue);
@@ -411,6 +503,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
           MapEntryValue.Type.VALUE,
           commit.index(),
           commit.value().value());
+      snapshots.beforeUpdate(key);
       entries().put(commit.value().key(), newValue);
       Versioned<byte[]> result = toVersioned(newValue);
       publish(new MapEvent<>(MapEvent.Type.INSERT, "", key, result, null));
@@ -445,6 +538,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
             key,
             toVersioned(oldValue));
       }
+      snapshots.beforeUpdate(key);
       entries().put(commit.value().key(), newValue);
       Versioned<byte[]> result = toVersioned(newValue);
       publish(new MapEvent<>(MapEvent.Type.INSERT, "", key, result, null));
@@ -458,6 +552,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
             key,
             toVersioned(oldValue));
       }
+      snapshots.beforeUpdate(key);
       entries().put(commit.value().key(), newValue);
       Versioned<byte[]> result = toVersioned(newValue);
       publish(new MapEvent<>(MapEvent.Type.UPDATE, "", key, result, toVersioned(oldValue)));
@@ -488,6 +583,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
     }
 
     // If no transactions are active, remove the key. Otherwise, replace it with a tombstone.
+    snapshots.beforeUpdate(key);
     if (activeTransactions.isEmpty()) {
       entries().remove(key);
     } else {
@@ -557,6 +653,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
       return new MapEntryUpdateResult<>(MapEntryUpdateResult.Status.WRITE_LOCK, index, key, null);
     }
 
+    snapshots.beforeUpdate(key);
     entries().put(key, newValue);
     Versioned<byte[]> result = toVersioned(oldValue);
     publish(new MapEvent<>(MapEvent.Type.UPDATE, "", key, toVersioned(newValue), result));
@@ -613,6 +710,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
       if (!valueIsNull(value)) {
         Versioned<byte[]> removedValue = new Versioned<>(value.value(), value.version());
         publish(new MapEvent<>(MapEvent.Type.REMOVE, "", key, null, removedValue));
+        snapshots.beforeUpdate(key);
         if (activeTransactions.isEmpty()) {
           iterator.remove();
         } else {
@@ -793,6 +891,7 @@ public class ConsistentMapService extends AbstractPrimitiveService {
         continue;
       }
 
+      snapshots.beforeUpdate(key);
       MapEntryValue previousValue = entries().remove(key);
       MapEntryValue newValue = null;
 
@@ -882,8 +981,10 @@ public class ConsistentMapService extends AbstractPrimitiveService {
     if (activeTransactions.isEmpty()) {
       Iterator<Map.Entry<String, MapEntryValue>> iterator = entries().entrySet().iterator();
       while (iterator.hasNext()) {
-        MapEntryValue value = iterator.next().getValue();
+        Map.Entry<String, MapEntryValue> entry = iterator.next();
+        MapEntryValue value = entry.getValue();
         if (value.type() == MapEntryValue.Type.TOMBSTONE) {
+          snapshots.beforeUpdate(entry.getKey());
           iterator.remove();
         }
       }
@@ -893,8 +994,10 @@ public class ConsistentMapService extends AbstractPrimitiveService {
           .min().getAsLong();
       Iterator<Map.Entry<String, MapEntryValue>> iterator = entries().entrySet().iterator();
       while (iterator.hasNext()) {
-        MapEntryValue value = iterator.next().getValue();
+        Map.Entry<String, MapEntryValue> entry = iterator.next();
+        MapEntryValue value = entry.getValue();
         if (value.type() == MapEntryValue.Type.TOMBSTONE && value.version < lowWaterMark) {
+          snapshots.beforeUpdate(entry.getKey());
           iterator.remove();
         }
       }
@@ -40,6 +40,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import static io.atomix.map.impl.ConsistentTreeMapOperations.CEILING_ENTRY;
 import static io.atomix.map.impl.ConsistentTreeMapOperations.CEILING_KEY;
@@ -59,7 +61,7 @@ import static io.atomix.map.impl.ConsistentTreeMapOperations.SUB_MAP;
 
 /**
  * State machine corresponding to {@link ConsistentTreeMapProxy} backed by a
- * {@link TreeMap}.
+ * {@link java.util.concurrent.ConcurrentSkipListMap}.
  */
 public class ConsistentTreeMapService extends ConsistentMapService {
 
@@ -79,13 +81,13 @@ public class ConsistentTreeMapService extends ConsistentMapService {
       .build());
 
   @Override
-  protected TreeMap<String, MapEntryValue> createMap() {
-    return Maps.newTreeMap();
+  protected ConcurrentNavigableMap<String, MapEntryValue> createMap() {
+    return new ConcurrentSkipListMap<>();
   }
 
   @Override
-  protected TreeMap<String, MapEntryValue> entries() {
-    return (TreeMap<String, MapEntryValue>) super.entries();
+  protected ConcurrentNavigableMap<String, MapEntryValue> entries() {
+    return (ConcurrentNavigableMap<String, MapEntryValue>) super.entries();
   }
 
   @Override
@@ -118,8 +120,8 @@ public class ConsistentTreeMapService extends ConsistentMapService {
     // Do not support this until lazy communication is possible.  At present
     // it transmits up to the entire map.
     SubMap<String, MapEntryValue> subMap = commit.value();
-    return entries().subMap(subMap.fromKey(), subMap.isInclusiveFrom(),
-        subMap.toKey(), subMap.isInclusiveTo());
+    return Maps.newTreeMap(entries().subMap(subMap.fromKey(), subMap.isInclusiveFrom(),
+        subMap.toKey(), subMap.isInclusiveTo()));
   }
 
   protected String firstKey() {
@@ -143,11 +145,19 @@ public class ConsistentTreeMapService extends ConsistentMapService {
   }
 
   protected Map.Entry<String, Versioned<byte[]>> pollFirstEntry() {
-    return toVersionedEntry(entries().pollFirstEntry());
+    return toVersionedEntry(pollEntry(entries().firstEntry()));
   }
 
   protected Map.Entry<String, Versioned<byte[]>> pollLastEntry() {
-    return toVersionedEntry(entries().pollLastEntry());
+    return toVersionedEntry(pollEntry(entries().lastEntry()));
+  }
+
+  private Map.Entry<String, MapEntryValue> pollEntry(Map.Entry<String, MapEntryValue> entry) {
+    if (entry != null) {
+      snapshots.beforeUpdate(entry.getKey());
+      entries().remove(entry.getKey());
+    }
+    return entry;
   }
 
   protected Map.Entry<String, Versioned<byte[]>> lowerEntry(Commit<? extends LowerEntry> commit) {
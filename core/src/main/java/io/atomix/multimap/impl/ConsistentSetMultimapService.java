@@ -28,7 +28,9 @@ import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import io.atomix.primitive.service.AbstractPrimitiveService;
 import io.atomix.primitive.service.Commit;
+import io.atomix.primitive.service.MapSnapshotTracker;
 import io.atomix.primitive.service.ServiceExecutor;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.session.Session;
 import io.atomix.multimap.MultimapEvent;
 import io.atomix.multimap.impl.ConsistentSetMultimapOperations.ContainsEntry;
@@ -58,6 +60,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -66,6 +70,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkState;
 import static io.atomix.multimap.impl.ConsistentSetMultimapEvents.CHANGE;
 import static io.atomix.multimap.impl.ConsistentSetMultimapOperations.ADD_LISTENER;
 import static io.atomix.multimap.impl.ConsistentSetMultimapOperations.CLEAR;
@@ -90,7 +95,15 @@ import static io.atomix.multimap.impl.ConsistentSetMultimapOperations.VALUES;
  */
 public class ConsistentSetMultimapService extends AbstractPrimitiveService {
 
-  private final Serializer serializer = Serializer.using(KryoNamespace.builder()
+  /**
+   * Version of the format written by {@link #backup(BufferOutput)}, which writes multimap entries one at a time.
+   * <p>
+   * The version is written negated so it can be told apart from the unversioned format, which began with the
+   * non-negative global version and wrote the multimap as a single object.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  final Serializer serializer = Serializer.using(KryoNamespace.builder()
       .register(KryoNamespaces.BASIC)
       .register(ConsistentSetMultimapOperations.NAMESPACE)
       .register(ConsistentSetMultimapEvents.NAMESPACE)
@@ -115,25 +128,91 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
 
   private AtomicLong globalVersion = new AtomicLong(1);
   private Map<Long, Session> listeners = new LinkedHashMap<>();
-  private Map<String, MapEntryValue> backingMap = Maps.newHashMap();
+  private ConcurrentMap<String, MapEntryValue> backingMap = new ConcurrentHashMap<>();
+  private final MapSnapshotTracker<String, MapEntryValue> snapshots = new MapSnapshotTracker<>(MapEntryValue::copy);
 
   @Override
   public void backup(BufferOutput<?> writer) {
-    writer.writeLong(globalVersion.get());
-    writer.writeObject(Sets.newHashSet(listeners.keySet()), serializer::encode);
-    writer.writeObject(backingMap, serializer::encode);
+    writeState(writer, globalVersion.get(), Sets.newHashSet(listeners.keySet()));
+    backingMap.forEach((key, value) -> writeEntry(writer, key, value));
+    writer.writeBoolean(false);
+  }
+
+  @Override
+  public ServiceSnapshot snapshot() {
+    long globalVersion = this.globalVersion.get();
+    Set<Long> listeners = Sets.newHashSet(this.listeners.keySet());
+    MapSnapshotTracker<String, MapEntryValue>.View entries = snapshots.freeze(backingMap);
+    return new ServiceSnapshot() {
+      @Override
+      public void write(BufferOutput<?> writer) {
+        writeState(writer, globalVersion, listeners);
+        entries.forEach((key, value) -> writeEntry(writer, key, value));
+        writer.writeBoolean(false);
+      }
+
+      @Override
+      public void close() {
+        entries.close();
+      }
+    };
+  }
+
+  /**
+   * Writes the service state other than the multimap entries to the given buffer.
+   */
+  private void writeState(BufferOutput<?> writer, long globalVersion, Set<Long> listeners) {
+    writer.writeInt(-FORMAT_VERSION);
+    writer.writeLong(globalVersion);
+    writer.writeObject(listeners, serializer::encode);
+  }
+
+  /**
+   * Writes a multimap entry to the given buffer.
+   */
+  private void writeEntry(BufferOutput<?> writer, String key, MapEntryValue value) {
+    writer.writeBoolean(true);
+    writer.writeString(key);
+    writer.writeObject(value, serializer::encode);
   }
 
   @Override
   public void restore(BufferInput<?> reader) {
+    int formatVersion = reader.readInt();
+    if (formatVersion >= 0) {
+      restoreUnversioned(reader, formatVersion);
+      return;
+    }
+    checkState(-formatVersion == FORMAT_VERSION, "unknown snapshot format version %s", -formatVersion);
+
     globalVersion = new AtomicLong(reader.readLong());
+    restoreListeners(reader.readObject(serializer::decode));
+    backingMap = new ConcurrentHashMap<>();
+    while (reader.readBoolean()) {
+      backingMap.put(reader.readString(), reader.readObject(serializer::decode));
+    }
+  }
 
+  /**
+   * Restores the service from the unversioned format, in which the multimap was written as a single object.
+   *
+   * @param reader the reader from which to restore the service
+   * @param high the high-order bits of the global version, which have already been read
+   */
+  private void restoreUnversioned(BufferInput<?> reader, int high) {
+    globalVersion = new AtomicLong(((long) high << 32) | (reader.readInt() & 0xFFFFFFFFL));
+    restoreListeners(reader.readObject(serializer::decode));
+    backingMap = new ConcurrentHashMap<>(reader.<Map<String, MapEntryValue>>readObject(serializer::decode));
+  }
+
+  /**
+   * Restores the listeners for the given session IDs.
+   */
+  private void restoreListeners(Set<Long> sessionIds) {
     listeners = new LinkedHashMap<>();
-    for (Long sessionId : reader.<Set<Long>>readObject(serializer::decode)) {
+    for (Long sessionId : sessionIds) {
       listeners.put(sessionId, sessions().getSession(sessionId));
     }
-
-    backingMap = reader.readObject(serializer::decode);
   }
 
   @Override
@@ -248,6 +327,7 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
    * @param commit Clear commit
    */
   protected void clear(Commit<Void> commit) {
+    backingMap.keySet().forEach(snapshots::beforeUpdate);
     backingMap.clear();
   }
 
@@ -326,6 +406,7 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
       return new Versioned<>(Sets.newHashSet(), -1);
     }
 
+    snapshots.beforeUpdate(key);
     Versioned<Collection<? extends byte[]>> removedValues =
         backingMap.get(key).addCommit(commit);
     publish(removedValues.value().stream()
@@ -349,6 +430,7 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
       return false;
     }
 
+    snapshots.beforeUpdate(key);
     Versioned<Collection<? extends byte[]>> removedValues = backingMap
         .get(key)
         .addCommit(commit);
@@ -380,6 +462,7 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
     if (commit.value().values().isEmpty()) {
       return false;
     }
+    snapshots.beforeUpdate(key);
     if (!backingMap.containsKey(key)) {
       backingMap.put(key, new NonTransactionalCommit());
     }
@@ -401,6 +484,7 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
 
   protected Versioned<Collection<? extends byte[]>> replace(
       Commit<? extends Replace> commit) {
+    snapshots.beforeUpdate(commit.value().key());
     if (!backingMap.containsKey(commit.value().key())) {
       backingMap.put(commit.value().key(),
           new NonTransactionalCommit());
@@ -462,6 +546,13 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
      */
     Versioned<Collection<? extends byte[]>> addCommit(
         Commit<? extends MultimapOperation> commit);
+
+    /**
+     * Returns a copy of the value.
+     *
+     * @return a copy of the value
+     */
+    MapEntryValue copy();
   }
 
   private class NonTransactionalCommit implements MapEntryValue {
@@ -484,6 +575,14 @@ public class ConsistentSetMultimapService extends AbstractPrimitiveService {
       return version;
     }
 
+    @Override
+    public MapEntryValue copy() {
+      NonTransactionalCommit copy = new NonTransactionalCommit();
+      copy.version = version;
+      copy.valueSet.addAll(valueSet);
+      return copy;
+    }
+
     @Override
     public Versioned<Collection<? extends byte[]>> addCommit(
         Commit<? extends MultimapOperation> commit) {
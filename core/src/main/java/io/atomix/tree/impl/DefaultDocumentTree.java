@@ -29,10 +29,14 @@ import io.atomix.tree.IllegalDocumentModificationException;
 import io.atomix.tree.NoSuchDocumentPathException;
 import io.atomix.utils.time.Versioned;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * Simple implementation of a {@link DocumentTree}.
@@ -44,6 +48,7 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
   private static final DocumentPath ROOT_PATH = DocumentPath.from("root");
   final DefaultDocumentTreeNode<V> root;
   private final Supplier<Long> versionSupplier;
+  private volatile View view;
 
   public DefaultDocumentTree() {
     AtomicLong versionCounter = new AtomicLong(0);
@@ -93,6 +98,7 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
     checkRootModification(path);
     DefaultDocumentTreeNode<V> node = getNode(path);
     if (node != null) {
+      beforeUpdate(node);
       return node.update(value, versionSupplier.get());
     } else {
       create(path, value);
@@ -112,7 +118,7 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
     if (parentNode == null) {
       throw new IllegalDocumentModificationException();
     }
-    parentNode.addChild(simpleName(path), value, versionSupplier.get());
+    addChild(parentNode, simpleName(path), value, versionSupplier.get());
     return true;
   }
 
@@ -131,10 +137,26 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
     if (parentNode == null) {
       throw new IllegalDocumentModificationException();
     }
-    parentNode.addChild(simpleName(path), value, versionSupplier.get());
+    addChild(parentNode, simpleName(path), value, versionSupplier.get());
     return true;
   }
 
+  /**
+   * Adds a node read from a view of a tree, retaining the node's version.
+   * <p>
+   * Nodes must be restored in the order in which they were read from the {@link View}, parents before children.
+   *
+   * @param path the path of the node to restore
+   * @param value the versioned value of the node
+   */
+  void restoreNode(DocumentPath path, Versioned<V> value) {
+    DefaultDocumentTreeNode<V> parentNode = getNode(path.parent());
+    if (parentNode == null) {
+      throw new IllegalDocumentModificationException();
+    }
+    addChild(parentNode, simpleName(path), value.value(), value.version());
+  }
+
   @Override
   public boolean replace(DocumentPath path, V newValue, long version) {
     checkRootModification(path);
@@ -171,6 +193,7 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
       throw new IllegalDocumentModificationException();
     }
     DefaultDocumentTreeNode<V> parent = (DefaultDocumentTreeNode<V>) nodeToRemove.parent();
+    beforeUpdate(parent);
     parent.removeChild(simpleName(path));
     return nodeToRemove.value();
   }
@@ -195,6 +218,59 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Passes the path and value of each node of the tree to the given consumer, parents before children.
+   *
+   * @param consumer the consumer to which to pass the nodes
+   */
+  void forEachNode(BiConsumer<DocumentPath, Versioned<V>> consumer) {
+    Deque<DocumentTreeNode<V>> nodes = new ArrayDeque<>();
+    nodes.push(root);
+    DocumentTreeNode<V> node;
+    while ((node = nodes.poll()) != null) {
+      consumer.accept(node.path(), node.value());
+      List<DocumentTreeNode<V>> children = ((DefaultDocumentTreeNode<V>) node).childNodes();
+      for (int i = children.size() - 1; i >= 0; i--) {
+        nodes.push(children.get(i));
+      }
+    }
+  }
+
+  /**
+   * Freezes a point-in-time view of the tree.
+   *
+   * @return the frozen view of the tree
+   * @throws IllegalStateException if a view of the tree is already open
+   */
+  View freeze() {
+    Preconditions.checkState(view == null, "snapshot already open");
+    View view = new View();
+    this.view = view;
+    return view;
+  }
+
+  /**
+   * Preserves the given node before its value or children are changed.
+   */
+  private void beforeUpdate(DefaultDocumentTreeNode<V> node) {
+    View view = this.view;
+    if (view != null) {
+      view.preserve(node);
+    }
+  }
+
+  /**
+   * Adds a child to the given node.
+   */
+  private void addChild(DefaultDocumentTreeNode<V> parentNode, String name, V value, long version) {
+    beforeUpdate(parentNode);
+    parentNode.addChild(name, value, version);
+    View view = this.view;
+    if (view != null) {
+      view.created((DefaultDocumentTreeNode<V>) parentNode.child(name));
+    }
+  }
+
   private DefaultDocumentTreeNode<V> getNode(DocumentPath path) {
     Iterator<String> pathElements = path.pathElements().iterator();
     DefaultDocumentTreeNode<V> currentNode = root;
@@ -214,4 +290,97 @@ public class DefaultDocumentTree<V> implements DocumentTree<V> {
       throw new IllegalDocumentModificationException();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Copy-on-write view of the tree.
+   * <p>
+   * The view is frozen in constant time, and nodes are then read from the live tree in depth-first order. Before a
+   * node's value or children are changed, the node's state is preserved if the view hasn't read it yet. Nodes are
+   * read in chunks under a lock that's shared with updates, so updates wait for at most one chunk of nodes to be read.
+   */
+  final class View implements AutoCloseable {
+    private static final int CHUNK_SIZE = 128;
+    private final Deque<DefaultDocumentTreeNode<V>> nodes = new ArrayDeque<>();
+    private boolean done;
+
+    private View() {
+      nodes.push(root);
+    }
+
+    /**
+     * Preserves the state of the given node if it hasn't already been read.
+     */
+    private synchronized void preserve(DefaultDocumentTreeNode<V> node) {
+      if (!done && node.snapshot != this) {
+        node.snapshot = this;
+        node.snapshotValue = node.value();
+        node.snapshotChildren = node.childNodes();
+      }
+    }
+
+    /**
+     * Excludes a node that was created after the view was frozen.
+     */
+    private synchronized void created(DefaultDocumentTreeNode<V> node) {
+      if (!done) {
+        node.snapshot = this;
+      }
+    }
+
+    /**
+     * Passes the path and value of each node of the frozen tree to the given consumer, parents before children.
+     *
+     * @param consumer the consumer to which to pass the nodes
+     */
+    void forEach(BiConsumer<DocumentPath, Versioned<V>> consumer) {
+      while (readChunk(consumer)) {
+      }
+    }
+
+    /**
+     * Reads the next chunk of nodes from the tree.
+     *
+     * @return whether more nodes remain to be read
+     */
+    private synchronized boolean readChunk(BiConsumer<DocumentPath, Versioned<V>> consumer) {
+      Preconditions.checkState(!done, "snapshot closed");
+      for (int i = 0; i < CHUNK_SIZE; i++) {
+        DefaultDocumentTreeNode<V> node = nodes.poll();
+        if (node == null) {
+          done = true;
+          return false;
+        }
+
+        Versioned<V> value;
+        List<DocumentTreeNode<V>> children;
+        if (node.snapshot == this) {
+          value = node.snapshotValue;
+          children = node.snapshotChildren;
+          node.snapshotValue = null;
+          node.snapshotChildren = null;
+        } else {
+          value = node.value();
+          children = node.childNodes();
+          node.snapshot = this;
+        }
+
+        consumer.accept(node.path(), value);
+        for (int j = children.size() - 1; j >= 0; j--) {
+          nodes.push((DefaultDocumentTreeNode<V>) children.get(j));
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        done = true;
+        nodes.clear();
+      }
+      if (DefaultDocumentTree.this.view == this) {
+        DefaultDocumentTree.this.view = null;
+      }
+    }
+  }
+}
@@ -26,6 +26,7 @@ import io.atomix.tree.DocumentTreeNode;
 import io.atomix.utils.time.Versioned;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -41,6 +42,11 @@ public class DefaultDocumentTreeNode<V> implements DocumentTreeNode<V> {
   private final Ordering ordering;
   private final DocumentTreeNode<V> parent;
 
+  // The snapshot view that has read or preserved this node, and the node's state when it was preserved.
+  transient Object snapshot;
+  transient Versioned<V> snapshotValue;
+  transient List<DocumentTreeNode<V>> snapshotChildren;
+
   public DefaultDocumentTreeNode(DocumentPath key,
                                  V value,
                                  long version,
@@ -77,6 +83,15 @@ public class DefaultDocumentTreeNode<V> implements DocumentTreeNode<V> {
     return ImmutableList.copyOf(children.values()).iterator();
   }
 
+  /**
+   * Returns a copy of the list of children of this node.
+   *
+   * @return the children of this node
+   */
+  List<DocumentTreeNode<V>> childNodes() {
+    return ImmutableList.copyOf(children.values());
+  }
+
   @Override
   public DocumentTreeNode<V> child(String name) {
     return children.get(name);
@@ -28,9 +28,9 @@ import io.atomix.primitive.event.EventType;
 import io.atomix.primitive.service.AbstractPrimitiveService;
 import io.atomix.primitive.service.Commit;
 import io.atomix.primitive.service.ServiceExecutor;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.session.Session;
 import io.atomix.tree.DocumentPath;
-import io.atomix.tree.DocumentTree;
 import io.atomix.tree.DocumentTreeEvent;
 import io.atomix.tree.DocumentTreeEvent.Type;
 import io.atomix.tree.IllegalDocumentModificationException;
@@ -62,6 +62,7 @@ import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkState;
 import static io.atomix.tree.impl.DocumentTreeEvents.CHANGE;
 import static io.atomix.tree.impl.DocumentTreeOperations.ADD_LISTENER;
 import static io.atomix.tree.impl.DocumentTreeOperations.CLEAR;
@@ -74,7 +75,16 @@ import static io.atomix.tree.impl.DocumentTreeOperations.UPDATE;
  * State Machine for {@link DocumentTreeProxy} resource.
  */
 public class DocumentTreeService extends AbstractPrimitiveService {
-  private final Serializer serializer = Serializer.using(KryoNamespace.builder()
+
+  /**
+   * Version of the format written by {@link #backup(BufferOutput)}, which writes tree nodes one at a time.
+   * <p>
+   * The version is written negated so it can be told apart from the unversioned format, which began with the
+   * non-negative version counter and wrote the tree as a single object.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  final Serializer serializer = Serializer.using(KryoNamespace.builder()
       .register(KryoNamespaces.BASIC)
       .register(DocumentTreeOperations.NAMESPACE)
       .register(DocumentTreeEvents.NAMESPACE)
@@ -97,6 +107,7 @@ public class DocumentTreeService extends AbstractPrimitiveService {
       .register(TreeMap.class)
       .register(Ordering.class)
       .register(SessionListenCommits.class)
+      // The tree is written node by node, but is registered to read the unversioned format.
       .register(new com.esotericsoftware.kryo.Serializer<DefaultDocumentTree>() {
         @Override
         public void write(Kryo kryo, Output output, DefaultDocumentTree object) {
@@ -115,25 +126,94 @@ public class DocumentTreeService extends AbstractPrimitiveService {
 
   private Map<Long, SessionListenCommits> listeners = new HashMap<>();
   private AtomicLong versionCounter = new AtomicLong(0);
-  private DocumentTree<byte[]> docTree;
+  private DefaultDocumentTree<byte[]> docTree;
   private Set<DocumentPath> preparedKeys = Sets.newHashSet();
+  private final Ordering ordering;
 
   public DocumentTreeService(Ordering ordering) {
+    this.ordering = ordering;
     this.docTree = new DefaultDocumentTree<>(versionCounter::incrementAndGet, ordering);
   }
 
   @Override
   public void backup(BufferOutput<?> writer) {
+    writer.writeInt(-FORMAT_VERSION);
     writer.writeLong(versionCounter.get());
     writer.writeObject(listeners, serializer::encode);
-    writer.writeObject(docTree, serializer::encode);
     writer.writeObject(preparedKeys, serializer::encode);
+    docTree.forEachNode((path, value) -> writeNode(writer, path, value));
+    writer.writeBoolean(false);
+  }
+
+  @Override
+  public ServiceSnapshot snapshot() {
+    long version = versionCounter.get();
+    byte[] listeners = serializer.encode(this.listeners);
+    byte[] preparedKeys = serializer.encode(this.preparedKeys);
+    DefaultDocumentTree<byte[]>.View nodes = docTree.freeze();
+    return new ServiceSnapshot() {
+      @Override
+      public void write(BufferOutput<?> writer) {
+        writer.writeInt(-FORMAT_VERSION);
+        writer.writeLong(version);
+        writer.writeObject(listeners, bytes -> bytes);
+        writer.writeObject(preparedKeys, bytes -> bytes);
+        nodes.forEach((path, value) -> writeNode(writer, path, value));
+        writer.writeBoolean(false);
+      }
+
+      @Override
+      public void close() {
+        nodes.close();
+      }
+    };
+  }
+
+  /**
+   * Writes a tree node to the given buffer.
+   */
+  private void writeNode(BufferOutput<?> writer, DocumentPath path, Versioned<byte[]> value) {
+    writer.writeBoolean(true);
+    writer.writeObject(path, serializer::encode);
+    writer.writeObject(value, serializer::encode);
   }
 
   @Override
   public void restore(BufferInput<?> reader) {
+    int formatVersion = reader.readInt();
+    if (formatVersion >= 0) {
+      restoreUnversioned(reader, formatVersion);
+      return;
+    }
+    checkState(-formatVersion == FORMAT_VERSION, "unknown snapshot format version %s", -formatVersion);
+
     versionCounter = new AtomicLong(reader.readLong());
     listeners = reader.readObject(serializer::decode);
+    preparedKeys = reader.readObject(serializer::decode);
+
+    DefaultDocumentTree<byte[]> tree = null;
+    while (reader.readBoolean()) {
+      DocumentPath path = reader.readObject(serializer::decode);
+      Versioned<byte[]> value = reader.readObject(serializer::decode);
+      if (tree == null) {
+        tree = new DefaultDocumentTree<>(versionCounter::incrementAndGet,
+            new DefaultDocumentTreeNode<>(path, value.value(), value.version(), ordering, null));
+      } else {
+        tree.restoreNode(path, value);
+      }
+    }
+    docTree = tree;
+  }
+
+  /**
+   * Restores the service from the unversioned format, in which the tree was written as a single object.
+   *
+   * @param reader the reader from which to restore the service
+   * @param high the high-order bits of the version counter, which have already been read
+   */
+  private void restoreUnversioned(BufferInput<?> reader, int high) {
+    versionCounter = new AtomicLong(((long) high << 32) | (reader.readInt() & 0xFFFFFFFFL));
+    listeners = reader.readObject(serializer::decode);
     docTree = reader.readObject(serializer::decode);
     preparedKeys = reader.readObject(serializer::decode);
   }
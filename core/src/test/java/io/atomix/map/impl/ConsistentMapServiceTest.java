@@ -15,8 +15,13 @@
  */
 package io.atomix.map.impl;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.atomix.map.impl.ConsistentMapOperations.Get;
 import io.atomix.map.impl.ConsistentMapOperations.Put;
+import io.atomix.map.impl.ConsistentMapOperations.Remove;
+import io.atomix.map.impl.ConsistentMapService.MapEntryValue;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.service.impl.DefaultCommit;
 import io.atomix.primitive.session.Session;
 import io.atomix.storage.buffer.Buffer;
@@ -24,10 +29,15 @@ import io.atomix.storage.buffer.HeapBuffer;
 import io.atomix.utils.time.Versioned;
 import org.junit.Test;
 
+import java.util.Map;
+
 import static io.atomix.map.impl.ConsistentMapOperations.GET;
 import static io.atomix.map.impl.ConsistentMapOperations.PUT;
+import static io.atomix.map.impl.ConsistentMapOperations.REMOVE;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -60,4 +70,120 @@ public class ConsistentMapServiceTest {
     assertNotNull(value);
     assertArrayEquals("Hello world!".getBytes(), value.value());
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testIncrementalSnapshot() throws Exception {
+    ConsistentMapService service = new ConsistentMapService();
+    for (int i = 0; i < 1000; i++) {
+      service.put(new DefaultCommit<>(
+          i + 1,
+          PUT,
+          new Put("key-" + i, String.valueOf(i).getBytes()),
+          mock(Session.class),
+          System.currentTimeMillis()));
+    }
+
+    ServiceSnapshot snapshot = service.snapshot();
+
+    // Changes made after the snapshot is taken should not be written to the snapshot.
+    service.put(new DefaultCommit<>(
+        1001,
+        PUT,
+        new Put("key-500", "foo".getBytes()),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    service.remove(new DefaultCommit<>(
+        1002,
+        REMOVE,
+        new Remove("key-999"),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    service.put(new DefaultCommit<>(
+        1003,
+        PUT,
+        new Put("bar", "bar".getBytes()),
+        mock(Session.class),
+        System.currentTimeMillis()));
+
+    Buffer buffer = HeapBuffer.allocate();
+    snapshot.write(buffer);
+    snapshot.close();
+
+    service = new ConsistentMapService();
+    service.restore(buffer.flip());
+
+    for (int i = 0; i < 1000; i++) {
+      Versioned<byte[]> value = service.get(new DefaultCommit<>(
+          1004,
+          GET,
+          new Get("key-" + i),
+          mock(Session.class),
+          System.currentTimeMillis()));
+      assertNotNull(value);
+      assertArrayEquals(String.valueOf(i).getBytes(), value.value());
+    }
+    assertNull(service.get(new DefaultCommit<>(
+        1004,
+        GET,
+        new Get("bar"),
+        mock(Session.class),
+        System.currentTimeMillis())));
+  }
+
+  @Test
+  public void testUnversionedSnapshot() throws Exception {
+    testUnversionedSnapshot(new ConsistentMapService(), Maps.newHashMap());
+  }
+
+  @Test
+  public void testUnversionedTreeMapSnapshot() throws Exception {
+    testUnversionedSnapshot(new ConsistentTreeMapService(), Maps.newTreeMap());
+  }
+
+  /**
+   * Tests restoring a snapshot written in the format that preceded versioned snapshots.
+   */
+  private void testUnversionedSnapshot(ConsistentMapService service, Map<String, MapEntryValue> map) {
+    map.put("foo", new MapEntryValue(MapEntryValue.Type.VALUE, 2, "Hello world!".getBytes()));
+    map.put("bar", new MapEntryValue(MapEntryValue.Type.VALUE, 3, "bar".getBytes()));
+
+    Buffer buffer = HeapBuffer.allocate();
+    buffer.writeObject(Sets.newHashSet(), service.serializer()::encode);
+    buffer.writeObject(Sets.newHashSet(), service.serializer()::encode);
+    buffer.writeObject(map, service.serializer()::encode);
+    buffer.writeObject(Maps.newHashMap(), service.serializer()::encode);
+    buffer.writeLong(3);
+
+    service.restore(buffer.flip());
+    assertEquals(3, service.currentVersion);
+
+    Versioned<byte[]> value = service.get(new DefaultCommit<>(
+        4,
+        GET,
+        new Get("foo"),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    assertNotNull(value);
+    assertEquals(2, value.version());
+    assertArrayEquals("Hello world!".getBytes(), value.value());
+
+    // Snapshots are written in the current format once restored.
+    buffer = HeapBuffer.allocate();
+    service.backup(buffer);
+    service.restore(buffer.flip());
+    assertArrayEquals("bar".getBytes(), service.get(new DefaultCommit<>(
+        4,
+        GET,
+        new Get("bar"),
+        mock(Session.class),
+        System.currentTimeMillis())).value());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnknownSnapshotVersion() throws Exception {
+    Buffer buffer = HeapBuffer.allocate();
+    buffer.writeInt(-2);
+    new ConsistentMapService().restore(buffer.flip());
+  }
 }
@@ -15,6 +15,8 @@
  */
 package io.atomix.multimap.impl;
 
+import com.google.common.collect.Maps;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.service.impl.DefaultCommit;
 import io.atomix.primitive.session.Session;
 import io.atomix.multimap.impl.ConsistentSetMultimapOperations.Get;
@@ -27,6 +29,8 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 import static io.atomix.multimap.impl.ConsistentSetMultimapOperations.GET;
 import static io.atomix.multimap.impl.ConsistentSetMultimapOperations.PUT;
@@ -67,4 +71,103 @@ public class ConsistentSetMultimapServiceTest {
     assertEquals(1, value.value().size());
     assertArrayEquals("Hello world!".getBytes(), value.value().iterator().next());
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testIncrementalSnapshot() throws Exception {
+    ConsistentSetMultimapService service = new ConsistentSetMultimapService();
+    service.put(new DefaultCommit<>(
+        2,
+        PUT,
+        new Put(
+            "foo", Arrays.asList("Hello world!".getBytes()), Match.ANY),
+        mock(Session.class),
+        System.currentTimeMillis()));
+
+    ServiceSnapshot snapshot = service.snapshot();
+
+    // Values added after the snapshot is taken should not be written to the snapshot.
+    service.put(new DefaultCommit<>(
+        3,
+        PUT,
+        new Put(
+            "foo", Arrays.asList("Goodbye world!".getBytes()), Match.ANY),
+        mock(Session.class),
+        System.currentTimeMillis()));
+
+    Buffer buffer = HeapBuffer.allocate();
+    snapshot.write(buffer);
+    snapshot.close();
+
+    service = new ConsistentSetMultimapService();
+    service.restore(buffer.flip());
+
+    Versioned<Collection<? extends byte[]>> value = service.get(new DefaultCommit<>(
+        4,
+        GET,
+        new Get("foo"),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    assertNotNull(value);
+    assertEquals(1, value.value().size());
+    assertArrayEquals("Hello world!".getBytes(), value.value().iterator().next());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testUnversionedSnapshot() throws Exception {
+    ConsistentSetMultimapService service = new ConsistentSetMultimapService();
+    service.put(new DefaultCommit<>(
+        2,
+        PUT,
+        new Put(
+            "foo", Arrays.asList("Hello world!".getBytes(), "Goodbye world!".getBytes()), Match.ANY),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    service.put(new DefaultCommit<>(
+        3,
+        PUT,
+        new Put(
+            "bar", Arrays.asList("bar".getBytes()), Match.ANY),
+        mock(Session.class),
+        System.currentTimeMillis()));
+
+    Buffer buffer = HeapBuffer.allocate();
+    service.backup(buffer);
+    buffer.flip();
+
+    // Rewrite the snapshot in the format that preceded versioned snapshots.
+    assertEquals(-1, buffer.readInt());
+    long globalVersion = buffer.readLong();
+    Set<Long> listeners = buffer.readObject(service.serializer::decode);
+    Map<String, Object> entries = Maps.newHashMap();
+    while (buffer.readBoolean()) {
+      entries.put(buffer.readString(), buffer.readObject(service.serializer::decode));
+    }
+
+    Buffer unversioned = HeapBuffer.allocate();
+    unversioned.writeLong(globalVersion);
+    unversioned.writeObject(listeners, service.serializer::encode);
+    unversioned.writeObject(entries, service.serializer::encode);
+
+    service = new ConsistentSetMultimapService();
+    service.restore(unversioned.flip());
+
+    Versioned<Collection<? extends byte[]>> value = service.get(new DefaultCommit<>(
+        4,
+        GET,
+        new Get("foo"),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    assertNotNull(value);
+    assertEquals(2, value.value().size());
+    value = service.get(new DefaultCommit<>(
+        4,
+        GET,
+        new Get("bar"),
+        mock(Session.class),
+        System.currentTimeMillis()));
+    assertEquals(1, value.value().size());
+    assertArrayEquals("bar".getBytes(), value.value().iterator().next());
+  }
 }
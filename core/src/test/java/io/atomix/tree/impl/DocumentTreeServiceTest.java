@@ -15,7 +15,10 @@
  */
 package io.atomix.tree.impl;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.atomix.primitive.Ordering;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.service.impl.DefaultCommit;
 import io.atomix.primitive.session.Session;
 import io.atomix.tree.impl.DocumentTreeOperations.Get;
@@ -28,11 +31,14 @@ import io.atomix.utils.Match;
 import org.junit.Test;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.atomix.tree.impl.DocumentTreeOperations.GET;
 import static io.atomix.tree.impl.DocumentTreeOperations.UPDATE;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -50,6 +56,105 @@ public class DocumentTreeServiceTest {
     testSnapshot(Ordering.INSERTION);
   }
 
+  @Test
+  public void testNaturalOrderedIncrementalSnapshot() throws Exception {
+    testIncrementalSnapshot(Ordering.NATURAL);
+  }
+
+  @Test
+  public void testInsertionOrderedIncrementalSnapshot() throws Exception {
+    testIncrementalSnapshot(Ordering.INSERTION);
+  }
+
+  @Test
+  public void testNaturalOrderedUnversionedSnapshot() throws Exception {
+    testUnversionedSnapshot(Ordering.NATURAL);
+  }
+
+  @Test
+  public void testInsertionOrderedUnversionedSnapshot() throws Exception {
+    testUnversionedSnapshot(Ordering.INSERTION);
+  }
+
+  /**
+   * Tests restoring a snapshot written in the format that preceded versioned snapshots.
+   */
+  private void testUnversionedSnapshot(Ordering ordering) throws Exception {
+    AtomicLong versionCounter = new AtomicLong();
+    DefaultDocumentTree<byte[]> tree = new DefaultDocumentTree<>(versionCounter::incrementAndGet, ordering);
+    tree.create(DocumentPath.from("root|foo"), "Hello world!".getBytes());
+    tree.create(DocumentPath.from("root|foo|bar"), "bar".getBytes());
+
+    DocumentTreeService service = new DocumentTreeService(ordering);
+    Buffer buffer = HeapBuffer.allocate();
+    buffer.writeLong(versionCounter.get());
+    buffer.writeObject(Maps.newHashMap(), service.serializer::encode);
+    buffer.writeObject(tree, service.serializer::encode);
+    buffer.writeObject(Sets.newHashSet(), service.serializer::encode);
+
+    service.restore(buffer.flip());
+    Versioned<byte[]> value = get(service, "root|foo");
+    assertNotNull(value);
+    assertEquals(tree.get(DocumentPath.from("root|foo")).version(), value.version());
+    assertArrayEquals("Hello world!".getBytes(), value.value());
+    assertArrayEquals("bar".getBytes(), get(service, "root|foo|bar").value());
+
+    // New nodes are versioned after the restored nodes.
+    update(service, 3, "root|baz", "baz");
+    assertEquals(versionCounter.get() + 1, get(service, "root|baz").version());
+  }
+
+  private void testIncrementalSnapshot(Ordering ordering) throws Exception {
+    DocumentTreeService service = new DocumentTreeService(ordering);
+    for (int i = 0; i < 500; i++) {
+      update(service, i + 1, "root|" + i, "Hello world!");
+      update(service, i + 1, "root|" + i + "|foo", String.valueOf(i));
+    }
+
+    ServiceSnapshot snapshot = service.snapshot();
+
+    // Changes made after the snapshot is taken should not be written to the snapshot.
+    update(service, 501, "root|250|foo", "bar");
+    update(service, 502, "root|499|foo", null);
+    update(service, 503, "root|bar", "bar");
+
+    Buffer buffer = HeapBuffer.allocate();
+    snapshot.write(buffer);
+    snapshot.close();
+
+    service = new DocumentTreeService(ordering);
+    service.restore(buffer.flip());
+
+    for (int i = 0; i < 500; i++) {
+      Versioned<byte[]> value = get(service, "root|" + i + "|foo");
+      assertNotNull(value);
+      assertArrayEquals(String.valueOf(i).getBytes(), value.value());
+    }
+    assertNull(get(service, "root|bar"));
+  }
+
+  private void update(DocumentTreeService service, long index, String path, String value) {
+    service.update(new DefaultCommit<>(
+        index,
+        UPDATE,
+        new Update(
+            DocumentPath.from(path),
+            value != null ? Optional.of(value.getBytes()) : null,
+            Match.any(),
+            Match.any()),
+        mock(Session.class),
+        System.currentTimeMillis()));
+  }
+
+  private Versioned<byte[]> get(DocumentTreeService service, String path) {
+    return service.get(new DefaultCommit<>(
+        504,
+        GET,
+        new Get(DocumentPath.from(path)),
+        mock(Session.class),
+        System.currentTimeMillis()));
+  }
+
   private void testSnapshot(Ordering ordering) throws Exception {
     DocumentTreeService service = new DocumentTreeService(ordering);
     service.update(new DefaultCommit<>(
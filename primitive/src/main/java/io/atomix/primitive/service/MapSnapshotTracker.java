@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.primitive.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Copy-on-write snapshot tracker for services backed by a concurrent map.
+ * <p>
+ * The tracker freezes a point-in-time view of a map in constant time on the service thread. The view then reads the
+ * entries of the live map through a weakly consistent iterator on the snapshot thread. Services must call
+ * {@link #beforeUpdate(Object)} before changing the entry for a key, which preserves a copy of the entry if the view
+ * hasn't read it yet. Entries are read in chunks under a lock that's shared with {@link #beforeUpdate(Object)}, so
+ * the service waits for at most one chunk of entries to be read.
+ * <p>
+ * Entries of a {@link ConcurrentNavigableMap} are read in key order, so the view only tracks the last key it has
+ * read. For other maps, the view tracks the set of keys it has read until the snapshot is complete.
+ *
+ * @param <K> the map key type
+ * @param <V> the map value type
+ */
+public class MapSnapshotTracker<K, V> {
+  private static final int CHUNK_SIZE = 128;
+  private static final Object ABSENT = new Object();
+
+  private final UnaryOperator<V> copier;
+  private volatile View view;
+
+  public MapSnapshotTracker() {
+    this(UnaryOperator.identity());
+  }
+
+  /**
+   * @param copier a function with which to copy values that are updated in place
+   */
+  public MapSnapshotTracker(UnaryOperator<V> copier) {
+    this.copier = copier;
+  }
+
+  /**
+   * Freezes a point-in-time view of the given map.
+   *
+   * @param map the map to freeze
+   * @return the frozen view of the map
+   * @throws IllegalStateException if a view of the map is already open
+   */
+  public View freeze(ConcurrentMap<K, V> map) {
+    checkState(view == null, "snapshot already open");
+    View view = new View(map);
+    this.view = view;
+    return view;
+  }
+
+  /**
+   * Preserves the entry for the given key before it's changed.
+   * <p>
+   * This method must be called on the service thread before the entry for the key is added, replaced, removed or
+   * its value updated in place.
+   *
+   * @param key the key to be changed
+   */
+  public void beforeUpdate(K key) {
+    View view = this.view;
+    if (view != null) {
+      view.preserve(key);
+    }
+  }
+
+  /**
+   * Frozen view of a map.
+   */
+  public final class View implements AutoCloseable {
+    private final ConcurrentMap<K, V> map;
+    private final Iterator<Map.Entry<K, V>> iterator;
+    private final Comparator<? super K> comparator;
+    private final Set<K> read = new HashSet<>();
+    private final Map<K, Object> preserved = new HashMap<>();
+    private K position;
+    private boolean done;
+
+    @SuppressWarnings("unchecked")
+    private View(ConcurrentMap<K, V> map) {
+      this.map = map;
+      this.iterator = map.entrySet().iterator();
+      if (map instanceof ConcurrentNavigableMap) {
+        Comparator<? super K> comparator = ((ConcurrentNavigableMap<K, V>) map).comparator();
+        this.comparator = comparator != null ? comparator : (Comparator<? super K>) Comparator.naturalOrder();
+      } else {
+        this.comparator = null;
+      }
+    }
+
+    /**
+     * Preserves the entry for the given key if it hasn't already been read.
+     */
+    private synchronized void preserve(K key) {
+      if (!done && !isRead(key) && !preserved.containsKey(key)) {
+        V value = map.get(key);
+        preserved.put(key, value != null ? copier.apply(value) : ABSENT);
+      }
+    }
+
+    /**
+     * Returns whether the entry for the given key has been read.
+     */
+    private boolean isRead(K key) {
+      if (comparator != null) {
+        return position != null && comparator.compare(key, position) <= 0;
+      }
+      return read.contains(key);
+    }
+
+    /**
+     * Records that the entry for the given key has been read, returning false if it had already been read.
+     */
+    private boolean markRead(K key) {
+      if (comparator != null) {
+        position = key;
+        return true;
+      }
+      return read.add(key);
+    }
+
+    /**
+     * Passes each entry of the frozen map to the given consumer.
+     * <p>
+     * Entries that haven't been removed since the view was frozen are read in iteration order, followed by removed
+     * entries.
+     *
+     * @param consumer the consumer to which to pass the entries
+     */
+    public void forEach(BiConsumer<? super K, ? super V> consumer) {
+      while (readChunk(consumer)) {
+      }
+      readPreserved(consumer);
+    }
+
+    /**
+     * Reads the next chunk of entries from the live map.
+     * <p>
+     * A weakly consistent iterator may return a key that was removed and added again after it was read, so keys that
+     * have already been read are skipped.
+     *
+     * @return whether more entries remain to be read
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized boolean readChunk(BiConsumer<? super K, ? super V> consumer) {
+      checkState(!done, "snapshot closed");
+      for (int i = 0; i < CHUNK_SIZE; i++) {
+        if (!iterator.hasNext()) {
+          return false;
+        }
+        Map.Entry<K, V> entry = iterator.next();
+        K key = entry.getKey();
+        if (!markRead(key)) {
+          continue;
+        }
+        Object value = preserved.containsKey(key) ? preserved.remove(key) : entry.getValue();
+        if (value != ABSENT) {
+          consumer.accept(key, (V) value);
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Reads the preserved entries that were removed from the live map before they could be read.
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized void readPreserved(BiConsumer<? super K, ? super V> consumer) {
+      done = true;
+      read.clear();
+      for (Map.Entry<K, Object> entry : preserved.entrySet()) {
+        if (entry.getValue() != ABSENT) {
+          consumer.accept(entry.getKey(), (V) entry.getValue());
+        }
+      }
+      preserved.clear();
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        done = true;
+        read.clear();
+        preserved.clear();
+      }
+      if (MapSnapshotTracker.this.view == this) {
+        MapSnapshotTracker.this.view = null;
+      }
+    }
+  }
+}
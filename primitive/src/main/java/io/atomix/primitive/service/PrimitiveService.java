@@ -51,6 +51,20 @@ public interface PrimitiveService extends SessionListener {
    */
   void backup(BufferOutput<?> output);
 
+  /**
+   * Returns a point-in-time snapshot of the service state.
+   * <p>
+   * The snapshot is taken on the service thread and is written to the snapshot on another thread while the service
+   * continues to apply commits, so services that support snapshots must be able to freeze their state without copying
+   * it. At most one snapshot of a service is open at a time. By default, services don't support snapshots and are
+   * {@link #backup(BufferOutput) backed up} on the service thread instead.
+   *
+   * @return a snapshot of the service state or {@code null} if the service must be backed up synchronously
+   */
+  default ServiceSnapshot snapshot() {
+    return null;
+  }
+
   /**
    * Restores the service state from the given buffer.
    *
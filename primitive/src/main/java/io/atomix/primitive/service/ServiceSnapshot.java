@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.primitive.service;
+
+import io.atomix.storage.buffer.BufferOutput;
+
+/**
+ * Point-in-time view of a service's state.
+ * <p>
+ * Service snapshots are created by {@link PrimitiveService#snapshot()} on the service thread and are then written
+ * on a separate thread while the service continues to apply commits. The state written by a snapshot must be
+ * readable by {@link PrimitiveService#restore(io.atomix.storage.buffer.BufferInput)}.
+ */
+public interface ServiceSnapshot extends AutoCloseable {
+
+  /**
+   * Writes the snapshotted service state to the given buffer.
+   *
+   * @param output the buffer to which to write the service state
+   */
+  void write(BufferOutput<?> output);
+
+  /**
+   * Releases the snapshot.
+   */
+  @Override
+  default void close() {
+  }
+}
@@ -557,6 +557,8 @@ public interface RaftServer {
     private static final int DEFAULT_ELECTION_THRESHOLD = 3;
     private static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMillis(5000);
     private static final int DEFAULT_SESSION_FAILURE_THRESHOLD = 3;
+    private static final int DEFAULT_SNAPSHOT_CHUNK_SIZE = 1024 * 128;
+    private static final int DEFAULT_SNAPSHOT_CHUNK_WINDOW = 8;
     private static final ThreadModel DEFAULT_THREAD_MODEL = ThreadModel.SHARED_THREAD_POOL;
     private static final int DEFAULT_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
@@ -569,6 +571,8 @@ public interface RaftServer {
     protected int electionThreshold = DEFAULT_ELECTION_THRESHOLD;
     protected Duration sessionTimeout = DEFAULT_SESSION_TIMEOUT;
     protected int sessionFailureThreshold = DEFAULT_SESSION_FAILURE_THRESHOLD;
+    protected int snapshotChunkSize = DEFAULT_SNAPSHOT_CHUNK_SIZE;
+    protected int snapshotChunkWindow = DEFAULT_SNAPSHOT_CHUNK_WINDOW;
     protected PrimitiveTypeRegistry primitiveTypes = new PrimitiveTypeRegistry();
     protected ThreadModel threadModel = DEFAULT_THREAD_MODEL;
     protected int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
@@ -738,6 +742,35 @@ public interface RaftServer {
       return this;
     }
 
+    /**
+     * Sets the maximum size of the chunks in which snapshots are sent to followers.
+     *
+     * @param snapshotChunkSize the maximum number of bytes per snapshot chunk
+     * @return The Raft server builder.
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public Builder withSnapshotChunkSize(int snapshotChunkSize) {
+      checkArgument(snapshotChunkSize > 0, "snapshotChunkSize must be positive");
+      this.snapshotChunkSize = snapshotChunkSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of snapshot chunks that may be in flight to a follower.
+     * <p>
+     * Snapshot chunks are streamed to followers without waiting for each chunk to be acknowledged until this many
+     * chunks are awaiting a response.
+     *
+     * @param snapshotChunkWindow the maximum number of unacknowledged snapshot chunks per follower
+     * @return The Raft server builder.
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public Builder withSnapshotChunkWindow(int snapshotChunkWindow) {
+      checkArgument(snapshotChunkWindow > 0, "snapshotChunkWindow must be positive");
+      this.snapshotChunkWindow = snapshotChunkWindow;
+      return this;
+    }
+
     /**
      * Sets the server thread pool size.
      *
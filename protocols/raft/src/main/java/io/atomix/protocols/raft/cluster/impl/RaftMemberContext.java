@@ -15,8 +15,10 @@
  */
 package io.atomix.protocols.raft.cluster.impl;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.atomix.protocols.raft.storage.log.RaftLog;
 import io.atomix.protocols.raft.storage.log.RaftLogReader;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -27,8 +29,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Cluster member state.
  */
 public final class RaftMemberContext {
-  private static final int MAX_APPENDS = 2;
-  private static final int APPEND_WINDOW_SIZE = 8;
+  @VisibleForTesting
+  static final int MIN_APPENDS = 2;
+  @VisibleForTesting
+  static final int MAX_APPENDS = 64;
+  @VisibleForTesting
+  static final int MIN_APPEND_WINDOW = 1024 * 64;
+  @VisibleForTesting
+  static final int MAX_APPEND_WINDOW = 1024 * 1024 * 8;
+  private static final int APPEND_WINDOW_SIZE = 32;
+  private static final long APPEND_LATENCY_SLACK = 10;
   private final DefaultRaftMember member;
   private long term;
   private long configIndex;
@@ -37,13 +47,22 @@ public final class RaftMemberContext {
   private long nextSnapshotIndex;
   private long nextSnapshotId;
   private int nextSnapshotOffset;
+  private SnapshotReader snapshotReader;
+  private boolean snapshotSent;
+  private long installEpoch;
   private long matchIndex;
   private long heartbeatTime;
   private int appending;
+  private int appendingBytes;
+  private int appendWindow = MIN_APPEND_WINDOW;
+  private int appendRequests = MIN_APPENDS;
+  private int appendRequestCredit;
+  private long appendEpoch;
   private boolean appendSucceeded;
   private long appendTime;
+  private long windowTime = Long.MIN_VALUE;
   private boolean configuring;
-  private boolean installing;
+  private int installing;
   private int failures;
   private long failureTime;
   private volatile RaftLogReader reader;
@@ -58,14 +77,19 @@ public final class RaftMemberContext {
    */
   public void resetState(RaftLog log) {
     snapshotIndex = 0;
-    nextSnapshotIndex = 0;
-    nextSnapshotOffset = 0;
+    resetSnapshot();
     matchIndex = 0;
     heartbeatTime = 0;
     appending = 0;
+    appendingBytes = 0;
+    appendWindow = MIN_APPEND_WINDOW;
+    appendRequests = MIN_APPENDS;
+    appendRequestCredit = 0;
+    appendEpoch++;
+    windowTime = Long.MIN_VALUE;
     timeStats.clear();
     configuring = false;
-    installing = false;
+    installing = 0;
     appendSucceeded = false;
     failures = 0;
     failureTime = 0;
@@ -210,7 +234,7 @@ public final class RaftMemberContext {
   /**
    * Returns the member's snapshot offset.
    *
-   * @return The member's snapshot offset.
+   * @return The byte offset of the next snapshot chunk to send to the member.
    */
   public int getNextSnapshotOffset() {
     return nextSnapshotOffset;
@@ -219,12 +243,62 @@ public final class RaftMemberContext {
   /**
    * Sets the member's snapshot offset.
    *
-   * @param nextSnapshotOffset The member's snapshot offset.
+   * @param nextSnapshotOffset The byte offset of the next snapshot chunk to send to the member.
    */
   public void setNextSnapshotOffset(int nextSnapshotOffset) {
     this.nextSnapshotOffset = nextSnapshotOffset;
   }
 
+  /**
+   * Returns the reader from which the next snapshot is sent to the member.
+   *
+   * @return The member's snapshot reader, positioned at the {@link #getNextSnapshotOffset() next snapshot offset}.
+   */
+  public SnapshotReader getSnapshotReader() {
+    return snapshotReader;
+  }
+
+  /**
+   * Positions the next snapshot at the given offset.
+   * <p>
+   * Install requests that are still in flight are superseded, so their responses can be recognized by the
+   * {@link #getInstallEpoch() install epoch} when they arrive.
+   *
+   * @param reader The reader from which to send the snapshot, positioned at the given offset.
+   * @param offset The byte offset of the next snapshot chunk to send.
+   */
+  public void seekSnapshot(SnapshotReader reader, int offset) {
+    if (snapshotReader != null) {
+      snapshotReader.close();
+    }
+    snapshotReader = reader;
+    nextSnapshotOffset = offset;
+    snapshotSent = false;
+    installEpoch++;
+  }
+
+  /**
+   * Resets the next snapshot to be sent to the member.
+   */
+  public void resetSnapshot() {
+    if (snapshotReader != null) {
+      snapshotReader.close();
+      snapshotReader = null;
+    }
+    nextSnapshotIndex = 0;
+    nextSnapshotId = 0;
+    nextSnapshotOffset = 0;
+    snapshotSent = false;
+    installEpoch++;
+  }
+
+  /**
+   * Flags the last chunk of the next snapshot as sent.
+   */
+  public void snapshotSent() {
+    snapshotSent = true;
+  }
+
   /**
    * Returns the member's match index.
    *
@@ -246,11 +320,16 @@ public final class RaftMemberContext {
 
   /**
    * Returns a boolean indicating whether an append request can be sent to the member.
+   * <p>
+   * Once appends to the member are succeeding, requests are pipelined until the number of requests or bytes in flight
+   * reaches the member's append windows. Both windows grow by a fixed amount per round trip while the member's
+   * response times stay close to the fastest recently observed, and are halved when responses slow down or appends
+   * fail, so the leader keeps high latency links busy without queueing more than the link can carry.
    *
    * @return Indicates whether an append request can be sent to the member.
    */
   public boolean canAppend() {
-    return appending == 0 || (appendSucceeded && appending < MAX_APPENDS && System.currentTimeMillis() - (timeStats.getMean() / MAX_APPENDS) >= appendTime);
+    return appending == 0 || (appendSucceeded && appending < appendRequests && appendingBytes < appendWindow);
   }
 
   /**
@@ -285,29 +364,117 @@ public final class RaftMemberContext {
     this.appendSucceeded = succeeded;
   }
 
+  /**
+   * Returns the member's append window.
+   *
+   * @return The maximum number of bytes that may be in flight to the member.
+   */
+  public int getAppendWindow() {
+    return appendWindow;
+  }
+
+  /**
+   * Returns the member's append request window.
+   *
+   * @return The maximum number of append requests that may be in flight to the member.
+   */
+  public int getAppendRequests() {
+    return appendRequests;
+  }
+
+  /**
+   * Returns the member's append epoch.
+   * <p>
+   * The epoch is incremented each time appends to the member are rewound, so responses to requests sent before the
+   * rewind can be recognized when they arrive.
+   *
+   * @return The member's append epoch.
+   */
+  public long getAppendEpoch() {
+    return appendEpoch;
+  }
+
+  /**
+   * Rewinds appends to the member after a failure.
+   * <p>
+   * Requests that are still in flight are superseded by the rewind, pipelining is suspended until an append to the
+   * member succeeds again, and the append windows are halved.
+   *
+   * @param time The current monotonic time in milliseconds.
+   */
+  public void rewindAppend(long time) {
+    appendEpoch++;
+    appendFailed();
+    shrinkAppendWindow(time);
+  }
+
   /**
    * Starts an append request to the member.
+   *
+   * @param bytes The number of bytes of entries in the request.
+   * @param time The monotonic time in milliseconds at which the request is sent.
+   * @return The member's append epoch.
    */
-  public void startAppend() {
+  public long startAppend(int bytes, long time) {
     appending++;
-    appendTime = System.currentTimeMillis();
+    appendingBytes += bytes;
+    appendTime = time;
+    return appendEpoch;
   }
 
   /**
    * Completes an append request to the member.
+   *
+   * @param bytes The number of bytes of entries in the request.
    */
-  public void completeAppend() {
-    appending--;
+  public void completeAppend(int bytes) {
+    appending = Math.max(appending - 1, 0);
+    appendingBytes = Math.max(appendingBytes - bytes, 0);
   }
 
   /**
-   * Completes an append request to the member.
+   * Completes an append request to the member, adjusting the append windows for the request's round trip time.
    *
-   * @param time The time in milliseconds for the append.
-   */
-  public void completeAppend(long time) {
-    appending--;
+   * @param bytes The number of bytes of entries in the request.
+   * @param startTime The monotonic time in milliseconds at which the request was sent.
+   * @param endTime The monotonic time in milliseconds at which the response was received.
+   */
+  public void completeAppend(int bytes, long startTime, long endTime) {
+    completeAppend(bytes);
+    long time = endTime - startTime;
+    long minTime = timeStats.getN() > 0 ? (long) timeStats.getMin() : time;
     timeStats.addValue(time);
+    if (time > minTime * 2 + APPEND_LATENCY_SLACK) {
+      shrinkAppendWindow(endTime);
+    } else if (appendSucceeded) {
+      growAppendWindow(bytes);
+    }
+  }
+
+  /**
+   * Grows the append windows in proportion to the acknowledged requests and bytes, by the minimum byte window and by
+   * one request per full window.
+   */
+  private void growAppendWindow(int bytes) {
+    long increase = Math.max((long) bytes * MIN_APPEND_WINDOW / appendWindow, 1);
+    appendWindow = (int) Math.min(appendWindow + increase, MAX_APPEND_WINDOW);
+    if (++appendRequestCredit >= appendRequests) {
+      appendRequests = Math.min(appendRequests + 1, MAX_APPENDS);
+      appendRequestCredit = 0;
+    }
+  }
+
+  /**
+   * Halves the append windows, at most once per round trip so a single congestion event shrinks them only once.
+   */
+  private void shrinkAppendWindow(long time) {
+    if (time >= windowTime) {
+      long roundTripTime = timeStats.getN() > 0 ? (long) timeStats.getMin() : 0;
+      appendWindow = Math.max(appendWindow / 2, MIN_APPEND_WINDOW);
+      appendRequests = Math.max(appendRequests / 2, MIN_APPENDS);
+      appendRequestCredit = 0;
+      windowTime = time + roundTripTime + 1;
+    }
   }
 
   /**
@@ -335,25 +502,44 @@ public final class RaftMemberContext {
 
   /**
    * Returns a boolean indicating whether an install request can be sent to the member.
+   * <p>
+   * Snapshot chunks are streamed to the member until the given number of chunks are in flight or the last chunk
+   * of the snapshot has been sent.
    *
+   * @param window The maximum number of install requests in flight to the member.
    * @return Indicates whether an install request can be sent to the member.
    */
-  public boolean canInstall() {
-    return !installing;
+  public boolean canInstall(int window) {
+    return installing < window && !snapshotSent;
+  }
+
+  /**
+   * Returns the member's install epoch.
+   * <p>
+   * The epoch is incremented each time the next snapshot is repositioned, so responses to requests sent before
+   * the snapshot was repositioned can be recognized when they arrive.
+   *
+   * @return The member's install epoch.
+   */
+  public long getInstallEpoch() {
+    return installEpoch;
   }
 
   /**
    * Starts an install request to the member.
+   *
+   * @return The member's install epoch.
    */
-  public void startInstall() {
-    installing = true;
+  public long startInstall() {
+    installing++;
+    return installEpoch;
   }
 
   /**
    * Completes an install request to the member.
    */
   public void completeInstall() {
-    installing = false;
+    installing = Math.max(installing - 1, 0);
   }
 
   /**
@@ -426,10 +612,15 @@ public final class RaftMemberContext {
         .add("nextIndex", reader != null ? reader.getNextIndex() : matchIndex + 1)
         .add("heartbeatTime", heartbeatTime)
         .add("appending", appending)
+        .add("appendingBytes", appendingBytes)
+        .add("appendWindow", appendWindow)
+        .add("appendRequests", appendRequests)
+        .add("appendEpoch", appendEpoch)
         .add("appendSucceeded", appendSucceeded)
         .add("appendTime", appendTime)
         .add("configuring", configuring)
         .add("installing", installing)
+        .add("installEpoch", installEpoch)
         .add("failures", failures)
         .toString();
   }
@@ -244,6 +244,8 @@ public class DefaultRaftServer implements RaftServer {
       raft.setElectionThreshold(electionThreshold);
       raft.setSessionTimeout(sessionTimeout);
       raft.setSessionFailureThreshold(sessionFailureThreshold);
+      raft.setSnapshotChunkSize(snapshotChunkSize);
+      raft.setSnapshotChunkWindow(snapshotChunkWindow);
 
       return new DefaultRaftServer(raft);
     }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.impl;
+
+import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
+
+import java.util.zip.CRC32;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Snapshot being received from a leader.
+ * <p>
+ * Pending snapshots are tracked by the server rather than by its role so that a partially received snapshot
+ * survives elections and can be resumed by the next leader.
+ */
+public class PendingSnapshot {
+  private final Snapshot snapshot;
+  private final CRC32 checksum = new CRC32();
+  private long term;
+  private int nextOffset;
+
+  public PendingSnapshot(Snapshot snapshot, long term) {
+    this.snapshot = snapshot;
+    this.term = term;
+  }
+
+  /**
+   * Returns the pending snapshot.
+   *
+   * @return the pending snapshot
+   */
+  public Snapshot snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns the term in which the snapshot was last sent.
+   *
+   * @return the term in which the snapshot was last sent
+   */
+  public long term() {
+    return term;
+  }
+
+  /**
+   * Sets the term in which the snapshot was last sent.
+   *
+   * @param term the term in which the snapshot was last sent
+   */
+  public void setTerm(long term) {
+    this.term = term;
+  }
+
+  /**
+   * Returns the next snapshot offset.
+   *
+   * @return the byte offset of the next expected chunk
+   */
+  public int nextOffset() {
+    return nextOffset;
+  }
+
+  /**
+   * Returns the checksum of the bytes written to the snapshot.
+   *
+   * @return the CRC32 checksum of the bytes preceding the next offset
+   */
+  public long checksum() {
+    return checksum.getValue();
+  }
+
+  /**
+   * Writes the next chunk to the snapshot.
+   *
+   * @param data the chunk to write
+   */
+  public void write(byte[] data) {
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.write(data);
+    }
+    checksum.update(data);
+    nextOffset += data.length;
+  }
+
+  /**
+   * Commits the snapshot to disk.
+   */
+  public void commit() {
+    snapshot.complete();
+  }
+
+  /**
+   * Closes and deletes the snapshot.
+   */
+  public void rollback() {
+    snapshot.close();
+    snapshot.delete();
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("snapshot", snapshot)
+        .add("term", term)
+        .add("nextOffset", nextOffset)
+        .toString();
+  }
+}
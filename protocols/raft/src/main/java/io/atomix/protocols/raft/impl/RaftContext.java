@@ -42,6 +42,7 @@ import io.atomix.protocols.raft.storage.log.RaftLogWriter;
 import io.atomix.protocols.raft.storage.snapshot.SnapshotStore;
 import io.atomix.protocols.raft.storage.system.MetaStore;
 import io.atomix.protocols.raft.utils.LoadMonitor;
+import io.atomix.storage.journal.JournalIndexNotifier;
 import io.atomix.utils.concurrent.SingleThreadContext;
 import io.atomix.utils.concurrent.ThreadContext;
 import io.atomix.utils.concurrent.ThreadContextFactory;
@@ -51,6 +52,8 @@ import io.atomix.utils.logging.LoggerContext;
 import org.slf4j.Logger;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -104,6 +107,8 @@ public class RaftContext implements AutoCloseable {
   private int electionThreshold = 3;
   private Duration sessionTimeout = Duration.ofMillis(5000);
   private int sessionFailureThreshold = 5;
+  private int snapshotChunkSize = 1024 * 128;
+  private int snapshotChunkWindow = 8;
   private volatile NodeId leader;
   private volatile long term;
   private NodeId lastVotedFor;
@@ -111,6 +116,8 @@ public class RaftContext implements AutoCloseable {
   private long commitIndex;
   private volatile long firstCommitIndex;
   private volatile long lastApplied;
+  private final JournalIndexNotifier appliedNotifier = new JournalIndexNotifier(0);
+  private final Map<Long, PendingSnapshot> pendingSnapshots = new HashMap<>();
 
   @SuppressWarnings("unchecked")
   public RaftContext(
@@ -372,6 +379,42 @@ public class RaftContext implements AutoCloseable {
     this.sessionFailureThreshold = sessionFailureThreshold;
   }
 
+  /**
+   * Returns the maximum size of snapshot chunks sent to followers.
+   *
+   * @return the maximum number of bytes per snapshot chunk
+   */
+  public int getSnapshotChunkSize() {
+    return snapshotChunkSize;
+  }
+
+  /**
+   * Sets the maximum size of snapshot chunks sent to followers.
+   *
+   * @param snapshotChunkSize the maximum number of bytes per snapshot chunk
+   */
+  public void setSnapshotChunkSize(int snapshotChunkSize) {
+    this.snapshotChunkSize = snapshotChunkSize;
+  }
+
+  /**
+   * Returns the maximum number of snapshot chunks in flight to a follower.
+   *
+   * @return the maximum number of unacknowledged snapshot chunks per follower
+   */
+  public int getSnapshotChunkWindow() {
+    return snapshotChunkWindow;
+  }
+
+  /**
+   * Sets the maximum number of snapshot chunks in flight to a follower.
+   *
+   * @param snapshotChunkWindow the maximum number of unacknowledged snapshot chunks per follower
+   */
+  public void setSnapshotChunkWindow(int snapshotChunkWindow) {
+    this.snapshotChunkWindow = snapshotChunkWindow;
+  }
+
   /**
    * Sets the state leader.
    *
@@ -565,6 +608,7 @@ public class RaftContext implements AutoCloseable {
    */
   public void setLastApplied(long lastApplied) {
     this.lastApplied = Math.max(this.lastApplied, lastApplied);
+    appliedNotifier.update(this.lastApplied);
     if (state == State.ACTIVE) {
       threadContext.execute(() -> {
         if (state == State.ACTIVE && this.lastApplied >= firstCommitIndex) {
@@ -584,6 +628,19 @@ public class RaftContext implements AutoCloseable {
     return lastApplied;
   }
 
+  /**
+   * Returns a future to be completed once entries have been applied up to the given index.
+   * <p>
+   * The future is completed on the thread that applies the entry, so callers should complete their work on the
+   * server's thread context.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the last applied index once it's greater than or equal to the given index
+   */
+  public CompletableFuture<Long> awaitApplied(long index) {
+    return appliedNotifier.await(index);
+  }
+
   /**
    * Returns the server load monitor.
    *
@@ -701,6 +758,15 @@ public class RaftContext implements AutoCloseable {
     return snapshotStore;
   }
 
+  /**
+   * Returns the snapshots being received from the leader.
+   *
+   * @return The pending snapshots, keyed by service identifier.
+   */
+  public Map<Long, PendingSnapshot> getPendingSnapshots() {
+    return pendingSnapshots;
+  }
+
   /**
    * Checks that the current thread is the state context thread.
    */
@@ -722,6 +788,7 @@ public class RaftContext implements AutoCloseable {
     protocol.registerReconfigureHandler(request -> runOnContext(() -> role.onReconfigure(request)));
     protocol.registerLeaveHandler(request -> runOnContext(() -> role.onLeave(request)));
     protocol.registerTransferHandler(request -> runOnContext(() -> role.onTransfer(request)));
+    protocol.registerReadIndexHandler(request -> runOnContext(() -> role.onReadIndex(request)));
     protocol.registerAppendHandler(request -> runOnContext(() -> role.onAppend(request)));
     protocol.registerPollHandler(request -> runOnContext(() -> role.onPoll(request)));
     protocol.registerVoteHandler(request -> runOnContext(() -> role.onVote(request)));
@@ -757,6 +824,7 @@ public class RaftContext implements AutoCloseable {
     protocol.unregisterReconfigureHandler();
     protocol.unregisterLeaveHandler();
     protocol.unregisterTransferHandler();
+    protocol.unregisterReadIndexHandler();
     protocol.unregisterAppendHandler();
     protocol.unregisterPollHandler();
     protocol.unregisterVoteHandler();
@@ -909,12 +977,19 @@ public class RaftContext implements AutoCloseable {
     } catch (Exception e) {
     }
 
-    // Close the snapshot store.
+    // Discard partially received snapshots and close the snapshot store.
+    for (PendingSnapshot pendingSnapshot : pendingSnapshots.values()) {
+      pendingSnapshot.rollback();
+    }
+    pendingSnapshots.clear();
     try {
       snapshotStore.close();
     } catch (Exception e) {
     }
 
+    // Fail operations waiting for entries to be applied.
+    appliedNotifier.close();
+
     // Close the state machine and thread context.
     stateMachine.close();
     threadContext.close();
@@ -54,6 +54,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -69,6 +71,8 @@ public class RaftServiceManager implements AutoCloseable {
   private final ThreadContextFactory threadContextFactory;
   private final RaftLog log;
   private final RaftLogReader reader;
+  private final AtomicLong applyIndex = new AtomicLong();
+  private final AtomicBoolean applyPending = new AtomicBoolean();
 
   public RaftServiceManager(RaftContext raft, ThreadContextFactory threadContextFactory) {
     this.raft = checkNotNull(raft, "state cannot be null");
@@ -85,13 +89,29 @@ public class RaftServiceManager implements AutoCloseable {
    * <p>
    * Calls to this method are assumed not to expect a result. This allows some optimizations to be
    * made internally since linearizable events don't have to be waited to complete the command.
+   * Commits received before previously committed entries have been applied are coalesced, so the entries
+   * up to the highest commit index are applied as a single batch.
    *
    * @param index The index up to which to apply commits.
    */
   public void applyAll(long index) {
     // Don't attempt to apply indices that have already been applied.
     if (index > raft.getLastApplied()) {
-      raft.getThreadContext().execute(() -> apply(index));
+      applyIndex.accumulateAndGet(index, Math::max);
+      if (applyPending.compareAndSet(false, true)) {
+        raft.getThreadContext().execute(this::applyPending);
+      }
+    }
+  }
+
+  /**
+   * Applies all commits up to the highest index passed to {@link #applyAll(long)}.
+   */
+  private void applyPending() {
+    applyPending.set(false);
+    long index = applyIndex.getAndSet(0);
+    if (index > raft.getLastApplied()) {
+      apply(index);
     }
   }
 
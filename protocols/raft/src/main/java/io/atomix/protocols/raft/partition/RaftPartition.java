@@ -27,6 +27,8 @@ import io.atomix.protocols.raft.partition.impl.RaftNamespaces;
 import io.atomix.protocols.raft.partition.impl.RaftPartitionClient;
 import io.atomix.protocols.raft.partition.impl.RaftPartitionServer;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.journal.MappedMemoryBudget;
+import io.atomix.storage.journal.SharedWriteAheadLog;
 import io.atomix.utils.serializer.Serializer;
 
 import java.io.File;
@@ -44,14 +46,27 @@ public class RaftPartition implements Partition<RaftProtocol> {
   private final PartitionId partitionId;
   private final StorageLevel storageLevel;
   private final File dataDirectory;
+  private final MappedMemoryBudget mappedMemoryBudget;
+  private final SharedWriteAheadLog sharedLog;
   private PartitionMetadata partition;
   private RaftPartitionClient client;
   private RaftPartitionServer server;
 
   public RaftPartition(PartitionId partitionId, StorageLevel storageLevel, File dataDirectory) {
+    this(partitionId, storageLevel, dataDirectory, null, null);
+  }
+
+  public RaftPartition(
+      PartitionId partitionId,
+      StorageLevel storageLevel,
+      File dataDirectory,
+      MappedMemoryBudget mappedMemoryBudget,
+      SharedWriteAheadLog sharedLog) {
     this.partitionId = partitionId;
     this.storageLevel = storageLevel;
     this.dataDirectory = dataDirectory;
+    this.mappedMemoryBudget = mappedMemoryBudget;
+    this.sharedLog = sharedLog;
   }
 
   @Override
@@ -116,6 +131,24 @@ public class RaftPartition implements Partition<RaftProtocol> {
     return dataDirectory;
   }
 
+  /**
+   * Returns the mapped memory budget shared by the partitions in the group.
+   *
+   * @return the mapped memory budget, or {@code null} if mapped segments are not budgeted
+   */
+  public MappedMemoryBudget mappedMemoryBudget() {
+    return mappedMemoryBudget;
+  }
+
+  /**
+   * Returns the write-ahead log shared by the partitions in the group.
+   *
+   * @return the shared write-ahead log, or {@code null} if the partition's log is not written to a shared log
+   */
+  public SharedWriteAheadLog sharedLog() {
+    return sharedLog;
+  }
+
   @Override
   public PrimitiveClient<RaftProtocol> getPrimitiveClient() {
     return client;
@@ -30,6 +30,8 @@ import io.atomix.primitive.partition.PartitionManagementService;
 import io.atomix.primitive.partition.PartitionMetadata;
 import io.atomix.protocols.raft.RaftProtocol;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.journal.MappedMemoryBudget;
+import io.atomix.storage.journal.SharedWriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,10 +71,16 @@ public class RaftPartitionGroup implements ManagedPartitionGroup {
   private final int partitionSize;
   private final Map<PartitionId, RaftPartition> partitions = Maps.newConcurrentMap();
   private final List<PartitionId> sortedPartitionIds = Lists.newCopyOnWriteArrayList();
+  private final SharedWriteAheadLog sharedLog;
 
   public RaftPartitionGroup(String name, Collection<RaftPartition> partitions, int partitionSize) {
+    this(name, partitions, partitionSize, null);
+  }
+
+  public RaftPartitionGroup(String name, Collection<RaftPartition> partitions, int partitionSize, SharedWriteAheadLog sharedLog) {
     this.name = name;
     this.partitionSize = partitionSize;
+    this.sharedLog = sharedLog;
     partitions.forEach(p -> {
       this.partitions.put(p.id(), p);
       this.sortedPartitionIds.add(p.id());
@@ -154,6 +162,9 @@ public class RaftPartitionGroup implements ManagedPartitionGroup {
         .map(RaftPartition::close)
         .collect(Collectors.toList());
     return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenRun(() -> {
+      if (sharedLog != null) {
+        sharedLog.close();
+      }
       LOGGER.info("Stopped");
     });
   }
@@ -174,6 +185,8 @@ public class RaftPartitionGroup implements ManagedPartitionGroup {
     private int partitionSize;
     private StorageLevel storageLevel = StorageLevel.MAPPED;
     private File dataDirectory = new File(System.getProperty("user.dir"), "data");
+    private long mappedMemoryBudget;
+    private boolean sharedLog;
 
     protected Builder(String name) {
       super(name);
@@ -216,6 +229,38 @@ public class RaftPartitionGroup implements ManagedPartitionGroup {
       return this;
     }
 
+    /**
+     * Sets the mapped memory budget shared by all partitions in the group.
+     * <p>
+     * When using {@link StorageLevel#MAPPED} storage, the least recently used log segments of all partitions are
+     * unmapped when the combined size of mapped segments exceeds the budget. By default, mapped segments are not
+     * budgeted.
+     *
+     * @param mappedMemoryBudget the mapped memory budget in bytes
+     * @return the Raft partition group builder
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public Builder withMappedMemoryBudget(long mappedMemoryBudget) {
+      checkArgument(mappedMemoryBudget > 0, "mappedMemoryBudget must be positive");
+      this.mappedMemoryBudget = mappedMemoryBudget;
+      return this;
+    }
+
+    /**
+     * Sets whether the partitions in the group write their logs to a single shared write-ahead log.
+     * <p>
+     * When enabled, the logs of all partitions in the group are persisted in one sequentially written log that is
+     * flushed once on behalf of all partitions, and partition log segments hold only the positions of entries in
+     * the shared log. The shared log is not used with {@link StorageLevel#MEMORY} storage.
+     *
+     * @param sharedLog whether to use a shared write-ahead log
+     * @return the Raft partition group builder
+     */
+    public Builder withSharedLog(boolean sharedLog) {
+      this.sharedLog = sharedLog;
+      return this;
+    }
+
     /**
      * Sets the path to the data directory.
      *
@@ -230,11 +275,19 @@ public class RaftPartitionGroup implements ManagedPartitionGroup {
     @Override
     public ManagedPartitionGroup build() {
       File partitionsDir = new File(dataDirectory, "partitions");
+      MappedMemoryBudget budget = mappedMemoryBudget > 0 ? new MappedMemoryBudget(mappedMemoryBudget) : null;
+      SharedWriteAheadLog log = sharedLog && storageLevel != StorageLevel.MEMORY
+          ? SharedWriteAheadLog.builder()
+              .withName(name)
+              .withStorageLevel(storageLevel)
+              .withDirectory(new File(partitionsDir, "wal"))
+              .build()
+          : null;
       List<RaftPartition> partitions = new ArrayList<>(numPartitions);
       for (int i = 0; i < numPartitions; i++) {
-        partitions.add(new RaftPartition(PartitionId.from(name, i + 1), storageLevel, new File(partitionsDir, String.valueOf(i + 1))));
+        partitions.add(new RaftPartition(PartitionId.from(name, i + 1), storageLevel, new File(partitionsDir, String.valueOf(i + 1)), budget, log));
       }
-      return new RaftPartitionGroup(name, partitions, partitionSize);
+      return new RaftPartitionGroup(name, partitions, partitionSize, log);
     }
   }
 }
@@ -35,6 +35,7 @@ class RaftMessageContext {
   final MessageSubject reconfigureSubject;
   final MessageSubject installSubject;
   final MessageSubject transferSubject;
+  final MessageSubject readIndexSubject;
   final MessageSubject pollSubject;
   final MessageSubject voteSubject;
   final MessageSubject appendSubject;
@@ -54,6 +55,7 @@ class RaftMessageContext {
     this.reconfigureSubject = getSubject(prefix, "reconfigure");
     this.installSubject = getSubject(prefix, "install");
     this.transferSubject = getSubject(prefix, "transfer");
+    this.readIndexSubject = getSubject(prefix, "read-index");
     this.pollSubject = getSubject(prefix, "poll");
     this.voteSubject = getSubject(prefix, "vote");
     this.appendSubject = getSubject(prefix, "append");
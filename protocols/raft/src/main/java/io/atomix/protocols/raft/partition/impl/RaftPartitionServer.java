@@ -128,6 +128,19 @@ public class RaftPartitionServer implements Managed<RaftPartitionServer> {
   }
 
   private RaftServer buildServer() {
+    RaftStorage.Builder storageBuilder = RaftStorage.builder()
+        .withPrefix(String.format("partition-%s", partition.id()))
+        .withStorageLevel(partition.storageLevel())
+        .withSerializer(Serializer.using(RaftNamespaces.RAFT_STORAGE))
+        .withDirectory(partition.dataDirectory())
+        .withMaxSegmentSize(MAX_SEGMENT_SIZE);
+    if (partition.mappedMemoryBudget() != null) {
+      storageBuilder.withMappedMemoryBudget(partition.mappedMemoryBudget());
+    }
+    if (partition.sharedLog() != null) {
+      storageBuilder.withSharedLog(partition.sharedLog());
+    }
+
     return RaftServer.builder(localNodeId)
         .withName(partition.name())
         .withProtocol(new RaftServerCommunicator(
@@ -137,13 +150,7 @@ public class RaftPartitionServer implements Managed<RaftPartitionServer> {
         .withPrimitiveTypes(primitiveTypes)
         .withElectionTimeout(Duration.ofMillis(ELECTION_TIMEOUT_MILLIS))
         .withHeartbeatInterval(Duration.ofMillis(HEARTBEAT_INTERVAL_MILLIS))
-        .withStorage(RaftStorage.builder()
-            .withPrefix(String.format("partition-%s", partition.id()))
-            .withStorageLevel(partition.storageLevel())
-            .withSerializer(Serializer.using(RaftNamespaces.RAFT_STORAGE))
-            .withDirectory(partition.dataDirectory())
-            .withMaxSegmentSize(MAX_SEGMENT_SIZE)
-            .build())
+        .withStorage(storageBuilder.build())
         .build();
   }
 
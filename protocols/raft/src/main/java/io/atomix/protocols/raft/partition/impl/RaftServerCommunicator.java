@@ -48,6 +48,8 @@ import io.atomix.protocols.raft.protocol.PublishRequest;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftServerProtocol;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureResponse;
 import io.atomix.protocols.raft.protocol.ResetRequest;
@@ -144,6 +146,11 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     return sendAndReceive(context.transferSubject, request, nodeId);
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(NodeId nodeId, ReadIndexRequest request) {
+    return sendAndReceive(context.readIndexSubject, request, nodeId);
+  }
+
   @Override
   public CompletableFuture<PollResponse> poll(NodeId nodeId, PollRequest request) {
     return sendAndReceive(context.pollSubject, request, nodeId);
@@ -289,6 +296,16 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     clusterCommunicator.removeSubscriber(context.transferSubject);
   }
 
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    clusterCommunicator.addSubscriber(context.readIndexSubject, serializer::decode, handler, serializer::encode);
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    clusterCommunicator.removeSubscriber(context.readIndexSubject);
+  }
+
   @Override
   public void registerPollHandler(Function<PollRequest, CompletableFuture<PollResponse>> handler) {
     clusterCommunicator.addSubscriber(context.pollSubject, serializer::decode, handler, serializer::encode);
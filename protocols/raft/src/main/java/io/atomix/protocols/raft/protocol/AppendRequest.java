@@ -17,8 +17,8 @@ package io.atomix.protocols.raft.protocol;
 
 import io.atomix.cluster.NodeId;
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
+import io.atomix.storage.journal.Indexed;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -48,16 +48,18 @@ public class AppendRequest extends AbstractRaftRequest {
   private final String leader;
   private final long prevLogIndex;
   private final long prevLogTerm;
-  private final List<RaftLogEntry> entries;
+  private final List<Indexed<RaftLogEntry>> entries;
   private final long commitIndex;
+  private final long lease;
 
-  public AppendRequest(long term, String leader, long prevLogIndex, long prevLogTerm, List<RaftLogEntry> entries, long commitIndex) {
+  public AppendRequest(long term, String leader, long prevLogIndex, long prevLogTerm, List<Indexed<RaftLogEntry>> entries, long commitIndex, long lease) {
     this.term = term;
     this.leader = leader;
     this.prevLogIndex = prevLogIndex;
     this.prevLogTerm = prevLogTerm;
     this.entries = entries;
     this.commitIndex = commitIndex;
+    this.lease = lease;
   }
 
   /**
@@ -98,10 +100,13 @@ public class AppendRequest extends AbstractRaftRequest {
 
   /**
    * Returns the log entries to append.
+   * <p>
+   * Entries read from the leader's log are sent in their serialized form and can be appended to the
+   * receiver's log without being decoded.
    *
    * @return A list of log entries.
    */
-  public List<RaftLogEntry> entries() {
+  public List<Indexed<RaftLogEntry>> entries() {
     return entries;
   }
 
@@ -114,9 +119,22 @@ public class AppendRequest extends AbstractRaftRequest {
     return commitIndex;
   }
 
+  /**
+   * Returns the read lease granted by the leader.
+   * <p>
+   * The lease is the number of milliseconds for which the leader's leadership is guaranteed from the time the
+   * request is received, during which the receiver may serve {@code LINEARIZABLE_LEASE} queries once it has applied
+   * entries up to the request's {@link #commitIndex()}.
+   *
+   * @return The lease duration in milliseconds, or {@code 0} if no lease is granted.
+   */
+  public long lease() {
+    return lease;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, prevLogIndex, prevLogTerm, entries, commitIndex);
+    return Objects.hash(getClass(), term, leader, prevLogIndex, prevLogTerm, entries, commitIndex, lease);
   }
 
   @Override
@@ -128,7 +146,8 @@ public class AppendRequest extends AbstractRaftRequest {
           && request.prevLogIndex == prevLogIndex
           && request.prevLogTerm == prevLogTerm
           && request.entries.equals(entries)
-          && request.commitIndex == commitIndex;
+          && request.commitIndex == commitIndex
+          && request.lease == lease;
     }
     return false;
   }
@@ -142,6 +161,7 @@ public class AppendRequest extends AbstractRaftRequest {
         .add("prevLogTerm", prevLogTerm)
         .add("entries", entries.size())
         .add("commitIndex", commitIndex)
+        .add("lease", lease)
         .toString();
   }
 
@@ -153,8 +173,9 @@ public class AppendRequest extends AbstractRaftRequest {
     private String leader;
     private long logIndex;
     private long logTerm;
-    private List<RaftLogEntry> entries;
+    private List<Indexed<RaftLogEntry>> entries;
     private long commitIndex = -1;
+    private long lease;
 
     /**
      * Sets the request term.
@@ -207,17 +228,6 @@ public class AppendRequest extends AbstractRaftRequest {
       return this;
     }
 
-    /**
-     * Sets the request entries.
-     *
-     * @param entries The request entries.
-     * @return The append request builder.
-     * @throws NullPointerException if {@code entries} is null
-     */
-    public Builder withEntries(RaftLogEntry... entries) {
-      return withEntries(Arrays.asList(checkNotNull(entries, "entries cannot be null")));
-    }
-
     /**
      * Sets the request entries.
      *
@@ -226,7 +236,7 @@ public class AppendRequest extends AbstractRaftRequest {
      * @throws NullPointerException if {@code entries} is null
      */
     @SuppressWarnings("unchecked")
-    public Builder withEntries(List<RaftLogEntry> entries) {
+    public Builder withEntries(List<Indexed<RaftLogEntry>> entries) {
       this.entries = checkNotNull(entries, "entries cannot be null");
       return this;
     }
@@ -238,7 +248,7 @@ public class AppendRequest extends AbstractRaftRequest {
      * @return The request builder.
      * @throws NullPointerException if {@code entry} is {@code null}
      */
-    public Builder addEntry(RaftLogEntry entry) {
+    public Builder addEntry(Indexed<RaftLogEntry> entry) {
       this.entries.add(checkNotNull(entry, "entry"));
       return this;
     }
@@ -256,6 +266,19 @@ public class AppendRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the read lease granted by the leader.
+     *
+     * @param lease The lease duration in milliseconds.
+     * @return The append request builder.
+     * @throws IllegalArgumentException if the lease is negative
+     */
+    public Builder withLease(long lease) {
+      checkArgument(lease >= 0, "lease must be positive");
+      this.lease = lease;
+      return this;
+    }
+
     @Override
     protected void validate() {
       super.validate();
@@ -274,7 +297,7 @@ public class AppendRequest extends AbstractRaftRequest {
     @Override
     public AppendRequest build() {
       validate();
-      return new AppendRequest(term, leader, logIndex, logTerm, entries, commitIndex);
+      return new AppendRequest(term, leader, logIndex, logTerm, entries, commitIndex, lease);
     }
   }
 }
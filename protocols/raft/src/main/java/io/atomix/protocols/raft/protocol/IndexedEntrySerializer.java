@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.protocol;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.atomix.storage.journal.Indexed;
+
+/**
+ * Indexed entry serializer.
+ * <p>
+ * Entries that retain their serialized journal bytes are written as raw bytes along with their stored checksum
+ * so they can be replicated without being decoded and re-encoded. Entries read on the receiving side must be
+ * associated with a storage serializer via {@link Indexed#withSerializer(io.atomix.utils.serializer.Serializer)}
+ * before they can be decoded.
+ */
+public class IndexedEntrySerializer extends Serializer<Indexed<?>> {
+
+  public IndexedEntrySerializer() {
+    super(false, true);
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, Indexed<?> entry) {
+    output.writeLong(entry.index());
+    output.writeBoolean(entry.isSerialized());
+    if (entry.isSerialized()) {
+      byte[] bytes = entry.bytes();
+      output.writeLong(entry.checksum());
+      output.writeInt(bytes.length);
+      output.writeBytes(bytes);
+    } else {
+      output.writeInt(entry.size());
+      kryo.writeClassAndObject(output, entry.entry());
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Indexed<?> read(Kryo kryo, Input input, Class<Indexed<?>> type) {
+    long index = input.readLong();
+    if (input.readBoolean()) {
+      long checksum = input.readLong();
+      byte[] bytes = input.readBytes(input.readInt());
+      return new Indexed<>(index, bytes, checksum, null);
+    } else {
+      int size = input.readInt();
+      return new Indexed<>(index, kryo.readClassAndObject(input), size);
+    }
+  }
+}
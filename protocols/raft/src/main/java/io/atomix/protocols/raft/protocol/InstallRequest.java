@@ -32,8 +32,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * that its log is further behind than the last snapshot taken by the leader. Snapshots are sent
  * in chunks, with each chunk being sent in a separate install request. As requests are received by
  * the follower, the snapshot is reconstructed based on the provided {@link #chunkOffset()} and other
- * metadata. The last install request will be sent with {@link #complete()} being {@code true} to
- * indicate that all chunks of the snapshot have been sent.
+ * metadata. Each chunk carries a {@link #checksum()} of its data which the follower verifies before
+ * writing the chunk. The last install request will be sent with {@link #complete()} being {@code true}
+ * to indicate that all chunks of the snapshot have been sent.
  */
 public class InstallRequest extends AbstractRaftRequest {
 
@@ -54,9 +55,10 @@ public class InstallRequest extends AbstractRaftRequest {
   private final long timestamp;
   private final int offset;
   private final byte[] data;
+  private final long checksum;
   private final boolean complete;
 
-  public InstallRequest(long term, NodeId leader, long serviceId, String serviceName, long index, long timestamp, int offset, byte[] data, boolean complete) {
+  public InstallRequest(long term, NodeId leader, long serviceId, String serviceName, long index, long timestamp, int offset, byte[] data, long checksum, boolean complete) {
     this.term = term;
     this.leader = leader;
     this.serviceId = serviceId;
@@ -65,6 +67,7 @@ public class InstallRequest extends AbstractRaftRequest {
     this.timestamp = timestamp;
     this.offset = offset;
     this.data = data;
+    this.checksum = checksum;
     this.complete = complete;
   }
 
@@ -125,7 +128,7 @@ public class InstallRequest extends AbstractRaftRequest {
   /**
    * Returns the offset of the snapshot chunk.
    *
-   * @return The offset of the snapshot chunk.
+   * @return The byte offset of the snapshot chunk within the snapshot.
    */
   public int chunkOffset() {
     return offset;
@@ -140,6 +143,15 @@ public class InstallRequest extends AbstractRaftRequest {
     return data;
   }
 
+  /**
+   * Returns the checksum of the snapshot data.
+   *
+   * @return The CRC32 checksum of the snapshot chunk.
+   */
+  public long checksum() {
+    return checksum;
+  }
+
   /**
    * Returns a boolean value indicating whether this is the last chunk of the snapshot.
    *
@@ -151,7 +163,7 @@ public class InstallRequest extends AbstractRaftRequest {
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, serviceId, index, offset, complete, data);
+    return Objects.hash(getClass(), term, leader, serviceId, index, offset, checksum, complete, data);
   }
 
   @Override
@@ -164,6 +176,7 @@ public class InstallRequest extends AbstractRaftRequest {
           && Objects.equals(request.serviceName, serviceName)
           && request.index == index
           && request.offset == offset
+          && request.checksum == checksum
           && request.complete == complete
           && Arrays.equals(request.data, data);
     }
@@ -180,6 +193,7 @@ public class InstallRequest extends AbstractRaftRequest {
         .add("index", index)
         .add("offset", offset)
         .add("data", ArraySizeHashPrinter.of(data))
+        .add("checksum", checksum)
         .add("complete", complete)
         .toString();
   }
@@ -196,6 +210,7 @@ public class InstallRequest extends AbstractRaftRequest {
     private long timestamp;
     private int offset;
     private byte[] data;
+    private long checksum;
     private boolean complete;
 
     /**
@@ -273,7 +288,7 @@ public class InstallRequest extends AbstractRaftRequest {
     /**
      * Sets the request offset.
      *
-     * @param offset The request offset.
+     * @param offset The byte offset of the chunk within the snapshot.
      * @return The request builder.
      */
     public Builder withOffset(int offset) {
@@ -293,6 +308,17 @@ public class InstallRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the request checksum.
+     *
+     * @param checksum The CRC32 checksum of the snapshot bytes.
+     * @return The request builder.
+     */
+    public Builder withChecksum(long checksum) {
+      this.checksum = checksum;
+      return this;
+    }
+
     /**
      * Sets whether the request is complete.
      *
@@ -323,7 +349,7 @@ public class InstallRequest extends AbstractRaftRequest {
     @Override
     public InstallRequest build() {
       validate();
-      return new InstallRequest(term, leader, serviceId, serviceName, index, timestamp, offset, data, complete);
+      return new InstallRequest(term, leader, serviceId, serviceName, index, timestamp, offset, data, checksum, complete);
     }
   }
 
@@ -17,12 +17,18 @@ package io.atomix.protocols.raft.protocol;
 
 import io.atomix.protocols.raft.RaftError;
 
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
 /**
  * Snapshot installation response.
  * <p>
  * Install responses are sent once a snapshot installation request has been received and processed.
- * Install responses provide no additional metadata aside from indicating whether or not the request
- * was successful.
+ * In addition to indicating whether or not the request was successful, install responses provide the
+ * {@link #nextOffset() offset} of the next chunk the follower expects for the requested snapshot along
+ * with the {@link #checksum() checksum} of the bytes it has received so far, allowing leaders to resume
+ * partially installed snapshots.
  */
 public class InstallResponse extends AbstractRaftResponse {
 
@@ -35,18 +41,100 @@ public class InstallResponse extends AbstractRaftResponse {
     return new Builder();
   }
 
-  public InstallResponse(Status status, RaftError error) {
+  private final int offset;
+  private final long checksum;
+
+  public InstallResponse(Status status, RaftError error, int offset, long checksum) {
     super(status, error);
+    this.offset = offset;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Returns the offset of the next chunk expected by the responding member.
+   *
+   * @return The byte offset of the next expected snapshot chunk, or {@code -1} if the offset is unknown.
+   */
+  public int nextOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the checksum of the snapshot bytes received by the responding member.
+   *
+   * @return The CRC32 checksum of the snapshot bytes preceding the {@link #nextOffset() next offset}.
+   */
+  public long checksum() {
+    return checksum;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), status, offset, checksum);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof InstallResponse) {
+      InstallResponse response = (InstallResponse) object;
+      return response.status == status
+          && Objects.equals(response.error, error)
+          && response.offset == offset
+          && response.checksum == checksum;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    if (status == Status.OK) {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("offset", offset)
+          .toString();
+    } else {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("error", error)
+          .add("offset", offset)
+          .add("checksum", checksum)
+          .toString();
+    }
   }
 
   /**
    * Install response builder.
    */
   public static class Builder extends AbstractRaftResponse.Builder<Builder, InstallResponse> {
+    private int offset = -1;
+    private long checksum;
+
+    /**
+     * Sets the offset of the next expected snapshot chunk.
+     *
+     * @param offset The byte offset of the next expected snapshot chunk.
+     * @return The install response builder.
+     */
+    public Builder withNextOffset(int offset) {
+      this.offset = offset;
+      return this;
+    }
+
+    /**
+     * Sets the checksum of the received snapshot bytes.
+     *
+     * @param checksum The CRC32 checksum of the received snapshot bytes.
+     * @return The install response builder.
+     */
+    public Builder withChecksum(long checksum) {
+      this.checksum = checksum;
+      return this;
+    }
+
     @Override
     public InstallResponse build() {
       validate();
-      return new InstallResponse(status, error);
+      return new InstallResponse(status, error, offset, checksum);
     }
   }
 }
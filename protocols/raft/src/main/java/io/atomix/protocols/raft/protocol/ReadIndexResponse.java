@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.protocol;
+
+import io.atomix.protocols.raft.RaftError;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Read index response.
+ * <p>
+ * Read index responses are sent by the leader once it has confirmed its leadership with a majority of the cluster.
+ * The {@link #index()} is the leader's commit index at the time the request was received, and queries applied once
+ * the responding server's state machine has applied entries up to that index are linearizable.
+ */
+public class ReadIndexResponse extends AbstractRaftResponse {
+
+  /**
+   * Returns a new read index response builder.
+   *
+   * @return A new read index response builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final long index;
+
+  public ReadIndexResponse(Status status, RaftError error, long index) {
+    super(status, error);
+    this.index = index;
+  }
+
+  /**
+   * Returns the read index.
+   *
+   * @return The index up to which entries must be applied before reading the state machine.
+   */
+  public long index() {
+    return index;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), status, index);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof ReadIndexResponse) {
+      ReadIndexResponse response = (ReadIndexResponse) object;
+      return response.status == status
+          && response.index == index;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    if (status == Status.OK) {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("index", index)
+          .toString();
+    } else {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("error", error)
+          .toString();
+    }
+  }
+
+  /**
+   * Read index response builder.
+   */
+  public static class Builder extends AbstractRaftResponse.Builder<Builder, ReadIndexResponse> {
+    private long index = -1;
+
+    /**
+     * Sets the read index.
+     *
+     * @param index The read index.
+     * @return The read index response builder.
+     * @throws IllegalArgumentException if {@code index} is negative
+     */
+    public Builder withIndex(long index) {
+      checkArgument(index >= 0, "index must be positive");
+      this.index = index;
+      return this;
+    }
+
+    @Override
+    protected void validate() {
+      super.validate();
+      if (status == Status.OK) {
+        checkArgument(index >= 0, "index must be positive");
+      }
+    }
+
+    @Override
+    public ReadIndexResponse build() {
+      validate();
+      return new ReadIndexResponse(status, error, index);
+    }
+  }
+}
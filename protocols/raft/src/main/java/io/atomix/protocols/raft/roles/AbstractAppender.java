@@ -15,6 +15,7 @@
  */
 package io.atomix.protocols.raft.roles;
 
+import io.atomix.primitive.PrimitiveId;
 import io.atomix.protocols.raft.RaftServer;
 import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
 import io.atomix.protocols.raft.cluster.impl.RaftMemberContext;
@@ -39,6 +40,8 @@ import org.slf4j.Logger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -47,6 +50,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 abstract class AbstractAppender implements AutoCloseable {
   private static final int MAX_BATCH_SIZE = 1024 * 32;
+  private static final long CLOCK_ORIGIN = System.nanoTime();
   protected final Logger log;
   protected final RaftContext raft;
   protected boolean open = true;
@@ -58,6 +62,19 @@ abstract class AbstractAppender implements AutoCloseable {
         .build());
   }
 
+  /**
+   * Returns the current time in milliseconds as measured by a monotonic clock.
+   * <p>
+   * Request round trips and heartbeats are timed with {@link System#nanoTime()} so that read leases and failure
+   * detection are not affected by adjustments to the system clock. The returned times are only meaningful relative
+   * to one another.
+   *
+   * @return the current monotonic time in milliseconds
+   */
+  static long monotonicTime() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - CLOCK_ORIGIN);
+  }
+
   /**
    * Sends an AppendRequest to the given member.
    *
@@ -65,6 +82,13 @@ abstract class AbstractAppender implements AutoCloseable {
    */
   protected abstract void appendEntries(RaftMemberContext member);
 
+  /**
+   * Returns the read lease to grant in append requests.
+   *
+   * @return The lease duration in milliseconds, or {@code 0} if no lease can be granted.
+   */
+  protected abstract long getLease();
+
   /**
    * Builds an append request.
    *
@@ -108,6 +132,7 @@ abstract class AbstractAppender implements AutoCloseable {
         .withPrevLogTerm(prevEntry != null ? prevEntry.entry().term() : 0)
         .withEntries(Collections.emptyList())
         .withCommitIndex(raft.getCommitIndex())
+        .withLease(getLease())
         .build();
   }
 
@@ -126,10 +151,11 @@ abstract class AbstractAppender implements AutoCloseable {
         .withLeader(leader != null ? leader.nodeId() : null)
         .withPrevLogIndex(prevEntry != null ? prevEntry.index() : reader.getFirstIndex() - 1)
         .withPrevLogTerm(prevEntry != null ? prevEntry.entry().term() : 0)
-        .withCommitIndex(raft.getCommitIndex());
+        .withCommitIndex(raft.getCommitIndex())
+        .withLease(getLease());
 
     // Build a list of entries to send to the member.
-    final List<RaftLogEntry> entries = new ArrayList<>();
+    final List<Indexed<RaftLogEntry>> entries = new ArrayList<>();
 
     // Build a list of entries up to the MAX_BATCH_SIZE. Note that entries in the log may
     // be null if they've been compacted and the member to which we're sending entries is just
@@ -140,10 +166,11 @@ abstract class AbstractAppender implements AutoCloseable {
     int size = 0;
 
     // Iterate through the log until the last index or the end of the log is reached.
+    // Entries are sent in their serialized form and are not decoded.
     while (reader.hasNext()) {
       // Otherwise, read the next entry and add it to the batch.
       Indexed<RaftLogEntry> entry = reader.next();
-      entries.add(entry.entry());
+      entries.add(entry);
       size += entry.size();
       if (entry.index() == lastIndex || size >= MAX_BATCH_SIZE) {
         break;
@@ -162,6 +189,10 @@ abstract class AbstractAppender implements AutoCloseable {
 
   /**
    * Connects to the member and sends a commit message.
+   * <p>
+   * Requests with entries are pipelined: once a request has been sent, further requests are sent to the member while
+   * its append window allows. Responses may therefore arrive for requests that were sent before the member's appends
+   * were rewound, and are handled with the append epoch at which the request was sent.
    */
   protected void sendAppendRequest(RaftMemberContext member, AppendRequest request) {
     // If this is a heartbeat message and a heartbeat is already in progress, skip the request.
@@ -170,25 +201,25 @@ abstract class AbstractAppender implements AutoCloseable {
     }
 
     // Start the append to the member.
-    member.startAppend();
-
-    long timestamp = System.currentTimeMillis();
+    final int size = request.entries().stream().mapToInt(Indexed::size).sum();
+    final long timestamp = monotonicTime();
+    final long epoch = member.startAppend(size, timestamp);
 
     log.trace("Sending {} to {}", request, member.getMember().nodeId());
     raft.getProtocol().append(member.getMember().nodeId(), request).whenCompleteAsync((response, error) -> {
       // Complete the append to the member.
-      if (!request.entries().isEmpty()) {
-        member.completeAppend(System.currentTimeMillis() - timestamp);
+      if (!request.entries().isEmpty() && error == null) {
+        member.completeAppend(size, timestamp, monotonicTime());
       } else {
-        member.completeAppend();
+        member.completeAppend(size);
       }
 
       if (open) {
         if (error == null) {
           log.trace("Received {} from {}", response, member.getMember().nodeId());
-          handleAppendResponse(member, request, response, timestamp);
+          handleAppendResponse(member, request, response, timestamp, epoch);
         } else {
-          handleAppendResponseFailure(member, request, error);
+          handleAppendResponseFailure(member, request, error, epoch);
         }
       }
     }, raft.getThreadContext());
@@ -201,7 +232,7 @@ abstract class AbstractAppender implements AutoCloseable {
   /**
    * Handles an append failure.
    */
-  protected void handleAppendResponseFailure(RaftMemberContext member, AppendRequest request, Throwable error) {
+  protected void handleAppendResponseFailure(RaftMemberContext member, AppendRequest request, Throwable error, long epoch) {
     // Log the failed attempt to contact the member.
     failAttempt(member, request, error);
   }
@@ -209,9 +240,9 @@ abstract class AbstractAppender implements AutoCloseable {
   /**
    * Handles an append response.
    */
-  protected void handleAppendResponse(RaftMemberContext member, AppendRequest request, AppendResponse response, long timestamp) {
+  protected void handleAppendResponse(RaftMemberContext member, AppendRequest request, AppendResponse response, long timestamp, long epoch) {
     if (response.status() == RaftResponse.Status.OK) {
-      handleAppendResponseOk(member, request, response);
+      handleAppendResponseOk(member, request, response, epoch);
     } else {
       handleAppendResponseError(member, request, response);
     }
@@ -220,7 +251,7 @@ abstract class AbstractAppender implements AutoCloseable {
   /**
    * Handles a {@link RaftResponse.Status#OK} response.
    */
-  protected void handleAppendResponseOk(RaftMemberContext member, AppendRequest request, AppendResponse response) {
+  protected void handleAppendResponseOk(RaftMemberContext member, AppendRequest request, AppendResponse response, long epoch) {
     // Reset the member failure count and update the member's availability status if necessary.
     succeedAttempt(member);
 
@@ -295,8 +326,9 @@ abstract class AbstractAppender implements AutoCloseable {
    * Updates the match index when a response is received.
    */
   protected void updateMatchIndex(RaftMemberContext member, AppendResponse response) {
-    // If the replica returned a valid match index then update the existing match index.
-    member.setMatchIndex(response.lastLogIndex());
+    // If the replica returned a valid match index then update the existing match index. Responses to pipelined
+    // requests may arrive out of order, so the match index is never decreased by a successful response.
+    member.setMatchIndex(Math.max(member.getMatchIndex(), response.lastLogIndex()));
   }
 
   /**
@@ -343,7 +375,7 @@ abstract class AbstractAppender implements AutoCloseable {
     // Start the configure to the member.
     member.startConfigure();
 
-    long timestamp = System.currentTimeMillis();
+    long timestamp = monotonicTime();
 
     log.trace("Sending {} to {}", request, member.getMember().nodeId());
     raft.getProtocol().configure(member.getMember().nodeId(), request).whenCompleteAsync((response, error) -> {
@@ -407,44 +439,100 @@ abstract class AbstractAppender implements AutoCloseable {
   }
 
   /**
-   * Builds an install request for the given member.
+   * Streams the given snapshot to the member.
+   * <p>
+   * Snapshot chunks are read sequentially from a reader that's kept open for the member, and chunks are sent
+   * without awaiting responses until the configured number of chunks are in flight to the member.
    */
-  protected InstallRequest buildInstallRequest(RaftMemberContext member, Snapshot snapshot) {
-    if (member.getNextSnapshotIndex() != snapshot.index()) {
+  protected void installSnapshot(RaftMemberContext member, Snapshot snapshot) {
+    if (member.getNextSnapshotIndex() != snapshot.index() || member.getNextSnapshotId() != snapshot.serviceId().id()) {
       member.setNextSnapshotIndex(snapshot.index());
       member.setNextSnapshotId(snapshot.serviceId().id());
-      member.setNextSnapshotOffset(0);
-    } else if (member.getNextSnapshotId() != snapshot.serviceId().id()) {
-      member.setNextSnapshotId(snapshot.serviceId().id());
-      member.setNextSnapshotOffset(0);
+      seekSnapshot(member, snapshot, 0);
     }
 
-    InstallRequest request;
+    while (member.canInstall(raft.getSnapshotChunkWindow())) {
+      sendInstallRequest(member, buildInstallRequest(member, snapshot));
+    }
+  }
+
+  /**
+   * Positions the member's snapshot reader at the given offset.
+   *
+   * @return the checksum of the snapshot bytes preceding the offset, or {@code -1} if the offset is out of bounds
+   */
+  private long seekSnapshot(RaftMemberContext member, Snapshot snapshot, int offset) {
+    SnapshotReader reader;
     synchronized (snapshot) {
-      // Open a new snapshot reader.
-      try (SnapshotReader reader = snapshot.openReader()) {
-        // Skip to the next batch of bytes according to the snapshot chunk size and current offset.
-        reader.skip(member.getNextSnapshotOffset() * MAX_BATCH_SIZE);
-        byte[] data = new byte[Math.min(MAX_BATCH_SIZE, reader.remaining())];
-        reader.read(data);
-
-        // Create the install request, indicating whether this is the last chunk of data based on the number
-        // of bytes remaining in the buffer.
-        DefaultRaftMember leader = raft.getLeader();
-        request = InstallRequest.builder()
-            .withTerm(raft.getTerm())
-            .withLeader(leader != null ? leader.nodeId() : null)
-            .withServiceId(snapshot.serviceId().id())
-            .withServiceName(snapshot.serviceName())
-            .withIndex(snapshot.index())
-            .withOffset(member.getNextSnapshotOffset())
-            .withData(data)
-            .withComplete(!reader.hasRemaining())
-            .build();
-      }
+      reader = snapshot.openReader();
+    }
+
+    if (offset > reader.remaining()) {
+      reader.close();
+      return -1;
     }
 
-    return request;
+    CRC32 checksum = new CRC32();
+    byte[] bytes = new byte[Math.min(offset, raft.getSnapshotChunkSize())];
+    int position = 0;
+    while (position < offset) {
+      int length = Math.min(bytes.length, offset - position);
+      reader.read(bytes, 0, length);
+      checksum.update(bytes, 0, length);
+      position += length;
+    }
+    member.seekSnapshot(reader, offset);
+    return checksum.getValue();
+  }
+
+  /**
+   * Resumes sending the snapshot to the member from the next offset expected by the member.
+   * <p>
+   * The snapshot is only resumed if the checksum of the bytes received by the member matches the checksum of the
+   * same bytes of the local snapshot. Otherwise, the snapshot is resent from the start.
+   */
+  private void resumeSnapshot(RaftMemberContext member, Snapshot snapshot, int offset, long checksum) {
+    if (seekSnapshot(member, snapshot, offset) != checksum) {
+      log.debug("Snapshot {} does not match the snapshot received by {}, restarting", snapshot.serviceId(), member.getMember().nodeId());
+      seekSnapshot(member, snapshot, 0);
+    }
+  }
+
+  /**
+   * Builds an install request for the next chunk of the snapshot being sent to the given member.
+   */
+  protected InstallRequest buildInstallRequest(RaftMemberContext member, Snapshot snapshot) {
+    // Read the next chunk from the member's snapshot reader.
+    SnapshotReader reader = member.getSnapshotReader();
+    byte[] data = new byte[Math.min(raft.getSnapshotChunkSize(), reader.remaining())];
+    reader.read(data);
+
+    CRC32 checksum = new CRC32();
+    checksum.update(data);
+
+    int offset = member.getNextSnapshotOffset();
+    member.setNextSnapshotOffset(offset + data.length);
+
+    // Create the install request, indicating whether this is the last chunk of data based on the number
+    // of bytes remaining in the buffer.
+    boolean complete = !reader.hasRemaining();
+    if (complete) {
+      member.snapshotSent();
+    }
+
+    DefaultRaftMember leader = raft.getLeader();
+    return InstallRequest.builder()
+        .withTerm(raft.getTerm())
+        .withLeader(leader != null ? leader.nodeId() : null)
+        .withServiceId(snapshot.serviceId().id())
+        .withServiceName(snapshot.serviceName())
+        .withIndex(snapshot.index())
+        .withTimestamp(snapshot.timestamp().unixTimestamp())
+        .withOffset(offset)
+        .withData(data)
+        .withChecksum(checksum.getValue())
+        .withComplete(complete)
+        .build();
   }
 
   /**
@@ -452,9 +540,9 @@ abstract class AbstractAppender implements AutoCloseable {
    */
   protected void sendInstallRequest(RaftMemberContext member, InstallRequest request) {
     // Start the install to the member.
-    member.startInstall();
+    long epoch = member.startInstall();
 
-    long timestamp = System.currentTimeMillis();
+    long timestamp = monotonicTime();
 
     log.trace("Sending {} to {}", request, member.getMember().nodeId());
     raft.getProtocol().install(member.getMember().nodeId(), request).whenCompleteAsync((response, error) -> {
@@ -462,7 +550,12 @@ abstract class AbstractAppender implements AutoCloseable {
       member.completeInstall();
 
       if (open) {
-        if (error == null) {
+        // If the snapshot was repositioned since the request was sent, the response is superseded.
+        if (epoch != member.getInstallEpoch()) {
+          if (error == null) {
+            appendEntries(member);
+          }
+        } else if (error == null) {
           log.trace("Received {} from {}", response, member.getMember().nodeId());
           handleInstallResponse(member, request, response, timestamp);
         } else {
@@ -479,11 +572,15 @@ abstract class AbstractAppender implements AutoCloseable {
    * Handles an install response failure.
    */
   protected void handleInstallResponseFailure(RaftMemberContext member, InstallRequest request, Throwable error) {
-    // Reset the member's snapshot index and offset to resend the snapshot from the start
-    // once a connection to the member is re-established.
-    member.setNextSnapshotIndex(0);
-    member.setNextSnapshotId(0);
-    member.setNextSnapshotOffset(0);
+    // Rewind the member's snapshot to the failed chunk to resume the snapshot once a connection to the
+    // member is re-established. If the member received more or fewer chunks, it will return the next
+    // offset it expects.
+    Snapshot snapshot = getSnapshot(request);
+    if (snapshot != null) {
+      seekSnapshot(member, snapshot, request.chunkOffset());
+    } else {
+      member.resetSnapshot();
+    }
 
     // Log the failed attempt to contact the member.
     failAttempt(member, request, error);
@@ -511,16 +608,10 @@ abstract class AbstractAppender implements AutoCloseable {
     // If the install request was completed successfully, set the member's snapshotIndex and reset
     // the next snapshot index/offset.
     if (request.complete()) {
-      member.setNextSnapshotIndex(0);
-      member.setNextSnapshotId(0);
-      member.setNextSnapshotOffset(0);
+      member.resetSnapshot();
       member.setSnapshotIndex(request.snapshotIndex());
       member.setSnapshotId(request.serviceId());
     }
-    // If more install requests remain, increment the member's snapshot offset.
-    else {
-      member.setNextSnapshotOffset(request.chunkOffset() + 1);
-    }
 
     // Recursively append entries to the member.
     appendEntries(member);
@@ -529,11 +620,25 @@ abstract class AbstractAppender implements AutoCloseable {
   /**
    * Handles an ERROR install response.
    */
-  @SuppressWarnings("unused")
   protected void handleInstallResponseError(RaftMemberContext member, InstallRequest request, InstallResponse response) {
-    log.warn("Failed to install {}", member.getMember().nodeId());
-    member.setNextSnapshotIndex(0);
-    member.setNextSnapshotOffset(0);
+    // If the member returned the next offset it expects, resume the snapshot from that offset.
+    Snapshot snapshot = response.nextOffset() >= 0 ? getSnapshot(request) : null;
+    if (snapshot != null) {
+      log.debug("Resuming snapshot {} to {} at offset {}", snapshot.serviceId(), member.getMember().nodeId(), response.nextOffset());
+      resumeSnapshot(member, snapshot, response.nextOffset(), response.checksum());
+      appendEntries(member);
+    } else {
+      log.warn("Failed to install {}", member.getMember().nodeId());
+      member.resetSnapshot();
+    }
+  }
+
+  /**
+   * Returns the snapshot for the given install request if it's still available.
+   */
+  private Snapshot getSnapshot(InstallRequest request) {
+    Snapshot snapshot = raft.getSnapshotStore().getSnapshotById(PrimitiveId.from(request.serviceId()));
+    return snapshot != null && snapshot.index() == request.snapshotIndex() ? snapshot : null;
   }
 
   @Override
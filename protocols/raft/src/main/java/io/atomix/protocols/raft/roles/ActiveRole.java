@@ -64,6 +64,18 @@ public abstract class ActiveRole extends PassiveRole {
   public CompletableFuture<PollResponse> onPoll(PollRequest request) {
     raft.checkThread();
     logRequest(request);
+
+    // If the leader has been heard from within the election timeout, reject the poll without updating the term.
+    // Leaders grant read leases on the assumption that no other leader can be elected until then.
+    if (hasLeader()) {
+      log.debug("Rejected {}: leader {} is still live", request, raft.getLeader());
+      return CompletableFuture.completedFuture(logResponse(PollResponse.builder()
+          .withStatus(RaftResponse.Status.OK)
+          .withTerm(raft.getTerm())
+          .withAccepted(false)
+          .build()));
+    }
+
     updateTermAndLeader(request.term(), null);
     return CompletableFuture.completedFuture(logResponse(handlePoll(request)));
   }
@@ -102,6 +114,16 @@ public abstract class ActiveRole extends PassiveRole {
     raft.checkThread();
     logRequest(request);
 
+    // If the leader has been heard from within the election timeout, reject the vote without updating the term.
+    if (hasLeader()) {
+      log.debug("Rejected {}: leader {} is still live", request, raft.getLeader());
+      return CompletableFuture.completedFuture(logResponse(VoteResponse.builder()
+          .withStatus(RaftResponse.Status.OK)
+          .withTerm(raft.getTerm())
+          .withVoted(false)
+          .build()));
+    }
+
     // If the request indicates a term that is greater than the current term then
     // assign that term and leader to the current context.
     boolean transition = updateTermAndLeader(request.term(), null);
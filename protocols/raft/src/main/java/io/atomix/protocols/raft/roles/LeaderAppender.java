@@ -30,11 +30,13 @@ import io.atomix.protocols.raft.storage.snapshot.Snapshot;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * The leader appender is responsible for sending {@link AppendRequest}s on behalf of a leader to followers.
@@ -44,6 +46,7 @@ final class LeaderAppender extends AbstractAppender {
   private static final long MAX_HEARTBEAT_WAIT = 60000;
   private static final int MIN_BACKOFF_FAILURE_COUNT = 5;
   private static final int MIN_STEP_DOWN_FAILURE_COUNT = 3;
+  private static final double MAX_CLOCK_DRIFT = .1;
 
   private final long leaderTime;
   private final long leaderIndex;
@@ -55,22 +58,13 @@ final class LeaderAppender extends AbstractAppender {
 
   LeaderAppender(LeaderRole leader) {
     super(leader.raft);
-    this.leaderTime = System.currentTimeMillis();
+    this.leaderTime = monotonicTime();
     this.leaderIndex = raft.getLogWriter().getNextIndex();
     this.heartbeatTime = leaderTime;
     this.electionTimeout = raft.getElectionTimeout().toMillis();
     this.heartbeatInterval = raft.getHeartbeatInterval().toMillis();
   }
 
-  /**
-   * Returns the current commit time.
-   *
-   * @return The current commit time.
-   */
-  public long getTime() {
-    return heartbeatTime;
-  }
-
   /**
    * Returns the leader index.
    *
@@ -80,6 +74,28 @@ final class LeaderAppender extends AbstractAppender {
     return leaderIndex;
   }
 
+  /**
+   * Returns the read lease granted to followers.
+   * <p>
+   * A follower rejects polls and votes until an election timeout has passed since it last accepted an AppendRequest
+   * from the leader. Every majority that could elect a new leader includes a follower that acknowledged the last
+   * heartbeat acknowledged by a majority of the cluster, so no other leader can be elected until an election timeout
+   * after that heartbeat was sent, whether or not this leader has stepped down by then. The remaining lease is
+   * shortened by {@link #MAX_CLOCK_DRIFT} of the election timeout to bound clock drift and message delays between
+   * the leader and followers. Heartbeat times are measured by a monotonic clock, so the lease is not extended by
+   * adjustments to the system clock. No lease is granted until a majority of the cluster has acknowledged a heartbeat
+   * in the leader's term and the leader's initial entry has been committed, since until then the leader's commit
+   * index may not reflect all committed entries.
+   */
+  @Override
+  protected long getLease() {
+    if (heartbeatTime <= leaderTime || raft.getCommitIndex() < leaderIndex) {
+      return 0;
+    }
+    long lease = heartbeatTime + (long) (electionTimeout * (1 - MAX_CLOCK_DRIFT)) - monotonicTime();
+    return Math.max(lease, 0);
+  }
+
   /**
    * Returns the current quorum index.
    *
@@ -136,8 +152,20 @@ final class LeaderAppender extends AbstractAppender {
       return CompletableFuture.completedFuture(index);
     }
 
+    // If the log is flushed asynchronously, the entry is replicated while it's flushed, and the leader counts
+    // itself toward the quorum for the entry once it's durable. Check commit indexes once the flush completes, which
+    // commits the entry directly if there are no other active members.
+    final boolean flushAsync = raft.getLog().isFlushAsync();
+    if (flushAsync) {
+      raft.getLog().awaitDurable(index).whenCompleteAsync((result, error) -> {
+        if (open && error == null) {
+          commitEntries();
+        }
+      }, raft.getThreadContext());
+    }
+
     // If there are no other stateful servers in the cluster, immediately commit the index.
-    if (raft.getCluster().getActiveMemberStates().isEmpty() && raft.getCluster().getPassiveMemberStates().isEmpty()) {
+    if (!flushAsync && raft.getCluster().getActiveMemberStates().isEmpty() && raft.getCluster().getPassiveMemberStates().isEmpty()) {
       long previousCommitIndex = raft.getCommitIndex();
       raft.setCommitIndex(index);
       completeCommits(previousCommitIndex, index);
@@ -145,7 +173,7 @@ final class LeaderAppender extends AbstractAppender {
     }
     // If there are no other active members in the cluster, update the commit index and complete the commit.
     // The updated commit index will be sent to passive/reserve members on heartbeats.
-    else if (raft.getCluster().getActiveMemberStates().isEmpty()) {
+    else if (!flushAsync && raft.getCluster().getActiveMemberStates().isEmpty()) {
       long previousCommitIndex = raft.getCommitIndex();
       raft.setCommitIndex(index);
       completeCommits(previousCommitIndex, index);
@@ -192,7 +220,7 @@ final class LeaderAppender extends AbstractAppender {
       long currentIndex = member.getLogReader().getCurrentIndex();
       Collection<Snapshot> snapshots = raft.getSnapshotStore().getSnapshotsByIndex(member.getLogReader().getCurrentIndex());
       if (snapshots != null && member.getSnapshotIndex() <= currentIndex) {
-        if (!member.canInstall()) {
+        if (!member.canInstall(raft.getSnapshotChunkWindow())) {
           return;
         }
 
@@ -205,7 +233,7 @@ final class LeaderAppender extends AbstractAppender {
         }
 
         if (nextSnapshot != null) {
-          sendInstallRequest(member, buildInstallRequest(member, nextSnapshot));
+          installSnapshot(member, nextSnapshot);
         } else if (member.canAppend()) {
           member.setSnapshotIndex(currentIndex);
           sendAppendRequest(member, buildAppendRequest(member, -1));
@@ -238,7 +266,7 @@ final class LeaderAppender extends AbstractAppender {
     if (quorumIndex >= 0) {
       return raft.getCluster().getActiveMemberStates((m1, m2) -> Long.compare(m2.getHeartbeatTime(), m1.getHeartbeatTime())).get(quorumIndex).getHeartbeatTime();
     }
-    return System.currentTimeMillis();
+    return monotonicTime();
   }
 
   /**
@@ -252,7 +280,8 @@ final class LeaderAppender extends AbstractAppender {
 
     // Compute the quorum heartbeat time.
     long heartbeatTime = computeHeartbeatTime();
-    long currentTimestamp = System.currentTimeMillis();
+    this.heartbeatTime = Math.max(this.heartbeatTime, heartbeatTime);
+    long currentTimestamp = monotonicTime();
 
     // Iterate through pending timestamped heartbeat futures and complete all futures where the timestamp
     // is greater than the last timestamp a quorum of the cluster was contacted.
@@ -290,7 +319,7 @@ final class LeaderAppender extends AbstractAppender {
 
     // Iterate through pending timestamped heartbeat futures and fail futures that have been pending longer
     // than an election timeout.
-    long currentTimestamp = System.currentTimeMillis();
+    long currentTimestamp = monotonicTime();
     Iterator<TimestampedFuture<Long>> iterator = heartbeatFutures.iterator();
     while (iterator.hasNext()) {
       TimestampedFuture<Long> future = iterator.next();
@@ -325,7 +354,7 @@ final class LeaderAppender extends AbstractAppender {
     // If the active members list is empty (a configuration change occurred between an append request/response)
     // ensure all commit futures are completed and cleared.
     if (members.isEmpty()) {
-      long commitIndex = raft.getLogWriter().getLastIndex();
+      long commitIndex = raft.getLog().isFlushAsync() ? raft.getLog().getDurableIndex() : raft.getLogWriter().getLastIndex();
       long previousCommitIndex = raft.setCommitIndex(commitIndex);
       if (commitIndex > previousCommitIndex) {
         log.trace("Committed entries up to {}", commitIndex);
@@ -334,8 +363,17 @@ final class LeaderAppender extends AbstractAppender {
       return;
     }
 
-    // Calculate the current commit index as the median matchIndex.
-    long commitIndex = members.get(getQuorumIndex()).getMatchIndex();
+    // Calculate the current commit index as the median matchIndex. If the log is flushed asynchronously, the leader
+    // counts itself toward the quorum only up to the index it has flushed, so include its durable index in the median.
+    long commitIndex;
+    if (raft.getLog().isFlushAsync()) {
+      List<Long> indexes = members.stream().map(RaftMemberContext::getMatchIndex).collect(Collectors.toList());
+      indexes.add(raft.getLog().getDurableIndex());
+      indexes.sort(Comparator.reverseOrder());
+      commitIndex = indexes.get(getQuorumIndex() + 1);
+    } else {
+      commitIndex = members.get(getQuorumIndex()).getMatchIndex();
+    }
 
     // If the commit index has increased then update the commit index. Note that in order to ensure
     // the leader completeness property holds, we verify that the commit index is greater than or equal to
@@ -361,25 +399,40 @@ final class LeaderAppender extends AbstractAppender {
   }
 
   @Override
-  protected void handleAppendResponseFailure(RaftMemberContext member, AppendRequest request, Throwable error) {
+  protected void handleAppendResponseFailure(RaftMemberContext member, AppendRequest request, Throwable error, long epoch) {
     failHeartbeat();
-    super.handleAppendResponseFailure(member, request, error);
+
+    // If a request with entries was lost, requests pipelined behind it will be rejected by the member. Rewind the
+    // member's reader to its match index so the lost entries are resent once the member is reachable again.
+    if (!request.entries().isEmpty() && epoch == member.getAppendEpoch()) {
+      member.rewindAppend(monotonicTime());
+      resetNextIndex(member);
+    }
+    super.handleAppendResponseFailure(member, request, error, epoch);
   }
 
   @Override
-  protected void handleAppendResponse(RaftMemberContext member, AppendRequest request, AppendResponse response, long timestamp) {
+  protected void handleAppendResponse(RaftMemberContext member, AppendRequest request, AppendResponse response, long timestamp, long epoch) {
     // Record a successful heartbeat to the member.
     recordHeartbeat(member, timestamp);
-    super.handleAppendResponse(member, request, response, timestamp);
+    super.handleAppendResponse(member, request, response, timestamp, epoch);
   }
 
   @Override
-  protected void handleAppendResponseOk(RaftMemberContext member, AppendRequest request, AppendResponse response) {
+  protected void handleAppendResponseOk(RaftMemberContext member, AppendRequest request, AppendResponse response, long epoch) {
     // Reset the member failure count and update the member's availability status if necessary.
     succeedAttempt(member);
 
+    // If the member's appends have been rewound since the request was sent, the response is out of date: a
+    // rejection was caused by an earlier failed request, and the entries of a successful request will be resent.
+    if (epoch != member.getAppendEpoch() && response.term() <= raft.getTerm()) {
+      log.trace("Ignoring out of date {} from {}", response, member.getMember().nodeId());
+      if (hasMoreEntries(member)) {
+        appendEntries(member);
+      }
+    }
     // If replication succeeded then trigger commit futures.
-    if (response.succeeded()) {
+    else if (response.succeeded()) {
       member.appendSucceeded();
       updateMatchIndex(member, response);
 
@@ -400,9 +453,10 @@ final class LeaderAppender extends AbstractAppender {
       raft.transition(RaftServer.Role.FOLLOWER);
     }
     // If the response failed, the follower should have provided the correct last index in their log. This helps
-    // us converge on the matchIndex faster than by simply decrementing nextIndex one index at a time.
+    // us converge on the matchIndex faster than by simply decrementing nextIndex one index at a time. Requests
+    // pipelined behind the rejected request will be rejected as well, so rewind the member's appends to ignore them.
     else {
-      member.appendFailed();
+      member.rewindAppend(monotonicTime());
       resetMatchIndex(member, response);
       resetNextIndex(member);
 
@@ -438,7 +492,7 @@ final class LeaderAppender extends AbstractAppender {
     // Verify that the leader has contacted a majority of the cluster within the last two election timeouts.
     // If the leader is not able to contact a majority of the cluster within two election timeouts, assume
     // that a partition occurred and transition back to the FOLLOWER state.
-    if (member.getFailureCount() >= MIN_STEP_DOWN_FAILURE_COUNT && System.currentTimeMillis() - Math.max(computeHeartbeatTime(), leaderTime) > electionTimeout * 2) {
+    if (member.getFailureCount() >= MIN_STEP_DOWN_FAILURE_COUNT && monotonicTime() - Math.max(computeHeartbeatTime(), leaderTime) > electionTimeout * 2) {
       log.warn("Suspected network partition. Stepping down");
       raft.setLeader(null);
       raft.transition(RaftServer.Role.FOLLOWER);
@@ -462,6 +516,9 @@ final class LeaderAppender extends AbstractAppender {
   @Override
   public void close() {
     super.close();
+    for (RaftMemberContext member : raft.getCluster().getRemoteMemberStates()) {
+      member.resetSnapshot();
+    }
     appendFutures.values().forEach(future ->
         future.completeExceptionally(new IllegalStateException("Inactive state")));
     heartbeatFutures.forEach(future ->
@@ -475,7 +532,7 @@ final class LeaderAppender extends AbstractAppender {
     private final long timestamp;
 
     public TimestampedFuture() {
-      this(System.currentTimeMillis());
+      this(monotonicTime());
     }
 
     public TimestampedFuture(long timestamp) {
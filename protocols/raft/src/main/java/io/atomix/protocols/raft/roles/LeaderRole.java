@@ -49,6 +49,8 @@ import io.atomix.protocols.raft.protocol.PollResponse;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureResponse;
 import io.atomix.protocols.raft.protocol.TransferRequest;
@@ -73,8 +75,10 @@ import io.atomix.utils.concurrent.Scheduled;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.OptionalLong;
 import java.util.Set;
@@ -87,11 +91,16 @@ import java.util.stream.Collectors;
  */
 public final class LeaderRole extends ActiveRole {
   private static final int MAX_APPEND_ATTEMPTS = 5;
+  private static final int MAX_BATCH_COMMANDS = 1024;
+  private static final int MAX_BATCH_SIZE = 1024 * 32;
 
   private final LeaderAppender appender;
   private Scheduled appendTimer;
   private final Map<NodeId, Scheduled> heartbeatTimers = new HashMap<>();
   private final Set<SessionId> expiring = Sets.newHashSet();
+  private final List<PendingCommand> pendingCommands = new ArrayList<>();
+  private int pendingCommandBytes;
+  private CompletableFuture<Long> readIndexFuture;
   private long configuring;
   private boolean transferring;
 
@@ -136,7 +145,7 @@ public final class LeaderRole extends ActiveRole {
   private CompletableFuture<Void> appendInitialEntries() {
     final long term = raft.getTerm();
 
-    return appendAndCompact(new InitializeEntry(term, appender.getTime()))
+    return appendAndCompact(new InitializeEntry(term, System.currentTimeMillis()))
         .whenComplete((entry, error) -> {
           if (error == null) {
             log.trace("Appended {}", entry);
@@ -720,51 +729,90 @@ public final class LeaderRole extends ActiveRole {
 
   /**
    * Commits a command.
+   * <p>
+   * Commands are not appended to the log as they're received. Instead, commands received while the Raft thread is
+   * busy are gathered into a batch, and the batch is appended and replicated once the requests already queued on the
+   * Raft thread have been handled or the batch reaches its maximum size. A lightly loaded leader therefore commits
+   * each command immediately, while a heavily loaded leader writes many commands to the log at once and replicates
+   * and commits them together. Each command is still written in its own entry and applied at its own index.
    *
    * @param request the command request
    * @param future  the command response future
    */
   private void commitCommand(CommandRequest request, CompletableFuture<CommandResponse> future) {
+    pendingCommands.add(new PendingCommand(request, future));
+    pendingCommandBytes += request.operation().value() != null ? request.operation().value().length : 0;
+    if (pendingCommands.size() >= MAX_BATCH_COMMANDS || pendingCommandBytes >= MAX_BATCH_SIZE) {
+      commitCommands();
+    } else if (pendingCommands.size() == 1) {
+      raft.getThreadContext().execute(this::commitCommands);
+    }
+  }
+
+  /**
+   * Commits pending commands.
+   */
+  private void commitCommands() {
+    if (pendingCommands.isEmpty()) {
+      return;
+    }
+
+    List<PendingCommand> commands = new ArrayList<>(pendingCommands);
+    pendingCommands.clear();
+    pendingCommandBytes = 0;
+
     final long term = raft.getTerm();
     final long timestamp = System.currentTimeMillis();
 
-    appendAndCompact(new CommandEntry(term, timestamp, request.session(), request.sequenceNumber(), request.operation()))
-        .whenCompleteAsync((entry, error) -> {
+    List<CommandEntry> entries = new ArrayList<>(commands.size());
+    for (PendingCommand command : commands) {
+      CommandRequest request = command.request;
+      entries.add(new CommandEntry(term, timestamp, request.session(), request.sequenceNumber(), request.operation()));
+    }
+
+    appendAndCompact(entries, 0)
+        .whenCompleteAsync((indexedEntries, error) -> {
           if (error != null) {
-            future.complete(CommandResponse.builder()
-                .withStatus(RaftResponse.Status.ERROR)
-                .withError(RaftError.Type.COMMAND_FAILURE)
-                .build());
+            failCommands(commands, RaftError.Type.COMMAND_FAILURE);
             return;
           }
 
-          log.trace("Appended {}", entry);
+          log.trace("Appended {} command(s) up to {}", indexedEntries.size(), indexedEntries.get(indexedEntries.size() - 1));
 
-          // Replicate the command to followers.
-          appender.appendEntries(entry.index()).whenComplete((commitIndex, commitError) -> {
+          // Replicate the commands to followers.
+          appender.appendEntries(indexedEntries.get(indexedEntries.size() - 1).index()).whenComplete((commitIndex, commitError) -> {
             raft.checkThread();
             if (isOpen()) {
-              // If the command was successfully committed, apply it to the state machine.
+              // If the commands were successfully committed, apply them to the state machine.
               if (commitError == null) {
-                raft.getStateMachine().<OperationResult>apply(entry.index()).whenComplete((r, e) -> {
-                  completeOperation(r, CommandResponse.builder(), e, future);
-                });
+                for (int i = 0; i < commands.size(); i++) {
+                  CompletableFuture<CommandResponse> future = commands.get(i).future;
+                  raft.getStateMachine().<OperationResult>apply(indexedEntries.get(i).index()).whenComplete((r, e) -> {
+                    completeOperation(r, CommandResponse.builder(), e, future);
+                  });
+                }
               } else {
-                future.complete(CommandResponse.builder()
-                    .withStatus(RaftResponse.Status.ERROR)
-                    .withError(RaftError.Type.PROTOCOL_ERROR)
-                    .build());
+                failCommands(commands, RaftError.Type.PROTOCOL_ERROR);
               }
             } else {
-              future.complete(CommandResponse.builder()
-                  .withStatus(RaftResponse.Status.ERROR)
-                  .withError(RaftError.Type.COMMAND_FAILURE)
-                  .build());
+              failCommands(commands, RaftError.Type.COMMAND_FAILURE);
             }
           });
         }, raft.getThreadContext());
   }
 
+  /**
+   * Fails the given commands with the given error.
+   */
+  private void failCommands(List<PendingCommand> commands, RaftError.Type error) {
+    for (PendingCommand command : commands) {
+      command.future.complete(CommandResponse.builder()
+          .withStatus(RaftResponse.Status.ERROR)
+          .withError(error)
+          .build());
+    }
+  }
+
   @Override
   public CompletableFuture<QueryResponse> onQuery(final QueryRequest request) {
     raft.checkThread();
@@ -830,17 +878,84 @@ public final class LeaderRole extends ActiveRole {
   /**
    * Executes a linearizable query.
    * <p>
-   * Linearizable queries are first sequenced with commands and then applied to the state machine. Once
-   * applied, we verify the node's leadership prior to responding successfully to the query.
+   * Linearizable queries are executed using the read index protocol. The leader's commit index is recorded as the
+   * query's read index, and once the leader's leadership has been confirmed by a majority of the cluster and the
+   * state machine has applied entries up to the read index, the query is applied to the state machine.
    */
   private CompletableFuture<QueryResponse> queryLinearizable(Indexed<QueryEntry> entry) {
-    return applyQuery(entry)
-        .thenComposeAsync(response -> appender.appendEntries()
-            .thenApply(index -> response)
-            .exceptionally(error -> QueryResponse.builder()
-                .withStatus(RaftResponse.Status.ERROR)
-                .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
-                .build()), raft.getThreadContext());
+    return readIndex()
+        .thenCompose(index -> raft.awaitApplied(index))
+        .thenComposeAsync(index -> applyQuery(entry), raft.getThreadContext())
+        .exceptionally(error -> QueryResponse.builder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
+            .build());
+  }
+
+  @Override
+  public CompletableFuture<ReadIndexResponse> onReadIndex(ReadIndexRequest request) {
+    raft.checkThread();
+    logRequest(request);
+
+    CompletableFuture<ReadIndexResponse> future = new CompletableFuture<>();
+    readIndex().whenComplete((index, error) -> {
+      if (error == null) {
+        future.complete(logResponse(ReadIndexResponse.builder()
+            .withStatus(RaftResponse.Status.OK)
+            .withIndex(index)
+            .build()));
+      } else {
+        future.complete(logResponse(ReadIndexResponse.builder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
+            .build()));
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Returns a read index for linearizable reads.
+   * <p>
+   * Reads requested while the Raft thread is busy share a read index, which is recorded once the requests already
+   * queued on the Raft thread have been handled. The returned future is completed with the read index once a single
+   * round of heartbeats sent after the index was recorded confirms the leader's leadership.
+   *
+   * @return a future to be completed with the read index
+   */
+  private CompletableFuture<Long> readIndex() {
+    if (readIndexFuture == null) {
+      readIndexFuture = new CompletableFuture<>();
+      raft.getThreadContext().execute(this::confirmReadIndex);
+    }
+    return readIndexFuture;
+  }
+
+  /**
+   * Records the read index for pending reads and confirms the leader's leadership.
+   */
+  private void confirmReadIndex() {
+    CompletableFuture<Long> future = readIndexFuture;
+    readIndexFuture = null;
+    if (future == null) {
+      return;
+    }
+
+    if (!isOpen()) {
+      future.completeExceptionally(new RaftException.IllegalMemberState("Not the leader"));
+      return;
+    }
+
+    // The leader may not have committed its initial entry, in which case its commit index may not reflect all
+    // committed entries. Read at least from the initial entry.
+    final long index = Math.max(raft.getCommitIndex(), appender.getIndex());
+    appender.appendEntries().whenComplete((commitIndex, error) -> {
+      if (error == null) {
+        future.complete(index);
+      } else {
+        future.completeExceptionally(error);
+      }
+    });
   }
 
   @Override
@@ -1077,6 +1192,10 @@ public final class LeaderRole extends ActiveRole {
 
   /**
    * Appends an entry to the Raft log and compacts logs if necessary.
+   * <p>
+   * Pending commands are appended before the entry so that entries are written to the log in the order in which
+   * their requests were received. Otherwise, a session closed right after submitting commands would be closed in
+   * the log before its commands were applied.
    *
    * @param entry   the entry to append
    * @param attempt the append attempt count
@@ -1084,6 +1203,7 @@ public final class LeaderRole extends ActiveRole {
    * @return a completable future to be completed once the entry has been appended
    */
   protected <E extends RaftLogEntry> CompletableFuture<Indexed<E>> appendAndCompact(E entry, int attempt) {
+    commitCommands();
     if (attempt == MAX_APPEND_ATTEMPTS) {
       return Futures.exceptionalFuture(new StorageException.OutOfDiskSpace("Not enough space to append entry"));
     } else {
@@ -1095,6 +1215,29 @@ public final class LeaderRole extends ActiveRole {
     }
   }
 
+  /**
+   * Appends a batch of entries to the Raft log and compacts logs if necessary.
+   *
+   * @param entries the entries to append
+   * @param attempt the append attempt count
+   * @param <E>     the entry type
+   * @return a completable future to be completed once the entries have been appended
+   */
+  private <E extends RaftLogEntry> CompletableFuture<List<Indexed<E>>> appendAndCompact(List<E> entries, int attempt) {
+    if (attempt == MAX_APPEND_ATTEMPTS) {
+      return Futures.exceptionalFuture(new StorageException.OutOfDiskSpace("Not enough space to append entry"));
+    } else {
+      long lastIndex = raft.getLogWriter().getLastIndex();
+      try {
+        return CompletableFuture.completedFuture(raft.getLogWriter().append(entries));
+      } catch (StorageException.OutOfDiskSpace e) {
+        // Remove any part of the batch that was written before retrying it.
+        raft.getLogWriter().truncate(lastIndex);
+        return raft.getLogCompactor().compact().thenCompose(v -> appendAndCompact(entries, attempt + 1));
+      }
+    }
+  }
+
   /**
    * Cancels the append timer.
    */
@@ -1122,13 +1265,37 @@ public final class LeaderRole extends ActiveRole {
     }
   }
 
+  /**
+   * Fails commands that have not yet been appended to the log.
+   */
+  private void failPendingCommands() {
+    List<PendingCommand> commands = new ArrayList<>(pendingCommands);
+    pendingCommands.clear();
+    pendingCommandBytes = 0;
+    failCommands(commands, RaftError.Type.COMMAND_FAILURE);
+  }
+
   @Override
   public synchronized CompletableFuture<Void> close() {
     return super.close()
+        .thenRun(this::failPendingCommands)
+        .thenRun(this::confirmReadIndex)
         .thenRun(appender::close)
         .thenRun(this::cancelAppendTimer)
         .thenRun(this::cancelHeartbeatTimers)
         .thenRun(this::stepDown);
   }
 
+  /**
+   * Command waiting to be appended to the log.
+   */
+  private static final class PendingCommand {
+    private final CommandRequest request;
+    private final CompletableFuture<CommandResponse> future;
+
+    private PendingCommand(CommandRequest request, CompletableFuture<CommandResponse> future) {
+      this.request = request;
+      this.future = future;
+    }
+  }
 }
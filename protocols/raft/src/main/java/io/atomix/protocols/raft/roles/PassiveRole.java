@@ -20,6 +20,7 @@ import io.atomix.protocols.raft.RaftException;
 import io.atomix.protocols.raft.RaftServer;
 import io.atomix.protocols.raft.ReadConsistency;
 import io.atomix.protocols.raft.impl.OperationResult;
+import io.atomix.protocols.raft.impl.PendingSnapshot;
 import io.atomix.protocols.raft.impl.RaftContext;
 import io.atomix.protocols.raft.protocol.AppendRequest;
 import io.atomix.protocols.raft.protocol.AppendResponse;
@@ -45,6 +46,7 @@ import io.atomix.protocols.raft.protocol.PollResponse;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureResponse;
 import io.atomix.protocols.raft.protocol.VoteRequest;
@@ -56,23 +58,26 @@ import io.atomix.protocols.raft.storage.log.RaftLogWriter;
 import io.atomix.protocols.raft.storage.log.entry.QueryEntry;
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.protocols.raft.storage.snapshot.Snapshot;
-import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
 import io.atomix.storage.StorageException;
 import io.atomix.storage.journal.Indexed;
 import io.atomix.utils.time.WallClockTimestamp;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-
-import static com.google.common.base.MoreObjects.toStringHelper;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 /**
  * Passive state.
  */
 public class PassiveRole extends InactiveRole {
-  private final Map<Long, PendingSnapshot> pendingSnapshots = new HashMap<>();
+  private CompletableFuture<Long> pendingReadIndex;
+  private long leaseTerm;
+  private long leaseIndex;
+  private long leaseExpiration;
+  private long leaderTime = System.nanoTime();
 
   public PassiveRole(RaftContext context) {
     super(context);
@@ -119,6 +124,10 @@ public class PassiveRole extends InactiveRole {
       return future;
     }
 
+    // Record the time at which the leader was last heard from and the read lease granted by the leader.
+    leaderTime = System.nanoTime();
+    updateLease(request);
+
     // Check that the previous index/term matches the local log's last entry.
     if (!checkPreviousEntry(request, future)) {
       return future;
@@ -129,6 +138,38 @@ public class PassiveRole extends InactiveRole {
     return future;
   }
 
+  /**
+   * Records the read lease granted by the leader in the given AppendRequest.
+   * <p>
+   * The lease expires once the lease duration has passed since the request was received, as measured by
+   * {@link System#nanoTime()} so that adjustments to the system clock cannot extend the lease. Leases are only
+   * honored in the term in which they were granted.
+   */
+  private void updateLease(AppendRequest request) {
+    if (request.lease() > 0 && request.term() == raft.getTerm()) {
+      leaseTerm = request.term();
+      leaseIndex = request.commitIndex();
+      leaseExpiration = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.lease());
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the leader has been heard from within the election timeout.
+   * <p>
+   * The time is measured by {@link System#nanoTime()} from the last AppendRequest accepted from the leader of the
+   * current term, or from the time the role was created if no request has been accepted since.
+   */
+  protected boolean hasLeader() {
+    return raft.getLeader() != null && System.nanoTime() - leaderTime < raft.getElectionTimeout().toNanos();
+  }
+
+  /**
+   * Returns a boolean indicating whether this server holds a valid read lease from the leader.
+   */
+  private boolean hasLease() {
+    return leaseTerm == raft.getTerm() && raft.getLeader() != null && System.nanoTime() - leaseExpiration < 0;
+  }
+
   /**
    * Checks the leader's term of the given AppendRequest, returning a boolean indicating whether to continue
    * handling the request.
@@ -224,74 +265,74 @@ public class PassiveRole extends InactiveRole {
         writer.reset(request.prevLogIndex() + 1);
       }
 
-      // Iterate through entries and append them.
-      for (RaftLogEntry entry : request.entries()) {
-        long index = ++lastLogIndex;
+      // Iterate through entries already present in the log, verifying that their terms match the leader's entries.
+      // Entries are received in their serialized form and are only decoded when their terms must be compared.
+      int offset = 0;
+      for (Indexed<RaftLogEntry> entry : request.entries()) {
+        long index = lastLogIndex + 1;
 
         // Get the last entry written to the log by the writer.
         Indexed<RaftLogEntry> lastEntry = writer.getLastEntry();
 
-        if (lastEntry != null) {
-          // If the last written entry index is greater than the next append entry index,
-          // we need to validate that the entry that's already in the log matches this entry.
-          if (lastEntry.index() > index) {
-            // Reset the reader to the current entry index.
-            reader.reset(index);
-
-            // If the reader does not have any next entry, that indicates an inconsistency between the reader and writer.
-            if (!reader.hasNext()) {
-              throw new IllegalStateException("Log reader inconsistent with log writer");
-            }
-
-            // Read the existing entry from the log.
-            Indexed<RaftLogEntry> existingEntry = reader.next();
-
-            // If the existing entry term doesn't match the leader's term for the same entry, truncate
-            // the log and append the leader's entry.
-            if (existingEntry.entry().term() != entry.term()) {
-              writer.truncate(index - 1);
-              if (!appendEntry(index, entry, writer, future)) {
-                return;
-              }
-            }
-          }
-          // If the last written entry is equal to the append entry index, we don't need
-          // to read the entry from disk and can just compare the last entry in the writer.
-          else if (lastEntry.index() == index) {
-            // If the last entry term doesn't match the leader's term for the same entry, truncate
-            // the log and append the leader's entry.
-            if (lastEntry.entry().term() != entry.term()) {
-              writer.truncate(index - 1);
-              if (!appendEntry(index, entry, writer, future)) {
-                return;
-              }
-            }
-          }
-          // Otherwise, this entry is being appended at the end of the log.
-          else {
-            // If the last entry index isn't the previous index, throw an exception because something crazy happened!
-            if (lastEntry.index() != index - 1) {
-              throw new IllegalStateException("Log writer inconsistent with next append entry index " + index);
-            }
-
-            // Append the entry and log a message.
-            if (!appendEntry(index, entry, writer, future)) {
-              return;
-            }
+        // If the last written entry index is less than the next append entry index, the remaining entries
+        // are appended to the end of the log.
+        if (lastEntry == null || lastEntry.index() < index) {
+          // If the last entry index isn't the previous index, throw an exception because something crazy happened!
+          if (lastEntry != null && lastEntry.index() != index - 1) {
+            throw new IllegalStateException("Log writer inconsistent with next append entry index " + index);
           }
+          break;
+        }
+
+        // If the last written entry is equal to the append entry index, we don't need
+        // to read the entry from disk and can just compare the last entry in the writer.
+        long existingTerm;
+        if (lastEntry.index() == index) {
+          existingTerm = lastEntry.entry().term();
         }
-        // Otherwise, if the last entry is null just append the entry and log a message.
+        // If the last written entry index is greater than the next append entry index,
+        // we need to validate that the entry that's already in the log matches this entry.
         else {
-          if (!appendEntry(index, entry, writer, future)) {
-            return;
+          // Reset the reader to the current entry index.
+          reader.reset(index);
+
+          // If the reader does not have any next entry, that indicates an inconsistency between the reader and writer.
+          if (!reader.hasNext()) {
+            throw new IllegalStateException("Log reader inconsistent with log writer");
           }
+
+          // Read the existing entry from the log.
+          existingTerm = reader.next().entry().term();
+        }
+
+        // If the existing entry term doesn't match the leader's term for the same entry, truncate
+        // the log and append the leader's entries from this index.
+        if (existingTerm != entry.withSerializer(raft.getStorage().serializer()).entry().term()) {
+          writer.truncate(index - 1);
+          break;
         }
 
+        lastLogIndex = index;
+        offset++;
+
         // If the last log index meets the commitIndex, break the append loop to avoid appending uncommitted entries.
         if (!role().active() && index == commitIndex) {
+          offset = request.entries().size();
           break;
         }
       }
+
+      // Append the remaining entries to the log in a single batch. Passive members only append committed entries.
+      int limit = request.entries().size();
+      if (!role().active() && commitIndex > lastLogIndex && commitIndex < lastEntryIndex) {
+        limit = (int) (commitIndex - request.prevLogIndex());
+      }
+      if (offset < limit) {
+        if (!appendEntries(request.entries().subList(offset, limit), writer, future)) {
+          return;
+        }
+        lastLogIndex = writer.getLastIndex();
+      }
     }
 
     // Set the first commit index.
@@ -304,21 +345,35 @@ public class PassiveRole extends InactiveRole {
       raft.getStateMachine().applyAll(commitIndex);
     }
 
-    // Return a successful append response.
-    succeedAppend(lastLogIndex, future);
+    // Return a successful append response. If the log is flushed asynchronously, respond once the appended entries
+    // have been flushed so the leader doesn't count this member toward the quorum for entries that could be lost.
+    // If the flush fails, reject the append with the last index known to be durable so the leader resends the entries.
+    if (!request.entries().isEmpty() && raft.getLog().isFlushAsync()) {
+      final long appendedIndex = lastLogIndex;
+      raft.getLog().awaitDurable(appendedIndex).whenCompleteAsync((result, error) -> {
+        if (error == null) {
+          succeedAppend(appendedIndex, future);
+        } else {
+          log.warn("Failed to flush entries up to index {}", appendedIndex, error);
+          failAppend(Math.min(request.prevLogIndex(), raft.getLog().getDurableIndex()), future);
+        }
+      }, raft.getThreadContext());
+    } else {
+      succeedAppend(lastLogIndex, future);
+    }
   }
 
   /**
-   * Attempts to append an entry, returning {@code false} if the append fails due to an {@link StorageException.OutOfDiskSpace} exception.
+   * Attempts to append a batch of entries, returning {@code false} if the append fails due to an {@link StorageException.OutOfDiskSpace} exception.
    */
-  private boolean appendEntry(long index, RaftLogEntry entry, RaftLogWriter writer, CompletableFuture<AppendResponse> future) {
+  private boolean appendEntries(List<Indexed<RaftLogEntry>> entries, RaftLogWriter writer, CompletableFuture<AppendResponse> future) {
     try {
-      Indexed<RaftLogEntry> indexed = writer.append(entry);
+      List<Indexed<RaftLogEntry>> indexed = writer.appendIndexed(entries);
       log.trace("Appended {}", indexed);
     } catch (StorageException.OutOfDiskSpace e) {
       log.trace("Append failed: {}", e);
       raft.getLogCompactor().compact();
-      failAppend(index - 1, future);
+      failAppend(writer.getLastIndex(), future);
       return false;
     }
     return true;
@@ -404,11 +459,107 @@ public class PassiveRole extends InactiveRole {
               request.operation()), 0);
 
       return applyQuery(entry).thenApply(this::logResponse);
+    } else if (session.readConsistency() == ReadConsistency.LINEARIZABLE && raft.getLeader() != null) {
+      return queryReadIndex(request);
+    } else if (session.readConsistency() == ReadConsistency.LINEARIZABLE_LEASE && hasLease()) {
+      return queryLease(request);
     } else {
       return queryForward(request);
     }
   }
 
+  /**
+   * Executes a linearizable query using a read index obtained from the leader.
+   * <p>
+   * The query is applied to the local state machine once it has applied entries up to the leader's read index,
+   * so linearizable reads are served by followers rather than by the leader's state machine. If a read index can't
+   * be obtained from the leader, the query is forwarded to the leader.
+   */
+  private CompletableFuture<QueryResponse> queryReadIndex(QueryRequest request) {
+    final Indexed<QueryEntry> entry = new Indexed<>(
+        request.index(),
+        new QueryEntry(
+            raft.getTerm(),
+            System.currentTimeMillis(),
+            request.session(),
+            request.sequenceNumber(),
+            request.operation()), 0);
+
+    return requestReadIndex()
+        .thenCompose(index -> raft.awaitApplied(index))
+        .handleAsync((index, error) -> {
+          if (error == null) {
+            return applyQuery(entry).thenApply(this::logResponse);
+          } else {
+            log.trace("Failed to obtain read index, forwarding query to leader");
+            return queryForward(request);
+          }
+        }, raft.getThreadContext())
+        .thenCompose(future -> future);
+  }
+
+  /**
+   * Executes a bounded linearizable query using the read lease granted by the leader.
+   * <p>
+   * While the lease is valid, no other leader can have been elected, so the query is applied to the local state
+   * machine once it has applied entries up to the commit index at which the lease was granted.
+   */
+  private CompletableFuture<QueryResponse> queryLease(QueryRequest request) {
+    final Indexed<QueryEntry> entry = new Indexed<>(
+        request.index(),
+        new QueryEntry(
+            raft.getTerm(),
+            System.currentTimeMillis(),
+            request.session(),
+            request.sequenceNumber(),
+            request.operation()), 0);
+
+    return raft.awaitApplied(leaseIndex)
+        .thenComposeAsync(index -> applyQuery(entry), raft.getThreadContext())
+        .thenApply(this::logResponse);
+  }
+
+  /**
+   * Requests a read index from the leader.
+   * <p>
+   * Queries received while the Raft thread is busy share a single read index request, which is sent once the
+   * requests already queued on the Raft thread have been handled.
+   *
+   * @return a future to be completed with the leader's read index
+   */
+  private CompletableFuture<Long> requestReadIndex() {
+    if (pendingReadIndex == null) {
+      pendingReadIndex = new CompletableFuture<>();
+      raft.getThreadContext().execute(this::sendReadIndexRequest);
+    }
+    return pendingReadIndex;
+  }
+
+  /**
+   * Sends a read index request to the leader for pending queries.
+   */
+  private void sendReadIndexRequest() {
+    CompletableFuture<Long> future = pendingReadIndex;
+    pendingReadIndex = null;
+    if (future == null) {
+      return;
+    }
+
+    ReadIndexRequest request = ReadIndexRequest.builder()
+        .withMember(raft.getCluster().getMember().nodeId())
+        .build();
+    log.trace("Sending {}", request);
+    forward(request, raft.getProtocol()::readIndex).whenComplete((response, error) -> {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else if (response.status() == RaftResponse.Status.OK) {
+        future.complete(response.index());
+      } else {
+        future.completeExceptionally(response.error().createException());
+      }
+    });
+  }
+
   /**
    * Forwards the query to the leader.
    */
@@ -496,6 +647,7 @@ public class PassiveRole extends InactiveRole {
     }
 
     // Get the pending snapshot for the associated snapshot ID.
+    Map<Long, PendingSnapshot> pendingSnapshots = raft.getPendingSnapshots();
     PendingSnapshot pendingSnapshot = pendingSnapshots.get(request.serviceId());
 
     // If a snapshot is currently being received and the snapshot versions don't match, simply
@@ -506,6 +658,25 @@ public class PassiveRole extends InactiveRole {
     // leader dictates when a snapshot needs to be sent.
     if (pendingSnapshot != null && request.snapshotIndex() != pendingSnapshot.snapshot().index()) {
       pendingSnapshot.rollback();
+      pendingSnapshots.remove(request.serviceId());
+      pendingSnapshot = null;
+    }
+
+    // If the first chunk of a partially received snapshot is sent in a new term, offer to resume the snapshot
+    // from the next offset. If the leader sends the first chunk again in the same term, its copy of the snapshot
+    // doesn't match the bytes received so far, so restart the snapshot.
+    if (pendingSnapshot != null && request.chunkOffset() == 0 && pendingSnapshot.nextOffset() > 0) {
+      if (request.term() != pendingSnapshot.term()) {
+        pendingSnapshot.setTerm(request.term());
+        return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Snapshot is partially installed")
+            .withNextOffset(pendingSnapshot.nextOffset())
+            .withChecksum(pendingSnapshot.checksum())
+            .build()));
+      }
+      pendingSnapshot.rollback();
+      pendingSnapshots.remove(request.serviceId());
       pendingSnapshot = null;
     }
 
@@ -516,6 +687,7 @@ public class PassiveRole extends InactiveRole {
         return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
             .withStatus(RaftResponse.Status.ERROR)
             .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk offset is invalid")
+            .withNextOffset(0)
             .build()));
       }
 
@@ -524,33 +696,46 @@ public class PassiveRole extends InactiveRole {
               request.serviceName(),
               request.snapshotIndex(),
               WallClockTimestamp.from(request.snapshotTimestamp()));
-      pendingSnapshot = new PendingSnapshot(snapshot);
+      pendingSnapshot = new PendingSnapshot(snapshot, request.term());
+      pendingSnapshots.put(request.serviceId(), pendingSnapshot);
     }
 
-    // If the request offset is greater than the next expected snapshot offset, fail the request.
-    if (request.chunkOffset() > pendingSnapshot.nextOffset()) {
+    // If the request offset is not the next expected snapshot offset, fail the request and return the
+    // next offset to allow the leader to resend the missing chunks.
+    if (request.chunkOffset() != pendingSnapshot.nextOffset()) {
       return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
           .withStatus(RaftResponse.Status.ERROR)
           .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk offset does not match the next chunk offset")
+          .withNextOffset(pendingSnapshot.nextOffset())
+          .withChecksum(pendingSnapshot.checksum())
           .build()));
     }
 
-    // Write the data to the snapshot.
-    try (SnapshotWriter writer = pendingSnapshot.snapshot().openWriter()) {
-      writer.write(request.data());
+    // If the chunk was corrupted, fail the request to have the leader resend it.
+    CRC32 checksum = new CRC32();
+    checksum.update(request.data());
+    if (checksum.getValue() != request.checksum()) {
+      return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
+          .withStatus(RaftResponse.Status.ERROR)
+          .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk checksum does not match the chunk data")
+          .withNextOffset(pendingSnapshot.nextOffset())
+          .withChecksum(pendingSnapshot.checksum())
+          .build()));
     }
 
-    // If the snapshot is complete, store the snapshot and reset state, otherwise update the next snapshot offset.
+    // Write the data to the snapshot.
+    pendingSnapshot.write(request.data());
+
+    // If the snapshot is complete, store the snapshot and reset state.
     if (request.complete()) {
       pendingSnapshot.commit();
       pendingSnapshots.remove(request.serviceId());
-    } else {
-      pendingSnapshot.incrementOffset();
-      pendingSnapshots.put(request.serviceId(), pendingSnapshot);
     }
 
     return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
         .withStatus(RaftResponse.Status.OK)
+        .withNextOffset(pendingSnapshot.nextOffset())
+        .withChecksum(pendingSnapshot.checksum())
         .build()));
   }
 
@@ -736,72 +921,4 @@ public class PassiveRole extends InactiveRole {
           .thenApply(this::logResponse);
     }
   }
-
-  @Override
-  public CompletableFuture<Void> close() {
-    for (PendingSnapshot pendingSnapshot : pendingSnapshots.values()) {
-      pendingSnapshot.rollback();
-    }
-    return super.close();
-  }
-
-  /**
-   * Pending snapshot.
-   */
-  private static class PendingSnapshot {
-    private final Snapshot snapshot;
-    private long nextOffset;
-
-    public PendingSnapshot(Snapshot snapshot) {
-      this.snapshot = snapshot;
-    }
-
-    /**
-     * Returns the pending snapshot.
-     *
-     * @return the pending snapshot
-     */
-    public Snapshot snapshot() {
-      return snapshot;
-    }
-
-    /**
-     * Returns and increments the next snapshot offset.
-     *
-     * @return the next snapshot offset
-     */
-    public long nextOffset() {
-      return nextOffset;
-    }
-
-    /**
-     * Increments the next snapshot offset.
-     */
-    public void incrementOffset() {
-      nextOffset++;
-    }
-
-    /**
-     * Commits the snapshot to disk.
-     */
-    public void commit() {
-      snapshot.complete();
-    }
-
-    /**
-     * Closes and deletes the snapshot.
-     */
-    public void rollback() {
-      snapshot.close();
-      snapshot.delete();
-    }
-
-    @Override
-    public String toString() {
-      return toStringHelper(this)
-          .add("snapshot", snapshot)
-          .add("nextOffset", nextOffset)
-          .toString();
-    }
-  }
 }
@@ -24,6 +24,7 @@ import io.atomix.primitive.operation.PrimitiveOperation;
 import io.atomix.primitive.service.Commit;
 import io.atomix.primitive.service.PrimitiveService;
 import io.atomix.primitive.service.ServiceContext;
+import io.atomix.primitive.service.ServiceSnapshot;
 import io.atomix.primitive.service.impl.DefaultCommit;
 import io.atomix.primitive.session.Session;
 import io.atomix.primitive.session.SessionId;
@@ -76,6 +77,7 @@ public class DefaultServiceContext implements ServiceContext {
   private final LoadMonitor loadMonitor;
   private final Map<Long, PendingSnapshot> pendingSnapshots = new ConcurrentSkipListMap<>();
   private long snapshotIndex;
+  private volatile boolean serviceSnapshotOpen;
   private long currentIndex;
   private long currentTimestamp;
   private OperationType currentOperation;
@@ -334,7 +336,9 @@ public class DefaultServiceContext implements ServiceContext {
       pendingSnapshot.future.whenComplete((r, e) -> pendingSnapshots.remove(snapshotIndex));
 
       // Serialize sessions to the in-memory snapshot and request a snapshot from the state machine.
-      try (SnapshotWriter writer = snapshot.openWriter()) {
+      SnapshotWriter writer = snapshot.openWriter();
+      ServiceSnapshot serviceSnapshot = null;
+      try {
         writer.writeLong(primitiveId.id());
         writer.writeString(primitiveType.id());
         writer.writeString(serviceName);
@@ -351,13 +355,37 @@ public class DefaultServiceContext implements ServiceContext {
           writer.writeLong(session.getEventIndex());
           writer.writeLong(session.getLastCompleted());
         }
-        service.backup(writer);
+
+        // If the service supports snapshots, freeze the service state to be written in a background thread.
+        // Only one service snapshot can be open at a time, so if a prior snapshot is still being written or the
+        // service doesn't support snapshots, back up the service state synchronously.
+        if (!serviceSnapshotOpen) {
+          serviceSnapshot = service.snapshot();
+        }
+        if (serviceSnapshot == null) {
+          service.backup(writer);
+        } else {
+          serviceSnapshotOpen = true;
+        }
       } catch (Exception e) {
         log.error("Snapshot failed: {}", e);
       }
 
-      // Persist the snapshot to disk in a background thread before completing the snapshot future.
+      // Write the service snapshot and persist the snapshot to disk in a background thread before completing
+      // the snapshot future.
+      ServiceSnapshot asyncSnapshot = serviceSnapshot;
       snapshotExecutor.execute(() -> {
+        if (asyncSnapshot != null) {
+          try {
+            asyncSnapshot.write(writer);
+          } catch (Exception e) {
+            log.error("Snapshot failed: {}", e);
+          } finally {
+            asyncSnapshot.close();
+            serviceSnapshotOpen = false;
+          }
+        }
+        writer.close();
         pendingSnapshot.persist();
         future.complete(snapshotIndex);
       });
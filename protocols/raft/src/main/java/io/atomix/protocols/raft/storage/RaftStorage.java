@@ -22,8 +22,12 @@ import io.atomix.protocols.raft.storage.snapshot.SnapshotStore;
 import io.atomix.protocols.raft.storage.system.MetaStore;
 import io.atomix.utils.serializer.Serializer;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.journal.FlushPolicy;
+import io.atomix.storage.journal.JournalChecksum;
 import io.atomix.storage.journal.JournalSegmentDescriptor;
 import io.atomix.storage.journal.JournalSegmentFile;
+import io.atomix.storage.journal.MappedMemoryBudget;
+import io.atomix.storage.journal.SharedWriteAheadLog;
 import io.atomix.storage.statistics.StorageStatistics;
 
 import java.io.File;
@@ -77,9 +81,19 @@ public class RaftStorage {
   private final Serializer serializer;
   private final int maxSegmentSize;
   private final int maxEntriesPerSegment;
+  private final double indexDensity;
   private final boolean dynamicCompaction;
   private final double freeDiskBuffer;
   private final boolean flushOnCommit;
+  private final FlushPolicy flushPolicy;
+  private final boolean preallocateSegments;
+  private final long tieredMemoryBudget;
+  private final MappedMemoryBudget mappedMemoryBudget;
+  private final SharedWriteAheadLog sharedLog;
+  private final int readAheadSize;
+  private final int compressionBlockSize;
+  private final JournalChecksum checksum;
+  private final int scrubRate;
   private final boolean retainStaleSnapshots;
   private final StorageStatistics statistics;
 
@@ -90,9 +104,19 @@ public class RaftStorage {
       Serializer serializer,
       int maxSegmentSize,
       int maxEntriesPerSegment,
+      double indexDensity,
       boolean dynamicCompaction,
       double freeDiskBuffer,
       boolean flushOnCommit,
+      FlushPolicy flushPolicy,
+      boolean preallocateSegments,
+      long tieredMemoryBudget,
+      MappedMemoryBudget mappedMemoryBudget,
+      SharedWriteAheadLog sharedLog,
+      int readAheadSize,
+      int compressionBlockSize,
+      JournalChecksum checksum,
+      int scrubRate,
       boolean retainStaleSnapshots) {
     this.prefix = prefix;
     this.storageLevel = storageLevel;
@@ -100,9 +124,19 @@ public class RaftStorage {
     this.serializer = serializer;
     this.maxSegmentSize = maxSegmentSize;
     this.maxEntriesPerSegment = maxEntriesPerSegment;
+    this.indexDensity = indexDensity;
     this.dynamicCompaction = dynamicCompaction;
     this.freeDiskBuffer = freeDiskBuffer;
     this.flushOnCommit = flushOnCommit;
+    this.flushPolicy = flushPolicy;
+    this.preallocateSegments = preallocateSegments;
+    this.tieredMemoryBudget = tieredMemoryBudget;
+    this.mappedMemoryBudget = mappedMemoryBudget;
+    this.sharedLog = sharedLog;
+    this.readAheadSize = readAheadSize;
+    this.compressionBlockSize = compressionBlockSize;
+    this.checksum = checksum;
+    this.scrubRate = scrubRate;
     this.retainStaleSnapshots = retainStaleSnapshots;
     this.statistics = new StorageStatistics(directory);
     directory.mkdirs();
@@ -174,6 +208,17 @@ public class RaftStorage {
     return maxEntriesPerSegment;
   }
 
+  /**
+   * Returns the log index density.
+   * <p>
+   * The index density is the frequency at which the positions of entries written to the log are indexed.
+   *
+   * @return The log index density.
+   */
+  public double indexDensity() {
+    return indexDensity;
+  }
+
   /**
    * Returns whether dynamic log compaction is enabled.
    *
@@ -201,6 +246,87 @@ public class RaftStorage {
     return flushOnCommit;
   }
 
+  /**
+   * Returns the log flush policy.
+   *
+   * @return The log flush policy.
+   */
+  public FlushPolicy flushPolicy() {
+    return flushPolicy;
+  }
+
+  /**
+   * Returns whether log segment files are preallocated.
+   *
+   * @return Whether log segment files are preallocated.
+   */
+  public boolean isPreallocateSegments() {
+    return preallocateSegments;
+  }
+
+  /**
+   * Returns the memory budget for the most recent log segments when using {@link StorageLevel#TIERED} storage.
+   *
+   * @return The tiered memory budget in bytes.
+   */
+  public long tieredMemoryBudget() {
+    return tieredMemoryBudget;
+  }
+
+  /**
+   * Returns the memory budget shared by mapped log segments when using {@link StorageLevel#MAPPED} storage.
+   *
+   * @return The mapped memory budget, or {@code null} if mapped segments are not budgeted.
+   */
+  public MappedMemoryBudget mappedMemoryBudget() {
+    return mappedMemoryBudget;
+  }
+
+  /**
+   * Returns the write-ahead log to which log entries are written.
+   *
+   * @return The shared write-ahead log, or {@code null} if the log is not written to a shared log.
+   */
+  public SharedWriteAheadLog sharedLog() {
+    return sharedLog;
+  }
+
+  /**
+   * Returns the number of bytes read ahead of sequential readers of log segments stored on disk.
+   *
+   * @return The read-ahead size in bytes, or {@code 0} if log entries are read synchronously.
+   */
+  public int readAheadSize() {
+    return readAheadSize;
+  }
+
+  /**
+   * Returns the number of uncompressed bytes in each compressed block of sealed log segments stored on disk.
+   *
+   * @return The compression block size in bytes, or {@code 0} if log segments are not compressed.
+   */
+  public int compressionBlockSize() {
+    return compressionBlockSize;
+  }
+
+  /**
+   * Returns the checksum algorithm with which new log segments are written.
+   *
+   * @return The checksum algorithm of new log segments.
+   */
+  public JournalChecksum checksum() {
+    return checksum;
+  }
+
+  /**
+   * Returns the maximum number of bytes per second read when re-verifying sealed log segments in the background.
+   *
+   * @return The scrub rate in bytes per second, or {@code 0} if log segments are not scrubbed in the background.
+   */
+  public int scrubRate() {
+    return scrubRate;
+  }
+
   /**
    * Returns a boolean value indicating whether to retain stale snapshots on disk.
    * <p>
@@ -280,15 +406,29 @@ public class RaftStorage {
    * @return The opened log.
    */
   public RaftLog openLog() {
-    return RaftLog.builder()
+    RaftLog.Builder builder = RaftLog.builder()
         .withName(prefix)
         .withDirectory(directory)
         .withStorageLevel(storageLevel)
         .withSerializer(serializer)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntriesPerSegment(maxEntriesPerSegment)
+        .withIndexDensity(indexDensity)
         .withFlushOnCommit(flushOnCommit)
-        .build();
+        .withFlushPolicy(flushPolicy)
+        .withPreallocateSegments(preallocateSegments)
+        .withTieredMemoryBudget(tieredMemoryBudget)
+        .withReadAheadSize(readAheadSize)
+        .withCompressionBlockSize(compressionBlockSize)
+        .withChecksum(checksum)
+        .withScrubRate(scrubRate);
+    if (mappedMemoryBudget != null) {
+      builder.withMappedMemoryBudget(mappedMemoryBudget);
+    }
+    if (sharedLog != null) {
+      builder.withSharedLog(sharedLog);
+    }
+    return builder.build();
   }
 
   /**
@@ -345,9 +485,17 @@ public class RaftStorage {
     private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir");
     private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
     private static final int DEFAULT_MAX_ENTRIES_PER_SEGMENT = 1024 * 1024;
+    private static final double DEFAULT_INDEX_DENSITY = .005;
     private static final boolean DEFAULT_DYNAMIC_COMPACTION = true;
     private static final double DEFAULT_FREE_DISK_BUFFER = .2;
     private static final boolean DEFAULT_FLUSH_ON_COMMIT = false;
+    private static final FlushPolicy DEFAULT_FLUSH_POLICY = FlushPolicy.never();
+    private static final boolean DEFAULT_PREALLOCATE_SEGMENTS = false;
+    private static final long DEFAULT_TIERED_MEMORY_BUDGET = DEFAULT_MAX_SEGMENT_SIZE * 4L;
+    private static final int DEFAULT_READ_AHEAD_SIZE = 1024 * 1024;
+    private static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 1024 * 64;
+    private static final JournalChecksum DEFAULT_CHECKSUM = JournalChecksum.CRC32;
+    private static final int DEFAULT_SCRUB_RATE = 1024 * 1024;
     private static final boolean DEFAULT_RETAIN_STALE_SNAPSHOTS = false;
 
     private String prefix = DEFAULT_PREFIX;
@@ -356,9 +504,19 @@ public class RaftStorage {
     private Serializer serializer;
     private int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
     private int maxEntriesPerSegment = DEFAULT_MAX_ENTRIES_PER_SEGMENT;
+    private double indexDensity = DEFAULT_INDEX_DENSITY;
     private boolean dynamicCompaction = DEFAULT_DYNAMIC_COMPACTION;
     private double freeDiskBuffer = DEFAULT_FREE_DISK_BUFFER;
     private boolean flushOnCommit = DEFAULT_FLUSH_ON_COMMIT;
+    private FlushPolicy flushPolicy = DEFAULT_FLUSH_POLICY;
+    private boolean preallocateSegments = DEFAULT_PREALLOCATE_SEGMENTS;
+    private long tieredMemoryBudget = DEFAULT_TIERED_MEMORY_BUDGET;
+    private MappedMemoryBudget mappedMemoryBudget;
+    private SharedWriteAheadLog sharedLog;
+    private int readAheadSize;
+    private int compressionBlockSize;
+    private JournalChecksum checksum = DEFAULT_CHECKSUM;
+    private int scrubRate;
     private boolean retainStaleSnapshots = DEFAULT_RETAIN_STALE_SNAPSHOTS;
 
     private Builder() {
@@ -471,6 +629,23 @@ public class RaftStorage {
       return this;
     }
 
+    /**
+     * Sets the log index density, returning the builder for method chaining.
+     * <p>
+     * The index density is the frequency at which the position of entries written to the log will be recorded in
+     * an in-memory index for faster seeking. A density of {@code 1} indexes every entry, while the default density
+     * of {@code .005} indexes every 200th entry.
+     *
+     * @param indexDensity the index density
+     * @return the storage builder
+     * @throws IllegalArgumentException if the density is not between 0 and 1
+     */
+    public Builder withIndexDensity(double indexDensity) {
+      checkArgument(indexDensity > 0 && indexDensity <= 1, "index density must be between 0 and 1");
+      this.indexDensity = indexDensity;
+      return this;
+    }
+
     /**
      * Enables dynamic log compaction.
      * <p>
@@ -538,6 +713,203 @@ public class RaftStorage {
       return this;
     }
 
+    /**
+     * Sets the log flush policy, returning the builder for method chaining.
+     * <p>
+     * The flush policy dictates when log entries are flushed to disk independently of commits. Size and
+     * interval based policies flush the log on a background thread, bounding the window of unflushed entries
+     * without flushing synchronously on the Raft thread. With the {@link FlushPolicy#async() asynchronous} policy,
+     * the leader replicates entries while they're flushed and counts itself toward the quorum for an entry only once
+     * the entry is durable, and followers acknowledge entries once they're durable, so commit latency is bounded by
+     * the slower of the local flush and the replication round trip rather than their sum. By default, the log is
+     * only flushed on commit if {@link #withFlushOnCommit() flush-on-commit} is enabled.
+     *
+     * @param flushPolicy The log flush policy.
+     * @return The storage builder.
+     * @throws NullPointerException If the {@code flushPolicy} is {@code null}
+     */
+    public Builder withFlushPolicy(FlushPolicy flushPolicy) {
+      this.flushPolicy = checkNotNull(flushPolicy, "flushPolicy cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables log segment preallocation, returning the builder for method chaining.
+     * <p>
+     * When segment preallocation is enabled, the file for the next log segment is created and zeroed on a
+     * background thread ahead of need, and the files of compacted segments are recycled rather than deleted.
+     *
+     * @return The storage builder.
+     */
+    public Builder withPreallocateSegments() {
+      return withPreallocateSegments(true);
+    }
+
+    /**
+     * Sets whether to preallocate log segments, returning the builder for method chaining.
+     * <p>
+     * When segment preallocation is enabled, the file for the next log segment is created and zeroed on a
+     * background thread ahead of need, and the files of compacted segments are recycled rather than deleted.
+     *
+     * @param preallocateSegments Whether to preallocate log segments.
+     * @return The storage builder.
+     */
+    public Builder withPreallocateSegments(boolean preallocateSegments) {
+      this.preallocateSegments = preallocateSegments;
+      return this;
+    }
+
+    /**
+     * Sets the tiered memory budget, returning the builder for method chaining.
+     * <p>
+     * When using {@link StorageLevel#TIERED} storage, the most recent log segments are memory mapped as long as
+     * their combined size fits within the budget, and older segments are moved to disk on a background thread.
+     *
+     * @param tieredMemoryBudget The tiered memory budget in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public Builder withTieredMemoryBudget(long tieredMemoryBudget) {
+      checkArgument(tieredMemoryBudget >= 0, "tieredMemoryBudget must be positive");
+      this.tieredMemoryBudget = tieredMemoryBudget;
+      return this;
+    }
+
+    /**
+     * Sets the mapped memory budget, returning the builder for method chaining.
+     * <p>
+     * When using {@link StorageLevel#MAPPED} storage, the least recently used log segments are unmapped when the
+     * combined size of segments mapped under the budget exceeds it. A single budget can be shared by the storage of
+     * all partitions on a node.
+     *
+     * @param mappedMemoryBudget The mapped memory budget.
+     * @return The storage builder.
+     * @throws NullPointerException if the budget is null
+     */
+    public Builder withMappedMemoryBudget(MappedMemoryBudget mappedMemoryBudget) {
+      this.mappedMemoryBudget = checkNotNull(mappedMemoryBudget, "mappedMemoryBudget cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the shared write-ahead log, returning the builder for method chaining.
+     * <p>
+     * When a shared log is configured, log entries are persisted by writing them to the shared log rather than to
+     * the log's own segment files, and log segments hold only the positions of entries in the shared log in memory.
+     * A single shared log can be used by the storage of all partitions on a node to turn their writes into one
+     * sequential stream that is flushed once for all partitions.
+     *
+     * @param sharedLog The shared write-ahead log.
+     * @return The storage builder.
+     * @throws NullPointerException if the shared log is null
+     */
+    public Builder withSharedLog(SharedWriteAheadLog sharedLog) {
+      this.sharedLog = checkNotNull(sharedLog, "sharedLog cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables log read-ahead, returning the builder for method chaining.
+     * <p>
+     * When read-ahead is enabled, readers of log segments stored on disk read the chunk of the segment following
+     * their position on a background thread, so replaying the log and catching up followers do not block on small
+     * reads on the Raft thread. By default, chunks of up to {@code 1024 * 1024} bytes are read.
+     *
+     * @return The storage builder.
+     */
+    public Builder withReadAhead() {
+      return withReadAheadSize(DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    /**
+     * Sets the log read-ahead size, returning the builder for method chaining.
+     * <p>
+     * The read-ahead size applies to {@link StorageLevel#DISK} storage and to the segments stored on disk by
+     * {@link StorageLevel#TIERED} storage. A size of {@code 0} disables read-ahead.
+     *
+     * @param readAheadSize The read-ahead size in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public Builder withReadAheadSize(int readAheadSize) {
+      checkArgument(readAheadSize >= 0, "readAheadSize must be positive");
+      this.readAheadSize = readAheadSize;
+      return this;
+    }
+
+    /**
+     * Enables compression of sealed log segments, returning the builder for method chaining.
+     * <p>
+     * When compression is enabled, log segments stored on disk are rewritten in compressed blocks on a background
+     * thread once the log has rolled over to the next segment, reducing the disk space used by the log and the bytes
+     * read when replaying it. By default, blocks of {@code 1024 * 64} uncompressed bytes are compressed.
+     *
+     * @return The storage builder.
+     */
+    public Builder withCompression() {
+      return withCompressionBlockSize(DEFAULT_COMPRESSION_BLOCK_SIZE);
+    }
+
+    /**
+     * Sets the log compression block size, returning the builder for method chaining.
+     * <p>
+     * The block size applies to {@link StorageLevel#DISK} storage. The current segment is never compressed. A size
+     * of {@code 0} disables compression.
+     *
+     * @param compressionBlockSize The compression block size in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public Builder withCompressionBlockSize(int compressionBlockSize) {
+      checkArgument(compressionBlockSize >= 0, "compressionBlockSize must be positive");
+      this.compressionBlockSize = compressionBlockSize;
+      return this;
+    }
+
+    /**
+     * Sets the checksum algorithm of new log segments, returning the builder for method chaining.
+     * <p>
+     * The algorithm is recorded in each segment, so the algorithm may be changed without rewriting existing segments.
+     * By default, {@link JournalChecksum#CRC32} is used.
+     *
+     * @param checksum The checksum algorithm.
+     * @return The storage builder.
+     * @throws NullPointerException if the checksum is null
+     */
+    public Builder withChecksum(JournalChecksum checksum) {
+      this.checksum = checkNotNull(checksum, "checksum cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables background scrubbing of sealed log segments, returning the builder for method chaining.
+     * <p>
+     * When scrubbing is enabled, the entries of sealed log segments stored on disk are periodically re-verified on a
+     * low priority background thread, so corruption is detected before a lagging follower needs the entries. By
+     * default, segments are read at up to {@code 1024 * 1024} bytes per second.
+     *
+     * @return The storage builder.
+     */
+    public Builder withScrubbing() {
+      return withScrubRate(DEFAULT_SCRUB_RATE);
+    }
+
+    /**
+     * Sets the log scrub rate, returning the builder for method chaining.
+     * <p>
+     * The rate does not apply to {@link StorageLevel#MEMORY} storage. A rate of {@code 0} disables background
+     * scrubbing.
+     *
+     * @param scrubRate The scrub rate in bytes per second.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the rate is negative
+     */
+    public Builder withScrubRate(int scrubRate) {
+      checkArgument(scrubRate >= 0, "scrubRate must be positive");
+      this.scrubRate = scrubRate;
+      return this;
+    }
+
     /**
      * Enables retaining stale snapshots on disk, returning the builder for method chaining.
      * <p>
@@ -584,9 +956,19 @@ public class RaftStorage {
           serializer,
           maxSegmentSize,
           maxEntriesPerSegment,
+          indexDensity,
           dynamicCompaction,
           freeDiskBuffer,
           flushOnCommit,
+          flushPolicy,
+          preallocateSegments,
+          tieredMemoryBudget,
+          mappedMemoryBudget,
+          sharedLog,
+          readAheadSize,
+          compressionBlockSize,
+          checksum,
+          scrubRate,
           retainStaleSnapshots);
     }
   }
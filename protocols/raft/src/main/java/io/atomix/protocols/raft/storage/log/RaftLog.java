@@ -16,12 +16,19 @@
 package io.atomix.protocols.raft.storage.log;
 
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
+import io.atomix.utils.memory.MemoryAccount;
 import io.atomix.utils.serializer.Serializer;
 import io.atomix.storage.StorageLevel;
 import io.atomix.storage.journal.DelegatingJournal;
+import io.atomix.storage.journal.FlushPolicy;
+import io.atomix.storage.journal.JournalChecksum;
+import io.atomix.storage.journal.JournalIndexNotifier;
+import io.atomix.storage.journal.MappedMemoryBudget;
 import io.atomix.storage.journal.SegmentedJournal;
+import io.atomix.storage.journal.SharedWriteAheadLog;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Raft log.
@@ -45,6 +52,7 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
   private final SegmentedJournal<RaftLogEntry> journal;
   private final boolean flushOnCommit;
   private final RaftLogWriter writer;
+  private final JournalIndexNotifier commitNotifier = new JournalIndexNotifier(0);
   private volatile long commitIndex;
 
   protected RaftLog(SegmentedJournal<RaftLogEntry> journal, boolean flushOnCommit) {
@@ -91,6 +99,7 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
    */
   void setCommitIndex(long index) {
     this.commitIndex = index;
+    commitNotifier.update(index);
   }
 
   /**
@@ -102,6 +111,30 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     return commitIndex;
   }
 
+  /**
+   * Returns a future to be completed once the given index has been committed.
+   * <p>
+   * The future is completed with the commit index on the thread that commits the entry. Committed entries may not yet
+   * have been appended to a follower's log, so readers of committed entries should also wait for the entry to be
+   * appended.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the commit index once the given index has been committed
+   */
+  public CompletableFuture<Long> awaitCommit(long index) {
+    return commitNotifier.await(index);
+  }
+
+  /**
+   * Returns a future to be completed once the entry at the given index has been appended to the log.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the last index once the given index has been appended
+   */
+  public CompletableFuture<Long> awaitAppend(long index) {
+    return journal.awaitAppend(index);
+  }
+
   /**
    * Returns a boolean indicating whether a segment can be removed from the journal prior to the given index.
    *
@@ -133,6 +166,44 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     journal.compact(index);
   }
 
+  /**
+   * Returns the index up to which entries are known to have been flushed to disk.
+   *
+   * @return the index up to which entries have been flushed to disk
+   */
+  public long getDurableIndex() {
+    return journal.getDurableIndex();
+  }
+
+  /**
+   * Returns whether the log is flushed asynchronously.
+   * <p>
+   * When the log is flushed asynchronously, entries are written to disk on a background thread while they're
+   * replicated, and an appended entry may only be counted toward the commitment of its index once it's
+   * {@link #awaitDurable(long) durable}.
+   *
+   * @return whether the log is flushed asynchronously
+   */
+  public boolean isFlushAsync() {
+    return journal.flushPolicy().type() == FlushPolicy.Type.ASYNC;
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given index have been flushed to disk.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed once entries up to the given index have been flushed to disk
+   */
+  public CompletableFuture<Void> awaitDurable(long index) {
+    return journal.awaitDurable(index);
+  }
+
+  @Override
+  public void close() {
+    commitNotifier.close();
+    super.close();
+  }
+
   /**
    * Raft log builder.
    */
@@ -245,6 +316,21 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
       return this;
     }
 
+    /**
+     * Sets the log index density, returning the builder for method chaining.
+     * <p>
+     * The index density is the frequency at which the position of entries written to the log will be recorded in
+     * an in-memory index for faster seeking.
+     *
+     * @param indexDensity the index density
+     * @return the log builder
+     * @throws IllegalArgumentException if the density is not between 0 and 1
+     */
+    public Builder withIndexDensity(double indexDensity) {
+      journalBuilder.withIndexDensity(indexDensity);
+      return this;
+    }
+
     /**
      * Enables flushing buffers to disk when entries are committed to a segment, returning the builder
      * for method chaining.
@@ -273,6 +359,144 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
       return this;
     }
 
+    /**
+     * Sets the log flush policy, returning the builder for method chaining.
+     * <p>
+     * The flush policy dictates when log entries are flushed to disk independently of commits. When the log is
+     * {@link FlushPolicy#async() flushed asynchronously}, the leader replicates entries while they're flushed.
+     *
+     * @param flushPolicy the log flush policy
+     * @return the log builder
+     */
+    public Builder withFlushPolicy(FlushPolicy flushPolicy) {
+      journalBuilder.withFlushPolicy(flushPolicy);
+      return this;
+    }
+
+    /**
+     * Sets whether to preallocate log segments, returning the builder for method chaining.
+     * <p>
+     * When segment preallocation is enabled, the next segment file is prepared on a background thread and the
+     * files of compacted segments are recycled rather than deleted.
+     *
+     * @param preallocateSegments whether to preallocate log segments
+     * @return the log builder
+     */
+    public Builder withPreallocateSegments(boolean preallocateSegments) {
+      journalBuilder.withPreallocateSegments(preallocateSegments);
+      return this;
+    }
+
+    /**
+     * Sets the tiered memory budget, returning the builder for method chaining.
+     * <p>
+     * When using {@link StorageLevel#TIERED} storage, the most recent segments are memory mapped as long as their
+     * combined size fits within the budget, and older segments are moved to disk on a background thread.
+     *
+     * @param tieredMemoryBudget the tiered memory budget in bytes
+     * @return the log builder
+     */
+    public Builder withTieredMemoryBudget(long tieredMemoryBudget) {
+      journalBuilder.withTieredMemoryBudget(tieredMemoryBudget);
+      return this;
+    }
+
+    /**
+     * Sets the mapped memory budget, returning the builder for method chaining.
+     * <p>
+     * When using {@link StorageLevel#MAPPED} storage, the least recently used segments are unmapped when the combined
+     * size of the segments mapped under the budget exceeds it. The budget may be shared by multiple logs.
+     *
+     * @param mappedMemoryBudget the mapped memory budget
+     * @return the log builder
+     */
+    public Builder withMappedMemoryBudget(MappedMemoryBudget mappedMemoryBudget) {
+      journalBuilder.withMappedMemoryBudget(mappedMemoryBudget);
+      return this;
+    }
+
+    /**
+     * Sets the shared write-ahead log, returning the builder for method chaining.
+     * <p>
+     * When a shared log is configured, entries are persisted by writing them to the shared log, which may be shared
+     * by the logs of multiple partitions, and log segments hold only the positions of entries in the shared log.
+     *
+     * @param sharedLog the shared write-ahead log
+     * @return the log builder
+     */
+    public Builder withSharedLog(SharedWriteAheadLog sharedLog) {
+      journalBuilder.withSharedLog(sharedLog);
+      return this;
+    }
+
+    /**
+     * Sets the read-ahead size, returning the builder for method chaining.
+     * <p>
+     * Readers of segments stored on disk read chunks of up to the given number of bytes ahead of their position on
+     * a background thread. A size of {@code 0} disables read-ahead.
+     *
+     * @param readAheadSize the read-ahead size in bytes
+     * @return the log builder
+     */
+    public Builder withReadAheadSize(int readAheadSize) {
+      journalBuilder.withReadAheadSize(readAheadSize);
+      return this;
+    }
+
+    /**
+     * Sets the compression block size, returning the builder for method chaining.
+     * <p>
+     * Sealed segments stored on disk are rewritten in compressed blocks of the given number of uncompressed bytes.
+     * The current segment is never compressed. A size of {@code 0} disables compression.
+     *
+     * @param compressionBlockSize the compression block size in bytes
+     * @return the log builder
+     */
+    public Builder withCompressionBlockSize(int compressionBlockSize) {
+      journalBuilder.withCompressionBlockSize(compressionBlockSize);
+      return this;
+    }
+
+    /**
+     * Sets the checksum algorithm of new segments, returning the builder for method chaining.
+     *
+     * @param checksum the checksum algorithm
+     * @return the log builder
+     */
+    public Builder withChecksum(JournalChecksum checksum) {
+      journalBuilder.withChecksum(checksum);
+      return this;
+    }
+
+    /**
+     * Sets the scrub rate, returning the builder for method chaining.
+     * <p>
+     * Sealed segments stored on disk are periodically re-verified on a background thread at up to the given number of
+     * bytes per second. A rate of {@code 0} disables background scrubbing.
+     *
+     * @param scrubRate the scrub rate in bytes per second
+     * @return the log builder
+     */
+    public Builder withScrubRate(int scrubRate) {
+      journalBuilder.withScrubRate(scrubRate);
+      return this;
+    }
+
+    /**
+     * Sets the memory account, returning the builder for method chaining.
+     * <p>
+     * The off-heap memory of the log is charged to the account. By default, the log is charged to the
+     * {@code journal-<name>} account of the global memory accounting.
+     *
+     * @param memoryAccount the memory account
+     * @return the log builder
+     * @throws NullPointerException if the account is null
+     */
+    public Builder withMemoryAccount(MemoryAccount memoryAccount) {
+      journalBuilder.withMemoryAccount(memoryAccount);
+      return this;
+    }
+
     @Override
     public RaftLog build() {
       return new RaftLog(journalBuilder.build(), flushOnCommit);
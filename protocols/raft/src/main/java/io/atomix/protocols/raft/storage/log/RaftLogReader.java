@@ -19,6 +19,8 @@ import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.storage.journal.DelegatingJournalReader;
 import io.atomix.storage.journal.SegmentedJournalReader;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Raft log reader.
  */
@@ -60,6 +62,24 @@ public class RaftLogReader extends DelegatingJournalReader<RaftLogEntry> {
     return reader.getFirstIndex();
   }
 
+  /**
+   * Returns a future to be completed once the reader's next entry can be read.
+   * <p>
+   * In {@link Mode#COMMITS} mode, the future is completed once the next entry has been both committed and appended
+   * to the log, otherwise it's completed once the next entry has been appended.
+   *
+   * @return a future to be completed once the next entry can be read
+   */
+  public CompletableFuture<Void> awaitNext() {
+    long nextIndex = getNextIndex();
+    if (mode == Mode.ALL) {
+      return reader.awaitNext().thenApply(index -> null);
+    }
+    return log.awaitCommit(nextIndex)
+        .thenCompose(index -> log.awaitAppend(nextIndex))
+        .thenApply(index -> null);
+  }
+
   @Override
   public boolean hasNext() {
     if (mode == Mode.ALL) {
@@ -45,7 +45,7 @@ final class FileSnapshot extends Snapshot {
   @Override
   public synchronized SnapshotWriter openWriter() {
     checkWriter();
-    Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
+    Buffer buffer = FileBuffer.allocateChannel(file.file(), SnapshotDescriptor.BYTES, Integer.MAX_VALUE, store.memoryAccount);
     descriptor.copyTo(buffer);
 
     int length = buffer.position(SnapshotDescriptor.BYTES).readInt();
@@ -21,6 +21,8 @@ import io.atomix.protocols.raft.storage.RaftStorage;
 import io.atomix.storage.StorageLevel;
 import io.atomix.storage.buffer.FileBuffer;
 import io.atomix.storage.buffer.HeapBuffer;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 import io.atomix.utils.time.WallClockTimestamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,14 +78,29 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class SnapshotStore implements AutoCloseable {
   private final Logger log = LoggerFactory.getLogger(getClass());
   final RaftStorage storage;
+  final MemoryAccount memoryAccount;
   private final Map<Long, Set<Snapshot>> indexSnapshots = new ConcurrentHashMap<>();
   private final Map<PrimitiveId, Snapshot> serviceSnapshots = new ConcurrentHashMap<>();
 
   public SnapshotStore(RaftStorage storage) {
+    this(storage, MemoryAccounting.global().account("snapshot-" + storage.prefix()));
+  }
+
+  public SnapshotStore(RaftStorage storage, MemoryAccount memoryAccount) {
     this.storage = checkNotNull(storage, "storage cannot be null");
+    this.memoryAccount = checkNotNull(memoryAccount, "memoryAccount cannot be null");
     open();
   }
 
+  /**
+   * Returns the snapshot store memory account.
+   *
+   * @return The account to which the direct write buffers of disk snapshots are charged.
+   */
+  public MemoryAccount memoryAccount() {
+    return memoryAccount;
+  }
+
   /**
    * Opens the snapshot manager.
    */
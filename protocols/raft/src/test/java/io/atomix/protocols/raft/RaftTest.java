@@ -35,6 +35,7 @@ import io.atomix.protocols.raft.cluster.RaftClusterEvent;
 import io.atomix.protocols.raft.cluster.RaftMember;
 import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
 import io.atomix.protocols.raft.protocol.TestRaftProtocolFactory;
+import io.atomix.protocols.raft.proxy.CommunicationStrategy;
 import io.atomix.protocols.raft.storage.RaftStorage;
 import io.atomix.protocols.raft.storage.log.entry.CloseSessionEntry;
 import io.atomix.protocols.raft.storage.log.entry.CommandEntry;
@@ -603,6 +604,49 @@ public class RaftTest extends ConcurrentTestCase {
     testSubmitQuery(5, ReadConsistency.LINEARIZABLE);
   }
 
+  /**
+   * Tests submitting linearizable queries to followers.
+   */
+  @Test
+  public void testFollowerLinearizableQuery() throws Throwable {
+    createServers(3);
+
+    RaftClient client = createClient();
+    PrimitiveProxy writer = createSession(client);
+    PrimitiveProxy reader = createFollowerSession(client, ReadConsistency.LINEARIZABLE);
+
+    for (int i = 0; i < 10; i++) {
+      long index = writer.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      assertTrue(reader.<Long>invoke(READ, clientSerializer::decode).get(5, TimeUnit.SECONDS) >= index);
+    }
+  }
+
+  /**
+   * Tests submitting lease-based linearizable queries to followers.
+   */
+  @Test
+  public void testFollowerLeaseQuery() throws Throwable {
+    createServers(3);
+
+    RaftClient client = createClient();
+    PrimitiveProxy session = createFollowerSession(client, ReadConsistency.LINEARIZABLE_LEASE);
+
+    // The follower may forward queries until it has been granted a lease.
+    long lastIndex = session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+    assertTrue(session.<Long>invoke(READ, clientSerializer::decode).get(5, TimeUnit.SECONDS) >= lastIndex);
+    int readRequests = protocolFactory.serverReadRequests();
+
+    for (int i = 0; i < 10; i++) {
+      long index = session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      assertTrue(index > lastIndex);
+      lastIndex = session.<Long>invoke(READ, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      assertTrue(lastIndex >= index);
+    }
+
+    // Queries under a lease are answered by the follower without contacting the leader.
+    assertEquals(readRequests, protocolFactory.serverReadRequests());
+  }
+
   /**
    * Tests submitting a query with a configured consistency level.
    */
@@ -1259,6 +1303,20 @@ public class RaftTest extends ConcurrentTestCase {
         .get(5, TimeUnit.SECONDS);
   }
 
+  /**
+   * Creates a test session that communicates with followers.
+   */
+  private PrimitiveProxy createFollowerSession(RaftClient client, ReadConsistency consistency) throws Exception {
+    return client.newProxy("test", TestPrimitiveType.INSTANCE, RaftProtocol.builder()
+        .withReadConsistency(consistency)
+        .withCommunicationStrategy(CommunicationStrategy.FOLLOWERS)
+        .withMinTimeout(Duration.ofMillis(250))
+        .withMaxTimeout(Duration.ofSeconds(5))
+        .build())
+        .open()
+        .get(5, TimeUnit.SECONDS);
+  }
+
   @Before
   @After
   public void clearTests() throws Exception {
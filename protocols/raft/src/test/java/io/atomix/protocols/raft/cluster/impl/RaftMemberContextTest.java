@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.cluster.impl;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.protocols.raft.cluster.RaftMember;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static io.atomix.protocols.raft.cluster.impl.RaftMemberContext.MAX_APPENDS;
+import static io.atomix.protocols.raft.cluster.impl.RaftMemberContext.MAX_APPEND_WINDOW;
+import static io.atomix.protocols.raft.cluster.impl.RaftMemberContext.MIN_APPENDS;
+import static io.atomix.protocols.raft.cluster.impl.RaftMemberContext.MIN_APPEND_WINDOW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Raft member context test.
+ */
+public class RaftMemberContextTest {
+  private long time;
+
+  /**
+   * Tests that the append window grows by the minimum window per acknowledged window up to the maximum window.
+   */
+  @Test
+  public void testGrowAppendWindow() {
+    RaftMemberContext member = createMember();
+    assertEquals(MIN_APPEND_WINDOW, member.getAppendWindow());
+
+    // The window does not grow until an append has succeeded.
+    append(member, MIN_APPEND_WINDOW, 100);
+    assertEquals(MIN_APPEND_WINDOW, member.getAppendWindow());
+
+    member.appendSucceeded();
+    append(member, MIN_APPEND_WINDOW, 100);
+    assertEquals(MIN_APPEND_WINDOW * 2, member.getAppendWindow());
+
+    // A full window of acknowledged bytes grows the window by the minimum window.
+    append(member, MIN_APPEND_WINDOW * 2, 100);
+    assertEquals(MIN_APPEND_WINDOW * 3, member.getAppendWindow());
+
+    for (int i = 0; i < 1000; i++) {
+      append(member, member.getAppendWindow(), 100);
+      assertTrue(member.getAppendWindow() <= MAX_APPEND_WINDOW);
+    }
+    assertEquals(MAX_APPEND_WINDOW, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the request window grows by one request per acknowledged window up to the maximum number of requests.
+   */
+  @Test
+  public void testGrowAppendRequests() {
+    RaftMemberContext member = createMember();
+    assertEquals(MIN_APPENDS, member.getAppendRequests());
+    member.appendSucceeded();
+
+    for (int i = 0; i < MIN_APPENDS - 1; i++) {
+      append(member, 1024, 100);
+    }
+    assertEquals(MIN_APPENDS, member.getAppendRequests());
+    append(member, 1024, 100);
+    assertEquals(MIN_APPENDS + 1, member.getAppendRequests());
+
+    for (int i = 0; i < MAX_APPENDS * MAX_APPENDS; i++) {
+      append(member, 1024, 100);
+      assertTrue(member.getAppendRequests() <= MAX_APPENDS);
+    }
+    assertEquals(MAX_APPENDS, member.getAppendRequests());
+  }
+
+  /**
+   * Tests that the append windows are halved at most once per round trip when responses slow down.
+   */
+  @Test
+  public void testShrinkAppendWindow() {
+    RaftMemberContext member = createMember();
+    member.appendSucceeded();
+    for (int i = 0; i < 3; i++) {
+      append(member, member.getAppendWindow(), 100);
+    }
+    assertEquals(MIN_APPEND_WINDOW * 4, member.getAppendWindow());
+    assertEquals(MIN_APPENDS + 1, member.getAppendRequests());
+
+    // A response slower than twice the fastest recent response halves the windows.
+    append(member, 1024, 1000);
+    assertEquals(MIN_APPEND_WINDOW * 2, member.getAppendWindow());
+    assertEquals(MIN_APPENDS, member.getAppendRequests());
+
+    // Further slow responses within the same round trip do not shrink the window again.
+    member.startAppend(1024, time - 1000);
+    member.completeAppend(1024, time - 1000, time + 50);
+    assertEquals(MIN_APPEND_WINDOW * 2, member.getAppendWindow());
+
+    // A slow response a round trip later shrinks the window again.
+    member.startAppend(1024, time - 1000);
+    member.completeAppend(1024, time - 1000, time + 101);
+    assertEquals(MIN_APPEND_WINDOW, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the append windows never shrink below their minimums.
+   */
+  @Test
+  public void testMinAppendWindow() {
+    RaftMemberContext member = createMember();
+    member.appendSucceeded();
+    append(member, 1024, 100);
+    append(member, 1024, 1000);
+    assertEquals(MIN_APPEND_WINDOW, member.getAppendWindow());
+    assertEquals(MIN_APPENDS, member.getAppendRequests());
+  }
+
+  /**
+   * Tests that rewinding appends halves the window, suspends pipelining and supersedes requests in flight.
+   */
+  @Test
+  public void testRewindAppend() {
+    RaftMemberContext member = createMember();
+    member.appendSucceeded();
+    for (int i = 0; i < 3; i++) {
+      append(member, member.getAppendWindow(), 100);
+    }
+    assertEquals(MIN_APPEND_WINDOW * 4, member.getAppendWindow());
+
+    long epoch = member.startAppend(1024, time);
+    assertEquals(epoch, member.startAppend(1024, time));
+    assertTrue(member.canAppend());
+
+    member.rewindAppend(time);
+    assertNotEquals(epoch, member.getAppendEpoch());
+    assertEquals(MIN_APPEND_WINDOW * 2, member.getAppendWindow());
+    assertFalse(member.canAppend());
+
+    // Responses to requests sent before the rewind do not grow the window.
+    member.completeAppend(1024, time, time + 100);
+    member.completeAppend(1024, time, time + 100);
+    assertEquals(MIN_APPEND_WINDOW * 2, member.getAppendWindow());
+
+    // A single request may be sent once no requests are in flight, and pipelining resumes once it succeeds.
+    assertTrue(member.canAppend());
+    long nextEpoch = member.startAppend(1024, time);
+    assertEquals(member.getAppendEpoch(), nextEpoch);
+    assertFalse(member.canAppend());
+    member.appendSucceeded();
+    assertTrue(member.canAppend());
+  }
+
+  /**
+   * Tests that the number of pipelined requests is capped by the request window.
+   */
+  @Test
+  public void testAppendRequests() {
+    RaftMemberContext member = createMember();
+    assertTrue(member.canAppend());
+    member.startAppend(1, time);
+
+    // Pipelining is suspended until an append has succeeded.
+    assertFalse(member.canAppend());
+    member.appendSucceeded();
+    for (int i = 1; i < MIN_APPENDS; i++) {
+      assertTrue(member.canAppend());
+      member.startAppend(1, time);
+    }
+    assertFalse(member.canAppend());
+    member.completeAppend(1);
+    assertTrue(member.canAppend());
+    member.completeAppend(1);
+
+    // Once the request window has grown to its maximum, up to the maximum number of requests are pipelined.
+    while (member.getAppendRequests() < MAX_APPENDS) {
+      append(member, 1, 100);
+    }
+    for (int i = 0; i < MAX_APPENDS; i++) {
+      assertTrue(member.canAppend());
+      member.startAppend(1, time);
+    }
+    assertFalse(member.canAppend());
+  }
+
+  /**
+   * Tests that the number of bytes in flight is capped by the append window.
+   */
+  @Test
+  public void testAppendWindowBytes() {
+    RaftMemberContext member = createMember();
+    member.appendSucceeded();
+    member.startAppend(MIN_APPEND_WINDOW - 1, time);
+    assertTrue(member.canAppend());
+    member.startAppend(1, time);
+    assertFalse(member.canAppend());
+    member.completeAppend(1);
+    assertTrue(member.canAppend());
+  }
+
+  /**
+   * Sends an append of the given size to the member and completes it after the given round trip time.
+   */
+  private void append(RaftMemberContext member, int bytes, long roundTripTime) {
+    long startTime = time;
+    member.startAppend(bytes, startTime);
+    time += roundTripTime;
+    member.completeAppend(bytes, startTime, time);
+  }
+
+  private RaftMemberContext createMember() {
+    return new RaftMemberContext(new DefaultRaftMember(NodeId.from("1"), RaftMember.Type.ACTIVE, Instant.now()), null);
+  }
+}
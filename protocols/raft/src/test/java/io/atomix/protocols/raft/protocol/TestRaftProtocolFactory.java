@@ -27,6 +27,15 @@ public class TestRaftProtocolFactory {
   private final Map<NodeId, TestRaftServerProtocol> servers = Maps.newConcurrentMap();
   private final Map<NodeId, TestRaftClientProtocol> clients = Maps.newConcurrentMap();
 
+  /**
+   * Returns the number of query and read index requests sent between servers.
+   *
+   * @return the number of query and read index requests sent between servers
+   */
+  public int serverReadRequests() {
+    return servers.values().stream().mapToInt(TestRaftServerProtocol::readRequests).sum();
+  }
+
   /**
    * Returns a new test client protocol.
    *
@@ -24,6 +24,7 @@ import java.net.ConnectException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -43,16 +44,27 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
   private Function<ReconfigureRequest, CompletableFuture<ReconfigureResponse>> reconfigureHandler;
   private Function<InstallRequest, CompletableFuture<InstallResponse>> installHandler;
   private Function<TransferRequest, CompletableFuture<TransferResponse>> transferHandler;
+  private Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> readIndexHandler;
   private Function<PollRequest, CompletableFuture<PollResponse>> pollHandler;
   private Function<VoteRequest, CompletableFuture<VoteResponse>> voteHandler;
   private Function<AppendRequest, CompletableFuture<AppendResponse>> appendHandler;
   private final Map<Long, Consumer<ResetRequest>> resetListeners = Maps.newConcurrentMap();
+  private final AtomicInteger readRequests = new AtomicInteger();
 
   public TestRaftServerProtocol(NodeId memberId, Map<NodeId, TestRaftServerProtocol> servers, Map<NodeId, TestRaftClientProtocol> clients) {
     super(servers, clients);
     servers.put(memberId, this);
   }
 
+  /**
+   * Returns the number of query and read index requests sent by this server to other servers.
+   *
+   * @return the number of query and read index requests sent to other servers
+   */
+  public int readRequests() {
+    return readRequests.get();
+  }
+
   private CompletableFuture<TestRaftServerProtocol> getServer(NodeId memberId) {
     TestRaftServerProtocol server = server(memberId);
     if (server != null) {
@@ -88,6 +100,7 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
 
   @Override
   public CompletableFuture<QueryResponse> query(NodeId memberId, QueryRequest request) {
+    readRequests.incrementAndGet();
     return getServer(memberId).thenCompose(listener -> listener.query(request));
   }
 
@@ -131,6 +144,12 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
     return getServer(memberId).thenCompose(listener -> listener.transfer(request));
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(NodeId memberId, ReadIndexRequest request) {
+    readRequests.incrementAndGet();
+    return getServer(memberId).thenCompose(listener -> listener.readIndex(request));
+  }
+
   @Override
   public CompletableFuture<PollResponse> poll(NodeId memberId, PollRequest request) {
     return getServer(memberId).thenCompose(listener -> listener.poll(request));
@@ -372,6 +391,24 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
     this.transferHandler = null;
   }
 
+  CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    if (readIndexHandler != null) {
+      return readIndexHandler.apply(request);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    this.readIndexHandler = handler;
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    this.readIndexHandler = null;
+  }
+
   CompletableFuture<PollResponse> poll(PollRequest request) {
     if (pollHandler != null) {
       return pollHandler.apply(request);
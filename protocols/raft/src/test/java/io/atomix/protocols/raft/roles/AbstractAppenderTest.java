@@ -0,0 +1,385 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.roles;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.primitive.PrimitiveId;
+import io.atomix.protocols.raft.cluster.RaftMember;
+import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
+import io.atomix.protocols.raft.cluster.impl.RaftClusterContext;
+import io.atomix.protocols.raft.cluster.impl.RaftMemberContext;
+import io.atomix.protocols.raft.impl.RaftContext;
+import io.atomix.protocols.raft.protocol.InstallRequest;
+import io.atomix.protocols.raft.protocol.InstallResponse;
+import io.atomix.protocols.raft.protocol.RaftServerProtocol;
+import io.atomix.protocols.raft.storage.log.RaftLog;
+import io.atomix.protocols.raft.storage.log.RaftLogReader;
+import io.atomix.protocols.raft.storage.log.RaftLogWriter;
+import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotStore;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
+import io.atomix.protocols.raft.storage.system.Configuration;
+import io.atomix.protocols.raft.storage.system.MetaStore;
+import io.atomix.utils.concurrent.ThreadContext;
+import io.atomix.utils.time.WallClockTimestamp;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static io.atomix.protocols.raft.roles.TestFollower.createSnapshotStore;
+import static io.atomix.protocols.raft.roles.TestFollower.snapshotBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Appender test.
+ */
+public class AbstractAppenderTest {
+  private static final NodeId LEADER = NodeId.from("1");
+  private static final long SERVICE_ID = 1;
+  private static final long SNAPSHOT_INDEX = 10;
+  private static final int CHUNK_SIZE = 1024;
+  private static final int CHUNK_WINDOW = 4;
+
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final Deque<Install> installs = new ArrayDeque<>();
+  private final List<InstallRequest> requests = new ArrayList<>();
+  private TestFollower follower;
+  private int maxInstalls;
+
+  @Before
+  public void setupFollower() {
+    tasks.clear();
+    installs.clear();
+    requests.clear();
+    maxInstalls = 0;
+    follower = new TestFollower(0);
+  }
+
+  /**
+   * Tests that a snapshot is streamed to a member with up to a window of chunks in flight.
+   */
+  @Test
+  public void testInstallSnapshot() {
+    byte[] bytes = snapshotBytes(CHUNK_SIZE * 10 + 100, 1);
+    TestAppender leader = createLeader(1, createSnapshot(bytes));
+    RaftMemberContext member = createMember(leader);
+
+    // A full window of chunks is sent without awaiting responses.
+    leader.appendEntries(member);
+    assertEquals(CHUNK_WINDOW, installs.size());
+
+    deliverAll(leader, member);
+    assertEquals(CHUNK_WINDOW, maxInstalls);
+
+    // Each chunk is sent once, in order.
+    assertEquals(11, requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      assertEquals(CHUNK_SIZE * i, requests.get(i).chunkOffset());
+      assertEquals(i == requests.size() - 1, requests.get(i).complete());
+    }
+    follower.assertInstalled(SERVICE_ID, SNAPSHOT_INDEX, bytes);
+    assertEquals(SNAPSHOT_INDEX, member.getSnapshotIndex());
+  }
+
+  /**
+   * Tests that a chunk corrupted in transit is rejected by the member and resent.
+   */
+  @Test
+  public void testInstallCorruptChunk() {
+    byte[] bytes = snapshotBytes(CHUNK_SIZE * 6, 1);
+    TestAppender leader = createLeader(1, createSnapshot(bytes));
+    RaftMemberContext member = createMember(leader);
+
+    leader.appendEntries(member);
+    deliver();
+    Install corrupt = installs.poll();
+    assertEquals(CHUNK_SIZE, corrupt.request.chunkOffset());
+    byte[] data = corrupt.request.data().clone();
+    data[0] ^= 1;
+    corrupt.future.complete(follower.role().onInstall(copy(corrupt.request, data)).join());
+    runTasks();
+
+    deliverAll(leader, member);
+
+    // The corrupt chunk and the chunks sent behind it are resent from the member's next offset.
+    assertEquals(CHUNK_SIZE, requests.get(CHUNK_WINDOW + 1).chunkOffset());
+    follower.assertInstalled(SERVICE_ID, SNAPSHOT_INDEX, bytes);
+  }
+
+  /**
+   * Tests that a snapshot is resumed from the failed chunk once a member can be reached again.
+   */
+  @Test
+  public void testResumeSnapshotAfterFailure() {
+    byte[] bytes = snapshotBytes(CHUNK_SIZE * 8, 1);
+    TestAppender leader = createLeader(1, createSnapshot(bytes));
+    RaftMemberContext member = createMember(leader);
+
+    leader.appendEntries(member);
+    deliver();
+    deliver();
+    Install failed = installs.poll();
+    assertEquals(CHUNK_SIZE * 2, failed.request.chunkOffset());
+    failed.future.completeExceptionally(new ConnectException());
+    runTasks();
+    assertEquals(CHUNK_SIZE * 2, member.getNextSnapshotOffset());
+
+    int sent = requests.size();
+    deliverAll(leader, member);
+    assertEquals(CHUNK_SIZE * 2, requests.get(sent).chunkOffset());
+    for (InstallRequest request : requests.subList(sent, requests.size())) {
+      assertTrue(request.chunkOffset() >= CHUNK_SIZE * 2);
+    }
+    follower.assertInstalled(SERVICE_ID, SNAPSHOT_INDEX, bytes);
+  }
+
+  /**
+   * Tests that the leader of a new term resumes a partially installed snapshot from the member's next offset.
+   */
+  @Test
+  public void testResumeSnapshotAfterLeaderChange() {
+    byte[] bytes = snapshotBytes(CHUNK_SIZE * 12, 1);
+    SnapshotStore store = createSnapshot(bytes);
+    TestAppender leader = createLeader(1, store);
+    leader.appendEntries(createMember(leader));
+    for (int i = 0; i < 5; i++) {
+      deliver();
+    }
+
+    // The leader is deposed with chunks still in flight.
+    leader.close();
+    installs.clear();
+    runTasks();
+    assertEquals(CHUNK_SIZE * 5, follower.pendingSnapshots().get(SERVICE_ID).nextOffset());
+
+    TestAppender newLeader = createLeader(2, store);
+    RaftMemberContext member = createMember(newLeader);
+    newLeader.appendEntries(member);
+    int sent = requests.size();
+
+    // The member offers to resume the snapshot in response to the first chunk, and the leader resumes from there.
+    deliver();
+    assertEquals(sent + 1, requests.size());
+    assertEquals(CHUNK_SIZE * 5, requests.get(sent).chunkOffset());
+
+    deliverAll(newLeader, member);
+    for (InstallRequest request : requests.subList(sent, requests.size())) {
+      assertTrue(request.chunkOffset() >= CHUNK_SIZE * 5);
+    }
+    follower.assertInstalled(SERVICE_ID, SNAPSHOT_INDEX, bytes);
+  }
+
+  /**
+   * Tests that a partially installed snapshot is restarted if the new leader's snapshot differs.
+   */
+  @Test
+  public void testRestartSnapshotAfterLeaderChange() {
+    TestAppender leader = createLeader(1, createSnapshot(snapshotBytes(CHUNK_SIZE * 8, 1)));
+    leader.appendEntries(createMember(leader));
+    for (int i = 0; i < 5; i++) {
+      deliver();
+    }
+    leader.close();
+    installs.clear();
+    runTasks();
+
+    // The new leader has a snapshot of the service at the same index with different contents.
+    byte[] bytes = snapshotBytes(CHUNK_SIZE * 8, 2);
+    TestAppender newLeader = createLeader(2, createSnapshot(bytes));
+    RaftMemberContext member = createMember(newLeader);
+    newLeader.appendEntries(member);
+    int sent = requests.size();
+
+    // The member's offer to resume the snapshot is declined, and the snapshot is resent from the start.
+    deliver();
+    assertEquals(sent + 1, requests.size());
+    assertEquals(0, requests.get(sent).chunkOffset());
+
+    deliverAll(newLeader, member);
+    follower.assertInstalled(SERVICE_ID, SNAPSHOT_INDEX, bytes);
+  }
+
+  /**
+   * Creates a leader sending the given snapshot in the given term.
+   */
+  private TestAppender createLeader(long term, SnapshotStore store) {
+    RaftContext raft = mock(RaftContext.class);
+    when(raft.getName()).thenReturn("leader");
+    when(raft.getTerm()).thenReturn(term);
+    when(raft.getLeader()).thenReturn(new DefaultRaftMember(LEADER, RaftMember.Type.ACTIVE, Instant.now()));
+    when(raft.getSnapshotChunkSize()).thenReturn(CHUNK_SIZE);
+    when(raft.getSnapshotChunkWindow()).thenReturn(CHUNK_WINDOW);
+    when(raft.getSnapshotStore()).thenReturn(store);
+
+    RaftLog log = mock(RaftLog.class);
+    when(log.writer()).thenReturn(mock(RaftLogWriter.class));
+    when(log.openReader(anyLong(), any(RaftLogReader.Mode.class))).thenReturn(mock(RaftLogReader.class));
+    when(raft.getLog()).thenReturn(log);
+
+    MetaStore metaStore = mock(MetaStore.class);
+    when(metaStore.loadConfiguration()).thenReturn(new Configuration(1, 1, System.currentTimeMillis(), Arrays.asList(
+        new DefaultRaftMember(LEADER, RaftMember.Type.ACTIVE, Instant.now()),
+        new DefaultRaftMember(TestFollower.ID, RaftMember.Type.PASSIVE, Instant.now()))));
+    when(raft.getMetaStore()).thenReturn(metaStore);
+    RaftClusterContext cluster = new RaftClusterContext(LEADER, raft);
+    when(raft.getCluster()).thenReturn(cluster);
+
+    ThreadContext threadContext = mock(ThreadContext.class);
+    doAnswer(invocation -> tasks.add((Runnable) invocation.getArguments()[0])).when(threadContext).execute(any(Runnable.class));
+    when(raft.getThreadContext()).thenReturn(threadContext);
+
+    // Queue install requests until they're delivered to the follower.
+    RaftServerProtocol protocol = mock(RaftServerProtocol.class);
+    when(protocol.install(any(NodeId.class), any(InstallRequest.class))).thenAnswer(invocation -> {
+      InstallRequest request = (InstallRequest) invocation.getArguments()[1];
+      CompletableFuture<InstallResponse> future = new CompletableFuture<>();
+      installs.add(new Install(request, future));
+      requests.add(request);
+      maxInstalls = Math.max(maxInstalls, installs.size());
+      return future;
+    });
+    when(raft.getProtocol()).thenReturn(protocol);
+    return new TestAppender(raft, store.getSnapshotById(PrimitiveId.from(SERVICE_ID)));
+  }
+
+  /**
+   * Returns the leader's state for the follower.
+   */
+  private RaftMemberContext createMember(TestAppender leader) {
+    return leader.raft.getCluster().getMemberState(TestFollower.ID);
+  }
+
+  /**
+   * Creates a snapshot store containing a snapshot of the service with the given contents.
+   */
+  private SnapshotStore createSnapshot(byte[] bytes) {
+    SnapshotStore store = createSnapshotStore();
+    Snapshot snapshot = store.newSnapshot(
+        PrimitiveId.from(SERVICE_ID), "test", SNAPSHOT_INDEX, new WallClockTimestamp());
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.write(bytes);
+    }
+    snapshot.complete();
+    return store;
+  }
+
+  /**
+   * Delivers the oldest install request in flight to the follower.
+   */
+  private void deliver() {
+    Install install = installs.poll();
+    install.future.complete(follower.role().onInstall(install.request).join());
+    runTasks();
+  }
+
+  /**
+   * Delivers install requests to the follower until the leader has installed the snapshot on the member.
+   */
+  private void deliverAll(TestAppender leader, RaftMemberContext member) {
+    while (member.getSnapshotIndex() != SNAPSHOT_INDEX) {
+      // Resend the snapshot on the next heartbeat if no chunks are in flight.
+      if (installs.isEmpty()) {
+        leader.appendEntries(member);
+      }
+      assertTrue(installs.size() <= CHUNK_WINDOW);
+      assertTrue(requests.size() < 100);
+      deliver();
+    }
+  }
+
+  /**
+   * Runs tasks submitted to the Raft thread until none remain.
+   */
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private static InstallRequest copy(InstallRequest request, byte[] data) {
+    return InstallRequest.builder()
+        .withTerm(request.term())
+        .withLeader(request.leader())
+        .withServiceId(request.serviceId())
+        .withServiceName(request.serviceName())
+        .withIndex(request.snapshotIndex())
+        .withTimestamp(request.snapshotTimestamp())
+        .withOffset(request.chunkOffset())
+        .withData(data)
+        .withChecksum(request.checksum())
+        .withComplete(request.complete())
+        .build();
+  }
+
+  /**
+   * Install request in flight to the follower.
+   */
+  private static class Install {
+    private final InstallRequest request;
+    private final CompletableFuture<InstallResponse> future;
+
+    Install(InstallRequest request, CompletableFuture<InstallResponse> future) {
+      this.request = request;
+      this.future = future;
+    }
+  }
+
+  /**
+   * Appender that sends a single snapshot to members.
+   */
+  private static class TestAppender extends AbstractAppender {
+    private final Snapshot snapshot;
+
+    TestAppender(RaftContext raft, Snapshot snapshot) {
+      super(raft);
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    protected void appendEntries(RaftMemberContext member) {
+      if (open && member.getSnapshotIndex() < snapshot.index() && member.canInstall(raft.getSnapshotChunkWindow())) {
+        installSnapshot(member, snapshot);
+      }
+    }
+
+    @Override
+    protected long getLease() {
+      return 0;
+    }
+
+    @Override
+    protected boolean hasMoreEntries(RaftMemberContext member) {
+      return false;
+    }
+  }
+}
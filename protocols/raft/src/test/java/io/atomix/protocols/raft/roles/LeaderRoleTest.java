@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.roles;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.primitive.operation.OperationId;
+import io.atomix.primitive.operation.PrimitiveOperation;
+import io.atomix.protocols.raft.RaftError;
+import io.atomix.protocols.raft.cluster.impl.RaftClusterContext;
+import io.atomix.protocols.raft.impl.OperationResult;
+import io.atomix.protocols.raft.impl.RaftContext;
+import io.atomix.protocols.raft.impl.RaftServiceManager;
+import io.atomix.protocols.raft.protocol.CommandRequest;
+import io.atomix.protocols.raft.protocol.CommandResponse;
+import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.session.impl.RaftSession;
+import io.atomix.protocols.raft.session.impl.RaftSessionRegistry;
+import io.atomix.protocols.raft.storage.compactor.RaftLogCompactor;
+import io.atomix.protocols.raft.storage.log.RaftLog;
+import io.atomix.protocols.raft.storage.log.RaftLogWriter;
+import io.atomix.protocols.raft.storage.log.entry.CloseSessionEntry;
+import io.atomix.protocols.raft.storage.log.entry.CommandEntry;
+import io.atomix.protocols.raft.storage.system.MetaStore;
+import io.atomix.storage.StorageException;
+import io.atomix.storage.journal.Indexed;
+import io.atomix.utils.concurrent.ThreadContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Leader role test.
+ */
+public class LeaderRoleTest {
+  private static final OperationId WRITE = OperationId.command("write");
+  private static final int MAX_APPEND_ATTEMPTS = 5;
+
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final List<List<CommandEntry>> appends = new ArrayList<>();
+  private RaftLogWriter writer;
+  private RaftLogCompactor compactor;
+  private LeaderRole leader;
+  private long lastIndex;
+  private long sequence;
+
+  @Before
+  public void setupLeader() {
+    tasks.clear();
+    appends.clear();
+    lastIndex = 10;
+    sequence = 0;
+
+    RaftContext raft = mock(RaftContext.class);
+    when(raft.getName()).thenReturn("test");
+    when(raft.getTerm()).thenReturn(1L);
+    when(raft.getElectionTimeout()).thenReturn(Duration.ofSeconds(5));
+    when(raft.getHeartbeatInterval()).thenReturn(Duration.ofMillis(500));
+    when(raft.getMetaStore()).thenReturn(mock(MetaStore.class));
+    when(raft.getLog()).thenReturn(mock(RaftLog.class));
+
+    ThreadContext threadContext = mock(ThreadContext.class);
+    doAnswer(invocation -> tasks.add((Runnable) invocation.getArguments()[0])).when(threadContext).execute(any(Runnable.class));
+    when(raft.getThreadContext()).thenReturn(threadContext);
+
+    RaftClusterContext cluster = new RaftClusterContext(NodeId.from("1"), raft);
+    when(raft.getCluster()).thenReturn(cluster);
+
+    RaftSession session = mock(RaftSession.class);
+    when(session.nextRequestSequence()).thenReturn(Long.MAX_VALUE);
+    RaftSessionRegistry sessions = mock(RaftSessionRegistry.class);
+    when(sessions.getSession(1L)).thenReturn(session);
+    when(raft.getSessions()).thenReturn(sessions);
+
+    writer = mock(RaftLogWriter.class);
+    when(writer.getLastIndex()).thenAnswer(invocation -> lastIndex);
+    when(writer.getNextIndex()).thenAnswer(invocation -> lastIndex + 1);
+    when(raft.getLogWriter()).thenReturn(writer);
+
+    compactor = mock(RaftLogCompactor.class);
+    when(compactor.compact()).thenReturn(CompletableFuture.completedFuture(null));
+    when(raft.getLogCompactor()).thenReturn(compactor);
+
+    // Apply each command with a result derived from its index.
+    RaftServiceManager stateMachine = mock(RaftServiceManager.class);
+    when(stateMachine.apply(anyLong())).thenAnswer(invocation -> {
+      long index = (long) invocation.getArguments()[0];
+      return CompletableFuture.completedFuture(OperationResult.succeeded(index, 0, result(index)));
+    });
+    when(raft.getStateMachine()).thenReturn(stateMachine);
+
+    leader = new LeaderRole(raft);
+  }
+
+  /**
+   * Tests that commands received together are appended to the log in a single batch.
+   */
+  @Test
+  public void testBatchCommands() {
+    succeedAppends();
+    List<CompletableFuture<CommandResponse>> futures = submitCommands(10);
+    verify(writer, never()).append(anyList());
+
+    runTasks();
+    assertEquals(1, appends.size());
+    assertEquals(10, appends.get(0).size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i + 1, appends.get(0).get(i).sequenceNumber());
+    }
+
+    // Each command completes with the index and result of its own entry.
+    for (int i = 0; i < 10; i++) {
+      CommandResponse response = futures.get(i).join();
+      assertEquals(RaftResponse.Status.OK, response.status());
+      assertEquals(11 + i, response.index());
+      assertArrayEquals(result(11 + i), response.result());
+    }
+
+    // Commands received after the batch was appended are appended in a new batch.
+    futures = submitCommands(1);
+    runTasks();
+    assertEquals(2, appends.size());
+    assertEquals(21, futures.get(0).join().index());
+  }
+
+  /**
+   * Tests that a batch of commands is appended after the log is compacted once the disk is full.
+   */
+  @Test
+  public void testBatchCommandsCompact() {
+    failAppends(1);
+    List<CompletableFuture<CommandResponse>> futures = submitCommands(3);
+    runTasks();
+
+    // The partially written batch is removed from the log before the batch is appended again.
+    verify(writer, times(1)).truncate(10);
+    verify(compactor, times(1)).compact();
+    assertEquals(2, appends.size());
+    for (int i = 0; i < 3; i++) {
+      CommandResponse response = futures.get(i).join();
+      assertEquals(RaftResponse.Status.OK, response.status());
+      assertEquals(11 + i, response.index());
+    }
+  }
+
+  /**
+   * Tests that every command in a batch fails if the disk is full after compacting the log.
+   */
+  @Test
+  public void testBatchCommandsOutOfDiskSpace() {
+    failAppends(Integer.MAX_VALUE);
+    List<CompletableFuture<CommandResponse>> futures = submitCommands(3);
+    runTasks();
+
+    verify(writer, times(MAX_APPEND_ATTEMPTS)).truncate(10);
+    verify(compactor, times(MAX_APPEND_ATTEMPTS)).compact();
+    assertEquals(MAX_APPEND_ATTEMPTS, appends.size());
+    assertEquals(10, lastIndex);
+    for (CompletableFuture<CommandResponse> future : futures) {
+      assertTrue(future.isDone());
+      CommandResponse response = future.join();
+      assertEquals(RaftResponse.Status.ERROR, response.status());
+      assertEquals(RaftError.Type.COMMAND_FAILURE, response.error().type());
+    }
+  }
+
+  /**
+   * Tests that pending commands are appended to the log before a later entry.
+   */
+  @Test
+  public void testBatchCommandsBeforeEntry() {
+    succeedAppends();
+    List<CompletableFuture<CommandResponse>> futures = submitCommands(3);
+    verify(writer, never()).append(anyList());
+
+    // Closing the session appends the pending commands first.
+    when(writer.append(any(CloseSessionEntry.class))).thenAnswer(invocation -> new Indexed<>(++lastIndex, invocation.getArguments()[0], 0));
+    Indexed<CloseSessionEntry> closeEntry = leader.appendAndCompact(new CloseSessionEntry(1, System.currentTimeMillis(), 1, false), 0).join();
+    assertEquals(1, appends.size());
+    assertEquals(14, closeEntry.index());
+
+    InOrder inOrder = inOrder(writer);
+    inOrder.verify(writer).append(anyList());
+    inOrder.verify(writer).append(any(CloseSessionEntry.class));
+
+    // The commands are applied at the indexes preceding the close.
+    runTasks();
+    assertEquals(1, appends.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(11 + i, futures.get(i).join().index());
+    }
+  }
+
+  /**
+   * Submits the given number of commands to the leader in a single task.
+   */
+  private List<CompletableFuture<CommandResponse>> submitCommands(int count) {
+    List<CompletableFuture<CommandResponse>> futures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      futures.add(leader.onCommand(new CommandRequest(1, ++sequence, new PrimitiveOperation(WRITE, new byte[0]))));
+    }
+    for (CompletableFuture<CommandResponse> future : futures) {
+      assertFalse(future.isDone());
+    }
+    return futures;
+  }
+
+  /**
+   * Runs tasks submitted to the Raft thread until none remain.
+   */
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Appends entries to the mock log.
+   */
+  private void succeedAppends() {
+    failAppends(0);
+  }
+
+  /**
+   * Fails the given number of appends with a partially written batch before appending entries to the mock log.
+   */
+  @SuppressWarnings("unchecked")
+  private void failAppends(int failures) {
+    doAnswer(invocation -> {
+      List<CommandEntry> entries = (List<CommandEntry>) invocation.getArguments()[0];
+      appends.add(entries);
+      if (appends.size() <= failures) {
+        lastIndex++;
+        throw new StorageException.OutOfDiskSpace("Not enough space to allocate a new journal segment");
+      }
+      List<Indexed<CommandEntry>> indexed = new ArrayList<>(entries.size());
+      for (CommandEntry entry : entries) {
+        indexed.add(new Indexed<>(++lastIndex, entry, 0));
+      }
+      return indexed;
+    }).when(writer).append(anyList());
+    doAnswer(invocation -> {
+      lastIndex = (long) invocation.getArguments()[0];
+      return null;
+    }).when(writer).truncate(anyLong());
+  }
+
+  private static byte[] result(long index) {
+    return Arrays.copyOf(Long.toString(index).getBytes(), 8);
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.roles;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.protocols.raft.protocol.InstallRequest;
+import io.atomix.protocols.raft.protocol.InstallResponse;
+import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static io.atomix.protocols.raft.roles.TestFollower.snapshotBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Passive role test.
+ */
+public class PassiveRoleTest {
+  private static final NodeId LEADER = NodeId.from("1");
+  private static final long SERVICE_ID = 1;
+  private static final int CHUNK_SIZE = 1024;
+
+  private TestFollower follower;
+
+  @Before
+  public void setupFollower() {
+    follower = new TestFollower(1);
+  }
+
+  /**
+   * Tests installing a snapshot in several chunks.
+   */
+  @Test
+  public void testInstallSnapshot() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 3 + 100, 1);
+    for (int offset = 0; offset < snapshot.length; offset += CHUNK_SIZE) {
+      InstallResponse response = install(10, snapshot, offset);
+      assertEquals(RaftResponse.Status.OK, response.status());
+      assertEquals(Math.min(offset + CHUNK_SIZE, snapshot.length), response.nextOffset());
+      assertEquals(checksum(snapshot, response.nextOffset()), response.checksum());
+    }
+    follower.assertInstalled(SERVICE_ID, 10, snapshot);
+  }
+
+  /**
+   * Tests that a chunk whose data doesn't match its checksum is rejected without being written.
+   */
+  @Test
+  public void testRejectChecksumMismatch() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 3, 1);
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, 0).status());
+
+    byte[] corrupt = Arrays.copyOfRange(snapshot, CHUNK_SIZE, CHUNK_SIZE * 2);
+    corrupt[100] ^= 1;
+    long checksum = checksum(snapshot, CHUNK_SIZE, CHUNK_SIZE);
+    InstallResponse response = follower.role().onInstall(request(follower.term(), 10, CHUNK_SIZE, corrupt, checksum, false)).join();
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(CHUNK_SIZE, response.nextOffset());
+    assertEquals(checksum(snapshot, CHUNK_SIZE), response.checksum());
+    assertEquals(CHUNK_SIZE, follower.pendingSnapshots().get(SERVICE_ID).nextOffset());
+
+    // The leader resends the chunk from the returned offset.
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE).status());
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE * 2).status());
+    follower.assertInstalled(SERVICE_ID, 10, snapshot);
+  }
+
+  /**
+   * Tests that a chunk beyond the next offset is rejected with the offset at which to resume.
+   */
+  @Test
+  public void testRejectChunkGap() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 3, 1);
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, 0).status());
+
+    InstallResponse response = install(10, snapshot, CHUNK_SIZE * 2);
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(CHUNK_SIZE, response.nextOffset());
+    assertEquals(checksum(snapshot, CHUNK_SIZE), response.checksum());
+
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE).status());
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE * 2).status());
+    follower.assertInstalled(SERVICE_ID, 10, snapshot);
+  }
+
+  /**
+   * Tests that a partially installed snapshot is offered to the leader of a new term for resumption.
+   */
+  @Test
+  public void testResumeSnapshotAfterLeaderChange() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 4, 1);
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, 0).status());
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE).status());
+
+    // The leader of the next term starts the snapshot from the first chunk.
+    follower.setTerm(2);
+    InstallResponse response = install(10, snapshot, 0);
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(CHUNK_SIZE * 2, response.nextOffset());
+    assertEquals(checksum(snapshot, CHUNK_SIZE * 2), response.checksum());
+
+    // The new leader resumes the snapshot from the next offset.
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE * 2).status());
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE * 3).status());
+    follower.assertInstalled(SERVICE_ID, 10, snapshot);
+  }
+
+  /**
+   * Tests that a partially installed snapshot is restarted if the leader sends the first chunk again in the same
+   * term, since the leader's snapshot doesn't match the received bytes.
+   */
+  @Test
+  public void testRestartSnapshotAfterLeaderChange() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 3, 1);
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, 0).status());
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, CHUNK_SIZE).status());
+
+    follower.setTerm(2);
+    assertEquals(RaftResponse.Status.ERROR, install(10, snapshot, 0).status());
+
+    // The new leader's snapshot differs, so it restarts the snapshot from the first chunk.
+    byte[] newSnapshot = snapshotBytes(CHUNK_SIZE * 2, 2);
+    for (int offset = 0; offset < newSnapshot.length; offset += CHUNK_SIZE) {
+      assertEquals(RaftResponse.Status.OK, install(10, newSnapshot, offset).status());
+    }
+    follower.assertInstalled(SERVICE_ID, 10, newSnapshot);
+  }
+
+  /**
+   * Tests that a pending snapshot is discarded when the leader sends a snapshot at a different index.
+   */
+  @Test
+  public void testDiscardStalePendingSnapshot() {
+    byte[] staleSnapshot = snapshotBytes(CHUNK_SIZE * 3, 1);
+    assertEquals(RaftResponse.Status.OK, install(10, staleSnapshot, 0).status());
+    Snapshot stale = follower.pendingSnapshots().get(SERVICE_ID).snapshot();
+
+    // A new leader sends a newer snapshot of the service.
+    follower.setTerm(2);
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 2, 2);
+    InstallResponse response = install(20, snapshot, 0);
+    assertEquals(RaftResponse.Status.OK, response.status());
+    assertEquals(CHUNK_SIZE, response.nextOffset());
+    assertNotSame(stale, follower.pendingSnapshots().get(SERVICE_ID).snapshot());
+    assertEquals(20, follower.pendingSnapshots().get(SERVICE_ID).snapshot().index());
+
+    assertEquals(RaftResponse.Status.OK, install(20, snapshot, CHUNK_SIZE).status());
+    follower.assertInstalled(SERVICE_ID, 20, snapshot);
+    assertNull(follower.snapshotStore().getSnapshotsByIndex(10));
+  }
+
+  /**
+   * Tests that a request from a previous term is rejected without changing the pending snapshot.
+   */
+  @Test
+  public void testRejectStaleTerm() {
+    byte[] snapshot = snapshotBytes(CHUNK_SIZE * 2, 1);
+    follower.setTerm(2);
+    assertEquals(RaftResponse.Status.OK, install(10, snapshot, 0).status());
+
+    InstallResponse response = follower.role().onInstall(request(1, 10, CHUNK_SIZE, snapshot, false)).join();
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(CHUNK_SIZE, follower.pendingSnapshots().get(SERVICE_ID).nextOffset());
+  }
+
+  /**
+   * Sends the chunk of the given snapshot at the given offset to the follower in the current term.
+   */
+  private InstallResponse install(long index, byte[] snapshot, int offset) {
+    return follower.role().onInstall(request(follower.term(), index, offset, snapshot, offset + CHUNK_SIZE >= snapshot.length)).join();
+  }
+
+  private InstallRequest request(long term, long index, int offset, byte[] snapshot, boolean complete) {
+    int length = Math.min(CHUNK_SIZE, snapshot.length - offset);
+    byte[] data = Arrays.copyOfRange(snapshot, offset, offset + length);
+    return request(term, index, offset, data, checksum(snapshot, offset, length), complete);
+  }
+
+  private InstallRequest request(long term, long index, int offset, byte[] data, long checksum, boolean complete) {
+    return InstallRequest.builder()
+        .withTerm(term)
+        .withLeader(LEADER)
+        .withServiceId(SERVICE_ID)
+        .withServiceName("test")
+        .withIndex(index)
+        .withTimestamp(System.currentTimeMillis())
+        .withOffset(offset)
+        .withData(data)
+        .withChecksum(checksum)
+        .withComplete(complete)
+        .build();
+  }
+
+  private static long checksum(byte[] bytes, int length) {
+    return checksum(bytes, 0, length);
+  }
+
+  private static long checksum(byte[] bytes, int offset, int length) {
+    CRC32 checksum = new CRC32();
+    checksum.update(bytes, offset, length);
+    return checksum.getValue();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.roles;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.primitive.PrimitiveId;
+import io.atomix.protocols.raft.cluster.RaftMember;
+import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
+import io.atomix.protocols.raft.cluster.impl.RaftClusterContext;
+import io.atomix.protocols.raft.impl.PendingSnapshot;
+import io.atomix.protocols.raft.impl.RaftContext;
+import io.atomix.protocols.raft.storage.RaftStorage;
+import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotStore;
+import io.atomix.protocols.raft.storage.system.Configuration;
+import io.atomix.protocols.raft.storage.system.MetaStore;
+import io.atomix.storage.StorageLevel;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Passive follower with an in-memory snapshot store for snapshot installation tests.
+ */
+class TestFollower {
+  static final NodeId ID = NodeId.from("2");
+
+  private final Map<Long, PendingSnapshot> pendingSnapshots = new HashMap<>();
+  private final SnapshotStore snapshotStore = createSnapshotStore();
+  private final PassiveRole role;
+  private long term;
+
+  TestFollower(long term) {
+    this.term = term;
+
+    RaftContext raft = mock(RaftContext.class);
+    when(raft.getName()).thenReturn("follower");
+    when(raft.getTerm()).thenAnswer(invocation -> this.term);
+    doAnswer(invocation -> this.term = (long) invocation.getArguments()[0]).when(raft).setTerm(anyLong());
+
+    MetaStore metaStore = mock(MetaStore.class);
+    when(metaStore.loadConfiguration()).thenReturn(new Configuration(1, 1, System.currentTimeMillis(), Collections.singletonList(
+        new DefaultRaftMember(ID, RaftMember.Type.PASSIVE, Instant.now()))));
+    when(raft.getMetaStore()).thenReturn(metaStore);
+    RaftClusterContext cluster = new RaftClusterContext(ID, raft);
+    when(raft.getCluster()).thenReturn(cluster);
+
+    when(raft.getSnapshotStore()).thenReturn(snapshotStore);
+    when(raft.getPendingSnapshots()).thenReturn(pendingSnapshots);
+
+    role = new PassiveRole(raft);
+  }
+
+  /**
+   * Returns the follower's role.
+   */
+  PassiveRole role() {
+    return role;
+  }
+
+  /**
+   * Returns the follower's current term.
+   */
+  long term() {
+    return term;
+  }
+
+  /**
+   * Sets the follower's current term.
+   */
+  void setTerm(long term) {
+    this.term = term;
+  }
+
+  /**
+   * Returns the follower's partially installed snapshots.
+   */
+  Map<Long, PendingSnapshot> pendingSnapshots() {
+    return pendingSnapshots;
+  }
+
+  /**
+   * Returns the follower's snapshot store.
+   */
+  SnapshotStore snapshotStore() {
+    return snapshotStore;
+  }
+
+  /**
+   * Asserts that the follower has installed the given snapshot of the given service.
+   */
+  void assertInstalled(long serviceId, long index, byte[] bytes) {
+    assertNull(pendingSnapshots.get(serviceId));
+    Snapshot snapshot = snapshotStore.getSnapshotById(PrimitiveId.from(serviceId));
+    assertNotNull(snapshot);
+    assertEquals(index, snapshot.index());
+    try (SnapshotReader reader = snapshot.openReader()) {
+      assertEquals(bytes.length, reader.remaining());
+      byte[] installed = new byte[bytes.length];
+      reader.read(installed);
+      assertArrayEquals(bytes, installed);
+    }
+  }
+
+  /**
+   * Creates an in-memory snapshot store.
+   */
+  static SnapshotStore createSnapshotStore() {
+    return new SnapshotStore(RaftStorage.builder()
+        .withPrefix("test")
+        .withStorageLevel(StorageLevel.MEMORY)
+        .build());
+  }
+
+  /**
+   * Returns snapshot contents of the given length, varying with the given seed.
+   */
+  static byte[] snapshotBytes(int length, int seed) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i * 31 + seed);
+    }
+    return bytes;
+  }
+}
@@ -46,6 +46,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -310,6 +311,37 @@ public abstract class AbstractLogTest {
     }
   }
 
+  @Test
+  public void testAwaitCommittedEntries() throws Exception {
+    RaftLog log = createLog();
+    RaftLogWriter writer = log.writer();
+    RaftLogReader reader = log.openReader(1, RaftLogReader.Mode.COMMITS);
+
+    // Entries can only be read by a commit reader once they're both appended and committed.
+    CompletableFuture<Void> future = reader.awaitNext();
+    writer.commit(3);
+    assertFalse(future.isDone());
+    writer.append(new TestEntry(1, 32));
+    assertTrue(future.isDone());
+    for (int i = 2; i <= MAX_ENTRIES_PER_SEGMENT * 2; i++) {
+      writer.append(new TestEntry(1, 32));
+    }
+    assertEquals(3, reader.drain(100).size());
+    assertFalse(reader.hasNext());
+
+    future = reader.awaitNext();
+    assertFalse(future.isDone());
+    writer.commit(MAX_ENTRIES_PER_SEGMENT * 2);
+    assertTrue(future.isDone());
+    assertEquals(MAX_ENTRIES_PER_SEGMENT, reader.drain(MAX_ENTRIES_PER_SEGMENT).size());
+    assertEquals(MAX_ENTRIES_PER_SEGMENT - 3, reader.drain(MAX_ENTRIES_PER_SEGMENT).size());
+    assertTrue(reader.drain(MAX_ENTRIES_PER_SEGMENT).isEmpty());
+
+    future = reader.awaitNext();
+    log.close();
+    assertTrue(future.isCompletedExceptionally());
+  }
+
   @Before
   @After
   public void cleanupStorage() throws IOException {
@@ -18,6 +18,8 @@ package io.atomix.protocols.raft.storage.snapshot;
 import io.atomix.primitive.PrimitiveId;
 import io.atomix.protocols.raft.storage.RaftStorage;
 import io.atomix.storage.StorageLevel;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 import io.atomix.utils.time.WallClockTimestamp;
 import org.junit.After;
 import org.junit.Before;
@@ -36,6 +38,7 @@ import java.util.UUID;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * File snapshot store test.
@@ -131,6 +134,33 @@ public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
     }
   }
 
+  /**
+   * Tests charging snapshot writers to the store memory account.
+   */
+  @Test
+  public void testMemoryAccounting() {
+    RaftStorage storage = RaftStorage.builder()
+        .withPrefix("test")
+        .withDirectory(new File(String.format("target/test-logs/%s", testId)))
+        .withStorageLevel(StorageLevel.DISK)
+        .build();
+    MemoryAccount account = new MemoryAccounting().account("test");
+    SnapshotStore store = new SnapshotStore(storage, account);
+
+    Snapshot snapshot = store.newSnapshot(PrimitiveId.from(1), "foo", 2, new WallClockTimestamp());
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.writeLong(10);
+      assertTrue(account.liveBytes() > 0);
+    }
+    assertEquals(0, account.liveBytes());
+    snapshot.complete();
+
+    try (SnapshotReader reader = snapshot.openReader()) {
+      assertEquals(reader.readLong(), 10);
+    }
+    store.close();
+  }
+
   @Before
   @After
   public void cleanupStorage() throws IOException {
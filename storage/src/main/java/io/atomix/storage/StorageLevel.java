@@ -33,6 +33,11 @@ public enum StorageLevel {
   /**
    * Stores data on disk.
    */
-  DISK
+  DISK,
+
+  /**
+   * Stores the most recent data in memory-mapped files and older data on disk.
+   */
+  TIERED
 
 }
@@ -15,12 +15,16 @@
  */
 package io.atomix.storage.buffer;
 
+import io.atomix.utils.memory.DirectMemoryAllocator;
 import io.atomix.utils.memory.Memory;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 
 import java.io.File;
 import java.nio.channels.FileChannel;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * File buffer.
@@ -107,6 +111,41 @@ public class FileBuffer extends AbstractBuffer {
     return new FileBuffer(new FileBytes(file, mode, (int) Math.min(Memory.Util.toPow2(initialCapacity), maxCapacity)), 0, initialCapacity, maxCapacity);
   }
 
+  /**
+   * Allocates a file buffer backed by {@link FileChannelBytes}.
+   * <p>
+   * The buffer reads and writes the file with positional {@link FileChannel} operations and combines contiguous
+   * writes in an internal write buffer. The resulting buffer will be initialized with a capacity of
+   * {@code initialCapacity}, and as bytes are written to the file the buffer's capacity will double up to
+   * {@code maxCapacity}.
+   *
+   * @param file            The file to allocate.
+   * @param initialCapacity The initial capacity of the buffer.
+   * @param maxCapacity     The maximum allowed capacity of the buffer.
+   * @return The allocated buffer.
+   * @see FileChannelBytes
+   */
+  public static FileBuffer allocateChannel(File file, int initialCapacity, int maxCapacity) {
+    return allocateChannel(file, initialCapacity, maxCapacity, MemoryAccounting.global().account(DirectMemoryAllocator.DEFAULT_OWNER));
+  }
+
+  /**
+   * Allocates a file buffer backed by {@link FileChannelBytes} whose write buffer is charged to the given memory
+   * account.
+   *
+   * @param file            The file to allocate.
+   * @param initialCapacity The initial capacity of the buffer.
+   * @param maxCapacity     The maximum allowed capacity of the buffer.
+   * @param account         The account to which to charge the direct write buffer.
+   * @return The allocated buffer.
+   * @see #allocateChannel(File, int, int)
+   */
+  public static FileBuffer allocateChannel(File file, int initialCapacity, int maxCapacity, MemoryAccount account) {
+    checkArgument(initialCapacity <= maxCapacity, "initial capacity cannot be greater than maximum capacity");
+    checkNotNull(account, "account cannot be null");
+    return new FileBuffer(new FileChannelBytes(file, FileBytes.DEFAULT_MODE, (int) Math.min(Memory.Util.toPow2(initialCapacity), maxCapacity), FileChannelBytes.DEFAULT_WRITE_BUFFER_SIZE, account), 0, initialCapacity, maxCapacity);
+  }
+
   private final FileBytes bytes;
 
   private FileBuffer(FileBytes bytes, int offset, int initialCapacity, int maxCapacity) {
@@ -191,7 +230,7 @@ public class FileBuffer extends AbstractBuffer {
 
   @Override
   public FileBuffer duplicate() {
-    return new FileBuffer(new FileBytes(bytes.file(), bytes.mode(), bytes.size()), offset(), capacity(), maxCapacity());
+    return new FileBuffer(bytes.reopen(bytes.mode()), offset(), capacity(), maxCapacity());
   }
 
   /**
@@ -200,7 +239,7 @@ public class FileBuffer extends AbstractBuffer {
    * @return The mode with which to open the duplicate buffer.
    */
   public FileBuffer duplicate(String mode) {
-    return new FileBuffer(new FileBytes(bytes.file(), mode, bytes.size()), offset(), capacity(), maxCapacity());
+    return new FileBuffer(bytes.reopen(mode), offset(), capacity(), maxCapacity());
   }
 
   /**
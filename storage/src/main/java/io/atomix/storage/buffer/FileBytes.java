@@ -106,6 +106,23 @@ public class FileBytes extends AbstractBytes {
     }
   }
 
+  /**
+   * Returns the underlying random access file.
+   */
+  RandomAccessFile randomAccessFile() {
+    return randomAccessFile;
+  }
+
+  /**
+   * Opens a new instance of the bytes for the same file in the given mode.
+   *
+   * @param mode The mode in which to open the file.
+   * @return The new bytes.
+   */
+  FileBytes reopen(String mode) {
+    return new FileBytes(file, mode, size);
+  }
+
   /**
    * Returns the underlying file object.
    *
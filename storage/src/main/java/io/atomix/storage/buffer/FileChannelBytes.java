@@ -0,0 +1,454 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.buffer;
+
+import io.atomix.utils.memory.DirectMemoryAllocator;
+import io.atomix.utils.memory.Memory;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File channel bytes.
+ * <p>
+ * File channel bytes perform positional reads and writes through the file's {@link FileChannel} rather than seeking
+ * the underlying {@link java.io.RandomAccessFile}. Contiguous writes are combined in an internal write buffer, so
+ * writing the fields of a record one at a time costs a single write to the file. Buffered bytes are written to the
+ * file when a non-contiguous write is made, when a read overlaps them, when the bytes are {@link #drain() drained}
+ * or flushed, and when the bytes are closed. A contiguous write that does not fit in the write buffer is written
+ * together with the buffered bytes in a single gathering write.
+ * <p>
+ * File channel bytes have a single writer, but may be read and flushed by other threads while bytes are written. The
+ * write buffer is only written, drained and cleared while holding the bytes' lock, and the file is forced to disk
+ * outside of the lock so that a flush does not block writes. Buffered bytes are only visible to other handles to the
+ * file once they have been drained.
+ * <p>
+ * The direct write buffer is charged to a {@link MemoryAccount} from when it's first written until the bytes are
+ * closed.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class FileChannelBytes extends FileBytes {
+  static final int DEFAULT_WRITE_BUFFER_SIZE = 1024 * 64;
+  private static final int ZERO_BUFFER_SIZE = 1024 * 8;
+
+  /**
+   * Allocates file channel bytes.
+   * <p>
+   * If the underlying file is empty, the file count will expand dynamically as bytes are written to the file.
+   *
+   * @param file The file to allocate.
+   * @param size The count of the bytes to allocate.
+   * @return The allocated bytes.
+   */
+  public static FileChannelBytes allocate(File file, int size) {
+    return allocate(file, DEFAULT_MODE, size);
+  }
+
+  /**
+   * Allocates file channel bytes.
+   * <p>
+   * If the underlying file is empty, the file count will expand dynamically as bytes are written to the file.
+   *
+   * @param file The file to allocate.
+   * @param mode The mode in which to open the underlying {@link java.io.RandomAccessFile}.
+   * @param size The count of the bytes to allocate.
+   * @return The allocated bytes.
+   */
+  public static FileChannelBytes allocate(File file, String mode, int size) {
+    return new FileChannelBytes(
+        file,
+        mode,
+        (int) Math.min(Memory.Util.toPow2(size), Integer.MAX_VALUE),
+        DEFAULT_WRITE_BUFFER_SIZE,
+        MemoryAccounting.global().account(DirectMemoryAllocator.DEFAULT_OWNER));
+  }
+
+  private final FileChannel channel;
+  private final int writeBufferSize;
+  private final MemoryAccount account;
+  private final ByteBuffer writeScratch = ByteBuffer.allocate(Long.BYTES);
+  private ByteBuffer writeBuffer;
+  private int writePosition;
+
+  FileChannelBytes(File file, String mode, int size, int writeBufferSize, MemoryAccount account) {
+    super(file, mode, size);
+    this.channel = randomAccessFile().getChannel();
+    this.writeBufferSize = writeBufferSize;
+    this.account = account;
+  }
+
+  @Override
+  FileBytes reopen(String mode) {
+    drain();
+    return new FileChannelBytes(file(), mode, size(), writeBufferSize, account);
+  }
+
+  /**
+   * Writes buffered bytes to the file without forcing them to disk.
+   *
+   * @return The file channel bytes.
+   */
+  public synchronized FileChannelBytes drain() {
+    if (writeBuffer != null && writeBuffer.position() > 0) {
+      writeBuffer.flip();
+      writeFully(writeBuffer, writePosition);
+      writeBuffer.clear();
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of buffered bytes.
+   */
+  private int buffered() {
+    return writeBuffer != null ? writeBuffer.position() : 0;
+  }
+
+  /**
+   * Drains buffered bytes that overlap the given range.
+   */
+  private synchronized void drain(int offset, int length) {
+    int buffered = buffered();
+    if (buffered > 0 && offset < writePosition + buffered && offset + length > writePosition) {
+      drain();
+    }
+  }
+
+  /**
+   * Writes the remaining bytes of the given buffer at the given position.
+   */
+  private synchronized void write(int position, ByteBuffer src) {
+    int length = src.remaining();
+    int buffered = buffered();
+    if (buffered > 0) {
+      int end = writePosition + buffered;
+
+      // Overwrite buffered bytes, e.g. a header written after the record it precedes.
+      if (position >= writePosition && position + length <= end) {
+        ByteBuffer view = writeBuffer.duplicate();
+        view.position(position - writePosition);
+        view.put(src);
+        return;
+      }
+
+      // Append contiguous bytes to the buffer, or write them together with the buffered bytes if they don't fit.
+      if (position == end) {
+        if (writeBuffer.remaining() >= length) {
+          writeBuffer.put(src);
+        } else {
+          writeBuffer.flip();
+          writeFully(new ByteBuffer[]{writeBuffer, src}, writePosition);
+          writeBuffer.clear();
+        }
+        return;
+      }
+      drain();
+    }
+
+    if (length <= writeBufferSize) {
+      if (writeBuffer == null) {
+        account.reserve(writeBufferSize);
+        writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
+      }
+      writePosition = position;
+      writeBuffer.put(src);
+    } else {
+      writeFully(src, position);
+    }
+  }
+
+  /**
+   * Writes the given buffer to the file at the given position.
+   */
+  private void writeFully(ByteBuffer src, long position) {
+    try {
+      while (src.hasRemaining()) {
+        position += channel.write(src, position);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes the given buffers to the file at the given position with a gathering write.
+   */
+  private void writeFully(ByteBuffer[] srcs, long position) {
+    try {
+      channel.position(position);
+      while (srcs[srcs.length - 1].hasRemaining()) {
+        channel.write(srcs);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reads bytes from the file at the given position into the given buffer.
+   * <p>
+   * Bytes beyond the end of the file are read as zeros.
+   */
+  private void read(int position, ByteBuffer dst) {
+    drain(position, dst.remaining());
+    try {
+      long offset = position;
+      while (dst.hasRemaining()) {
+        int read = channel.read(dst, offset);
+        if (read < 0) {
+          while (dst.hasRemaining()) {
+            dst.put((byte) 0);
+          }
+          break;
+        }
+        offset += read;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reads the given number of bytes at the given offset into a new buffer.
+   * <p>
+   * Reads may be made concurrently by multiple threads, so values are not read into a shared buffer.
+   */
+  private ByteBuffer readScratch(int offset, int length) {
+    ByteBuffer scratch = ByteBuffer.allocate(length);
+    read(offset, scratch);
+    scratch.flip();
+    return scratch;
+  }
+
+  /**
+   * Returns the scratch buffer cleared for writing.
+   * <p>
+   * The scratch buffer must only be used while holding the bytes' lock.
+   */
+  private ByteBuffer writeScratch() {
+    writeScratch.clear();
+    return writeScratch;
+  }
+
+  @Override
+  public MappedBytes map(int offset, int size, FileChannel.MapMode mode) {
+    drain();
+    return super.map(offset, size, mode);
+  }
+
+  @Override
+  public synchronized Bytes zero() {
+    if (writeBuffer != null) {
+      writeBuffer.clear();
+    }
+    return super.zero();
+  }
+
+  @Override
+  public synchronized Bytes zero(int offset) {
+    int buffered = buffered();
+    if (buffered > 0) {
+      if (writePosition >= offset) {
+        writeBuffer.clear();
+      } else if (writePosition + buffered > offset) {
+        writeBuffer.position(offset - writePosition);
+      }
+    }
+    return super.zero(offset);
+  }
+
+  @Override
+  public Bytes zero(int offset, int length) {
+    checkWrite(offset, length);
+    ByteBuffer zeros = ByteBuffer.allocate(Math.min(length, ZERO_BUFFER_SIZE));
+    int position = offset;
+    while (position < offset + length) {
+      int size = Math.min(zeros.capacity(), offset + length - position);
+      zeros.clear().limit(size);
+      write(position, zeros);
+      position += size;
+    }
+    return this;
+  }
+
+  @Override
+  public Bytes read(int position, Bytes bytes, int offset, int length) {
+    checkRead(position, length);
+    if (bytes instanceof WrappedBytes) {
+      bytes = ((WrappedBytes) bytes).root();
+    }
+    if (bytes.hasArray()) {
+      read(position, ByteBuffer.wrap(bytes.array(), offset, length));
+    } else {
+      byte[] readBytes = new byte[length];
+      read(position, ByteBuffer.wrap(readBytes));
+      bytes.write(offset, readBytes, 0, length);
+    }
+    return this;
+  }
+
+  @Override
+  public Bytes read(int position, byte[] bytes, int offset, int length) {
+    checkRead(position, length);
+    read(position, ByteBuffer.wrap(bytes, offset, length));
+    return this;
+  }
+
+  @Override
+  public int readByte(int offset) {
+    checkRead(offset, BYTE);
+    return readScratch(offset, BYTE).get();
+  }
+
+  @Override
+  public char readChar(int offset) {
+    checkRead(offset, CHARACTER);
+    return readScratch(offset, CHARACTER).getChar();
+  }
+
+  @Override
+  public short readShort(int offset) {
+    checkRead(offset, SHORT);
+    return readScratch(offset, SHORT).getShort();
+  }
+
+  @Override
+  public int readInt(int offset) {
+    checkRead(offset, INTEGER);
+    return readScratch(offset, INTEGER).getInt();
+  }
+
+  @Override
+  public long readLong(int offset) {
+    checkRead(offset, LONG);
+    return readScratch(offset, LONG).getLong();
+  }
+
+  @Override
+  public float readFloat(int offset) {
+    checkRead(offset, FLOAT);
+    return readScratch(offset, FLOAT).getFloat();
+  }
+
+  @Override
+  public double readDouble(int offset) {
+    checkRead(offset, DOUBLE);
+    return readScratch(offset, DOUBLE).getDouble();
+  }
+
+  @Override
+  public Bytes write(int position, Bytes bytes, int offset, int length) {
+    checkWrite(position, length);
+    if (bytes instanceof WrappedBytes) {
+      bytes = ((WrappedBytes) bytes).root();
+    }
+    if (bytes.hasArray()) {
+      write(position, ByteBuffer.wrap(bytes.array(), offset, length));
+    } else {
+      byte[] writeBytes = new byte[length];
+      bytes.read(offset, writeBytes, 0, length);
+      write(position, ByteBuffer.wrap(writeBytes));
+    }
+    return this;
+  }
+
+  @Override
+  public Bytes write(int position, byte[] bytes, int offset, int length) {
+    checkWrite(position, length);
+    write(position, ByteBuffer.wrap(bytes, offset, length));
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeByte(int offset, int b) {
+    checkWrite(offset, BYTE);
+    write(offset, (ByteBuffer) writeScratch().put((byte) b).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeChar(int offset, char c) {
+    checkWrite(offset, CHARACTER);
+    write(offset, (ByteBuffer) writeScratch().putChar(c).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeShort(int offset, short s) {
+    checkWrite(offset, SHORT);
+    write(offset, (ByteBuffer) writeScratch().putShort(s).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeInt(int offset, int i) {
+    checkWrite(offset, INTEGER);
+    write(offset, (ByteBuffer) writeScratch().putInt(i).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeLong(int offset, long l) {
+    checkWrite(offset, LONG);
+    write(offset, (ByteBuffer) writeScratch().putLong(l).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeFloat(int offset, float f) {
+    checkWrite(offset, FLOAT);
+    write(offset, (ByteBuffer) writeScratch().putFloat(f).flip());
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes writeDouble(int offset, double d) {
+    checkWrite(offset, DOUBLE);
+    write(offset, (ByteBuffer) writeScratch().putDouble(d).flip());
+    return this;
+  }
+
+  @Override
+  public Bytes flush() {
+    // Buffered bytes are drained under the lock, but the file is forced outside of it so writes are not blocked.
+    drain();
+    try {
+      channel.force(false);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (channel.isOpen()) {
+        drain();
+      }
+      if (writeBuffer != null) {
+        writeBuffer = null;
+        account.release(writeBufferSize);
+      }
+    }
+    super.close();
+  }
+}
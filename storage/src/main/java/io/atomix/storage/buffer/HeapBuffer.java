@@ -15,6 +15,7 @@
  */
 package io.atomix.storage.buffer;
 
+import io.atomix.utils.concurrent.ReferenceManager;
 import io.atomix.utils.memory.HeapMemory;
 import io.atomix.utils.memory.Memory;
 
@@ -101,6 +102,11 @@ public class HeapBuffer extends ByteBufferBuffer {
     this.bytes = bytes;
   }
 
+  protected HeapBuffer(HeapBytes bytes, ReferenceManager<Buffer> referenceManager) {
+    super(bytes, referenceManager);
+    this.bytes = bytes;
+  }
+
   @Override
   public boolean hasArray() {
     return true;
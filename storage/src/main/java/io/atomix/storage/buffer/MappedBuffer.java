@@ -15,6 +15,8 @@
  */
 package io.atomix.storage.buffer;
 
+import io.atomix.utils.memory.MemoryAccount;
+
 import java.io.File;
 import java.nio.channels.FileChannel;
 
@@ -181,6 +183,28 @@ public class MappedBuffer extends ByteBufferBuffer {
     return new MappedBuffer(MappedBytes.allocate(file, mode, initialCapacity), 0, initialCapacity, maxCapacity);
   }
 
+  /**
+   * Allocates a mapped buffer in {@link FileChannel.MapMode#READ_WRITE} mode charged to the given memory account.
+   * <p>
+   * The mapped memory is charged to the account as the buffer grows, and is released once the buffer is closed or
+   * its bytes are unmapped.
+   *
+   * @param file            The file to map into memory. If the file doesn't exist it will be automatically created.
+   * @param initialCapacity The initial capacity of the buffer.
+   * @param maxCapacity     The maximum capacity of the buffer.
+   * @param account         The account to which to charge the mapped memory.
+   * @return The mapped buffer.
+   * @throws NullPointerException     If {@code file} or {@code account} is {@code null}
+   * @throws io.atomix.utils.memory.MemoryLimitExceededException if the mapping would exceed a memory limit
+   * @see #allocate(File, int, int)
+   */
+  public static MappedBuffer allocate(File file, int initialCapacity, int maxCapacity, MemoryAccount account) {
+    checkNotNull(file, "file cannot be null");
+    checkNotNull(account, "account cannot be null");
+    checkArgument(initialCapacity <= maxCapacity, "initial capacity cannot be greater than maximum capacity");
+    return new MappedBuffer(MappedBytes.allocate(file, FileChannel.MapMode.READ_WRITE, initialCapacity, account), 0, initialCapacity, maxCapacity);
+  }
+
   protected MappedBuffer(MappedBytes bytes, int offset, int initialCapacity, int maxCapacity) {
     super(bytes, offset, initialCapacity, maxCapacity, null);
   }
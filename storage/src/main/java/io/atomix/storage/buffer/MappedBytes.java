@@ -16,6 +16,10 @@
 package io.atomix.storage.buffer;
 
 import io.atomix.utils.AtomixIOException;
+import io.atomix.utils.memory.MappedMemory;
+import io.atomix.utils.memory.MappedMemoryAllocator;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 
 import java.io.File;
 import java.io.IOException;
@@ -62,11 +66,29 @@ public class MappedBytes extends ByteBufferBytes {
    * @see #allocate(File, int)
    */
   public static MappedBytes allocate(File file, FileChannel.MapMode mode, int size) {
+    return allocate(file, mode, size, MemoryAccounting.global().account(MappedMemoryAllocator.DEFAULT_OWNER));
+  }
+
+  /**
+   * Allocates a mapped buffer charged to the given memory account.
+   * <p>
+   * The mapped size is charged to the account until the bytes are closed or unmapped.
+   *
+   * @param file The file to map into memory. If the file doesn't exist it will be automatically created.
+   * @param mode The mode with which to map the file.
+   * @param size The count of the buffer to allocate (in bytes).
+   * @param account The account to which to charge the mapped memory.
+   * @return The mapped buffer.
+   * @throws io.atomix.utils.memory.MemoryLimitExceededException if the mapping would exceed a memory limit
+   */
+  public static MappedBytes allocate(File file, FileChannel.MapMode mode, int size, MemoryAccount account) {
+    account.reserve(size);
     try {
       RandomAccessFile randomAccessFile = new RandomAccessFile(file, parseMode(mode));
       MappedByteBuffer buffer = randomAccessFile.getChannel().map(mode, 0, size);
-      return new MappedBytes(file, randomAccessFile, buffer, mode);
+      return new MappedBytes(file, randomAccessFile, buffer, mode, account);
     } catch (IOException e) {
+      account.release(size);
       throw new AtomixIOException(e);
     }
   }
@@ -74,19 +96,47 @@ public class MappedBytes extends ByteBufferBytes {
   private final File file;
   private final RandomAccessFile randomAccessFile;
   private final FileChannel.MapMode mode;
+  private final MemoryAccount account;
+  private int charged;
 
   protected MappedBytes(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer, FileChannel.MapMode mode) {
+    this(file, randomAccessFile, buffer, mode, null);
+  }
+
+  private MappedBytes(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer, FileChannel.MapMode mode, MemoryAccount account) {
     super(buffer);
     this.file = file;
     this.randomAccessFile = randomAccessFile;
     this.mode = mode;
+    this.account = account;
+    this.charged = account != null ? buffer.capacity() : 0;
+  }
+
+  /**
+   * Returns the account to which the mapped memory is charged.
+   *
+   * @return The account to which the mapped memory is charged, or {@code null} if the memory is not accounted.
+   */
+  public MemoryAccount account() {
+    return account;
   }
 
   @Override
   protected ByteBuffer newByteBuffer(int size) {
+    if (account != null && size > charged) {
+      account.reserve(size - charged);
+    }
     try {
-      return randomAccessFile.getChannel().map(mode, 0, size);
+      ByteBuffer buffer = randomAccessFile.getChannel().map(mode, 0, size);
+      if (account != null) {
+        account.release(charged - size);
+        charged = size;
+      }
+      return buffer;
     } catch (IOException e) {
+      if (account != null) {
+        account.release(size - charged);
+      }
       throw new AtomixIOException(e);
     }
   }
@@ -109,9 +159,24 @@ public class MappedBytes extends ByteBufferBytes {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+    if (account != null) {
+      account.release(charged);
+      charged = 0;
+    }
     super.close();
   }
 
+  /**
+   * Closes the underlying file and immediately releases the memory mapping rather than waiting for the mapped
+   * buffer to be garbage collected.
+   * <p>
+   * The bytes must not be accessed once they have been unmapped.
+   */
+  public void unmap() {
+    close();
+    MappedMemory.unmap((MappedByteBuffer) buffer);
+  }
+
   /**
    * Deletes the underlying file.
    */
@@ -0,0 +1,593 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.buffer;
+
+import io.atomix.utils.concurrent.ReferenceManager;
+import io.atomix.utils.memory.DirectMemoryAllocator;
+import io.atomix.utils.memory.HeapMemory;
+import io.atomix.utils.memory.Memory;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Size-class slab buffer allocator.
+ * <p>
+ * Buffers are pooled in power-of-two size classes. Each thread caches released buffers in per-class magazines, and
+ * full magazines are exchanged with a bounded global depot so that buffers released on one thread can be reused on
+ * another. Direct buffers are charged to a {@link MemoryAccount} so the memory held by the pool can be attributed to
+ * its owner. Buffers are returned to the allocator when their last reference is {@link Buffer#release() released} or
+ * when they're {@link Buffer#close() closed}, and buffers larger than the maximum pooled size are not pooled.
+ * <p>
+ * When leak detection is enabled, buffers that are garbage collected without being released are logged along with
+ * the stack trace at which they were allocated, and the memory of leaked direct buffers is freed.
+ */
+public class SlabAllocator implements BufferAllocator, ReferenceManager<Buffer>, AutoCloseable {
+
+  /**
+   * Returns a new slab allocator builder.
+   *
+   * @return A new slab allocator builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static final int MIN_SIZE_SHIFT = 6;
+  private static final int MAX_MAGAZINE_BYTES = 1024 * 256;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final boolean direct;
+  private final MemoryAccount account;
+  private final int maxPooledSize;
+  private final boolean leakDetection;
+  private final int[] magazineSizes;
+  private final Depot[] depots;
+  private final ThreadLocal<Cache> caches = ThreadLocal.withInitial(this::newCache);
+  private final Set<Cache> directCaches = ConcurrentHashMap.newKeySet();
+  private final ReferenceQueue<Buffer> leakQueue = new ReferenceQueue<>();
+  private final Set<Leak> leaks = ConcurrentHashMap.newKeySet();
+  private final AtomicLong leakCount = new AtomicLong();
+  private volatile boolean closed;
+
+  protected SlabAllocator(boolean direct, MemoryAccount account, int maxPooledSize, int magazineSize, int depotSize, boolean leakDetection) {
+    this.direct = direct;
+    this.account = account;
+    this.maxPooledSize = maxPooledSize;
+    this.leakDetection = leakDetection;
+    int sizeClasses = sizeClass(maxPooledSize) + 1;
+    this.magazineSizes = new int[sizeClasses];
+    this.depots = new Depot[sizeClasses];
+    for (int i = 0; i < sizeClasses; i++) {
+      magazineSizes[i] = Math.max(1, Math.min(magazineSize, MAX_MAGAZINE_BYTES / classSize(i)));
+      depots[i] = new Depot(magazineSizes[i], depotSize);
+    }
+  }
+
+  /**
+   * Returns the size class for the given capacity.
+   */
+  private static int sizeClass(int capacity) {
+    if (capacity <= 1 << MIN_SIZE_SHIFT) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SIZE_SHIFT;
+  }
+
+  /**
+   * Returns the size of buffers in the given size class.
+   */
+  private static int classSize(int sizeClass) {
+    return 1 << (sizeClass + MIN_SIZE_SHIFT);
+  }
+
+  /**
+   * Returns a boolean indicating whether the allocator allocates direct buffers.
+   *
+   * @return Indicates whether the allocator allocates direct buffers.
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Returns the maximum size of pooled buffers.
+   *
+   * @return The maximum size of pooled buffers.
+   */
+  public int maxPooledSize() {
+    return maxPooledSize;
+  }
+
+  /**
+   * Returns the number of leaked buffers that have been detected.
+   * <p>
+   * Leaks are only detected if leak detection is enabled.
+   *
+   * @return The number of leaked buffers that have been detected.
+   */
+  public long leakCount() {
+    detectLeaks();
+    return leakCount.get();
+  }
+
+  @Override
+  public Buffer allocate() {
+    return allocate(AbstractBuffer.DEFAULT_INITIAL_CAPACITY);
+  }
+
+  @Override
+  public Buffer allocate(int initialCapacity) {
+    return allocate(initialCapacity, direct ? Integer.MAX_VALUE : HeapMemory.MAX_SIZE);
+  }
+
+  @Override
+  public Buffer allocate(int initialCapacity, int maxCapacity) {
+    checkArgument(initialCapacity <= maxCapacity, "initial capacity cannot be greater than maximum capacity");
+    if (closed) {
+      throw new IllegalStateException("allocator closed");
+    }
+    if (initialCapacity > maxPooledSize) {
+      if (direct) {
+        int size = (int) Math.min(Memory.Util.toPow2(initialCapacity), maxCapacity);
+        return new UnsafeDirectBuffer(UnsafeDirectBytes.allocate(size, account), 0, initialCapacity, maxCapacity);
+      }
+      return HeapBuffer.allocate(initialCapacity, maxCapacity);
+    }
+
+    if (leakDetection) {
+      detectLeaks();
+    }
+
+    int sizeClass = sizeClass(initialCapacity);
+    AbstractBuffer buffer = caches.get().allocate(sizeClass);
+    if (buffer == null) {
+      buffer = newBuffer(sizeClass);
+    }
+
+    Slab slab = slab(buffer);
+    slab.allocated.set(true);
+    if (leakDetection) {
+      slab.leak = new Leak(buffer, leakQueue);
+      leaks.add(slab.leak);
+    }
+    buffer.reset(0, initialCapacity, maxCapacity).clear();
+    buffer.acquire();
+    return buffer;
+  }
+
+  /**
+   * Creates a new buffer in the given size class.
+   */
+  private AbstractBuffer newBuffer(int sizeClass) {
+    if (direct) {
+      return new SlabDirectBuffer(UnsafeDirectBytes.allocate(classSize(sizeClass), account), this);
+    } else {
+      return new SlabHeapBuffer(HeapBytes.allocate(classSize(sizeClass)), this);
+    }
+  }
+
+  /**
+   * Creates the calling thread's magazine cache.
+   */
+  private Cache newCache() {
+    Cache cache = new Cache();
+    if (direct) {
+      directCaches.add(cache);
+    }
+    return cache;
+  }
+
+  @Override
+  public void release(Buffer reference) {
+    Slab slab = slab(reference);
+    if (slab == null || !slab.allocated.compareAndSet(true, false)) {
+      return;
+    }
+
+    Leak leak = slab.leak;
+    if (leak != null) {
+      slab.leak = null;
+      leaks.remove(leak);
+      leak.clear();
+    }
+
+    // Buffers that have grown beyond the pooled sizes are dropped.
+    AbstractBuffer buffer = (AbstractBuffer) reference;
+    int size = buffer.bytes().size();
+    if (size < classSize(0) || size > maxPooledSize || Integer.bitCount(size) != 1
+        || !caches.get().release(sizeClass(size), buffer)) {
+      buffer.bytes().close();
+    }
+  }
+
+  /**
+   * Logs buffers that have been garbage collected without being released.
+   */
+  private void detectLeaks() {
+    Leak leak;
+    while ((leak = (Leak) leakQueue.poll()) != null) {
+      if (leaks.remove(leak)) {
+        leakCount.incrementAndGet();
+        log.warn("Buffer of {} bytes was garbage collected without being released", leak.bytes.size(), leak.trace);
+        leak.bytes.close();
+      }
+    }
+  }
+
+  /**
+   * Closes the allocator, freeing all pooled buffers.
+   * <p>
+   * Buffers released after the allocator has been closed are freed rather than pooled.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Cache cache : directCaches) {
+      cache.close();
+    }
+    directCaches.clear();
+    for (Depot depot : depots) {
+      depot.close();
+    }
+  }
+
+  /**
+   * Returns the slab state of the given buffer.
+   */
+  private static Slab slab(Buffer buffer) {
+    if (buffer instanceof SlabHeapBuffer) {
+      return ((SlabHeapBuffer) buffer).slab;
+    } else if (buffer instanceof SlabDirectBuffer) {
+      return ((SlabDirectBuffer) buffer).slab;
+    }
+    return null;
+  }
+
+  /**
+   * Per-thread magazine cache.
+   * <p>
+   * Each size class has a loaded and a previous magazine. Allocations are satisfied from the loaded magazine, and
+   * the magazines are swapped before falling back to the depot, so a thread that alternately allocates and releases
+   * buffers at a magazine boundary does not exchange magazines with the depot on every operation.
+   */
+  private final class Cache {
+    private final Magazine[] loaded = new Magazine[depots.length];
+    private final Magazine[] previous = new Magazine[depots.length];
+
+    Cache() {
+      for (int i = 0; i < depots.length; i++) {
+        loaded[i] = new Magazine(magazineSizes[i]);
+        previous[i] = new Magazine(magazineSizes[i]);
+      }
+    }
+
+    /**
+     * Allocates a cached buffer, returning {@code null} if no buffer is cached.
+     */
+    synchronized AbstractBuffer allocate(int sizeClass) {
+      Magazine magazine = loaded[sizeClass];
+      if (magazine.isEmpty()) {
+        if (!previous[sizeClass].isEmpty()) {
+          loaded[sizeClass] = previous[sizeClass];
+          previous[sizeClass] = magazine;
+        } else {
+          Magazine full = depots[sizeClass].exchangeEmpty(previous[sizeClass]);
+          if (full == null) {
+            return null;
+          }
+          previous[sizeClass] = magazine;
+          loaded[sizeClass] = full;
+        }
+      }
+      return loaded[sizeClass].pop();
+    }
+
+    /**
+     * Caches a released buffer, returning {@code false} if the buffer could not be cached.
+     */
+    synchronized boolean release(int sizeClass, AbstractBuffer buffer) {
+      if (closed) {
+        return false;
+      }
+      Magazine magazine = loaded[sizeClass];
+      if (magazine.isFull()) {
+        if (!previous[sizeClass].isFull()) {
+          loaded[sizeClass] = previous[sizeClass];
+          previous[sizeClass] = magazine;
+        } else {
+          Magazine empty = depots[sizeClass].exchangeFull(previous[sizeClass]);
+          if (empty == null) {
+            return false;
+          }
+          previous[sizeClass] = magazine;
+          loaded[sizeClass] = empty;
+        }
+      }
+      loaded[sizeClass].push(buffer);
+      return true;
+    }
+
+    /**
+     * Frees the cached buffers.
+     */
+    synchronized void close() {
+      for (int i = 0; i < depots.length; i++) {
+        loaded[i].close();
+        previous[i].close();
+      }
+    }
+  }
+
+  /**
+   * Global depot of full and empty magazines for a single size class.
+   */
+  private final class Depot {
+    private final int magazineSize;
+    private final int maxMagazines;
+    private final Deque<Magazine> full = new ArrayDeque<>();
+    private final Deque<Magazine> empty = new ArrayDeque<>();
+
+    Depot(int magazineSize, int maxMagazines) {
+      this.magazineSize = magazineSize;
+      this.maxMagazines = maxMagazines;
+    }
+
+    /**
+     * Exchanges an empty magazine for a full magazine, returning {@code null} if the depot has no full magazines.
+     */
+    synchronized Magazine exchangeEmpty(Magazine magazine) {
+      Magazine fullMagazine = full.poll();
+      if (fullMagazine != null) {
+        empty.push(magazine);
+      }
+      return fullMagazine;
+    }
+
+    /**
+     * Exchanges a full magazine for an empty magazine, returning {@code null} if the depot is full.
+     */
+    synchronized Magazine exchangeFull(Magazine magazine) {
+      if (closed || full.size() >= maxMagazines) {
+        return null;
+      }
+      full.push(magazine);
+      Magazine emptyMagazine = empty.poll();
+      return emptyMagazine != null ? emptyMagazine : new Magazine(magazineSize);
+    }
+
+    /**
+     * Frees the buffers in the depot.
+     */
+    synchronized void close() {
+      for (Magazine magazine : full) {
+        magazine.close();
+      }
+      full.clear();
+      empty.clear();
+    }
+  }
+
+  /**
+   * Fixed size stack of pooled buffers.
+   */
+  private static final class Magazine {
+    private final AbstractBuffer[] buffers;
+    private int size;
+
+    Magazine(int capacity) {
+      this.buffers = new AbstractBuffer[capacity];
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    boolean isFull() {
+      return size == buffers.length;
+    }
+
+    void push(AbstractBuffer buffer) {
+      buffers[size++] = buffer;
+    }
+
+    AbstractBuffer pop() {
+      AbstractBuffer buffer = buffers[--size];
+      buffers[size] = null;
+      return buffer;
+    }
+
+    void close() {
+      while (size > 0) {
+        pop().bytes().close();
+      }
+    }
+  }
+
+  /**
+   * Allocation state of a pooled buffer.
+   */
+  private static final class Slab {
+    private final AtomicBoolean allocated = new AtomicBoolean();
+    private volatile Leak leak;
+  }
+
+  /**
+   * Tracks an allocated buffer to detect when it's garbage collected without being released.
+   */
+  private static final class Leak extends PhantomReference<Buffer> {
+    private final Bytes bytes;
+    private final Throwable trace;
+
+    Leak(Buffer buffer, ReferenceQueue<Buffer> queue) {
+      super(buffer, queue);
+      this.bytes = buffer.bytes();
+      this.trace = new Throwable("Buffer allocated");
+    }
+  }
+
+  /**
+   * Pooled heap buffer.
+   */
+  private static final class SlabHeapBuffer extends HeapBuffer {
+    private final Slab slab = new Slab();
+
+    SlabHeapBuffer(HeapBytes bytes, ReferenceManager<Buffer> referenceManager) {
+      super(bytes, referenceManager);
+    }
+  }
+
+  /**
+   * Pooled direct buffer.
+   */
+  private static final class SlabDirectBuffer extends UnsafeDirectBuffer {
+    private final Slab slab = new Slab();
+
+    SlabDirectBuffer(UnsafeDirectBytes bytes, ReferenceManager<Buffer> referenceManager) {
+      super(bytes, referenceManager);
+    }
+  }
+
+  /**
+   * Slab allocator builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<SlabAllocator> {
+    private static final int DEFAULT_MAX_POOLED_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAGAZINE_SIZE = 32;
+    private static final int DEFAULT_DEPOT_SIZE = 4;
+
+    protected boolean direct;
+    protected MemoryAccount account;
+    protected int maxPooledSize = DEFAULT_MAX_POOLED_SIZE;
+    protected int magazineSize = DEFAULT_MAGAZINE_SIZE;
+    protected int depotSize = DEFAULT_DEPOT_SIZE;
+    protected boolean leakDetection;
+
+    protected Builder() {
+    }
+
+    /**
+     * Sets whether to allocate direct (off-heap) buffers.
+     *
+     * @param direct Whether to allocate direct buffers.
+     * @return The slab allocator builder.
+     */
+    public Builder withDirect(boolean direct) {
+      this.direct = direct;
+      return this;
+    }
+
+    /**
+     * Sets the account to which direct buffers are charged.
+     * <p>
+     * By default, direct buffers are charged to the {@link DirectMemoryAllocator#DEFAULT_OWNER} account of the
+     * {@link MemoryAccounting#global() global} memory accounting.
+     *
+     * @param account The account to which direct buffers are charged.
+     * @return The slab allocator builder.
+     */
+    public Builder withMemoryAccount(MemoryAccount account) {
+      this.account = checkNotNull(account, "account cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of pooled buffers.
+     * <p>
+     * The size is rounded up to the next power of {@code 2}. Larger buffers are allocated without being pooled.
+     *
+     * @param maxPooledSize The maximum size of pooled buffers.
+     * @return The slab allocator builder.
+     * @throws IllegalArgumentException If the {@code maxPooledSize} is not positive
+     */
+    public Builder withMaxPooledSize(int maxPooledSize) {
+      checkArgument(maxPooledSize > 0 && maxPooledSize <= 1 << 30, "maxPooledSize must be positive and at most 1GB");
+      this.maxPooledSize = maxPooledSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of buffers in each magazine.
+     * <p>
+     * Magazines for large size classes hold fewer buffers to bound the memory cached by each thread.
+     *
+     * @param magazineSize The maximum number of buffers in each magazine.
+     * @return The slab allocator builder.
+     * @throws IllegalArgumentException If the {@code magazineSize} is not positive
+     */
+    public Builder withMagazineSize(int magazineSize) {
+      checkArgument(magazineSize > 0, "magazineSize must be positive");
+      this.magazineSize = magazineSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of full magazines held in the global depot for each size class.
+     *
+     * @param depotSize The maximum number of full magazines per size class.
+     * @return The slab allocator builder.
+     * @throws IllegalArgumentException If the {@code depotSize} is negative
+     */
+    public Builder withDepotSize(int depotSize) {
+      checkArgument(depotSize >= 0, "depotSize must be positive");
+      this.depotSize = depotSize;
+      return this;
+    }
+
+    /**
+     * Enables leak detection.
+     * <p>
+     * Leak detection records the stack trace at which each buffer is allocated and should only be enabled when
+     * debugging.
+     *
+     * @return The slab allocator builder.
+     */
+    public Builder withLeakDetection() {
+      return withLeakDetection(true);
+    }
+
+    /**
+     * Sets whether to detect buffers that are garbage collected without being released.
+     *
+     * @param leakDetection Whether to detect leaked buffers.
+     * @return The slab allocator builder.
+     */
+    public Builder withLeakDetection(boolean leakDetection) {
+      this.leakDetection = leakDetection;
+      return this;
+    }
+
+    @Override
+    public SlabAllocator build() {
+      int maxPooledSize = 1 << (sizeClass(this.maxPooledSize) + MIN_SIZE_SHIFT);
+      MemoryAccount account = this.account != null ? this.account : MemoryAccounting.global().account(DirectMemoryAllocator.DEFAULT_OWNER);
+      return new SlabAllocator(direct, account, maxPooledSize, magazineSize, depotSize, leakDetection);
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package io.atomix.storage.buffer;
 
 import io.atomix.utils.memory.DirectMemory;
+import io.atomix.utils.memory.MemoryAccount;
 
 /**
  * Direct byte buffer bytes.
@@ -39,6 +40,17 @@ public class UnsafeDirectBytes extends NativeBytes {
     return new UnsafeDirectBytes(DirectMemory.allocate(size));
   }
 
+  /**
+   * Allocates a direct {@link java.nio.ByteBuffer} based byte array charged to the given memory account.
+   *
+   * @param size The count of the buffer to allocate (in bytes).
+   * @param account The account to which to charge the allocated memory.
+   * @return The native buffer.
+   */
+  public static UnsafeDirectBytes allocate(int size, MemoryAccount account) {
+    return new UnsafeDirectBytes(DirectMemory.allocate(size, account));
+  }
+
   protected UnsafeDirectBytes(DirectMemory memory) {
     super(memory);
   }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Base class for pure Java checksums.
+ */
+abstract class AbstractChecksum implements Checksum {
+  private static final int SCRATCH_SIZE = 1024;
+  private byte[] scratch;
+
+  @Override
+  public void update(int b) {
+    update(new byte[]{(byte) b}, 0, 1);
+  }
+
+  /**
+   * Updates the checksum with the remaining bytes of a direct buffer, copying them through a scratch array.
+   * <p>
+   * The method is not named {@code update} since it would otherwise clash with the public default
+   * {@code Checksum#update(ByteBuffer)} method added in Java 9.
+   */
+  void updateBuffer(ByteBuffer buffer) {
+    if (scratch == null) {
+      scratch = new byte[SCRATCH_SIZE];
+    }
+    while (buffer.hasRemaining()) {
+      int length = Math.min(buffer.remaining(), scratch.length);
+      buffer.get(scratch, 0, length);
+      update(scratch, 0, length);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.buffer.AbstractBuffer;
+import io.atomix.storage.buffer.Buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * Read-only buffer over the uncompressed bytes of a compressed segment file.
+ *
+ * @see CompressedSegmentBytes
+ */
+class CompressedSegmentBuffer extends AbstractBuffer {
+
+  /**
+   * Opens a compressed segment file.
+   *
+   * @param file the compressed segment file
+   * @return the buffer of the compressed segment
+   */
+  static CompressedSegmentBuffer open(File file) {
+    CompressedSegmentBytes bytes = CompressedSegmentBytes.open(file);
+    return new CompressedSegmentBuffer(bytes, 0, bytes.size(), bytes.size());
+  }
+
+  private final CompressedSegmentBytes segmentBytes;
+
+  private CompressedSegmentBuffer(CompressedSegmentBytes bytes, int offset, int initialCapacity, int maxCapacity) {
+    super(bytes, offset, initialCapacity, maxCapacity, null);
+    this.segmentBytes = bytes;
+  }
+
+  /**
+   * Returns the compressed segment file.
+   *
+   * @return the compressed segment file
+   */
+  File file() {
+    return segmentBytes.file();
+  }
+
+  /**
+   * Atomically moves the compressed segment file to the given file.
+   *
+   * @param target the file to which to move the compressed segment file
+   */
+  void move(File target) {
+    segmentBytes.move(target);
+  }
+
+  /**
+   * Writes an uncompressed copy of the segment to the given file.
+   *
+   * @param target the file to which to write the uncompressed segment
+   * @throws IOException if the segment could not be written
+   */
+  void decompress(File target) throws IOException {
+    segmentBytes.decompress(target);
+  }
+
+  @Override
+  public boolean isDirect() {
+    return false;
+  }
+
+  @Override
+  public boolean isFile() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public Buffer compact() {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  protected void compact(int from, int to, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public CompressedSegmentBuffer duplicate() {
+    return new CompressedSegmentBuffer(segmentBytes, offset(), capacity(), maxCapacity());
+  }
+
+  /**
+   * Deletes the compressed segment file.
+   */
+  void delete() {
+    segmentBytes.delete();
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.buffer.AbstractBytes;
+import io.atomix.storage.buffer.Bytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only bytes of a compressed segment file.
+ * <p>
+ * A compressed segment file begins with the uncompressed segment descriptor, followed by a block index and the
+ * segment's entries compressed in fixed-size blocks:
+ * <ul>
+ * <li>{@code descriptor} ({@link JournalSegmentDescriptor#BYTES} bytes) - The segment descriptor with the
+ * {@code compressed} flag set.</li>
+ * <li>{@code blockSize} (32-bit signed integer) - The number of uncompressed bytes in each block.</li>
+ * <li>{@code length} (32-bit signed integer) - The number of uncompressed bytes following the descriptor.</li>
+ * <li>{@code blockCount} (32-bit signed integer) - The number of blocks.</li>
+ * <li>{@code offsets} (64-bit signed integers) - The position of each block in the file followed by the position
+ * of the end of the last block.</li>
+ * <li>{@code blocks} - The deflated blocks.</li>
+ * </ul>
+ * The bytes present the uncompressed segment, so entries are addressed by the same positions as in the segment from
+ * which the file was written. A read inflates only the blocks it spans, locating them through the block index, and
+ * the most recently read blocks are cached. Reads are thread safe.
+ */
+class CompressedSegmentBytes extends AbstractBytes {
+  private static final int INDEX_POSITION = JournalSegmentDescriptor.BYTES;
+  private static final int INDEX_HEADER_BYTES = Integer.BYTES * 3;
+  private static final int TERMINATOR_BYTES = Integer.BYTES * 2;
+  private static final int MAX_CACHED_BLOCKS = 4;
+
+  /**
+   * Writes a compressed copy of a segment file.
+   * <p>
+   * The entries of the segment are followed by zeroed bytes in the compressed copy, so readers of the copy find the
+   * end of the segment as they do in the segment file.
+   *
+   * @param file the segment file to compress
+   * @param size the number of bytes that have been written to the segment, including the descriptor
+   * @param target the file to which to write the compressed segment
+   * @param blockSize the number of uncompressed bytes in each block
+   * @throws IOException if the segment could not be compressed
+   */
+  static void compress(File file, int size, File target, int blockSize) throws IOException {
+    int length = size - JournalSegmentDescriptor.BYTES + TERMINATOR_BYTES;
+    int blockCount = (length + blockSize - 1) / blockSize;
+    long[] offsets = new long[blockCount + 1];
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+         FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(INDEX_POSITION + INDEX_HEADER_BYTES + offsets.length * Long.BYTES);
+      header.limit(INDEX_POSITION);
+      readFully(in, header, 0);
+      header.limit(header.capacity());
+      header.put(JournalSegmentDescriptor.COMPRESSED_POSITION, (byte) 1);
+      header.putInt(blockSize).putInt(length).putInt(blockCount);
+
+      byte[] block = new byte[blockSize];
+      byte[] compressed = new byte[blockSize];
+      long position = header.capacity();
+      for (int i = 0; i < blockCount; i++) {
+        // Read the block from the segment file. Bytes beyond the written size of the segment are compressed as zeros.
+        int blockPosition = i * blockSize;
+        int blockLength = Math.min(blockSize, length - blockPosition);
+        int readLength = Math.max(0, Math.min(blockLength, size - JournalSegmentDescriptor.BYTES - blockPosition));
+        Arrays.fill(block, (byte) 0);
+        readFully(in, ByteBuffer.wrap(block, 0, readLength), INDEX_POSITION + blockPosition);
+
+        offsets[i] = position;
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        while (!deflater.finished()) {
+          int compressedLength = deflater.deflate(compressed);
+          position += writeFully(out, ByteBuffer.wrap(compressed, 0, compressedLength), position);
+        }
+      }
+      offsets[blockCount] = position;
+
+      for (long offset : offsets) {
+        header.putLong(offset);
+      }
+      header.flip();
+      writeFully(out, header, 0);
+      out.force(true);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Opens the bytes of a compressed segment file.
+   *
+   * @param file the compressed segment file
+   * @return the bytes of the compressed segment
+   */
+  static CompressedSegmentBytes open(File file) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      ByteBuffer header = ByteBuffer.allocate(INDEX_POSITION + INDEX_HEADER_BYTES);
+      readFully(channel, header, 0);
+      header.flip();
+      byte[] descriptor = new byte[INDEX_POSITION];
+      header.get(descriptor);
+      int blockSize = header.getInt();
+      int length = header.getInt();
+      int blockCount = header.getInt();
+
+      ByteBuffer index = ByteBuffer.allocate((blockCount + 1) * Long.BYTES);
+      readFully(channel, index, INDEX_POSITION + INDEX_HEADER_BYTES);
+      index.flip();
+      long[] offsets = new long[blockCount + 1];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = index.getLong();
+      }
+      return new CompressedSegmentBytes(file, channel, descriptor, blockSize, length, offsets);
+    } catch (IOException e) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignore) {
+        }
+      }
+      throw new StorageException(e);
+    }
+  }
+
+  private volatile File file;
+  private final FileChannel channel;
+  private final byte[] descriptor;
+  private final int blockSize;
+  private final int length;
+  private final long[] offsets;
+  private final Inflater inflater = new Inflater();
+  private final Map<Integer, byte[]> blocks = new LinkedHashMap<Integer, byte[]>(MAX_CACHED_BLOCKS * 2, .75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+      return size() > MAX_CACHED_BLOCKS;
+    }
+  };
+
+  private CompressedSegmentBytes(File file, FileChannel channel, byte[] descriptor, int blockSize, int length, long[] offsets) {
+    this.file = file;
+    this.channel = channel;
+    this.descriptor = descriptor;
+    this.blockSize = blockSize;
+    this.length = length;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Returns the compressed segment file.
+   *
+   * @return the compressed segment file
+   */
+  File file() {
+    return file;
+  }
+
+  /**
+   * Atomically moves the compressed segment file to the given file.
+   * <p>
+   * The bytes remain readable through the moved file.
+   *
+   * @param target the file to which to move the compressed segment file
+   */
+  void move(File target) {
+    try {
+      Files.move(file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    this.file = target;
+  }
+
+  /**
+   * Writes an uncompressed copy of the segment to the given file.
+   *
+   * @param target the file to which to write the uncompressed segment
+   * @throws IOException if the segment could not be written
+   */
+  void decompress(File target) throws IOException {
+    try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.wrap(descriptor.clone());
+      header.put(JournalSegmentDescriptor.COMPRESSED_POSITION, (byte) 0);
+      writeFully(out, header, 0);
+      for (int i = 0; i < offsets.length - 1; i++) {
+        writeFully(out, ByteBuffer.wrap(block(i)), INDEX_POSITION + (long) i * blockSize);
+      }
+      out.force(true);
+    }
+  }
+
+  /**
+   * Returns the uncompressed bytes of the given block, inflating the block if it is not cached.
+   */
+  private synchronized byte[] block(int index) {
+    byte[] block = blocks.get(index);
+    if (block == null) {
+      try {
+        ByteBuffer compressed = ByteBuffer.allocate((int) (offsets[index + 1] - offsets[index]));
+        readFully(channel, compressed, offsets[index]);
+        block = new byte[Math.min(blockSize, length - index * blockSize)];
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        int position = 0;
+        while (position < block.length && !inflater.finished()) {
+          int inflated = inflater.inflate(block, position, block.length - position);
+          if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new StorageException("Truncated compressed segment block: " + file);
+          }
+          position += inflated;
+        }
+      } catch (IOException | DataFormatException e) {
+        throw new StorageException(e);
+      }
+      blocks.put(index, block);
+    }
+    return block;
+  }
+
+  /**
+   * Returns the byte at the given position.
+   */
+  private byte get(int position) {
+    if (position < INDEX_POSITION) {
+      return descriptor[position];
+    }
+    int offset = position - INDEX_POSITION;
+    return block(offset / blockSize)[offset % blockSize];
+  }
+
+  /**
+   * Reads the big-endian value of the given number of bytes at the given position.
+   */
+  private long readBits(int position, int bytes) {
+    checkRead(position, bytes);
+    long value = 0;
+    for (int i = 0; i < bytes; i++) {
+      value = (value << 8) | (get(position + i) & 0xFF);
+    }
+    return value;
+  }
+
+  @Override
+  public boolean isFile() {
+    return true;
+  }
+
+  @Override
+  public int size() {
+    return INDEX_POSITION + length;
+  }
+
+  @Override
+  public Bytes resize(int newSize) {
+    if (newSize > size()) {
+      throw new ReadOnlyBufferException();
+    }
+    return this;
+  }
+
+  @Override
+  public Bytes zero() {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes zero(int offset) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes zero(int offset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes read(int position, Bytes bytes, int offset, int length) {
+    byte[] readBytes = new byte[length];
+    read(position, readBytes, 0, length);
+    bytes.write(offset, readBytes, 0, length);
+    return this;
+  }
+
+  @Override
+  public Bytes read(int position, byte[] bytes, int offset, int length) {
+    checkRead(position, length);
+    while (length > 0) {
+      int count;
+      if (position < INDEX_POSITION) {
+        count = Math.min(length, INDEX_POSITION - position);
+        System.arraycopy(descriptor, position, bytes, offset, count);
+      } else {
+        int blockPosition = (position - INDEX_POSITION) % blockSize;
+        byte[] block = block((position - INDEX_POSITION) / blockSize);
+        count = Math.min(length, block.length - blockPosition);
+        System.arraycopy(block, blockPosition, bytes, offset, count);
+      }
+      position += count;
+      offset += count;
+      length -= count;
+    }
+    return this;
+  }
+
+  @Override
+  public int readByte(int offset) {
+    return (byte) readBits(offset, BYTE);
+  }
+
+  @Override
+  public char readChar(int offset) {
+    return (char) readBits(offset, CHARACTER);
+  }
+
+  @Override
+  public short readShort(int offset) {
+    return (short) readBits(offset, SHORT);
+  }
+
+  @Override
+  public int readInt(int offset) {
+    return (int) readBits(offset, INTEGER);
+  }
+
+  @Override
+  public long readLong(int offset) {
+    return readBits(offset, LONG);
+  }
+
+  @Override
+  public float readFloat(int offset) {
+    return Float.intBitsToFloat(readInt(offset));
+  }
+
+  @Override
+  public double readDouble(int offset) {
+    return Double.longBitsToDouble(readLong(offset));
+  }
+
+  @Override
+  public Bytes write(int position, Bytes bytes, int offset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes write(int position, byte[] bytes, int offset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeByte(int offset, int b) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeChar(int offset, char c) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeShort(int offset, short s) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeInt(int offset, int i) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeLong(int offset, long l) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeFloat(int offset, float f) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeDouble(int offset, double d) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    synchronized (this) {
+      inflater.end();
+      blocks.clear();
+    }
+    super.close();
+  }
+
+  /**
+   * Deletes the compressed segment file.
+   */
+  void delete() {
+    close();
+    try {
+      Files.delete(file.toPath());
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Reads bytes from the given channel at the given position until the buffer is full or the end of the file.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Writes the remaining bytes of the given buffer to the given channel at the given position.
+   */
+  private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    int written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+    return written;
+  }
+}
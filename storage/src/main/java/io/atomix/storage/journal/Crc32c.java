@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+/**
+ * CRC-32C (Castagnoli) checksum.
+ * <p>
+ * The checksum is computed eight bytes at a time using the slicing-by-8 table-driven algorithm.
+ */
+final class Crc32c extends AbstractChecksum {
+  private static final int POLYNOMIAL = 0x82F63B78; // reversed Castagnoli polynomial
+  private static final int[] T0 = new int[256];
+  private static final int[] T1 = new int[256];
+  private static final int[] T2 = new int[256];
+  private static final int[] T3 = new int[256];
+  private static final int[] T4 = new int[256];
+  private static final int[] T5 = new int[256];
+  private static final int[] T6 = new int[256];
+  private static final int[] T7 = new int[256];
+
+  static {
+    int[][] tables = {T0, T1, T2, T3, T4, T5, T6, T7};
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      T0[i] = crc;
+    }
+    for (int i = 0; i < 256; i++) {
+      for (int t = 1; t < tables.length; t++) {
+        int previous = tables[t - 1][i];
+        tables[t][i] = (previous >>> 8) ^ T0[previous & 0xff];
+      }
+    }
+  }
+
+  private int crc = 0xFFFFFFFF;
+
+  @Override
+  public void update(int b) {
+    crc = (crc >>> 8) ^ T0[(crc ^ b) & 0xff];
+  }
+
+  @Override
+  public void update(byte[] bytes, int offset, int length) {
+    int crc = this.crc;
+    while (length >= 8) {
+      int low = crc ^ ((bytes[offset] & 0xff)
+          | (bytes[offset + 1] & 0xff) << 8
+          | (bytes[offset + 2] & 0xff) << 16
+          | (bytes[offset + 3] & 0xff) << 24);
+      int high = (bytes[offset + 4] & 0xff)
+          | (bytes[offset + 5] & 0xff) << 8
+          | (bytes[offset + 6] & 0xff) << 16
+          | (bytes[offset + 7] & 0xff) << 24;
+      crc = T7[low & 0xff] ^ T6[(low >>> 8) & 0xff] ^ T5[(low >>> 16) & 0xff] ^ T4[low >>> 24]
+          ^ T3[high & 0xff] ^ T2[(high >>> 8) & 0xff] ^ T1[(high >>> 16) & 0xff] ^ T0[high >>> 24];
+      offset += 8;
+      length -= 8;
+    }
+    while (length-- > 0) {
+      crc = (crc >>> 8) ^ T0[(crc ^ bytes[offset++]) & 0xff];
+    }
+    this.crc = crc;
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xFFFFFFFF;
+  }
+}
@@ -15,6 +15,8 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.List;
+
 import static com.google.common.base.MoreObjects.toStringHelper;
 
 /**
@@ -47,11 +49,21 @@ public class DelegatingJournalWriter<E> implements JournalWriter<E> {
     return delegate.append(entry);
   }
 
+  @Override
+  public <T extends E> List<Indexed<T>> append(List<T> entries) {
+    return delegate.append(entries);
+  }
+
   @Override
   public void append(Indexed<E> entry) {
     delegate.append(entry);
   }
 
+  @Override
+  public List<Indexed<E>> appendIndexed(List<Indexed<E>> entries) {
+    return delegate.appendIndexed(entries);
+  }
+
   @Override
   public void truncate(long index) {
     delegate.truncate(index);
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Journal flush policy.
+ * <p>
+ * The flush policy dictates when entries written to a journal are flushed to disk. Size and interval based
+ * policies flush the journal on a background thread, bounding the amount of data that can be lost on failure
+ * without blocking writers.
+ */
+public final class FlushPolicy {
+
+  /**
+   * Flush policy type.
+   */
+  public enum Type {
+
+    /**
+     * Flushes the journal synchronously after every append.
+     */
+    ALWAYS,
+
+    /**
+     * Flushes the journal in the background after every append, without blocking the writer.
+     */
+    ASYNC,
+
+    /**
+     * Flushes the journal in the background each time a number of bytes have been written.
+     */
+    SIZE,
+
+    /**
+     * Flushes the journal in the background at a fixed interval.
+     */
+    INTERVAL,
+
+    /**
+     * Never flushes the journal unless explicitly requested.
+     */
+    NEVER,
+  }
+
+  private static final FlushPolicy ALWAYS = new FlushPolicy(Type.ALWAYS, 0, null);
+  private static final FlushPolicy ASYNC = new FlushPolicy(Type.ASYNC, 0, null);
+  private static final FlushPolicy NEVER = new FlushPolicy(Type.NEVER, 0, null);
+
+  /**
+   * Returns a policy that flushes the journal after every append.
+   *
+   * @return a policy that flushes the journal after every append
+   */
+  public static FlushPolicy always() {
+    return ALWAYS;
+  }
+
+  /**
+   * Returns a policy that flushes the journal in the background after every append.
+   * <p>
+   * Appends return before their entries are flushed, and entries appended while a flush is in progress are flushed
+   * together by the next flush. Writers that require durability wait for it with
+   * {@link SegmentedJournal#awaitDurable(long)}.
+   *
+   * @return a policy that flushes the journal in the background after every append
+   */
+  public static FlushPolicy async() {
+    return ASYNC;
+  }
+
+  /**
+   * Returns a policy that flushes the journal only when explicitly requested.
+   *
+   * @return a policy that flushes the journal only when explicitly requested
+   */
+  public static FlushPolicy never() {
+    return NEVER;
+  }
+
+  /**
+   * Returns a policy that flushes the journal in the background each time the given number of bytes is written.
+   *
+   * @param bytes the number of bytes to write between flushes
+   * @return a size based flush policy
+   * @throws IllegalArgumentException if the number of bytes is not positive
+   */
+  public static FlushPolicy everyBytes(long bytes) {
+    checkArgument(bytes > 0, "bytes must be positive");
+    return new FlushPolicy(Type.SIZE, bytes, null);
+  }
+
+  /**
+   * Returns a policy that flushes the journal in the background at the given interval.
+   *
+   * @param interval the interval at which to flush the journal
+   * @return an interval based flush policy
+   * @throws IllegalArgumentException if the interval is not positive
+   */
+  public static FlushPolicy every(Duration interval) {
+    checkNotNull(interval, "interval cannot be null");
+    checkArgument(!interval.isNegative() && !interval.isZero(), "interval must be positive");
+    return new FlushPolicy(Type.INTERVAL, 0, interval);
+  }
+
+  private final Type type;
+  private final long bytes;
+  private final Duration interval;
+
+  private FlushPolicy(Type type, long bytes, Duration interval) {
+    this.type = type;
+    this.bytes = bytes;
+    this.interval = interval;
+  }
+
+  /**
+   * Returns the flush policy type.
+   *
+   * @return the flush policy type
+   */
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * Returns the number of bytes to write between flushes for {@link Type#SIZE} policies.
+   *
+   * @return the number of bytes to write between flushes
+   */
+  public long bytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the interval at which to flush the journal for {@link Type#INTERVAL} policies.
+   *
+   * @return the interval at which to flush the journal
+   */
+  public Duration interval() {
+    return interval;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, bytes, interval);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof FlushPolicy) {
+      FlushPolicy policy = (FlushPolicy) object;
+      return policy.type == type && policy.bytes == bytes && Objects.equals(policy.interval, interval);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("type", type)
+        .add("bytes", bytes)
+        .add("interval", interval)
+        .omitNullValues()
+        .toString();
+  }
+}
@@ -15,20 +15,49 @@
  */
 package io.atomix.storage.journal;
 
+import io.atomix.utils.serializer.Serializer;
+
 import static com.google.common.base.MoreObjects.toStringHelper;
 
 /**
  * Indexed journal entry.
+ * <p>
+ * Entries read from a journal retain the serialized bytes and checksum with which they were stored and are
+ * only decoded when {@link #entry()} is first called. This allows entries to be copied between journals
+ * (e.g. replicated) without being decoded and re-encoded.
  */
 public class Indexed<E> {
   private final long index;
-  private final E entry;
+  private volatile E entry;
   private final int size;
+  private final byte[] bytes;
+  private final long checksum;
+  private final Serializer serializer;
 
   public Indexed(long index, E entry, int size) {
     this.index = index;
     this.entry = entry;
     this.size = size;
+    this.bytes = null;
+    this.checksum = 0;
+    this.serializer = null;
+  }
+
+  public Indexed(long index, byte[] bytes, long checksum, Serializer serializer) {
+    this.index = index;
+    this.size = bytes.length;
+    this.bytes = bytes;
+    this.checksum = checksum;
+    this.serializer = serializer;
+  }
+
+  public Indexed(long index, E entry, byte[] bytes, long checksum, Serializer serializer) {
+    this.index = index;
+    this.entry = entry;
+    this.size = bytes.length;
+    this.bytes = bytes;
+    this.checksum = checksum;
+    this.serializer = serializer;
   }
 
   /**
@@ -46,6 +75,11 @@ public class Indexed<E> {
    * @return The indexed entry.
    */
   public E entry() {
+    E entry = this.entry;
+    if (entry == null && bytes != null) {
+      entry = serializer.decode(bytes);
+      this.entry = entry;
+    }
     return entry;
   }
 
@@ -58,13 +92,50 @@ public class Indexed<E> {
     return size;
   }
 
+  /**
+   * Returns a boolean indicating whether the entry retains its serialized bytes.
+   *
+   * @return Indicates whether the entry retains its serialized bytes.
+   */
+  public boolean isSerialized() {
+    return bytes != null;
+  }
+
+  /**
+   * Returns the serialized entry bytes.
+   *
+   * @return The serialized entry bytes or {@code null} if the entry was not read from a journal.
+   */
+  public byte[] bytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the stored checksum of the serialized entry bytes.
+   *
+   * @return The stored checksum of the serialized entry bytes.
+   */
+  public long checksum() {
+    return checksum;
+  }
+
+  /**
+   * Returns a copy of the entry that decodes its serialized bytes with the given serializer.
+   *
+   * @param serializer The serializer with which to decode the entry.
+   * @return The indexed entry.
+   */
+  public Indexed<E> withSerializer(Serializer serializer) {
+    return bytes != null ? new Indexed<>(index, bytes, checksum, serializer) : this;
+  }
+
   /**
    * Returns the entry type class.
    *
    * @return The entry class.
    */
   public Class<?> type() {
-    return entry.getClass();
+    return entry().getClass();
   }
 
   /**
@@ -81,7 +152,7 @@ public class Indexed<E> {
   public String toString() {
     return toStringHelper(this)
         .add("index", index)
-        .add("entry", entry)
+        .add("entry", entry())
         .toString();
   }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Algorithm with which journal entries are checksummed.
+ * <p>
+ * The algorithm is recorded in the {@link JournalSegmentDescriptor} of each segment, so a journal may contain
+ * segments written with different algorithms. Segments written before the algorithm was recorded in the descriptor
+ * use {@link #CRC32}. All algorithms produce 32-bit checksums.
+ */
+public enum JournalChecksum {
+
+  /**
+   * CRC-32 as implemented by {@link java.util.zip.CRC32}, which is intrinsified by the JVM on most platforms.
+   */
+  CRC32(1) {
+    @Override
+    public Checksum newChecksum() {
+      return new CRC32();
+    }
+  },
+
+  /**
+   * CRC-32C (Castagnoli) computed with a pure Java table-driven implementation.
+   */
+  CRC32C(2) {
+    @Override
+    public Checksum newChecksum() {
+      return new Crc32c();
+    }
+  },
+
+  /**
+   * 32-bit xxHash computed with a pure Java implementation.
+   */
+  XXHASH32(3) {
+    @Override
+    public Checksum newChecksum() {
+      return new XxHash32();
+    }
+  };
+
+  private final int id;
+
+  JournalChecksum(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the identifier with which the algorithm is recorded in segment descriptors.
+   *
+   * @return the algorithm identifier
+   */
+  int id() {
+    return id;
+  }
+
+  /**
+   * Returns a new checksum instance.
+   * <p>
+   * Checksum instances are not thread safe, but may be reused by calling {@link Checksum#reset()}.
+   *
+   * @return a new checksum instance
+   */
+  public abstract Checksum newChecksum();
+
+  /**
+   * Returns the algorithm for the given identifier.
+   *
+   * @param id the algorithm identifier
+   * @return the checksum algorithm
+   * @throws IllegalArgumentException if the identifier is unknown
+   */
+  static JournalChecksum forId(int id) {
+    for (JournalChecksum checksum : values()) {
+      if (checksum.id == id) {
+        return checksum;
+      }
+    }
+    throw new IllegalArgumentException("Unknown checksum " + id);
+  }
+
+  /**
+   * Updates the given checksum with the remaining bytes of the given buffer, advancing the buffer to its limit.
+   *
+   * @param checksum the checksum to update
+   * @param buffer the buffer with which to update the checksum
+   */
+  static void update(Checksum checksum, ByteBuffer buffer) {
+    if (checksum instanceof CRC32) {
+      ((CRC32) checksum).update(buffer);
+    } else if (buffer.hasArray()) {
+      checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+    } else {
+      ((AbstractChecksum) checksum).updateBuffer(buffer);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.buffer.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.Checksum;
+
+/**
+ * Segmented journal compactor.
+ * <p>
+ * The compactor rewrites the segments preceding a compaction index to retain only the entries accepted by a
+ * predicate, merging sparse neighbouring segments into a single segment where their retained entries fit. The
+ * indexes of removed entries are recorded in the rewritten segment as a skip, which is written in place of an entry
+ * as a negative length followed by the number of skipped indexes. The last entry of each segment is always retained
+ * so that segment boundaries are preserved. Checksums of the retained entries are recomputed with the journal's
+ * checksum algorithm, since the compacted segment is written with the journal's current descriptor version.
+ */
+class JournalCompactor<E> {
+  private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final SegmentedJournal<E> journal;
+  private final Predicate<Indexed<E>> predicate;
+  private final Buffer memory = JournalSegment.MEMORY_ALLOCATOR.allocate();
+  private final Checksum checksum;
+  private final List<JournalSegment<E>> segments = new ArrayList<>();
+  private final List<Indexed<E>> entries = new ArrayList<>();
+  private int size;
+  private boolean cleaned;
+
+  JournalCompactor(SegmentedJournal<E> journal, Predicate<Indexed<E>> predicate) {
+    this.journal = journal;
+    this.predicate = predicate;
+    this.checksum = journal.checksum().newChecksum();
+  }
+
+  /**
+   * Compacts the segments in which all entries precede the given index.
+   *
+   * @param index the index up to which to compact segments
+   */
+  void compact(long index) {
+    int maxSize = journal.maxSegmentSize() - JournalSegmentDescriptor.BYTES;
+    try {
+      for (JournalSegment<E> segment : journal.getCompactableSegments(index)) {
+        List<Indexed<E>> segmentEntries = new ArrayList<>();
+        int segmentSize = 0;
+        boolean segmentCleaned = false;
+
+        // Read the entries still needed from the segment, counting the bytes required to rewrite them.
+        long nextIndex = segment.index();
+        long lastIndex = segment.lastIndex();
+        try (JournalSegmentReader<E> reader = segment.createReader()) {
+          while (reader.hasNext()) {
+            Indexed<E> entry = reader.next();
+            if (entry.index() == lastIndex || predicate.test(entry)) {
+              if (entry.index() > nextIndex) {
+                segmentSize += ENTRY_HEADER_BYTES;
+              }
+              segmentEntries.add(entry);
+              segmentSize += ENTRY_HEADER_BYTES + entry.bytes().length;
+              nextIndex = entry.index() + 1;
+            } else {
+              segmentCleaned = true;
+            }
+          }
+        }
+
+        // If the segment's entries do not fit in the pending segment, rewrite the pending segment first.
+        if (!segments.isEmpty() && size + segmentSize > maxSize) {
+          rewrite();
+        }
+
+        segments.add(segment);
+        entries.addAll(segmentEntries);
+        size += segmentSize;
+        cleaned |= segmentCleaned;
+      }
+
+      if (!segments.isEmpty()) {
+        rewrite();
+      }
+    } finally {
+      memory.close();
+    }
+  }
+
+  /**
+   * Rewrites the pending segments as a single segment if entries were removed or segments can be merged.
+   */
+  private void rewrite() {
+    if (segments.size() > 1 || cleaned) {
+      long nextIndex = segments.get(0).index();
+      memory.clear();
+      for (Indexed<E> entry : entries) {
+        if (entry.index() > nextIndex) {
+          int skip = (int) (entry.index() - nextIndex);
+          memory.writeInt(-skip).writeUnsignedInt(skip);
+        }
+        checksum.reset();
+        checksum.update(entry.bytes(), 0, entry.bytes().length);
+        memory.writeInt(entry.bytes().length)
+            .writeUnsignedInt(checksum.getValue())
+            .write(entry.bytes());
+        nextIndex = entry.index() + 1;
+      }
+
+      JournalSegment<E> segment = journal.createCompactedSegment(segments.get(0).index(), memory);
+      log.debug("Compacted {} segment(s) into {}", segments.size(), segment);
+      journal.replaceSegments(new ArrayList<>(segments), segment);
+    }
+
+    segments.clear();
+    entries.clear();
+    size = 0;
+    cleaned = false;
+  }
+}
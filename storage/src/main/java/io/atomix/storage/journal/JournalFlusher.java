@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.utils.concurrent.Futures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Journal flusher.
+ * <p>
+ * The flusher applies the journal's {@link FlushPolicy} and tracks the index up to which entries are known to
+ * have been flushed to disk. Asynchronous, size and interval based policies flush the journal on a dedicated thread.
+ * Futures waiting on flushed indexes are completed exceptionally if a background flush fails or the flusher is
+ * closed before the index is flushed.
+ */
+class JournalFlusher implements AutoCloseable {
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final SegmentedJournal<?> journal;
+  private final FlushPolicy policy;
+  private final ScheduledExecutorService executor;
+  private final AtomicLong unflushedBytes = new AtomicLong();
+  private final AtomicBoolean flushPending = new AtomicBoolean();
+  private final NavigableMap<Long, CompletableFuture<Void>> futures = new TreeMap<>();
+  private volatile long writtenIndex;
+  private volatile long durableIndex;
+  private boolean closed;
+
+  JournalFlusher(SegmentedJournal<?> journal, FlushPolicy policy, long lastIndex) {
+    this.journal = journal;
+    this.policy = policy;
+    this.writtenIndex = lastIndex;
+    this.durableIndex = lastIndex;
+    if (policy.type() == FlushPolicy.Type.ASYNC || policy.type() == FlushPolicy.Type.SIZE || policy.type() == FlushPolicy.Type.INTERVAL) {
+      this.executor = Executors.newSingleThreadScheduledExecutor(namedThreads("atomix-journal-flusher-" + journal.name() + "-%d", log));
+      if (policy.type() == FlushPolicy.Type.INTERVAL) {
+        long interval = policy.interval().toMillis();
+        executor.scheduleAtFixedRate(this::flushIfNecessary, interval, interval, TimeUnit.MILLISECONDS);
+      }
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Returns the index up to which entries have been flushed to disk.
+   *
+   * @return the index up to which entries have been flushed to disk
+   */
+  long durableIndex() {
+    return durableIndex;
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given index have been flushed to disk.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed once the given index has been flushed
+   */
+  CompletableFuture<Void> awaitDurable(long index) {
+    if (index <= durableIndex) {
+      return CompletableFuture.completedFuture(null);
+    }
+    synchronized (futures) {
+      if (index <= durableIndex) {
+        return CompletableFuture.completedFuture(null);
+      }
+      if (closed) {
+        return Futures.exceptionalFuture(new IllegalStateException("journal not open"));
+      }
+      return futures.computeIfAbsent(index, i -> new CompletableFuture<>());
+    }
+  }
+
+  /**
+   * Records entries appended to the journal, flushing the journal if required by the policy.
+   *
+   * @param index the last index written to the journal
+   * @param bytes the number of bytes written
+   */
+  void appended(long index, long bytes) {
+    writtenIndex = index;
+    switch (policy.type()) {
+      case ALWAYS:
+        flush();
+        break;
+      case ASYNC:
+        scheduleFlush();
+        break;
+      case SIZE:
+        if (unflushedBytes.addAndGet(bytes) >= policy.bytes()) {
+          scheduleFlush();
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Schedules a flush on the flusher thread unless one is already pending.
+   */
+  private void scheduleFlush() {
+    if (flushPending.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        flushPending.set(false);
+        flushIfNecessary();
+      });
+    }
+  }
+
+  /**
+   * Records the journal being truncated to the given index.
+   *
+   * @param index the index to which the journal was truncated
+   */
+  synchronized void truncated(long index) {
+    writtenIndex = index;
+    if (durableIndex > index) {
+      durableIndex = index;
+    }
+  }
+
+  /**
+   * Flushes the journal if entries have been written since the last flush.
+   */
+  private void flushIfNecessary() {
+    if (writtenIndex > durableIndex) {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        log.warn("Failed to flush journal {}", journal.name(), e);
+        failFutures(e);
+      }
+    }
+  }
+
+  /**
+   * Completes all futures waiting on flushed indexes exceptionally.
+   */
+  private void failFutures(Throwable error) {
+    synchronized (futures) {
+      futures.values().forEach(future -> future.completeExceptionally(error));
+      futures.clear();
+    }
+  }
+
+  /**
+   * Flushes all entries written to the journal and completes futures waiting on flushed indexes.
+   */
+  synchronized void flush() {
+    long index = writtenIndex;
+    unflushedBytes.set(0);
+    journal.flush(durableIndex);
+    durableIndex = index;
+
+    synchronized (futures) {
+      Iterator<Map.Entry<Long, CompletableFuture<Void>>> iterator = futures.headMap(index, true).entrySet().iterator();
+      while (iterator.hasNext()) {
+        iterator.next().getValue().complete(null);
+        iterator.remove();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    synchronized (futures) {
+      closed = true;
+    }
+    try {
+      if (policy.type() != FlushPolicy.Type.NEVER && writtenIndex > durableIndex) {
+        flush();
+      }
+    } finally {
+      failFutures(new IllegalStateException("journal not open"));
+    }
+  }
+}
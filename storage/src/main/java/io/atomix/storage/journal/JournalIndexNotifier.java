@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Journal index notifier.
+ * <p>
+ * The notifier tracks an index of a journal, such as the last appended or committed index, and completes futures
+ * waiting for the index to reach a given value, so readers tailing the journal can wait for entries rather than
+ * repeatedly checking for them. Futures waiting for the same index are shared, and are completed with the tracked
+ * index on the thread that advances it, so waiters should not block in callbacks.
+ */
+public class JournalIndexNotifier implements AutoCloseable {
+  private final ConcurrentNavigableMap<Long, CompletableFuture<Long>> futures = new ConcurrentSkipListMap<>();
+  private volatile long index;
+  private volatile boolean open = true;
+
+  public JournalIndexNotifier(long index) {
+    this.index = index;
+  }
+
+  /**
+   * Returns the tracked index.
+   *
+   * @return the tracked index
+   */
+  public long index() {
+    return index;
+  }
+
+  /**
+   * Returns a future to be completed once the tracked index reaches the given index.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the tracked index once it's greater than or equal to the given index
+   */
+  public CompletableFuture<Long> await(long index) {
+    long currentIndex = this.index;
+    if (index <= currentIndex) {
+      return CompletableFuture.completedFuture(currentIndex);
+    }
+
+    CompletableFuture<Long> future = futures.computeIfAbsent(index, i -> new CompletableFuture<>());
+
+    // The index may have been advanced before the future was registered.
+    currentIndex = this.index;
+    if (index <= currentIndex && futures.remove(index, future)) {
+      future.complete(currentIndex);
+    } else if (!open && futures.remove(index, future)) {
+      future.completeExceptionally(new IllegalStateException("journal not open"));
+    }
+    return future;
+  }
+
+  /**
+   * Sets the tracked index, completing futures waiting for indexes up to the given index.
+   * <p>
+   * The index may decrease, for example when a journal is truncated, in which case futures waiting for indexes
+   * greater than the given index continue to wait.
+   *
+   * @param index the tracked index
+   */
+  public void update(long index) {
+    this.index = index;
+    if (futures.isEmpty()) {
+      return;
+    }
+
+    Iterator<Map.Entry<Long, CompletableFuture<Long>>> iterator = futures.headMap(index, true).entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Long, CompletableFuture<Long>> entry = iterator.next();
+      if (futures.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().complete(index);
+      }
+    }
+  }
+
+  /**
+   * Fails all futures that are still waiting.
+   */
+  @Override
+  public void close() {
+    open = false;
+    for (Long index : futures.keySet()) {
+      CompletableFuture<Long> future = futures.remove(index);
+      if (future != null) {
+        future.completeExceptionally(new IllegalStateException("journal not open"));
+      }
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.utils.AtomixIOException;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.serializer.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Checksum;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Journal read-ahead.
+ * <p>
+ * Readers of disk segments read the chunk of the segment following their position on a background thread. Each
+ * chunk is read with a single positional read into a pooled buffer, and the entries in the chunk are verified and
+ * decoded before they are handed to the reader. A reader consuming one chunk has the next chunk read concurrently,
+ * so sequential reads do not block on small reads of the segment file.
+ * <p>
+ * Chunks are only read up to the position the segment had been written to when the read was requested, so the
+ * background thread never reads entries that are concurrently being written. Readers discard chunks they have not
+ * consumed when the journal is truncated.
+ * <p>
+ * Chunk buffers are charged to the journal's memory account while they're in use or pooled.
+ */
+class JournalReadAhead implements AutoCloseable {
+  private static final int MAX_POOLED_BUFFERS = 4;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final int chunkSize;
+  private final MemoryAccount account;
+  private final ExecutorService executor;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledBuffers = new AtomicInteger();
+  private volatile boolean open = true;
+
+  JournalReadAhead(String name, int chunkSize, MemoryAccount account) {
+    this.chunkSize = chunkSize;
+    this.account = account;
+    this.executor = Executors.newSingleThreadExecutor(namedThreads("atomix-journal-read-ahead-" + name + "-%d", log));
+  }
+
+  /**
+   * Returns the maximum number of bytes read in a chunk.
+   *
+   * @return the maximum number of bytes read in a chunk
+   */
+  int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Returns the minimum number of unread bytes for which a chunk is read in the background.
+   * <p>
+   * Readers that trail the writer by less than this read synchronously, since a background read would return
+   * only a few entries.
+   *
+   * @return the minimum number of unread bytes for which to read a chunk
+   */
+  int minReadSize() {
+    return chunkSize / 8;
+  }
+
+  /**
+   * Reads the chunk of a segment beginning at the given position on the read-ahead thread.
+   *
+   * @param channel the segment file channel
+   * @param offset the offset of the segment's entries in the file
+   * @param position the position of the chunk relative to the offset
+   * @param limit the position relative to the offset up to which the segment has been written
+   * @param index the index of the first entry in the chunk
+   * @param checksumType the checksum with which the segment's entries were written
+   * @param serializer the serializer with which to decode entries
+   * @return a future to be completed with the chunk
+   */
+  <E> CompletableFuture<Chunk<E>> read(FileChannel channel, int offset, int position, int limit, long index, JournalChecksum checksumType, Serializer serializer) {
+    if (!open) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.supplyAsync(() -> {
+      ByteBuffer buffer = acquire();
+      try {
+        buffer.clear().limit(Math.min(chunkSize, limit - position));
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, (long) offset + position + buffer.position()) < 0) {
+            break;
+          }
+        }
+        buffer.flip();
+        return parse(buffer, position, index, checksumType, serializer);
+      } catch (IOException e) {
+        throw new AtomixIOException(e);
+      } finally {
+        release(buffer);
+      }
+    }, executor);
+  }
+
+  /**
+   * Parses the entries in a chunk.
+   */
+  private <E> Chunk<E> parse(ByteBuffer buffer, int position, long index, JournalChecksum checksumType, Serializer serializer) {
+    Checksum digest = checksumType.newChecksum();
+    List<Indexed<E>> entries = new ArrayList<>();
+    List<Integer> positions = new ArrayList<>();
+    boolean end = false;
+    while (true) {
+      int entryPosition = buffer.position();
+      long entryIndex = index;
+      if (buffer.remaining() < Integer.BYTES) {
+        break;
+      }
+
+      // Skip the indexes of entries removed by compaction.
+      int length = buffer.getInt();
+      boolean valid = true;
+      while (length < 0) {
+        if (buffer.remaining() < Integer.BYTES * 2) {
+          break;
+        }
+        if ((buffer.getInt() & 0xFFFFFFFFL) != -length) {
+          valid = false;
+          break;
+        }
+        entryIndex -= length;
+        length = buffer.getInt();
+      }
+
+      if (!valid || length == 0) {
+        end = true;
+        break;
+      }
+      if (length < 0 || buffer.remaining() < Integer.BYTES + length) {
+        buffer.position(entryPosition);
+        break;
+      }
+
+      long checksum = buffer.getInt() & 0xFFFFFFFFL;
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      digest.reset();
+      digest.update(bytes, 0, length);
+      if (checksum != digest.getValue()) {
+        end = true;
+        break;
+      }
+
+      Indexed<E> entry = new Indexed<>(entryIndex, bytes, checksum, serializer);
+      try {
+        entry.entry();
+      } catch (Exception e) {
+        // Leave the entry to be decoded by the reader, which will surface the failure.
+      }
+      entries.add(entry);
+      positions.add(position + buffer.position());
+      index = entryIndex + 1;
+    }
+
+    // If no complete entry fit in the chunk, the next entry is larger than a chunk and must be read synchronously.
+    if (entries.isEmpty()) {
+      end = true;
+    }
+    return new Chunk<>(entries, positions, position + buffer.position(), index, end);
+  }
+
+  /**
+   * Acquires a chunk buffer from the pool.
+   */
+  private ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer != null) {
+      pooledBuffers.decrementAndGet();
+      return buffer;
+    }
+    account.reserve(chunkSize);
+    return ByteBuffer.allocateDirect(chunkSize);
+  }
+
+  /**
+   * Releases a chunk buffer to the pool, or releases its memory if the pool is full or the read-ahead is closed.
+   */
+  private void release(ByteBuffer buffer) {
+    if (open) {
+      if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+        buffers.add(buffer);
+
+        // If the read-ahead was closed while the buffer was pooled, release the buffer unless close() released it.
+        if (open || !buffers.remove(buffer)) {
+          return;
+        }
+      }
+      pooledBuffers.decrementAndGet();
+    }
+    account.release(chunkSize);
+  }
+
+  @Override
+  public void close() {
+    open = false;
+    executor.shutdownNow();
+    while (buffers.poll() != null) {
+      pooledBuffers.decrementAndGet();
+      account.release(chunkSize);
+    }
+  }
+
+  /**
+   * Chunk of verified entries read ahead of a reader.
+   */
+  static class Chunk<E> {
+    private final List<Indexed<E>> entries;
+    private final List<Integer> positions;
+    private final int nextPosition;
+    private final long nextIndex;
+    private final boolean end;
+
+    Chunk(List<Indexed<E>> entries, List<Integer> positions, int nextPosition, long nextIndex, boolean end) {
+      this.entries = entries;
+      this.positions = positions;
+      this.nextPosition = nextPosition;
+      this.nextIndex = nextIndex;
+      this.end = end;
+    }
+
+    /**
+     * Returns the entries in the chunk.
+     */
+    List<Indexed<E>> entries() {
+      return entries;
+    }
+
+    /**
+     * Returns the positions following each entry in the chunk.
+     */
+    List<Integer> positions() {
+      return positions;
+    }
+
+    /**
+     * Returns the position following the last complete entry in the chunk.
+     */
+    int nextPosition() {
+      return nextPosition;
+    }
+
+    /**
+     * Returns the index following the last entry in the chunk.
+     */
+    long nextIndex() {
+      return nextIndex;
+    }
+
+    /**
+     * Returns whether the end of the valid entries in the segment was reached.
+     */
+    boolean isEnd() {
+      return end;
+    }
+  }
+}
@@ -15,7 +15,9 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Log reader.
@@ -61,6 +63,23 @@ public interface JournalReader<E> extends Iterator<Indexed<E>>, AutoCloseable {
   @Override
   Indexed<E> next();
 
+  /**
+   * Reads up to the given number of entries that are available to the reader.
+   * <p>
+   * Entries are read until either the given number of entries has been read or no next entry is available, so the
+   * returned batch is contiguous and may be empty.
+   *
+   * @param maxEntries The maximum number of entries to read.
+   * @return The entries read, ordered by index.
+   */
+  default List<Indexed<E>> drain(int maxEntries) {
+    List<Indexed<E>> entries = new ArrayList<>(Math.min(maxEntries, 1024));
+    while (entries.size() < maxEntries && hasNext()) {
+      entries.add(next());
+    }
+    return entries;
+  }
+
   /**
    * Resets the reader to the start.
    */
@@ -15,6 +15,14 @@
  */
 package io.atomix.storage.journal;
 
+import io.atomix.storage.buffer.BufferAllocator;
+import io.atomix.storage.buffer.FileBuffer;
+import io.atomix.storage.buffer.MappedBuffer;
+import io.atomix.storage.buffer.MappedBytes;
+import io.atomix.storage.buffer.SlabAllocator;
+import io.atomix.storage.journal.index.JournalIndex;
+import io.atomix.storage.journal.index.SparseJournalIndex;
+import io.atomix.utils.memory.MemoryAccount;
 import io.atomix.utils.serializer.Serializer;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -26,17 +34,44 @@ import static com.google.common.base.Preconditions.checkState;
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class JournalSegment<E> implements AutoCloseable {
+
+  /**
+   * Allocator shared by segment readers, writers and compactors for the buffers into which entries are read and
+   * encoded, so that opening readers and rolling segments does not allocate new buffers.
+   */
+  static final BufferAllocator MEMORY_ALLOCATOR = SlabAllocator.builder().build();
+
   protected final JournalSegmentFile file;
-  protected final JournalSegmentDescriptor descriptor;
+  protected volatile JournalSegmentDescriptor descriptor;
   protected final Serializer serializer;
-  private final JournalSegmentWriter<E> writer;
+  private final JournalIndex index;
+  private final MappedMemoryBudget budget;
+  private volatile JournalSegmentWriter<E> writer;
+  private int references;
+  private int flushes;
+  private int capacity;
+  private volatile boolean mapped = true;
   private boolean open = true;
 
-  public JournalSegment(JournalSegmentFile file, JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegment(JournalSegmentFile file, JournalSegmentDescriptor descriptor, double indexDensity, Serializer serializer) {
+    this(file, descriptor, indexDensity, serializer, null);
+  }
+
+  public JournalSegment(
+      JournalSegmentFile file,
+      JournalSegmentDescriptor descriptor,
+      double indexDensity,
+      Serializer serializer,
+      MappedMemoryBudget budget) {
     this.file = file;
     this.descriptor = descriptor;
     this.serializer = serializer;
-    this.writer = new JournalSegmentWriter<>(descriptor, serializer);
+    this.index = new SparseJournalIndex(indexDensity);
+    this.budget = budget;
+    this.writer = new JournalSegmentWriter<>(descriptor, index, serializer);
+    if (budget != null) {
+      budget.mapped(this, descriptor.maxSegmentSize());
+    }
   }
 
   /**
@@ -145,8 +180,109 @@ public class JournalSegment<E> implements AutoCloseable {
    * @return A new segment reader.
    */
   JournalSegmentReader<E> createReader() {
+    return createReader(null);
+  }
+
+  /**
+   * Creates a new segment reader that reads entries ahead of its position if the segment is stored on disk.
+   *
+   * @param readAhead the read-ahead with which to read entries, or {@code null} to read entries synchronously
+   * @return A new segment reader.
+   */
+  JournalSegmentReader<E> createReader(JournalReadAhead readAhead) {
     checkOpen();
-    return new JournalSegmentReader<>(descriptor, serializer);
+    acquire();
+    return new JournalSegmentReader<>(this, descriptor, index, serializer, descriptor.buffer() instanceof FileBuffer ? readAhead : null);
+  }
+
+  /**
+   * Acquires a reference to the segment, mapping the segment if it has been unmapped by the memory budget.
+   * <p>
+   * A segment is never unmapped while references to it are held.
+   */
+  void acquire() {
+    boolean remapped;
+    synchronized (this) {
+      remapped = !mapped && open;
+      if (remapped) {
+        map();
+      }
+      references++;
+    }
+
+    // The budget is notified outside the segment lock since the budget locks segments to unmap them.
+    if (budget != null) {
+      if (remapped) {
+        budget.mapped(this, descriptor.maxSegmentSize());
+      } else {
+        budget.touched(this);
+      }
+    }
+  }
+
+  /**
+   * Releases a reference to the segment.
+   */
+  synchronized void release() {
+    references--;
+  }
+
+  /**
+   * Maps the segment file, restoring the writer to the last entry in the segment.
+   * <p>
+   * The mapping is charged to the same memory account as the unmapped buffer.
+   */
+  private void map() {
+    MemoryAccount account = ((MappedBytes) descriptor.buffer().bytes()).account();
+    descriptor = new JournalSegmentDescriptor(account != null
+        ? MappedBuffer.allocate(file.file(), capacity, Integer.MAX_VALUE, account)
+        : MappedBuffer.allocate(file.file(), capacity, Integer.MAX_VALUE));
+    long lastIndex = writer.getLastIndex();
+    writer = new JournalSegmentWriter<>(descriptor, index, serializer, lastIndex);
+    mapped = true;
+  }
+
+  /**
+   * Unmaps the segment if it is not referenced.
+   *
+   * @return indicates whether the segment was unmapped
+   */
+  synchronized boolean unmap() {
+    if (!mapped || !open || references > 0 || flushes > 0) {
+      return false;
+    }
+    capacity = descriptor.buffer().capacity();
+    writer.close();
+    ((MappedBytes) descriptor.buffer().bytes()).unmap();
+    mapped = false;
+    return true;
+  }
+
+  /**
+   * Flushes the segment to disk.
+   * <p>
+   * The writer is flushed outside the segment lock so that readers acquiring the segment are not blocked while the
+   * segment is synced. The segment is neither unmapped nor closed while a flush is in progress.
+   */
+  public void flush() {
+    JournalSegmentWriter<E> writer;
+    synchronized (this) {
+      if (!mapped || !open) {
+        return;
+      }
+      writer = this.writer;
+      flushes++;
+    }
+
+    try {
+      writer.flush();
+    } finally {
+      synchronized (this) {
+        if (--flushes == 0) {
+          notifyAll();
+        }
+      }
+    }
   }
 
   /**
@@ -170,9 +306,27 @@ public class JournalSegment<E> implements AutoCloseable {
    */
   @Override
   public void close() {
-    writer.close();
-    descriptor.close();
-    open = false;
+    synchronized (this) {
+      open = false;
+      boolean interrupted = false;
+      while (flushes > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (mapped) {
+        writer.close();
+        descriptor.close();
+      }
+    }
+    if (budget != null) {
+      budget.closed(this);
+    }
   }
 
   /**
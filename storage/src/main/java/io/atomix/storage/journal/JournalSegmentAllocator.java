@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.utils.AtomixIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Journal segment file allocator.
+ * <p>
+ * The allocator prepares a zeroed spare segment file on a background thread so that rolling over to a new
+ * segment does not have to create and size a file on the writer thread. Files of compacted segments are recycled
+ * as spare files rather than being deleted.
+ */
+class JournalSegmentAllocator implements AutoCloseable {
+  private static final int ZERO_BUFFER_SIZE = 1024 * 64;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final File spareFile;
+  private final int segmentSize;
+  private final ExecutorService executor;
+  private CompletableFuture<Void> spare;
+
+  JournalSegmentAllocator(String name, File directory, int segmentSize) {
+    this.spareFile = JournalSegmentFile.createSpareFile(name, directory);
+    this.segmentSize = segmentSize;
+    this.executor = Executors.newSingleThreadExecutor(namedThreads("atomix-journal-allocator-" + name + "-%d", log));
+
+    // Remove any spare file left behind by a previous instance, since it may not have been fully zeroed.
+    spareFile.delete();
+  }
+
+  /**
+   * Begins preparing a spare segment file if one is not already available.
+   */
+  synchronized void prepare() {
+    if (spare == null) {
+      spare = CompletableFuture.runAsync(this::zero, executor);
+    }
+  }
+
+  /**
+   * Moves a prepared spare segment file to the given file.
+   * <p>
+   * If no spare file is ready, this method returns {@code false} and the caller should create the file.
+   *
+   * @param file the segment file to allocate
+   * @return indicates whether a spare file was moved to the given file
+   */
+  synchronized boolean allocate(File file) {
+    if (spare == null || !spare.isDone()) {
+      prepare();
+      return false;
+    }
+
+    boolean allocated = false;
+    if (!spare.isCompletedExceptionally()) {
+      try {
+        Files.move(spareFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        allocated = true;
+      } catch (IOException e) {
+        log.warn("Failed to allocate segment file {}", file, e);
+      }
+    }
+    spare = null;
+    prepare();
+    return allocated;
+  }
+
+  /**
+   * Recycles the given segment file as the spare segment file.
+   * <p>
+   * If a spare file is already available, this method returns {@code false} and the caller should delete the file.
+   *
+   * @param file the segment file to recycle
+   * @return indicates whether the file was recycled
+   */
+  synchronized boolean recycle(File file) {
+    if (spare != null && !spare.isCompletedExceptionally()) {
+      return false;
+    }
+
+    try {
+      Files.move(file.toPath(), spareFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Failed to recycle segment file {}", file, e);
+      return false;
+    }
+    spare = CompletableFuture.runAsync(this::zero, executor);
+    return true;
+  }
+
+  /**
+   * Zeroes the spare segment file, extending it to the segment size if necessary.
+   */
+  private void zero() {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(spareFile, "rw")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      long length = Math.max(randomAccessFile.length(), segmentSize);
+      ByteBuffer zeros = ByteBuffer.allocate(ZERO_BUFFER_SIZE);
+      long position = 0;
+      while (position < length) {
+        zeros.clear().limit((int) Math.min(ZERO_BUFFER_SIZE, length - position));
+        position += channel.write(zeros, position);
+      }
+      channel.force(true);
+    } catch (ClosedByInterruptException e) {
+      throw new AtomixIOException(e);
+    } catch (IOException e) {
+      log.warn("Failed to prepare spare segment file {}", spareFile, e);
+      throw new AtomixIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    executor.shutdownNow();
+    spareFile.delete();
+  }
+}
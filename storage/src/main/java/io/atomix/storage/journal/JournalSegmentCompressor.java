@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageLevel;
+
+import java.util.List;
+
+/**
+ * Journal segment compressor for the {@link StorageLevel#DISK} storage level.
+ * <p>
+ * Sealed segments are rewritten in compressed blocks on a background thread. The current segment is never compressed,
+ * and compressed copies that are not swapped into the journal are deleted.
+ */
+class JournalSegmentCompressor<E> extends JournalSegmentReplacer<E> {
+  private final int blockSize;
+
+  JournalSegmentCompressor(SegmentedJournal<E> journal, int blockSize) {
+    super(journal, "compressor");
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Writes compressed copies of sealed segments that are not yet compressed.
+   */
+  @Override
+  void prepare() {
+    List<JournalSegment<E>> segments = journal.getSegments();
+    for (int i = 0; i < segments.size() - 1 && isOpen(); i++) {
+      JournalSegment<E> segment = segments.get(i);
+      if (!segment.descriptor().isCompressed() && !isPrepared(segment) && segment.isOpen()) {
+        replace(segment, () -> journal.compressSegment(segment, blockSize));
+      }
+    }
+  }
+
+  @Override
+  boolean swap(JournalSegment<E> segment, JournalSegment<E> compressedSegment) {
+    return journal.replaceCompressedSegment(segment, compressedSegment);
+  }
+
+  @Override
+  void release(JournalSegment<E> compressedSegment) {
+    compressedSegment.delete();
+  }
+}
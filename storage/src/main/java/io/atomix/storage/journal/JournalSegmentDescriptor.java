@@ -49,6 +49,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <li>{@code locked} (8-bit boolean) - A boolean indicating whether the segment is locked. Segments will be locked once
  * all entries have been committed to the segment. The lock state of each segment is used to determine log compaction
  * and recovery behavior.</li>
+ * <li>{@code compressed} (8-bit boolean) - A boolean indicating whether the entries following the descriptor are stored
+ * in compressed blocks. Sealed segments may be rewritten in compressed form, in which case the descriptor itself is
+ * still stored uncompressed.</li>
+ * <li>{@code checksum} (8-bit signed integer) - The identifier of the {@link JournalChecksum} algorithm with which the
+ * segment's entries are checksummed. Segments of version {@code 1} do not store the algorithm and are checksummed
+ * with {@link JournalChecksum#CRC32}.</li>
  * </ul>
  * The remainder of the 64 segment header bytes are reserved for future metadata.
  *
@@ -59,7 +65,7 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
 
   // Current segment version.
   @VisibleForTesting
-  static final int VERSION = 1;
+  static final int VERSION = 2;
 
   // The lengths of each field in the header.
   private static final int VERSION_LENGTH = Bytes.INTEGER;     // 32-bit signed integer
@@ -68,6 +74,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private static final int MAX_SIZE_LENGTH = Bytes.INTEGER;    // 32-bit signed integer
   private static final int MAX_ENTRIES_LENGTH = Bytes.INTEGER; // 32-bit signed integer
   private static final int UPDATED_LENGTH = Bytes.LONG;        // 64-bit signed integer
+  private static final int LOCKED_LENGTH = Bytes.BOOLEAN;      // 8-bit boolean
+  private static final int COMPRESSED_LENGTH = Bytes.BOOLEAN;  // 8-bit boolean
 
   // The positions of each field in the header.
   private static final int VERSION_POSITION = 0;                                         // 0
@@ -76,6 +84,9 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private static final int MAX_SIZE_POSITION = INDEX_POSITION + INDEX_LENGTH;            // 20
   private static final int MAX_ENTRIES_POSITION = MAX_SIZE_POSITION + MAX_SIZE_LENGTH;   // 24
   private static final int UPDATED_POSITION = MAX_ENTRIES_POSITION + MAX_ENTRIES_LENGTH; // 28
+  private static final int LOCKED_POSITION = UPDATED_POSITION + UPDATED_LENGTH;          // 36
+  static final int COMPRESSED_POSITION = LOCKED_POSITION + LOCKED_LENGTH;                // 37
+  private static final int CHECKSUM_POSITION = COMPRESSED_POSITION + COMPRESSED_LENGTH;  // 38
 
   /**
    * Returns a descriptor builder.
@@ -107,6 +118,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private final int maxEntries;
   private volatile long updated;
   private volatile boolean locked;
+  private final boolean compressed;
+  private final JournalChecksum checksum;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
@@ -120,6 +133,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
     this.maxEntries = buffer.readInt();
     this.updated = buffer.readLong();
     this.locked = buffer.readBoolean();
+    this.compressed = buffer.readBoolean();
+    this.checksum = version > 1 ? JournalChecksum.forId(buffer.readByte()) : JournalChecksum.CRC32;
     buffer.skip(BYTES - buffer.position()); // 64 bytes reserved for the header
   }
 
@@ -198,6 +213,26 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
     return updated;
   }
 
+  /**
+   * Returns whether the segment's entries are stored in compressed blocks.
+   * <p>
+   * Only sealed segments are compressed. Compressed segments are read-only.
+   *
+   * @return Whether the segment is compressed.
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Returns the algorithm with which the segment's entries are checksummed.
+   *
+   * @return The segment's checksum algorithm.
+   */
+  public JournalChecksum checksum() {
+    return checksum;
+  }
+
   /**
    * Writes an update to the descriptor.
    */
@@ -220,7 +255,11 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
         .writeInt(maxEntries)
         .writeLong(updated)
         .writeBoolean(locked)
-        .skip(BYTES - buffer.position())
+        .writeBoolean(compressed);
+    if (version > 1) {
+      buffer.writeByte(checksum.id());
+    }
+    buffer.skip(BYTES - buffer.position())
         .flush();
     return this;
   }
@@ -238,6 +277,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
       ((FileBuffer) buffer).delete();
     } else if (buffer instanceof MappedBuffer) {
       ((MappedBuffer) buffer).delete();
+    } else if (buffer instanceof CompressedSegmentBuffer) {
+      ((CompressedSegmentBuffer) buffer).delete();
     }
   }
 
@@ -248,6 +289,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
         .add("id", id)
         .add("index", index)
         .add("updated", updated)
+        .add("compressed", compressed)
+        .add("checksum", checksum)
         .toString();
   }
 
@@ -259,7 +302,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
 
     private Builder(Buffer buffer) {
       this.buffer = checkNotNull(buffer, "buffer cannot be null")
-          .writeInt(VERSION_POSITION, VERSION);
+          .writeInt(VERSION_POSITION, VERSION)
+          .writeByte(CHECKSUM_POSITION, JournalChecksum.CRC32.id());
     }
 
     /**
@@ -306,6 +350,17 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the algorithm with which the segment's entries are checksummed.
+     *
+     * @param checksum The checksum algorithm.
+     * @return The segment descriptor builder.
+     */
+    public Builder withChecksum(JournalChecksum checksum) {
+      buffer.writeByte(CHECKSUM_POSITION, checkNotNull(checksum, "checksum cannot be null").id());
+      return this;
+    }
+
     /**
      * Builds the segment descriptor.
      *
@@ -28,6 +28,8 @@ public final class JournalSegmentFile {
   private static final char PART_SEPARATOR = '-';
   private static final char EXTENSION_SEPARATOR = '.';
   private static final String EXTENSION = "log";
+  private static final String COMPACT_EXTENSION = "compact";
+  private static final String COMPRESS_EXTENSION = "compress";
   private final File file;
 
   /**
@@ -76,6 +78,48 @@ public final class JournalSegmentFile {
     return new File(directory, String.format("%s-%d.log", checkNotNull(name, "name cannot be null"), id));
   }
 
+  /**
+   * Returns a boolean value indicating whether the given file appears to be an incomplete compacted segment file.
+   *
+   * @param journalName the name of the journal
+   * @param file the file to check
+   */
+  static boolean isCompactFile(String journalName, File file) {
+    return file.getName().startsWith(journalName) && file.getName().endsWith(COMPACT_EXTENSION);
+  }
+
+  /**
+   * Creates a temporary file to which a compacted segment with the given segment ID is written.
+   */
+  static File createCompactFile(String name, File directory, long id) {
+    return new File(directory, String.format("%s-%d.%s.%s", checkNotNull(name, "name cannot be null"), id, EXTENSION, COMPACT_EXTENSION));
+  }
+
+  /**
+   * Returns a boolean value indicating whether the given file appears to be an incomplete compressed segment file.
+   *
+   * @param journalName the name of the journal
+   * @param file the file to check
+   */
+  static boolean isCompressFile(String journalName, File file) {
+    return file.getName().startsWith(journalName) && file.getName().endsWith(COMPRESS_EXTENSION);
+  }
+
+  /**
+   * Creates a temporary file to which the segment with the given segment ID is written when it is compressed or
+   * decompressed.
+   */
+  static File createCompressFile(String name, File directory, long id) {
+    return new File(directory, String.format("%s-%d.%s.%s", checkNotNull(name, "name cannot be null"), id, EXTENSION, COMPRESS_EXTENSION));
+  }
+
+  /**
+   * Creates a spare segment file for the given directory and log name.
+   */
+  static File createSpareFile(String name, File directory) {
+    return new File(directory, String.format("%s-spare.tmp", checkNotNull(name, "name cannot be null")));
+  }
+
   /**
    * @throws IllegalArgumentException if {@code file} is not a valid segment file
    */
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageLevel;
+
+import java.util.List;
+
+/**
+ * Journal segment migrator for the {@link StorageLevel#TIERED} storage level.
+ * <p>
+ * The most recent segments whose combined size fits within the journal's tiered memory budget are kept as memory
+ * mapped segments, and older segments are migrated to disk segments. Both tiers share the same segment files, so a
+ * migration only reopens a segment through a different buffer.
+ */
+class JournalSegmentMigrator<E> extends JournalSegmentReplacer<E> {
+  private final long memoryBudget;
+
+  JournalSegmentMigrator(SegmentedJournal<E> journal, long memoryBudget) {
+    super(journal, "migrator");
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Migrates segments to their tiers synchronously.
+   */
+  void migrate() {
+    prepare();
+    apply();
+  }
+
+  /**
+   * Opens replacement segments for segments that are stored in the wrong tier.
+   */
+  @Override
+  void prepare() {
+    List<JournalSegment<E>> segments = journal.getSegments();
+    long size = 0;
+    for (int i = segments.size() - 1; i >= 0 && isOpen(); i--) {
+      JournalSegment<E> segment = segments.get(i);
+      size += segment.size();
+      boolean hot = i == segments.size() - 1 || size <= memoryBudget;
+      if (hot != journal.isMapped(segment) && !isPrepared(segment)) {
+        replace(segment, () -> journal.loadSegment(segment.id(), hot ? StorageLevel.MAPPED : StorageLevel.DISK));
+      }
+    }
+  }
+
+  @Override
+  boolean swap(JournalSegment<E> segment, JournalSegment<E> migratedSegment) {
+    return journal.migrateSegment(segment, migratedSegment);
+  }
+
+  @Override
+  void release(JournalSegment<E> migratedSegment) {
+    migratedSegment.close();
+  }
+}
@@ -15,13 +15,21 @@
  */
 package io.atomix.storage.journal;
 
+import io.atomix.storage.journal.index.JournalIndex;
+import io.atomix.storage.journal.index.Position;
 import io.atomix.utils.serializer.Serializer;
 import io.atomix.storage.buffer.Buffer;
-import io.atomix.storage.buffer.HeapBuffer;
 
+import java.io.IOException;
 import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.NoSuchElementException;
-import java.util.zip.CRC32;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.zip.Checksum;
 
 /**
@@ -30,17 +38,37 @@ import java.util.zip.Checksum;
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class JournalSegmentReader<E> implements JournalReader<E> {
+  private final JournalSegment<E> segment;
   private final Buffer buffer;
+  private final JournalIndex index;
   private final Serializer serializer;
-  private final HeapBuffer memory = HeapBuffer.allocate();
+  private final Buffer memory = JournalSegment.MEMORY_ALLOCATOR.allocate();
+  private final JournalChecksum checksumType;
+  private final Checksum checksum;
   private final long firstIndex;
+  private final JournalReadAhead readAhead;
+  private final Deque<Indexed<E>> prefetchedEntries = new ArrayDeque<>();
+  private final Deque<Integer> prefetchedPositions = new ArrayDeque<>();
+  private FileChannel channel;
+  private CompletableFuture<JournalReadAhead.Chunk<E>> prefetch;
+  private int prefetchPosition;
+  private int prefetchEndPosition = -1;
   private Indexed<E> currentEntry;
   private Indexed<E> nextEntry;
 
-  public JournalSegmentReader(JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegmentReader(JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer) {
+    this(null, descriptor, index, serializer, null);
+  }
+
+  JournalSegmentReader(JournalSegment<E> segment, JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer, JournalReadAhead readAhead) {
+    this.segment = segment;
     this.buffer = descriptor.buffer().slice().duplicate();
+    this.index = index;
     this.serializer = serializer;
+    this.checksumType = descriptor.checksum();
+    this.checksum = checksumType.newChecksum();
     this.firstIndex = descriptor.index();
+    this.readAhead = segment != null ? readAhead : null;
     readNext();
   }
 
@@ -56,19 +84,37 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
 
   @Override
   public long getNextIndex() {
+    if (nextEntry != null) {
+      return nextEntry.index();
+    }
     return currentEntry != null ? currentEntry.index() + 1 : firstIndex;
   }
 
   @Override
   public void reset(long index) {
     reset();
-    while (getNextIndex() < index && hasNext()) {
+
+    // If the index has a position preceding the given index, skip directly to that position.
+    Position position = this.index.lookup(index - 1);
+    if (position != null) {
+      invalidate();
+      buffer.position(position.position());
+      readNext(position.index());
+
+      // If the indexed entry could not be read, fall back to scanning from the start of the segment.
+      if (nextEntry == null) {
+        reset();
+      }
+    }
+
+    while (hasNext() && getNextIndex() < index) {
       next();
     }
   }
 
   @Override
   public void reset() {
+    invalidate();
     buffer.clear();
     currentEntry = null;
     nextEntry = null;
@@ -103,20 +149,58 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
     return currentEntry;
   }
 
+  /**
+   * Reads the entry at the given position in the segment, leaving the reader positioned after the entry.
+   *
+   * @param position the position of the entry in the segment
+   * @param index the index of the entry
+   * @return the entry, or {@code null} if no valid entry is stored at the given position
+   */
+  Indexed<E> read(int position, long index) {
+    invalidate();
+    buffer.position(position);
+    currentEntry = null;
+    nextEntry = null;
+    readNext(index);
+    currentEntry = nextEntry;
+    nextEntry = null;
+    return currentEntry;
+  }
+
   /**
    * Reads the next entry in the segment.
    */
-  @SuppressWarnings("unchecked")
   private void readNext() {
-    // Compute the index of the next entry in the segment.
-    final long index = getNextIndex();
+    readNext(currentEntry != null ? currentEntry.index() + 1 : firstIndex);
+  }
+
+  /**
+   * Reads the entry at the current buffer position as the given index.
+   */
+  @SuppressWarnings("unchecked")
+  private void readNext(long index) {
+    // If the entry has been read ahead, take it from the prefetched entries.
+    if (readAhead != null && readPrefetched(index)) {
+      return;
+    }
 
     // Mark the buffer so it can be reset if necessary.
     buffer.mark();
 
     try {
       // Read the length of the entry.
-      final int length = buffer.readInt();
+      int length = buffer.readInt();
+
+      // If the length is negative, skip the indexes of entries removed by compaction.
+      while (length < 0) {
+        if (buffer.readUnsignedInt() != -length) {
+          buffer.reset();
+          nextEntry = null;
+          return;
+        }
+        index -= length;
+        length = buffer.readInt();
+      }
 
       // If the buffer length is zero then return.
       if (length == 0) {
@@ -133,13 +217,18 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
       memory.flip();
 
       // Compute the checksum for the entry bytes.
-      final Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), 0, length);
+      this.checksum.reset();
+      this.checksum.update(memory.array(), 0, length);
+
+      // If the stored checksum equals the computed checksum, return the entry. The entry retains a copy
+      // of its serialized bytes and is decoded only when it is accessed.
+      if (checksum == this.checksum.getValue()) {
+        nextEntry = new Indexed<>(index, Arrays.copyOf(memory.array(), length), checksum, serializer);
 
-      // If the stored checksum equals the computed checksum, return the entry.
-      if (checksum == crc32.getValue()) {
-        E entry = serializer.decode(memory.array());
-        nextEntry = new Indexed<>(index, entry, length);
+        // Begin reading the entries following this entry ahead of the reader.
+        if (readAhead != null) {
+          prefetch(buffer.position(), index + 1);
+        }
       } else {
         buffer.reset();
         nextEntry = null;
@@ -150,9 +239,118 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
     }
   }
 
+  /**
+   * Takes the entry at the given index from the entries read ahead of the reader.
+   *
+   * @return indicates whether the entry had been read ahead
+   */
+  private boolean readPrefetched(long index) {
+    while (true) {
+      // Discard entries that were read synchronously while the chunk was being read.
+      while (!prefetchedEntries.isEmpty() && prefetchedEntries.peekFirst().index() < index) {
+        prefetchedEntries.pollFirst();
+        prefetchedPositions.pollFirst();
+      }
+
+      if (!prefetchedEntries.isEmpty()) {
+        if (prefetchedEntries.peekFirst().index() != index) {
+          invalidate();
+          return false;
+        }
+        nextEntry = prefetchedEntries.pollFirst();
+        buffer.position(prefetchedPositions.pollFirst());
+        return true;
+      }
+
+      // If a chunk is being read from the reader's position, wait for it rather than reading synchronously.
+      if (prefetch == null || (!prefetch.isDone() && prefetchPosition != buffer.position())) {
+        return false;
+      }
+      if (!acceptPrefetch()) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Accepts the chunk being read ahead of the reader and begins reading the following chunk.
+   *
+   * @return indicates whether the chunk contained entries
+   */
+  private boolean acceptPrefetch() {
+    JournalReadAhead.Chunk<E> chunk;
+    try {
+      chunk = prefetch.join();
+    } catch (CompletionException e) {
+      chunk = null;
+    }
+    prefetch = null;
+
+    if (chunk == null || chunk.entries().isEmpty()) {
+      prefetchEndPosition = chunk != null ? chunk.nextPosition() : buffer.position();
+      return false;
+    }
+
+    prefetchedEntries.addAll(chunk.entries());
+    prefetchedPositions.addAll(chunk.positions());
+    if (chunk.isEnd()) {
+      prefetchEndPosition = chunk.nextPosition();
+    } else {
+      prefetch(chunk.nextPosition(), chunk.nextIndex());
+    }
+    return true;
+  }
+
+  /**
+   * Begins reading the chunk at the given position if enough of the segment has been written to fill a chunk.
+   */
+  private void prefetch(int position, long index) {
+    if (prefetch != null || position == prefetchEndPosition) {
+      return;
+    }
+
+    int limit = (int) (segment.size() - buffer.offset());
+    if (limit - position < readAhead.minReadSize()) {
+      return;
+    }
+
+    try {
+      if (channel == null) {
+        channel = FileChannel.open(segment.file().file().toPath(), StandardOpenOption.READ);
+      }
+    } catch (IOException e) {
+      return;
+    }
+    prefetchPosition = position;
+    prefetchEndPosition = -1;
+    prefetch = readAhead.read(channel, buffer.offset(), position, limit, index, checksumType, serializer);
+  }
+
+  /**
+   * Discards entries read ahead of the reader.
+   * <p>
+   * This must be called when entries following the reader's position may have been overwritten.
+   */
+  void invalidate() {
+    prefetchedEntries.clear();
+    prefetchedPositions.clear();
+    prefetch = null;
+    prefetchEndPosition = -1;
+  }
+
   @Override
   public void close() {
+    invalidate();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+      }
+    }
     memory.close();
     buffer.close();
+    if (segment != null) {
+      segment.release();
+    }
   }
 }
\ No newline at end of file
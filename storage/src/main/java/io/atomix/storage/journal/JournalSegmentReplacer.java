@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Base class for rewriting journal segments in the background.
+ * <p>
+ * Replacement segments are prepared on a background thread and swapped into the journal when the next segment is
+ * rolled, so segments are only replaced from the thread that writes to the journal. Truncating the journal discards
+ * replacements of the truncated segments, since a replacement prepared before the truncation does not reflect the
+ * truncated segment.
+ */
+abstract class JournalSegmentReplacer<E> implements AutoCloseable {
+  protected final Logger log = LoggerFactory.getLogger(getClass());
+  protected final SegmentedJournal<E> journal;
+  private final ExecutorService executor;
+  private final Map<JournalSegment<E>, JournalSegment<E>> replacements = new ConcurrentHashMap<>();
+  private final AtomicBoolean preparing = new AtomicBoolean();
+  private long truncations;
+  private volatile boolean open = true;
+
+  JournalSegmentReplacer(SegmentedJournal<E> journal, String type) {
+    this.journal = journal;
+    this.executor = Executors.newSingleThreadExecutor(namedThreads("atomix-journal-" + type + "-" + journal.name() + "-%d", log));
+  }
+
+  /**
+   * Applies prepared replacements and begins preparing replacements on the background thread.
+   * <p>
+   * This method is called when the journal rolls over to a new segment.
+   */
+  void rolled() {
+    apply();
+    if (preparing.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        try {
+          prepare();
+        } catch (Exception e) {
+          log.warn("Failed to prepare journal segment replacements", e);
+        } finally {
+          preparing.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Discards replacements of segments containing entries at or after the given index.
+   * <p>
+   * This method is called when the tail of the journal is truncated.
+   *
+   * @param index the first index removed from the journal
+   */
+  synchronized void truncated(long index) {
+    truncations++;
+    for (Map.Entry<JournalSegment<E>, JournalSegment<E>> replacement : replacements.entrySet()) {
+      if (replacement.getValue().lastIndex() >= index && replacements.remove(replacement.getKey(), replacement.getValue())) {
+        release(replacement.getValue());
+      }
+    }
+  }
+
+  /**
+   * Discards all replacements that have not been swapped into the journal.
+   * <p>
+   * This method is called when the journal is reset, which replaces all of its segments.
+   */
+  synchronized void reset() {
+    truncations++;
+    discard();
+  }
+
+  /**
+   * Prepares replacements for the journal's segments by calling {@link #replace(JournalSegment, Supplier)}.
+   */
+  abstract void prepare();
+
+  /**
+   * Swaps a replacement segment into the journal.
+   *
+   * @param segment the segment to replace
+   * @param replacement the replacement segment
+   * @return whether the segment was replaced
+   */
+  abstract boolean swap(JournalSegment<E> segment, JournalSegment<E> replacement);
+
+  /**
+   * Releases a replacement segment that will not be swapped into the journal.
+   *
+   * @param replacement the replacement segment
+   */
+  abstract void release(JournalSegment<E> replacement);
+
+  /**
+   * Returns a boolean indicating whether the replacer is open.
+   */
+  boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Returns a boolean indicating whether a replacement has been prepared for the given segment.
+   */
+  boolean isPrepared(JournalSegment<E> segment) {
+    return replacements.containsKey(segment);
+  }
+
+  /**
+   * Prepares a replacement for the given segment.
+   * <p>
+   * The replacement is discarded if the journal was truncated or the replacer was closed while it was written.
+   *
+   * @param segment the segment to replace
+   * @param transform the function writing the replacement segment
+   */
+  void replace(JournalSegment<E> segment, Supplier<JournalSegment<E>> transform) {
+    long truncations;
+    synchronized (this) {
+      truncations = this.truncations;
+    }
+
+    // Segments may be deleted by compaction while they're being rewritten.
+    JournalSegment<E> replacement;
+    try {
+      replacement = transform.get();
+    } catch (StorageException e) {
+      if (segment.isOpen()) {
+        throw e;
+      }
+      return;
+    }
+
+    synchronized (this) {
+      if (open && truncations == this.truncations) {
+        log.trace("Prepared replacement of segment {}", segment);
+        replacements.put(segment, replacement);
+        return;
+      }
+    }
+    release(replacement);
+  }
+
+  /**
+   * Swaps prepared replacement segments into the journal.
+   */
+  void apply() {
+    for (Map.Entry<JournalSegment<E>, JournalSegment<E>> replacement : replacements.entrySet()) {
+      if (replacements.remove(replacement.getKey(), replacement.getValue()) && !swap(replacement.getKey(), replacement.getValue())) {
+        release(replacement.getValue());
+      }
+    }
+  }
+
+  /**
+   * Releases replacement segments that have not been swapped into the journal.
+   */
+  private synchronized void discard() {
+    for (JournalSegment<E> segment : replacements.keySet()) {
+      JournalSegment<E> replacement = replacements.remove(segment);
+      if (replacement != null) {
+        release(replacement);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      open = false;
+    }
+    executor.shutdownNow();
+    discard();
+  }
+}
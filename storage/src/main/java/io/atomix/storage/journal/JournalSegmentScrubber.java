@@ -0,0 +1,302 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.buffer.HeapBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Journal segment scrubber.
+ * <p>
+ * The scrubber re-verifies the framing and checksums of the entries in sealed segments by reading the segment files
+ * independently of the journal's readers, so corruption in segments that are no longer read is found before a lagging
+ * reader needs them. When a scrub rate is configured, sealed segments are verified on a low priority background
+ * thread at most at the given number of bytes per second. A segment is only reported as corrupt if it's still sealed
+ * and fails verification a second time, since segments may be compacted, compressed or truncated while they're read.
+ * Corrupt segments are reported but left in place, as a follower may still be able to recover the missing entries
+ * from the leader.
+ */
+class JournalSegmentScrubber<E> implements AutoCloseable {
+  private static final long SCRUB_INTERVAL = 1000 * 60 * 10;
+  private static final int CHUNK_SIZE = 1024 * 64;
+  private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final SegmentedJournal<E> journal;
+  private final int rate;
+  private final ScheduledExecutorService executor;
+  private final Map<Long, JournalSegment<E>> corruptSegments = new ConcurrentSkipListMap<>();
+  private volatile boolean open = true;
+
+  JournalSegmentScrubber(SegmentedJournal<E> journal, int rate) {
+    this.journal = journal;
+    this.rate = rate;
+    if (rate > 0) {
+      this.executor = Executors.newSingleThreadScheduledExecutor(namedThreads("atomix-journal-scrubber-" + journal.name() + "-%d", log));
+      executor.scheduleWithFixedDelay(this::scrubInBackground, SCRUB_INTERVAL, SCRUB_INTERVAL, TimeUnit.MILLISECONDS);
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Returns the segments that have been found to be corrupt and are still in the journal.
+   *
+   * @return the corrupt segments ordered by index
+   */
+  List<JournalSegment<E>> corruptSegments() {
+    corruptSegments.values().removeIf(segment -> !segment.isOpen());
+    return new ArrayList<>(corruptSegments.values());
+  }
+
+  /**
+   * Verifies the sealed segments on the background thread.
+   */
+  private void scrubInBackground() {
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    try {
+      scrub(rate);
+    } catch (Exception e) {
+      log.warn("Failed to scrub journal segments", e);
+    }
+  }
+
+  /**
+   * Verifies the sealed segments.
+   *
+   * @param rate the maximum number of bytes to read per second, or {@code 0} to read segments unthrottled
+   * @return the segments found to be corrupt
+   */
+  List<JournalSegment<E>> scrub(int rate) {
+    List<JournalSegment<E>> corrupt = new ArrayList<>();
+    List<JournalSegment<E>> segments = journal.getSegments();
+    for (int i = 0; i < segments.size() - 1 && open; i++) {
+      JournalSegment<E> segment = segments.get(i);
+      long lastIndex = segments.get(i + 1).index() - 1;
+      if (verify(segment, lastIndex, rate) == null || !isSealed(segment, lastIndex)) {
+        continue;
+      }
+
+      String error = verify(segment, lastIndex, rate);
+      if (error != null && isSealed(segment, lastIndex)) {
+        log.error("Detected corruption in segment {}: {}", segment, error);
+        corruptSegments.put(segment.index(), segment);
+        corrupt.add(segment);
+      }
+    }
+    log.debug("Scrubbed {} segment(s)", Math.max(segments.size() - 1, 0));
+    return corrupt;
+  }
+
+  /**
+   * Returns whether the given segment is still sealed with the given last index.
+   */
+  private boolean isSealed(JournalSegment<E> segment, long lastIndex) {
+    List<JournalSegment<E>> segments = journal.getSegments();
+    int i = segments.indexOf(segment);
+    return open && segment.isOpen() && i >= 0 && i < segments.size() - 1 && segments.get(i + 1).index() == lastIndex + 1;
+  }
+
+  /**
+   * Verifies the entries of the given segment up to the given last index.
+   *
+   * @return a description of the corruption, or {@code null} if the segment could be verified
+   */
+  private String verify(JournalSegment<E> segment, long lastIndex, int rate) {
+    File file = segment.file().file();
+    if (!file.exists()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      byte[] header = new byte[JournalSegmentDescriptor.BYTES];
+      readFully(channel, ByteBuffer.wrap(header), 0);
+      JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(HeapBuffer.wrap(header));
+      if (descriptor.index() != segment.index()) {
+        return null;
+      }
+
+      // Compressed segments are verified through their uncompressed bytes.
+      if (descriptor.isCompressed()) {
+        CompressedSegmentBytes bytes = CompressedSegmentBytes.open(file);
+        try {
+          return verify(descriptor, bytes.size(), (position, buffer, offset, length) -> bytes.read(position, buffer, offset, length), lastIndex, rate);
+        } finally {
+          bytes.close();
+        }
+      }
+
+      int size = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+      return verify(descriptor, size, (position, buffer, offset, length) -> readFully(channel, ByteBuffer.wrap(buffer, offset, length), position), lastIndex, rate);
+    } catch (IOException | StorageException e) {
+      // Segments may be deleted or replaced while they're being verified.
+      if (!open || !segment.isOpen()) {
+        return null;
+      }
+      return "failed to read segment: " + e;
+    }
+  }
+
+  /**
+   * Verifies the entries read by the given reader up to the given last index.
+   */
+  private String verify(JournalSegmentDescriptor descriptor, int size, SegmentReader reader, long lastIndex, int rate) throws IOException {
+    Checksum checksum = descriptor.checksum().newChecksum();
+    Chunk chunk = new Chunk(reader, size, rate);
+    int position = JournalSegmentDescriptor.BYTES;
+    long index = descriptor.index();
+    while (index <= lastIndex) {
+      if (size - position < ENTRY_HEADER_BYTES) {
+        return String.format("entry %d at position %d is truncated", index, position);
+      }
+
+      // Skip the indexes of entries removed by compaction.
+      int length = chunk.readInt(position);
+      if (length < 0) {
+        if ((chunk.readInt(position + Integer.BYTES) & 0xFFFFFFFFL) != -length) {
+          return String.format("entry %d at position %d has an invalid skip", index, position);
+        }
+        index -= length;
+        position += ENTRY_HEADER_BYTES;
+        continue;
+      }
+
+      if (length == 0 || length > size - position - ENTRY_HEADER_BYTES) {
+        return String.format("entry %d at position %d has an invalid length %d", index, position, length);
+      }
+
+      long expected = chunk.readInt(position + Integer.BYTES) & 0xFFFFFFFFL;
+      checksum.reset();
+      chunk.update(checksum, position + ENTRY_HEADER_BYTES, length);
+      if (checksum.getValue() != expected) {
+        return String.format("entry %d at position %d has an invalid checksum", index, position);
+      }
+      index++;
+      position += ENTRY_HEADER_BYTES + length;
+    }
+    return null;
+  }
+
+  /**
+   * Reads bytes from the given channel until the buffer is full.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    open = false;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads bytes of a segment file.
+   */
+  @FunctionalInterface
+  private interface SegmentReader {
+    void read(int position, byte[] bytes, int offset, int length) throws IOException;
+  }
+
+  /**
+   * Chunk of a segment file through which entries are verified, throttling reads to the scrub rate.
+   */
+  private static final class Chunk {
+    private final SegmentReader reader;
+    private final int size;
+    private final int rate;
+    private final byte[] bytes = new byte[CHUNK_SIZE];
+    private int start;
+    private int end;
+
+    private Chunk(SegmentReader reader, int size, int rate) {
+      this.reader = reader;
+      this.size = size;
+      this.rate = rate;
+    }
+
+    /**
+     * Reads a big-endian integer at the given position.
+     */
+    int readInt(int position) throws IOException {
+      fill(position, Integer.BYTES);
+      int i = position - start;
+      return (bytes[i] & 0xFF) << 24 | (bytes[i + 1] & 0xFF) << 16 | (bytes[i + 2] & 0xFF) << 8 | bytes[i + 3] & 0xFF;
+    }
+
+    /**
+     * Updates the given checksum with the bytes at the given position.
+     */
+    void update(Checksum checksum, int position, int length) throws IOException {
+      while (length > 0) {
+        fill(position, 1);
+        int count = Math.min(length, end - position);
+        checksum.update(bytes, position - start, count);
+        position += count;
+        length -= count;
+      }
+    }
+
+    /**
+     * Reads the chunk beginning at the given position unless the given bytes have already been read.
+     */
+    private void fill(int position, int length) throws IOException {
+      if (position >= start && position + length <= end) {
+        return;
+      }
+
+      int count = Math.min(CHUNK_SIZE, size - position);
+      reader.read(position, bytes, 0, count);
+      start = position;
+      end = position + count;
+
+      if (rate > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(count * TimeUnit.SECONDS.toNanos(1) / rate);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+  }
+}
@@ -15,14 +15,19 @@
  */
 package io.atomix.storage.journal;
 
+import io.atomix.storage.journal.index.JournalIndex;
+import io.atomix.storage.journal.index.Position;
 import io.atomix.utils.serializer.Serializer;
 import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.ByteBufferBytes;
 import io.atomix.storage.buffer.FileBuffer;
-import io.atomix.storage.buffer.HeapBuffer;
+import io.atomix.storage.buffer.FileChannelBytes;
 import io.atomix.storage.buffer.MappedBuffer;
 import io.atomix.storage.buffer.SlicedBuffer;
 
-import java.util.zip.CRC32;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.Checksum;
 
 /**
@@ -43,34 +48,74 @@ import java.util.zip.Checksum;
 public class JournalSegmentWriter<E> implements JournalWriter<E> {
   private final JournalSegmentDescriptor descriptor;
   private final Buffer buffer;
+  private final JournalIndex index;
   private final Serializer serializer;
-  private final HeapBuffer memory = HeapBuffer.allocate();
+  private final Buffer memory = JournalSegment.MEMORY_ALLOCATOR.allocate();
+  private final Checksum checksum;
   private final long firstIndex;
   private Indexed<E> lastEntry;
 
-  public JournalSegmentWriter(JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegmentWriter(JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer) {
+    this(descriptor, index, serializer, 0);
+  }
+
+  /**
+   * Creates a writer for a segment whose last index is already known, seeking from the indexed position nearest the
+   * last index rather than scanning the entire segment.
+   */
+  JournalSegmentWriter(JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer, long lastIndex) {
     this.descriptor = descriptor;
     this.buffer = descriptor.buffer().slice();
+    this.index = index;
     this.serializer = serializer;
+    this.checksum = descriptor.checksum().newChecksum();
     this.firstIndex = descriptor.index();
-    reset(0);
+    reset(lastIndex);
   }
 
   /**
    * Initializes the writer by seeking to the end of the segment.
+   * <p>
+   * Entries are verified by their length and checksum framing only. No entry is deserialized, and only the bytes of
+   * the last valid entry are retained so it can be decoded lazily if requested.
    */
-  @SuppressWarnings("unchecked")
   private void reset(long index) {
     long nextIndex = firstIndex;
+    long lastIndex = 0;
+    int lastPosition = -1;
+    int lastLength = 0;
+    long lastChecksum = 0;
 
     // Clear the buffer indexes.
     buffer.clear();
 
+    // If the index has a position for the given index, skip directly to that position.
+    if (index > 0) {
+      Position position = this.index.lookup(index);
+      if (position != null) {
+        nextIndex = position.index();
+        buffer.position(position.position());
+      }
+    }
+
     // Read the entry length.
+    int position = buffer.position();
     int length = buffer.mark().readInt();
 
     // If the length is non-zero, read the entry.
-    while (length > 0 && (index == 0 || nextIndex <= index)) {
+    while (length != 0 && (index == 0 || nextIndex <= index)) {
+
+      // If the length is negative, skip the indexes of entries removed by compaction. A skip that extends beyond
+      // the given index cannot be split, so the writer is positioned before it.
+      if (length < 0) {
+        if (buffer.readUnsignedInt() != -length || (index > 0 && nextIndex - length > index)) {
+          break;
+        }
+        nextIndex -= length;
+        position = buffer.position();
+        length = buffer.mark().readInt();
+        continue;
+      }
 
       // Read the checksum of the entry.
       final long checksum = buffer.readUnsignedInt();
@@ -80,24 +125,35 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
       memory.flip();
 
       // Compute the checksum for the entry bytes.
-      final Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), 0, length);
+      this.checksum.reset();
+      this.checksum.update(memory.array(), 0, length);
 
       // If the stored checksum equals the computed checksum, return the entry.
-      if (checksum == crc32.getValue()) {
-        final E entry = serializer.decode(memory.array());
-        lastEntry = new Indexed<>(nextIndex, entry, length);
+      if (checksum == this.checksum.getValue()) {
+        lastIndex = nextIndex;
+        lastPosition = position;
+        lastLength = length;
+        lastChecksum = checksum;
+        this.index.index(nextIndex, position);
         nextIndex++;
       } else {
         break;
       }
 
       // Read the next entry length.
+      position = buffer.position();
       length = buffer.mark().readInt();
     }
 
     // Reset the buffer to the previous mark.
     buffer.reset();
+
+    // Retain the bytes of the last valid entry without deserializing them.
+    if (lastPosition >= 0) {
+      final byte[] bytes = new byte[lastLength];
+      buffer.read(lastPosition + Integer.BYTES + Integer.BYTES, bytes, 0, lastLength);
+      lastEntry = new Indexed<>(lastIndex, bytes, lastChecksum, serializer);
+    }
   }
 
   @Override
@@ -128,6 +184,15 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
     return buffer.offset() + buffer.position();
   }
 
+  /**
+   * Returns the position in the segment at which the next entry will be written.
+   *
+   * @return The position in the segment at which the next entry will be written.
+   */
+  int position() {
+    return buffer.position();
+  }
+
   /**
    * Returns a boolean indicating whether the segment is empty.
    *
@@ -155,7 +220,6 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public void append(Indexed<E> entry) {
     final long nextIndex = getNextIndex();
 
@@ -168,33 +232,236 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
     if (entry.index() < nextIndex) {
       truncate(entry.index() - 1);
     }
-    append(entry.entry());
+
+    // If the entry is not serialized, encode and append the entry.
+    if (!entry.isSerialized()) {
+      append(entry.entry());
+      return;
+    }
+
+    // Write the serialized entry to the segment as-is.
+    final int position = buffer.position();
+    this.lastEntry = write(buffer, entry);
+    this.index.index(entry.index(), position);
+    drain();
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public <T extends E> Indexed<T> append(T entry) {
-    // Store the entry index.
+    // Store the entry index and position.
     final long index = getNextIndex();
+    final int position = buffer.position();
+
+    // Write the entry to the segment and update the last entry.
+    Indexed<T> indexedEntry = write(buffer, index, entry);
+    this.lastEntry = (Indexed<E>) indexedEntry;
+    this.index.index(index, position);
+    drain();
+    return indexedEntry;
+  }
+
+  /**
+   * Appends a batch of entries to the segment.
+   * <p>
+   * Entries are encoded into a contiguous region of memory which is written to the segment in a single write.
+   * Entries are appended in order until either all entries have been appended or the segment is full, so the
+   * returned list may contain fewer entries than the given list. Callers are responsible for appending any
+   * remaining entries to the next segment.
+   *
+   * @param entries the entries to append
+   * @return the appended indexed entries
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends E> List<Indexed<T>> append(List<T> entries) {
+    final List<Indexed<T>> indexedEntries = new ArrayList<>(entries.size());
+    final int[] offsets = new int[entries.size()];
+    final int position = buffer.position();
+    final long size = size();
+    long index = getNextIndex();
+
+    // Encode entries into memory until the segment would be full.
+    memory.clear();
+    for (T entry : entries) {
+      if (size + memory.position() >= descriptor.maxSegmentSize() || index - firstIndex >= descriptor.maxEntries()) {
+        break;
+      }
+
+      offsets[indexedEntries.size()] = memory.position();
+      indexedEntries.add(write(memory, index, entry));
+      index++;
+    }
+
+    // Write the batch to the segment, then index the written entries and update the last entry.
+    if (!indexedEntries.isEmpty()) {
+      buffer.write(memory.array(), 0, memory.position());
+      index(indexedEntries, position, offsets);
+      this.lastEntry = (Indexed<E>) indexedEntries.get(indexedEntries.size() - 1);
+      drain();
+    }
+    return indexedEntries;
+  }
+
+  /**
+   * Appends a batch of indexed entries to the segment.
+   * <p>
+   * Serialized entries are written to the segment as-is, with checksums computed by the segment's checksum
+   * algorithm since entries may have been written to another journal with a different algorithm. Entries are appended
+   * in order until either all entries have been appended or the segment is full, so the returned list may
+   * contain fewer entries than the given list.
+   *
+   * @param entries the indexed entries to append
+   * @return the appended indexed entries
+   */
+  @Override
+  public List<Indexed<E>> appendIndexed(List<Indexed<E>> entries) {
+    final List<Indexed<E>> indexedEntries = new ArrayList<>(entries.size());
+    if (entries.isEmpty()) {
+      return indexedEntries;
+    }
+
+    // If the first entry's index is less than the next index, truncate the segment.
+    final long firstEntryIndex = entries.get(0).index();
+    if (firstEntryIndex < getNextIndex()) {
+      truncate(firstEntryIndex - 1);
+    }
+
+    final int[] offsets = new int[entries.size()];
+    final int position = buffer.position();
+    final long size = size();
+    long index = getNextIndex();
+
+    // Write entries into memory until the segment would be full.
+    memory.clear();
+    for (Indexed<E> entry : entries) {
+      if (size + memory.position() >= descriptor.maxSegmentSize() || index - firstIndex >= descriptor.maxEntries()) {
+        break;
+      }
+
+      if (entry.index() != index) {
+        throw new IndexOutOfBoundsException("Entry index is not sequential");
+      }
+
+      offsets[indexedEntries.size()] = memory.position();
+      indexedEntries.add(entry.isSerialized() ? write(memory, entry) : write(memory, index, entry.entry()));
+      index++;
+    }
+
+    // Write the batch to the segment, then index the written entries and update the last entry.
+    if (!indexedEntries.isEmpty()) {
+      buffer.write(memory.array(), 0, memory.position());
+      index(indexedEntries, position, offsets);
+      this.lastEntry = indexedEntries.get(indexedEntries.size() - 1);
+      drain();
+    }
+    return indexedEntries;
+  }
+
+  /**
+   * Adds a batch of entries written to the segment at the given position to the segment index.
+   * <p>
+   * Entries are indexed only once the batch has been written, so an entry that fails to encode or an out-of-order
+   * index cannot leave index entries pointing to positions that were never written.
+   */
+  private void index(List<? extends Indexed<?>> entries, int position, int[] offsets) {
+    for (int i = 0; i < entries.size(); i++) {
+      this.index.index(entries.get(i).index(), position + offsets[i]);
+    }
+  }
+
+  /**
+   * Encodes the given entry and writes it to the given buffer.
+   */
+  private <T extends E> Indexed<T> write(Buffer buffer, long index, T entry) {
+    // If the buffer is backed by a ByteBuffer, attempt to serialize the entry directly into the buffer.
+    if (buffer.bytes() instanceof ByteBufferBytes) {
+      Indexed<T> indexedEntry = writeInPlace(buffer, index, entry);
+      if (indexedEntry != null) {
+        return indexedEntry;
+      }
+    }
 
     // Serialize the entry.
     final byte[] bytes = serializer.encode(entry);
     final int length = bytes.length;
 
     // Compute the checksum for the entry.
-    final Checksum crc32 = new CRC32();
-    crc32.update(bytes, 0, length);
-    final long checksum = crc32.getValue();
+    this.checksum.reset();
+    this.checksum.update(bytes, 0, length);
+    final long checksum = this.checksum.getValue();
 
-    // Write the entry length and entry to the segment.
+    // Write the entry length and entry to the buffer.
     buffer.writeInt(length)
         .writeUnsignedInt(checksum)
         .write(bytes);
+    return new Indexed<>(index, entry, length);
+  }
+
+  /**
+   * Serializes the given entry directly into the given buffer's underlying bytes.
+   * <p>
+   * The entry is serialized following a placeholder for the entry header, the checksum is computed over the
+   * serialized bytes in place, and the header is then backpatched with the entry length and checksum. If the
+   * entry does not fit in the buffer's current capacity, the buffer position is left unchanged and {@code null}
+   * is returned so the entry can be encoded and written through the buffer, which grows it as necessary.
+   */
+  private <T extends E> Indexed<T> writeInPlace(Buffer buffer, long index, T entry) {
+    final int position = buffer.position();
+    final int start = position + Integer.BYTES + Integer.BYTES;
+    if (buffer.limit() != -1 || start >= buffer.capacity()) {
+      return null;
+    }
 
-    // Update the last entry with the correct index/term/length.
-    Indexed<E> indexedEntry = new Indexed<>(index, entry, length);
-    this.lastEntry = indexedEntry;
-    return (Indexed<T>) indexedEntry;
+    // Serialize the entry into a view of the bytes between the entry header and the end of the buffer capacity.
+    final ByteBuffer bytes = ((ByteBufferBytes) buffer.bytes()).byteBuffer().duplicate();
+    bytes.limit(buffer.offset() + buffer.capacity());
+    bytes.position(buffer.offset() + start);
+    try {
+      serializer.encode(entry, bytes);
+    } catch (RuntimeException e) {
+      // Zero any partially written bytes so they're not read as a subsequent entry.
+      buffer.zero(position, bytes.position() - (buffer.offset() + position));
+      return null;
+    }
+    final int length = bytes.position() - (buffer.offset() + start);
+
+    // Compute the checksum for the entry bytes in place.
+    bytes.limit(bytes.position());
+    bytes.position(buffer.offset() + start);
+    this.checksum.reset();
+    JournalChecksum.update(this.checksum, bytes);
+    final long checksum = this.checksum.getValue();
+
+    // Backpatch the entry length and checksum and advance the buffer past the entry.
+    buffer.writeInt(position, length)
+        .writeUnsignedInt(position + Integer.BYTES, checksum)
+        .position(start + length);
+    return new Indexed<>(index, entry, length);
+  }
+
+  /**
+   * Writes bytes combined by a {@link FileChannelBytes} segment to the file, so the fields of the entries in an
+   * append are written to the file in a single write and are visible to other handles to the segment file.
+   */
+  private void drain() {
+    if (buffer.bytes() instanceof FileChannelBytes) {
+      ((FileChannelBytes) buffer.bytes()).drain();
+    }
+  }
+
+  /**
+   * Writes the given serialized entry to the given buffer with a checksum computed by the segment's algorithm.
+   */
+  private Indexed<E> write(Buffer buffer, Indexed<E> entry) {
+    final byte[] bytes = entry.bytes();
+    this.checksum.reset();
+    this.checksum.update(bytes, 0, bytes.length);
+    final long checksum = this.checksum.getValue();
+    buffer.writeInt(bytes.length)
+        .writeUnsignedInt(checksum)
+        .write(bytes);
+    return checksum == entry.checksum() ? entry.withSerializer(serializer) : new Indexed<>(entry.index(), bytes, checksum, serializer);
   }
 
   @Override
@@ -208,9 +475,13 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
     // Reset the last entry.
     lastEntry = null;
 
+    // Truncate the index.
+    this.index.truncate(index);
+
     // If the index is less than the segment index, clear the segment buffer.
     if (index < descriptor.index()) {
       buffer.zero().clear();
+      drain();
       return;
     }
 
@@ -219,8 +490,15 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
 
     // Zero entries after the given index.
     buffer.zero(buffer.position());
+    drain();
   }
 
+  /**
+   * Flushes the segment to disk.
+   * <p>
+   * The writer drains combined bytes to the file after each append and truncation, so a flush from another thread
+   * only forces bytes that have already been written to the file.
+   */
   @Override
   public void flush() {
     buffer.flush();
@@ -229,17 +507,21 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
   @Override
   public void close() {
     buffer.close();
+    memory.close();
   }
 
   /**
    * Deletes the segment.
    */
   void delete() {
+    memory.close();
     Buffer buffer = this.buffer instanceof SlicedBuffer ? ((SlicedBuffer) this.buffer).root() : this.buffer;
     if (buffer instanceof FileBuffer) {
       ((FileBuffer) buffer).delete();
     } else if (buffer instanceof MappedBuffer) {
       ((MappedBuffer) buffer).delete();
+    } else if (buffer instanceof CompressedSegmentBuffer) {
+      ((CompressedSegmentBuffer) buffer).delete();
     }
   }
 }
\ No newline at end of file
@@ -15,6 +15,8 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.List;
+
 /**
  * Log writer.
  *
@@ -51,6 +53,17 @@ public interface JournalWriter<E> extends AutoCloseable {
    */
   <T extends E> Indexed<T> append(T entry);
 
+  /**
+   * Appends a batch of entries to the journal.
+   * <p>
+   * Entries are encoded and written in as few writes as possible. Entries are appended in order, and the
+   * returned indexed entries are in the same order as the given entries.
+   *
+   * @param entries The entries to append.
+   * @return The appended indexed entries.
+   */
+  <T extends E> List<Indexed<T>> append(List<T> entries);
+
   /**
    * Appends an indexed entry to the log.
    *
@@ -58,6 +71,17 @@ public interface JournalWriter<E> extends AutoCloseable {
    */
   void append(Indexed<E> entry);
 
+  /**
+   * Appends a batch of indexed entries to the log.
+   * <p>
+   * Entries that retain their serialized bytes are written as-is without being re-encoded. Entry indexes must
+   * be sequential. If the first entry's index is less than the next index, the log is first truncated.
+   *
+   * @param entries The indexed entries to append.
+   * @return The appended indexed entries.
+   */
+  List<Indexed<E>> appendIndexed(List<Indexed<E>> entries);
+
   /**
    * Truncates the log to the given index.
    *
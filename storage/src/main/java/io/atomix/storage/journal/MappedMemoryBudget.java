@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Memory budget for memory mapped journal segments.
+ * <p>
+ * A single budget can be shared by all {@link io.atomix.storage.StorageLevel#MAPPED} journals on a node to bound the
+ * total size of mapped segments. Each mapped segment is charged its maximum segment size. When the budget is
+ * exceeded, the least recently used segments are unmapped, and an unmapped segment is mapped again the next time
+ * it is read or becomes the segment to which entries are written. Segments that are being read or written are never
+ * unmapped, so the budget may be exceeded temporarily.
+ */
+public class MappedMemoryBudget {
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final long maxSize;
+  private final Map<JournalSegment<?>, Long> segments = new LinkedHashMap<>(16, .75f, true);
+  private final AtomicLong mapCount = new AtomicLong();
+  private final AtomicLong unmapCount = new AtomicLong();
+  private long mappedSize;
+
+  public MappedMemoryBudget(long maxSize) {
+    checkArgument(maxSize > 0, "maxSize must be positive");
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the maximum size of mapped segments.
+   *
+   * @return The maximum size of mapped segments in bytes.
+   */
+  public long maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the size currently charged to mapped segments.
+   *
+   * @return The size of mapped segments in bytes.
+   */
+  public synchronized long mappedSize() {
+    return mappedSize;
+  }
+
+  /**
+   * Returns the number of times segments have been mapped.
+   *
+   * @return The number of times segments have been mapped.
+   */
+  public long mapCount() {
+    return mapCount.get();
+  }
+
+  /**
+   * Returns the number of times segments have been unmapped to stay within the budget.
+   *
+   * @return The number of times segments have been unmapped.
+   */
+  public long unmapCount() {
+    return unmapCount.get();
+  }
+
+  /**
+   * Records that a segment has been mapped, unmapping least recently used segments if the budget is exceeded.
+   *
+   * @param segment The mapped segment.
+   * @param size The size to charge for the segment.
+   */
+  synchronized void mapped(JournalSegment<?> segment, long size) {
+    Long previousSize = segments.put(segment, size);
+    mappedSize += size - (previousSize != null ? previousSize : 0);
+    mapCount.incrementAndGet();
+
+    Iterator<Map.Entry<JournalSegment<?>, Long>> iterator = segments.entrySet().iterator();
+    while (mappedSize > maxSize && iterator.hasNext()) {
+      Map.Entry<JournalSegment<?>, Long> entry = iterator.next();
+      if (entry.getKey() != segment && entry.getKey().unmap()) {
+        log.trace("Unmapped segment {}", entry.getKey());
+        iterator.remove();
+        mappedSize -= entry.getValue();
+        unmapCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Records that a mapped segment has been used.
+   *
+   * @param segment The used segment.
+   */
+  synchronized void touched(JournalSegment<?> segment) {
+    segments.get(segment);
+  }
+
+  /**
+   * Records that a segment has been closed.
+   *
+   * @param segment The closed segment.
+   */
+  synchronized void closed(JournalSegment<?> segment) {
+    Long size = segments.remove(segment);
+    if (size != null) {
+      mappedSize -= size;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("maxSize", maxSize)
+        .add("mappedSize", mappedSize())
+        .add("mapCount", mapCount())
+        .add("unmapCount", unmapCount())
+        .toString();
+  }
+}
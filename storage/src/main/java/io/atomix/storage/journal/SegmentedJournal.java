@@ -15,6 +15,7 @@
  */
 package io.atomix.storage.journal;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
 import io.atomix.storage.StorageException;
 import io.atomix.storage.StorageLevel;
@@ -22,21 +23,36 @@ import io.atomix.storage.buffer.Buffer;
 import io.atomix.storage.buffer.FileBuffer;
 import io.atomix.storage.buffer.HeapBuffer;
 import io.atomix.storage.buffer.MappedBuffer;
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 import io.atomix.utils.serializer.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.atomix.utils.concurrent.Threads.namedThreads;
 
 /**
  * Segmented journal implementation.
@@ -64,12 +80,30 @@ public class SegmentedJournal<E> implements Journal<E> {
   private final Serializer serializer;
   private final int maxSegmentSize;
   private final int maxEntriesPerSegment;
+  private final double indexDensity;
+  private final FlushPolicy flushPolicy;
+  private final boolean preallocateSegments;
+  private final JournalSegmentAllocator allocator;
+  private final long tieredMemoryBudget;
+  private final JournalSegmentMigrator<E> migrator;
+  private final MappedMemoryBudget mappedMemoryBudget;
+  private final SharedWriteAheadLog sharedLog;
+  private final int readAheadSize;
+  private final JournalReadAhead readAhead;
+  private final int compressionBlockSize;
+  private final JournalSegmentCompressor<E> compressor;
+  private final JournalChecksum checksum;
+  private final int scrubRate;
+  private final JournalSegmentScrubber<E> scrubber;
+  private final MemoryAccount memoryAccount;
 
   private final NavigableMap<Long, JournalSegment<E>> segments = new ConcurrentSkipListMap<>();
   private final Collection<SegmentedJournalReader<E>> readers = Sets.newConcurrentHashSet();
   private JournalSegment<E> currentSegment;
 
   private final SegmentedJournalWriter<E> writer;
+  private final JournalFlusher flusher;
+  private final JournalIndexNotifier appendNotifier;
   private volatile boolean open = true;
 
   public SegmentedJournal(
@@ -78,15 +112,56 @@ public class SegmentedJournal<E> implements Journal<E> {
       File directory,
       Serializer serializer,
       int maxSegmentSize,
-      int maxEntriesPerSegment) {
+      int maxEntriesPerSegment,
+      double indexDensity,
+      FlushPolicy flushPolicy,
+      boolean preallocateSegments,
+      long tieredMemoryBudget,
+      MappedMemoryBudget mappedMemoryBudget,
+      SharedWriteAheadLog sharedLog,
+      int readAheadSize,
+      int compressionBlockSize,
+      JournalChecksum checksum,
+      int scrubRate,
+      MemoryAccount memoryAccount) {
     this.name = checkNotNull(name, "name cannot be null");
-    this.storageLevel = checkNotNull(storageLevel, "storageLevel cannot be null");
+    this.storageLevel = sharedLog != null ? StorageLevel.MEMORY : checkNotNull(storageLevel, "storageLevel cannot be null");
     this.directory = checkNotNull(directory, "directory cannot be null");
     this.serializer = checkNotNull(serializer, "serializer cannot be null");
     this.maxSegmentSize = maxSegmentSize;
     this.maxEntriesPerSegment = maxEntriesPerSegment;
+    this.indexDensity = indexDensity;
+    this.flushPolicy = checkNotNull(flushPolicy, "flushPolicy cannot be null");
+    this.preallocateSegments = preallocateSegments;
+    this.allocator = preallocateSegments && this.storageLevel != StorageLevel.MEMORY
+        ? new JournalSegmentAllocator(name, directory, maxSegmentSize)
+        : null;
+    this.tieredMemoryBudget = tieredMemoryBudget;
+    this.migrator = this.storageLevel == StorageLevel.TIERED ? new JournalSegmentMigrator<>(this, tieredMemoryBudget) : null;
+    this.mappedMemoryBudget = mappedMemoryBudget;
+    this.sharedLog = sharedLog;
+    this.memoryAccount = checkNotNull(memoryAccount, "memoryAccount cannot be null");
+    this.readAheadSize = readAheadSize;
+    this.readAhead = readAheadSize > 0 && (this.storageLevel == StorageLevel.DISK || this.storageLevel == StorageLevel.TIERED)
+        ? new JournalReadAhead(name, readAheadSize, memoryAccount)
+        : null;
+    this.compressionBlockSize = compressionBlockSize;
+    this.compressor = compressionBlockSize > 0 && this.storageLevel == StorageLevel.DISK
+        ? new JournalSegmentCompressor<>(this, compressionBlockSize)
+        : null;
+    this.checksum = checkNotNull(checksum, "checksum cannot be null");
+    this.scrubRate = scrubRate;
     open();
+    this.scrubber = this.storageLevel != StorageLevel.MEMORY ? new JournalSegmentScrubber<>(this, scrubRate) : null;
     this.writer = openWriter();
+    if (sharedLog != null) {
+      SharedWriteAheadLog.Positions positions = sharedLog.register(name);
+      if (positions != null) {
+        writer.recover(positions);
+      }
+    }
+    this.flusher = new JournalFlusher(this, flushPolicy, writer.getLastIndex());
+    this.appendNotifier = new JournalIndexNotifier(writer.getLastIndex());
   }
 
   /**
@@ -146,6 +221,223 @@ public class SegmentedJournal<E> implements Journal<E> {
     return maxEntriesPerSegment;
   }
 
+  /**
+   * Returns the journal index density.
+   * <p>
+   * The index density is the frequency at which the positions of entries written to the journal are indexed.
+   *
+   * @return The journal index density.
+   */
+  public double indexDensity() {
+    return indexDensity;
+  }
+
+  /**
+   * Returns the journal flush policy.
+   * <p>
+   * The flush policy dictates when entries written to the journal are flushed to disk.
+   *
+   * @return The journal flush policy.
+   */
+  public FlushPolicy flushPolicy() {
+    return flushPolicy;
+  }
+
+  /**
+   * Returns whether segment files are preallocated.
+   * <p>
+   * When segment preallocation is enabled, the next segment file is prepared on a background thread and the
+   * files of compacted segments are recycled rather than deleted.
+   *
+   * @return Whether segment files are preallocated.
+   */
+  public boolean isPreallocateSegments() {
+    return preallocateSegments;
+  }
+
+  /**
+   * Returns the tiered memory budget.
+   * <p>
+   * When the storage level is {@link StorageLevel#TIERED}, the most recent segments are memory mapped as long as
+   * their combined size fits within the budget, and older segments are migrated to disk.
+   *
+   * @return The tiered memory budget in bytes.
+   */
+  public long tieredMemoryBudget() {
+    return tieredMemoryBudget;
+  }
+
+  /**
+   * Returns the read-ahead size.
+   * <p>
+   * Readers of segments stored on disk read chunks of up to this many bytes ahead of their position on a
+   * background thread. A size of {@code 0} indicates that entries are read synchronously.
+   *
+   * @return The read-ahead size in bytes.
+   */
+  public int readAheadSize() {
+    return readAheadSize;
+  }
+
+  /**
+   * Returns the compression block size.
+   * <p>
+   * Sealed segments stored on disk are rewritten in compressed blocks of this many uncompressed bytes. A size of
+   * {@code 0} indicates that segments are not compressed.
+   *
+   * @return The compression block size in bytes.
+   */
+  public int compressionBlockSize() {
+    return compressionBlockSize;
+  }
+
+  /**
+   * Returns the checksum algorithm with which new segments are written.
+   * <p>
+   * Existing segments continue to be read with the algorithm recorded in their descriptors.
+   *
+   * @return The checksum algorithm of new segments.
+   */
+  public JournalChecksum checksum() {
+    return checksum;
+  }
+
+  /**
+   * Returns the scrub rate.
+   * <p>
+   * Sealed segments stored on disk are periodically re-verified on a background thread, reading at most this many
+   * bytes per second. A rate of {@code 0} indicates that segments are not scrubbed in the background.
+   *
+   * @return The scrub rate in bytes per second.
+   */
+  public int scrubRate() {
+    return scrubRate;
+  }
+
+  /**
+   * Verifies the checksums of all entries in sealed segments stored on disk.
+   * <p>
+   * Segments are read from their files independently of the journal's readers. Corrupt segments are logged and
+   * reported by {@link #getCorruptSegments()}, but are not removed from the journal.
+   *
+   * @return The segments found to be corrupt ordered by index.
+   */
+  public List<JournalSegment<E>> scrub() {
+    assertOpen();
+    return scrubber != null ? scrubber.scrub(0) : new ArrayList<>();
+  }
+
+  /**
+   * Returns the segments that have been found to be corrupt by scrubbing.
+   *
+   * @return The corrupt segments still in the journal ordered by index.
+   */
+  public List<JournalSegment<E>> getCorruptSegments() {
+    return scrubber != null ? scrubber.corruptSegments() : new ArrayList<>();
+  }
+
+  /**
+   * Returns the journal read-ahead.
+   *
+   * @return The read-ahead used by readers of disk segments, or {@code null} if read-ahead is disabled.
+   */
+  JournalReadAhead readAhead() {
+    return readAhead;
+  }
+
+  /**
+   * Returns the journal memory account.
+   *
+   * @return The account to which the off-heap memory of the journal is charged.
+   */
+  public MemoryAccount memoryAccount() {
+    return memoryAccount;
+  }
+
+  /**
+   * Returns the journal serializer.
+   *
+   * @return The journal serializer.
+   */
+  Serializer serializer() {
+    return serializer;
+  }
+
+  /**
+   * Returns the shared write-ahead log.
+   *
+   * @return The shared log to which the journal writes, or {@code null} if the journal does not use a shared log.
+   */
+  public SharedWriteAheadLog sharedLog() {
+    return sharedLog;
+  }
+
+  /**
+   * Returns the mapped memory budget.
+   *
+   * @return The budget shared by memory mapped segments, or {@code null} if mapped segments are not budgeted.
+   */
+  public MappedMemoryBudget mappedMemoryBudget() {
+    return mappedMemoryBudget;
+  }
+
+  /**
+   * Returns the index up to which entries are known to have been flushed to disk.
+   *
+   * @return The index up to which entries have been flushed to disk.
+   */
+  public long getDurableIndex() {
+    return flusher.durableIndex();
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given index have been flushed to disk.
+   * <p>
+   * If the journal's flush policy is {@link FlushPolicy#never()}, the future will only be completed once the
+   * journal is explicitly flushed by its writer.
+   *
+   * @param index The index for which to wait.
+   * @return A future to be completed once entries up to the given index have been flushed to disk.
+   */
+  public CompletableFuture<Void> awaitDurable(long index) {
+    return flusher.awaitDurable(index);
+  }
+
+  /**
+   * Returns the segment migrator, or {@code null} if the journal is not tiered.
+   */
+  JournalSegmentMigrator<E> migrator() {
+    return migrator;
+  }
+
+  /**
+   * Returns the journal flusher.
+   */
+  JournalFlusher flusher() {
+    return flusher;
+  }
+
+  /**
+   * Returns a future to be completed once the entry at the given index has been appended to the journal.
+   * <p>
+   * Readers tailing the journal may wait on the future rather than polling for new entries. The future is completed
+   * with the last index in the journal on the thread that appends the entry, once the entry can be read. If the
+   * journal is truncated before the entry is appended, the future continues to wait for an entry at the given index.
+   *
+   * @param index The index for which to wait.
+   * @return A future to be completed with the last index once the given index has been appended.
+   */
+  public CompletableFuture<Long> awaitAppend(long index) {
+    return appendNotifier.await(index);
+  }
+
+  /**
+   * Returns the notifier of appended indexes.
+   */
+  JournalIndexNotifier appendNotifier() {
+    return appendNotifier;
+  }
+
   /**
    * Opens a new journal writer.
    *
@@ -164,22 +456,45 @@ public class SegmentedJournal<E> implements Journal<E> {
       segments.put(segment.descriptor().index(), segment);
     }
 
+    // Move the most recent segments into memory.
+    if (migrator != null) {
+      migrator.migrate();
+    }
+
     // If a segment doesn't already exist, create an initial segment starting at index 1.
     if (!segments.isEmpty()) {
-      currentSegment = segments.lastEntry().getValue();
+      JournalSegment<E> lastSegment = segments.lastEntry().getValue();
+      setCurrentSegment(lastSegment.descriptor().isCompressed() ? decompressSegment(lastSegment) : lastSegment);
     } else {
       JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.builder()
           .withId(1)
           .withIndex(1)
           .withMaxSegmentSize(maxSegmentSize)
           .withMaxEntries(maxEntriesPerSegment)
+          .withChecksum(checksum)
           .build();
 
-      currentSegment = createSegment(descriptor);
+      setCurrentSegment(createSegment(descriptor));
       currentSegment.descriptor().update(System.currentTimeMillis());
 
       segments.put(1L, currentSegment);
     }
+
+    // Begin preparing the next segment file.
+    if (allocator != null) {
+      allocator.prepare();
+    }
+  }
+
+  /**
+   * Sets the segment to which entries are written, pinning it in memory if segments are mapped under a memory budget.
+   */
+  private void setCurrentSegment(JournalSegment<E> segment) {
+    if (currentSegment != null) {
+      currentSegment.release();
+    }
+    segment.acquire();
+    currentSegment = segment;
   }
 
   /**
@@ -206,16 +521,17 @@ public class SegmentedJournal<E> implements Journal<E> {
   private synchronized void resetCurrentSegment() {
     JournalSegment<E> lastSegment = getLastSegment();
     if (lastSegment != null) {
-      currentSegment = lastSegment;
+      setCurrentSegment(lastSegment.descriptor().isCompressed() ? decompressSegment(lastSegment) : lastSegment);
     } else {
       JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.builder()
           .withId(1)
           .withIndex(1)
           .withMaxSegmentSize(maxSegmentSize)
           .withMaxEntries(maxEntriesPerSegment)
+          .withChecksum(checksum)
           .build();
 
-      currentSegment = createSegment(descriptor);
+      setCurrentSegment(createSegment(descriptor));
 
       segments.put(1L, currentSegment);
     }
@@ -238,7 +554,7 @@ public class SegmentedJournal<E> implements Journal<E> {
 
     for (JournalSegment<E> segment : segments.values()) {
       segment.close();
-      segment.delete();
+      deleteSegment(segment);
     }
     segments.clear();
 
@@ -247,8 +563,9 @@ public class SegmentedJournal<E> implements Journal<E> {
         .withIndex(index)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntries(maxEntriesPerSegment)
+        .withChecksum(checksum)
         .build();
-    currentSegment = createSegment(descriptor);
+    setCurrentSegment(createSegment(descriptor));
     segments.put(index, currentSegment);
     return currentSegment;
   }
@@ -285,20 +602,43 @@ public class SegmentedJournal<E> implements Journal<E> {
     assertOpen();
     assertDiskSpace();
 
-    JournalSegment lastSegment = getLastSegment();
     JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.builder()
-        .withId(lastSegment != null ? lastSegment.descriptor().id() + 1 : 1)
+        .withId(nextSegmentId())
         .withIndex(currentSegment.lastIndex() + 1)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntries(maxEntriesPerSegment)
+        .withChecksum(checksum)
         .build();
 
-    currentSegment = createSegment(descriptor);
+    setCurrentSegment(createSegment(descriptor));
 
     segments.put(descriptor.index(), currentSegment);
+
+    // Migrate sealed segments that no longer fit in the tiered memory budget.
+    if (migrator != null) {
+      migrator.rolled();
+    }
+
+    // Compress sealed segments.
+    if (compressor != null) {
+      compressor.rolled();
+    }
     return currentSegment;
   }
 
+  /**
+   * Returns the next unused segment ID.
+   * <p>
+   * Compacted segments are assigned new IDs, so the last segment in the log does not necessarily have the highest ID.
+   */
+  private synchronized long nextSegmentId() {
+    long id = 0;
+    for (JournalSegment<E> segment : segments.values()) {
+      id = Math.max(id, segment.id());
+    }
+    return id + 1;
+  }
+
   /**
    * Returns the segment following the segment with the given ID.
    *
@@ -336,13 +676,253 @@ public class SegmentedJournal<E> implements Journal<E> {
    *
    * @param segment The segment to remove.
    */
-  synchronized void removeSegment(JournalSegment segment) {
+  synchronized void removeSegment(JournalSegment<E> segment) {
     segments.remove(segment.index());
     segment.close();
-    segment.delete();
+    deleteSegment(segment);
     resetCurrentSegment();
   }
 
+  /**
+   * Returns the segments in which all entries precede the given index, excluding the current segment.
+   *
+   * @param index The index preceding which to return segments.
+   * @return The segments in which all entries precede the given index.
+   */
+  synchronized List<JournalSegment<E>> getCompactableSegments(long index) {
+    return segments.values().stream()
+        .filter(segment -> segment != currentSegment && !segment.isEmpty() && segment.lastIndex() < index)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates a compacted segment containing the given serialized entries.
+   * <p>
+   * For persistent storage levels the segment is written to a temporary file and flushed before being moved into
+   * place, so a segment file is never observed partially written.
+   *
+   * @param index The first index of the segment.
+   * @param entries The serialized entries to write to the segment.
+   * @return The compacted segment.
+   */
+  JournalSegment<E> createCompactedSegment(long index, Buffer entries) {
+    JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.builder()
+        .withId(nextSegmentId())
+        .withIndex(index)
+        .withMaxSegmentSize(maxSegmentSize)
+        .withMaxEntries(maxEntriesPerSegment)
+        .withChecksum(checksum)
+        .build();
+
+    File segmentFile = JournalSegmentFile.createSegmentFile(name, directory, descriptor.id());
+    if (storageLevel == StorageLevel.MEMORY) {
+      Buffer buffer = HeapBuffer.allocate(Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
+      descriptor.copyTo(buffer);
+      buffer.slice().write(entries.array(), 0, entries.position());
+      return newSegment(new JournalSegmentFile(segmentFile), descriptor);
+    }
+
+    File compactFile = JournalSegmentFile.createCompactFile(name, directory, descriptor.id());
+    try (Buffer buffer = FileBuffer.allocateChannel(compactFile, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE, memoryAccount)) {
+      descriptor.copyTo(buffer);
+      buffer.write(entries.array(), 0, entries.position()).flush();
+    }
+
+    try {
+      Files.move(compactFile.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      compactFile.delete();
+      throw new StorageException(e);
+    }
+    return loadSegment(descriptor.id());
+  }
+
+  /**
+   * Replaces the given segments with a compacted segment.
+   * <p>
+   * Readers positioned in a replaced segment are moved to the compacted segment before the replaced segments are
+   * closed and deleted.
+   *
+   * @param segments The segments to replace.
+   * @param segment The compacted segment.
+   */
+  synchronized void replaceSegments(List<JournalSegment<E>> segments, JournalSegment<E> segment) {
+    for (JournalSegment<E> replacedSegment : segments) {
+      this.segments.remove(replacedSegment.index());
+    }
+    this.segments.put(segment.index(), segment);
+
+    for (SegmentedJournalReader<E> reader : readers) {
+      reader.refresh(segments);
+    }
+
+    for (JournalSegment<E> replacedSegment : segments) {
+      log.trace("Deleting compacted segment: {}", replacedSegment);
+      replacedSegment.close();
+      deleteSegment(replacedSegment);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the segments in the journal.
+   *
+   * @return The segments in the journal ordered by index.
+   */
+  synchronized List<JournalSegment<E>> getSegments() {
+    return new ArrayList<>(segments.values());
+  }
+
+  /**
+   * Returns whether the given segment is memory mapped.
+   *
+   * @param segment The segment to check.
+   * @return Whether the segment is memory mapped.
+   */
+  boolean isMapped(JournalSegment<E> segment) {
+    return segment.descriptor().buffer() instanceof MappedBuffer;
+  }
+
+  /**
+   * Replaces a segment with the same segment stored at a different storage level.
+   * <p>
+   * The current segment is never replaced, nor is a segment whose entries changed after the migrated segment was
+   * opened. Readers positioned in the replaced segment are moved to the migrated segment before the replaced segment
+   * is closed. Both segments share the same file, so the file is not deleted.
+   *
+   * @param segment The segment to replace.
+   * @param migratedSegment The migrated segment.
+   * @return Whether the segment was replaced.
+   */
+  synchronized boolean migrateSegment(JournalSegment<E> segment, JournalSegment<E> migratedSegment) {
+    if (segment == currentSegment || segments.get(segment.index()) != segment || segment.lastIndex() != migratedSegment.lastIndex()) {
+      return false;
+    }
+
+    segments.put(segment.index(), migratedSegment);
+    for (SegmentedJournalReader<E> reader : readers) {
+      reader.refresh(Collections.singletonList(segment));
+    }
+    log.trace("Migrated segment: {}", migratedSegment);
+    segment.close();
+    return true;
+  }
+
+  /**
+   * Writes a compressed copy of the given sealed segment and opens it as a new segment.
+   * <p>
+   * The copy is written to a temporary file and is not swapped into the journal.
+   *
+   * @param segment The segment to compress.
+   * @param blockSize The number of uncompressed bytes in each compressed block.
+   * @return The compressed segment.
+   */
+  JournalSegment<E> compressSegment(JournalSegment<E> segment, int blockSize) {
+    File compressFile = JournalSegmentFile.createCompressFile(name, directory, segment.id());
+    try {
+      CompressedSegmentBytes.compress(segment.file().file(), (int) segment.size(), compressFile, blockSize);
+    } catch (IOException e) {
+      compressFile.delete();
+      throw new StorageException(e);
+    }
+    JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(CompressedSegmentBuffer.open(compressFile));
+    return newSegment(new JournalSegmentFile(segment.file().file()), descriptor);
+  }
+
+  /**
+   * Replaces a sealed segment with its compressed copy.
+   * <p>
+   * The current segment is never replaced. The compressed file is atomically moved over the segment file, and readers
+   * positioned in the replaced segment are moved to the compressed segment before the replaced segment is closed.
+   *
+   * @param segment The segment to replace.
+   * @param compressedSegment The compressed copy of the segment.
+   * @return Whether the segment was replaced.
+   */
+  synchronized boolean replaceCompressedSegment(JournalSegment<E> segment, JournalSegment<E> compressedSegment) {
+    if (segment == currentSegment || segments.get(segment.index()) != segment || segment.lastIndex() != compressedSegment.lastIndex()) {
+      return false;
+    }
+
+    ((CompressedSegmentBuffer) compressedSegment.descriptor().buffer()).move(segment.file().file());
+    segments.put(segment.index(), compressedSegment);
+    for (SegmentedJournalReader<E> reader : readers) {
+      reader.refresh(Collections.singletonList(segment));
+    }
+    log.trace("Compressed segment: {}", compressedSegment);
+    segment.close();
+    return true;
+  }
+
+  /**
+   * Replaces a compressed segment with an uncompressed copy so entries can be written to it.
+   * <p>
+   * This method is called when a compressed segment becomes the last segment in the journal after the journal is
+   * truncated. Readers positioned in the replaced segment are moved to the uncompressed segment.
+   *
+   * @param segment The compressed segment to replace.
+   * @return The uncompressed segment.
+   */
+  private JournalSegment<E> decompressSegment(JournalSegment<E> segment) {
+    decompressFile(segment.id());
+    JournalSegment<E> decompressedSegment = loadSegment(segment.id());
+    segments.put(segment.index(), decompressedSegment);
+    for (SegmentedJournalReader<E> reader : readers) {
+      reader.refresh(Collections.singletonList(segment));
+    }
+    log.debug("Decompressed segment: {}", decompressedSegment);
+    segment.close();
+    return decompressedSegment;
+  }
+
+  /**
+   * Rewrites the compressed file of the segment with the given ID uncompressed.
+   */
+  private void decompressFile(long segmentId) {
+    File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId);
+    File compressFile = JournalSegmentFile.createCompressFile(name, directory, segmentId);
+    CompressedSegmentBytes bytes = CompressedSegmentBytes.open(file);
+    try {
+      bytes.decompress(compressFile);
+      Files.move(compressFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      compressFile.delete();
+      throw new StorageException(e);
+    } finally {
+      bytes.close();
+    }
+  }
+
+  /**
+   * Returns whether the given segment file is compressed.
+   */
+  private boolean isCompressedFile(File file) {
+    try (JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES))) {
+      return descriptor.isCompressed();
+    }
+  }
+
+  /**
+   * Deletes a closed segment, recycling the segment file if segment preallocation is enabled.
+   *
+   * @param segment The segment to delete.
+   */
+  private void deleteSegment(JournalSegment<E> segment) {
+    if (allocator == null || !allocator.recycle(segment.file().file())) {
+      segment.delete();
+    }
+  }
+
+  /**
+   * Allocates the given segment file from a preallocated spare file if one is available.
+   *
+   * @param segmentFile The segment file to allocate.
+   */
+  private void allocateSegmentFile(File segmentFile) {
+    if (allocator != null && allocator.allocate(segmentFile)) {
+      log.trace("Allocated preallocated segment file: {}", segmentFile);
+    }
+  }
+
   /**
    * Creates a new segment.
    */
@@ -351,6 +931,7 @@ public class SegmentedJournal<E> implements Journal<E> {
       case MEMORY:
         return createMemorySegment(descriptor);
       case MAPPED:
+      case TIERED:
         return createMappedSegment(descriptor);
       case DISK:
         return createDiskSegment(descriptor);
@@ -367,7 +948,10 @@ public class SegmentedJournal<E> implements Journal<E> {
    * @return The segment instance.
    */
   protected JournalSegment<E> newSegment(JournalSegmentFile segmentFile, JournalSegmentDescriptor descriptor) {
-    return new JournalSegment<>(segmentFile, descriptor, serializer);
+    if (storageLevel == StorageLevel.MAPPED && mappedMemoryBudget != null && descriptor.buffer() instanceof MappedBuffer) {
+      return new JournalSegment<>(segmentFile, descriptor, indexDensity, serializer, mappedMemoryBudget);
+    }
+    return new JournalSegment<>(segmentFile, descriptor, indexDensity, serializer);
   }
 
   /**
@@ -375,7 +959,8 @@ public class SegmentedJournal<E> implements Journal<E> {
    */
   private JournalSegment<E> createDiskSegment(JournalSegmentDescriptor descriptor) {
     File segmentFile = JournalSegmentFile.createSegmentFile(name, directory, descriptor.id());
-    Buffer buffer = FileBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
+    allocateSegmentFile(segmentFile);
+    Buffer buffer = FileBuffer.allocateChannel(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE, memoryAccount);
     descriptor.copyTo(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(segmentFile), descriptor);
     log.debug("Created disk segment: {}", segment);
@@ -387,7 +972,8 @@ public class SegmentedJournal<E> implements Journal<E> {
    */
   private JournalSegment<E> createMappedSegment(JournalSegmentDescriptor descriptor) {
     File segmentFile = JournalSegmentFile.createSegmentFile(name, directory, descriptor.id());
-    Buffer buffer = MappedBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
+    allocateSegmentFile(segmentFile);
+    Buffer buffer = MappedBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE, memoryAccount);
     descriptor.copyTo(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(segmentFile), descriptor);
     log.debug("Created memory mapped segment: {}", segment);
@@ -410,12 +996,23 @@ public class SegmentedJournal<E> implements Journal<E> {
    * Loads a segment.
    */
   private JournalSegment<E> loadSegment(long segmentId) {
+    return loadSegment(segmentId, storageLevel);
+  }
+
+  /**
+   * Loads a segment at the given storage level.
+   * <p>
+   * Segments of a {@link StorageLevel#TIERED} journal are loaded from disk and are migrated to memory once the
+   * journal has been opened.
+   */
+  JournalSegment<E> loadSegment(long segmentId, StorageLevel storageLevel) {
     switch (storageLevel) {
       case MEMORY:
         return loadMemorySegment(segmentId);
       case MAPPED:
         return loadMappedSegment(segmentId);
       case DISK:
+      case TIERED:
         return loadDiskSegment(segmentId);
       default:
         throw new AssertionError();
@@ -427,19 +1024,39 @@ public class SegmentedJournal<E> implements Journal<E> {
    */
   private JournalSegment<E> loadDiskSegment(long segmentId) {
     File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId);
-    Buffer buffer = FileBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
+    if (isCompressedFile(file)) {
+      return loadCompressedSegment(segmentId);
+    }
+    Buffer buffer = FileBuffer.allocateChannel(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE, memoryAccount);
     JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
     log.debug("Loaded disk segment: {} ({})", descriptor.id(), file.getName());
     return segment;
   }
 
+  /**
+   * Loads a compressed segment.
+   */
+  private JournalSegment<E> loadCompressedSegment(long segmentId) {
+    File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId);
+    Buffer buffer = CompressedSegmentBuffer.open(file);
+    JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(buffer);
+    JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
+    log.debug("Loaded compressed segment: {} ({})", descriptor.id(), file.getName());
+    return segment;
+  }
+
   /**
    * Loads a segment.
+   * <p>
+   * Compressed segment files cannot be mapped and are rewritten uncompressed before they're mapped.
    */
   private JournalSegment<E> loadMappedSegment(long segmentId) {
     File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId);
-    Buffer buffer = MappedBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
+    if (isCompressedFile(file)) {
+      decompressFile(segmentId);
+    }
+    Buffer buffer = MappedBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE, memoryAccount);
     JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
     log.debug("Loaded disk segment: {} ({})", descriptor.id(), file.getName());
@@ -467,78 +1084,130 @@ public class SegmentedJournal<E> implements Journal<E> {
     // Ensure log directories are created.
     directory.mkdirs();
 
-    TreeMap<Long, JournalSegment<E>> segments = new TreeMap<>();
-
-    // Iterate through all files in the log directory.
+    // Read the descriptors of all segment files in the log directory.
+    List<JournalSegmentFile> segmentFiles = new ArrayList<>();
+    List<Long> segmentIds = new ArrayList<>();
     for (File file : directory.listFiles(File::isFile)) {
-
-      // If the file looks like a segment file, attempt to load the segment.
-      if (JournalSegmentFile.isSegmentFile(name, file)) {
-        JournalSegmentFile segmentFile = new JournalSegmentFile(file);
+      if (JournalSegmentFile.isCompactFile(name, file)) {
+        log.debug("Deleting incomplete compacted segment: {}", file.getName());
+        file.delete();
+      } else if (JournalSegmentFile.isCompressFile(name, file)) {
+        log.debug("Deleting incomplete compressed segment: {}", file.getName());
+        file.delete();
+      } else if (JournalSegmentFile.isSegmentFile(name, file)) {
         JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
+        segmentFiles.add(new JournalSegmentFile(file));
+        segmentIds.add(descriptor.id());
+        descriptor.close();
+      }
+    }
 
-        // Load the segment.
-        JournalSegment<E> segment = loadSegment(descriptor.id());
-
-        // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
-        // by the earlier segment. This can occur due to segments being combined during log compaction.
-        Map.Entry<Long, JournalSegment<E>> previousEntry = segments.floorEntry(segment.index());
-        if (previousEntry != null) {
-
-          // If an existing descriptor exists with a lower index than this segment's first index, check to determine
-          // whether this segment's first index is contained in that existing index. If it is, determine which segment
-          // should take precedence based on segment versions.
-          JournalSegment previousSegment = previousEntry.getValue();
-
-          // If the two segments start at the same index, the segment with the higher version number is used.
-          if (previousSegment.index() == segment.index()) {
-            if (segment.descriptor().version() > previousSegment.descriptor().version()) {
-              log.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segmentFile.file().getName());
-              segments.remove(previousEntry.getKey());
-              previousSegment.close();
-              previousSegment.delete();
-            } else {
-              segment.close();
-              segment.delete();
-              continue;
-            }
-          }
-          // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
-          // supersedes the loaded segment. Log compaction processes ensure this is always the case.
-          else if (previousSegment.index() + previousSegment.length() > segment.index()) {
+    // Load and verify the segments. Loading a segment scans its entry framing, which is independent for each segment.
+    List<JournalSegment<E>> loadedSegments = loadSegments(segmentIds);
+
+    TreeMap<Long, JournalSegment<E>> segments = new TreeMap<>();
+    for (int i = 0; i < loadedSegments.size(); i++) {
+      JournalSegmentFile segmentFile = segmentFiles.get(i);
+      JournalSegment<E> segment = loadedSegments.get(i);
+
+      // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
+      // by the earlier segment. This can occur due to segments being combined during log compaction.
+      Map.Entry<Long, JournalSegment<E>> previousEntry = segments.floorEntry(segment.index());
+      if (previousEntry != null) {
+
+        // If an existing descriptor exists with a lower index than this segment's first index, check to determine
+        // whether this segment's first index is contained in that existing index. If it is, determine which segment
+        // should take precedence based on segment versions.
+        JournalSegment<E> previousSegment = previousEntry.getValue();
+
+        // If the two segments start at the same index, the segment with the higher version number is used. Segments
+        // of the same version are replaced by compacted segments, which always have a higher ID.
+        if (previousSegment.index() == segment.index()) {
+          if (segment.descriptor().version() > previousSegment.descriptor().version()
+              || (segment.descriptor().version() == previousSegment.descriptor().version() && segment.id() > previousSegment.id())) {
+            log.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segmentFile.file().getName());
+            segments.remove(previousEntry.getKey());
+            previousSegment.close();
+            previousSegment.delete();
+          } else {
             segment.close();
             segment.delete();
             continue;
           }
         }
-
-        // Add the segment to the segments list.
-        log.debug("Found segment: {} ({})", segment.descriptor().id(), segmentFile.file().getName());
-        segments.put(segment.index(), segment);
-
-        // Ensure any segments later in the log with which this segment overlaps are removed.
-        Map.Entry<Long, JournalSegment<E>> nextEntry = segments.higherEntry(segment.index());
-        while (nextEntry != null) {
-          if (nextEntry.getValue().index() < segment.index() + segment.length()) {
-            segments.remove(nextEntry.getKey());
-            nextEntry = segments.higherEntry(segment.index());
-          } else {
-            break;
-          }
+        // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
+        // supersedes the loaded segment. Log compaction processes ensure this is always the case.
+        else if (previousSegment.index() + previousSegment.length() > segment.index()) {
+          segment.close();
+          segment.delete();
+          continue;
         }
+      }
 
-        descriptor.close();
+      // Add the segment to the segments list.
+      log.debug("Found segment: {} ({})", segment.descriptor().id(), segmentFile.file().getName());
+      segments.put(segment.index(), segment);
+
+      // Ensure any segments later in the log with which this segment overlaps are removed.
+      Map.Entry<Long, JournalSegment<E>> nextEntry = segments.higherEntry(segment.index());
+      while (nextEntry != null) {
+        if (nextEntry.getValue().index() < segment.index() + segment.length()) {
+          segments.remove(nextEntry.getKey());
+          nextEntry.getValue().close();
+          nextEntry.getValue().delete();
+          nextEntry = segments.higherEntry(segment.index());
+        } else {
+          break;
+        }
       }
     }
     return segments.values();
   }
 
+  /**
+   * Loads the given segments, verifying them in parallel when there is more than one.
+   *
+   * @param segmentIds the IDs of the segments to load
+   * @return the loaded segments in the order of the given IDs
+   */
+  private List<JournalSegment<E>> loadSegments(List<Long> segmentIds) {
+    int parallelism = Math.min(segmentIds.size(), Runtime.getRuntime().availableProcessors());
+    if (parallelism <= 1) {
+      return segmentIds.stream().map(this::loadSegment).collect(Collectors.toList());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, namedThreads("atomix-journal-loader-" + name + "-%d", log));
+    try {
+      List<CompletableFuture<JournalSegment<E>>> futures = segmentIds.stream()
+          .map(segmentId -> CompletableFuture.supplyAsync(() -> loadSegment(segmentId), executor))
+          .collect(Collectors.toList());
+      try {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+      } catch (CompletionException e) {
+        futures.stream()
+            .filter(future -> !future.isCompletedExceptionally())
+            .forEach(future -> future.join().close());
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new StorageException(e.getCause());
+      }
+      return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Resets journal readers to the given head.
    *
    * @param index The index at which to reset readers.
    */
   void resetHead(long index) {
+    if (compressor != null) {
+      compressor.reset();
+    }
+    if (migrator != null) {
+      migrator.reset();
+    }
     for (SegmentedJournalReader<E> reader : readers) {
       if (reader.getNextIndex() < index) {
         reader.reset(index);
@@ -552,9 +1221,17 @@ public class SegmentedJournal<E> implements Journal<E> {
    * @param index The index at which to reset readers.
    */
   void resetTail(long index) {
+    if (compressor != null) {
+      compressor.truncated(index);
+    }
+    if (migrator != null) {
+      migrator.truncated(index);
+    }
     for (SegmentedJournalReader<E> reader : readers) {
       if (reader.getNextIndex() > index) {
         reader.reset(index);
+      } else if (readAhead != null) {
+        reader.invalidate();
       }
     }
   }
@@ -615,18 +1292,104 @@ public class SegmentedJournal<E> implements Journal<E> {
       SortedMap<Long, JournalSegment<E>> compactSegments = segments.headMap(segmentEntry.getValue().index());
       if (!compactSegments.isEmpty()) {
         log.debug("{} - Compacting {} segment(s)", name, compactSegments.size());
-        for (JournalSegment segment : compactSegments.values()) {
+        for (JournalSegment<E> segment : compactSegments.values()) {
           log.trace("Deleting segment: {}", segment);
           segment.close();
-          segment.delete();
+          deleteSegment(segment);
         }
         compactSegments.clear();
       }
     }
+
+    // Allow the shared log to delete segments containing only entries preceding the first segment.
+    if (sharedLog != null) {
+      sharedLog.compact(name, getFirstSegment().index());
+    }
+  }
+
+  /**
+   * Compacts the journal up to the given index by rewriting segments to retain only entries that are still needed.
+   * <p>
+   * Segments in which all entries precede the given index are rewritten to retain only the entries for which the
+   * given predicate returns {@code true}, and sparse neighbouring segments are merged. Retained entries keep their
+   * indexes, so readers skip over the indexes of removed entries. Entries preceding the given index must not be
+   * truncated after they have been compacted.
+   * <p>
+   * Journals sharing a write-ahead log cannot be compacted by predicate, since their segments hold only the positions
+   * of entries in the shared log, and the shared log's segments are not rewritten.
+   *
+   * @param index The index up to which to compact the journal.
+   * @param predicate A predicate indicating whether an entry is still needed.
+   * @throws IllegalStateException if the journal shares a write-ahead log
+   */
+  public void compact(long index, Predicate<Indexed<E>> predicate) {
+    checkNotNull(predicate, "predicate cannot be null");
+    checkState(sharedLog == null, "cannot compact a journal sharing a write-ahead log by predicate");
+    new JournalCompactor<>(this, predicate).compact(index);
+  }
+
+  /**
+   * Flushes all segments containing entries following the given index.
+   *
+   * @param index The index following which to flush segments.
+   */
+  void flush(long index) {
+    if (sharedLog != null) {
+      sharedLog.flush();
+      return;
+    }
+
+    Map.Entry<Long, JournalSegment<E>> segmentEntry = segments.floorEntry(index + 1);
+    Collection<JournalSegment<E>> flushSegments = segmentEntry != null
+        ? segments.tailMap(segmentEntry.getKey(), true).values()
+        : segments.values();
+    for (JournalSegment<E> segment : flushSegments) {
+      if (segment.isOpen()) {
+        segment.flush();
+      }
+    }
+  }
+
+  /**
+   * Returns the positions in the shared log of the entries in the journal, which the journal's segments store in place
+   * of the entries themselves.
+   */
+  private SharedWriteAheadLog.Positions sharedPositions() {
+    SharedWriteAheadLog.Positions positions = new SharedWriteAheadLog.Positions();
+    positions.reset(getFirstSegment().index());
+    for (JournalSegment<E> segment : segments.values()) {
+      try (JournalSegmentReader<E> reader = segment.createReader()) {
+        while (reader.hasNext()) {
+          Indexed<E> entry = reader.next();
+          positions.append(entry.index(), entry.bytes());
+        }
+      }
+    }
+    return positions;
   }
 
   @Override
   public void close() {
+    flusher.close();
+    appendNotifier.close();
+    if (migrator != null) {
+      migrator.close();
+    }
+    if (allocator != null) {
+      allocator.close();
+    }
+    if (readAhead != null) {
+      readAhead.close();
+    }
+    if (compressor != null) {
+      compressor.close();
+    }
+    if (scrubber != null) {
+      scrubber.close();
+    }
+    if (sharedLog != null) {
+      sharedLog.unregister(name, sharedPositions());
+    }
     segments.values().forEach(segment -> {
       log.debug("Closing segment: {}", segment);
       segment.close();
@@ -643,6 +1406,14 @@ public class SegmentedJournal<E> implements Journal<E> {
     private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir");
     private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
     private static final int DEFAULT_MAX_ENTRIES_PER_SEGMENT = 1024 * 1024;
+    private static final double DEFAULT_INDEX_DENSITY = .005;
+    private static final FlushPolicy DEFAULT_FLUSH_POLICY = FlushPolicy.never();
+    private static final boolean DEFAULT_PREALLOCATE_SEGMENTS = false;
+    private static final long DEFAULT_TIERED_MEMORY_BUDGET = DEFAULT_MAX_SEGMENT_SIZE * 4L;
+    private static final int DEFAULT_READ_AHEAD_SIZE = 1024 * 1024;
+    private static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 1024 * 64;
+    private static final JournalChecksum DEFAULT_CHECKSUM = JournalChecksum.CRC32;
+    private static final int DEFAULT_SCRUB_RATE = 1024 * 1024;
 
     protected String name = DEFAULT_NAME;
     protected StorageLevel storageLevel = StorageLevel.DISK;
@@ -650,6 +1421,17 @@ public class SegmentedJournal<E> implements Journal<E> {
     protected Serializer serializer;
     protected int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
     protected int maxEntriesPerSegment = DEFAULT_MAX_ENTRIES_PER_SEGMENT;
+    protected double indexDensity = DEFAULT_INDEX_DENSITY;
+    protected FlushPolicy flushPolicy = DEFAULT_FLUSH_POLICY;
+    protected boolean preallocateSegments = DEFAULT_PREALLOCATE_SEGMENTS;
+    protected long tieredMemoryBudget = DEFAULT_TIERED_MEMORY_BUDGET;
+    protected MappedMemoryBudget mappedMemoryBudget;
+    protected SharedWriteAheadLog sharedLog;
+    protected int readAheadSize;
+    protected int compressionBlockSize;
+    protected JournalChecksum checksum = DEFAULT_CHECKSUM;
+    protected int scrubRate;
+    protected MemoryAccount memoryAccount;
 
     protected Builder() {
     }
@@ -757,6 +1539,244 @@ public class SegmentedJournal<E> implements Journal<E> {
       return this;
     }
 
+    /**
+     * Sets the journal index density, returning the builder for method chaining.
+     * <p>
+     * The index density is the frequency at which the position of entries written to the journal will be recorded
+     * in an in-memory index for faster seeking. A density of {@code 1} indexes every entry, while the default density
+     * of {@code .005} indexes every 200th entry.
+     *
+     * @param indexDensity the index density
+     * @return the journal builder
+     * @throws IllegalArgumentException if the density is not between 0 and 1
+     */
+    public Builder<E> withIndexDensity(double indexDensity) {
+      checkArgument(indexDensity > 0 && indexDensity <= 1, "index density must be between 0 and 1");
+      this.indexDensity = indexDensity;
+      return this;
+    }
+
+    /**
+     * Sets the journal flush policy, returning the builder for method chaining.
+     * <p>
+     * The flush policy dictates when entries written to the journal are flushed to disk. Asynchronous, size and
+     * interval based policies flush the journal on a background thread. By default, the journal is only flushed when
+     * {@link JournalWriter#flush()} is called.
+     *
+     * @param flushPolicy the journal flush policy
+     * @return the journal builder
+     * @throws NullPointerException if the flush policy is {@code null}
+     */
+    public Builder<E> withFlushPolicy(FlushPolicy flushPolicy) {
+      this.flushPolicy = checkNotNull(flushPolicy, "flushPolicy cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables segment preallocation, returning the builder for method chaining.
+     * <p>
+     * When segment preallocation is enabled, the file for the next segment is created and zeroed on a background
+     * thread ahead of need, and the files of compacted segments are recycled rather than deleted. This avoids
+     * creating and sizing files on the writer thread when the journal rolls over to a new segment.
+     *
+     * @return The journal builder.
+     */
+    public Builder<E> withPreallocateSegments() {
+      return withPreallocateSegments(true);
+    }
+
+    /**
+     * Sets whether to preallocate segments, returning the builder for method chaining.
+     * <p>
+     * When segment preallocation is enabled, the file for the next segment is created and zeroed on a background
+     * thread ahead of need, and the files of compacted segments are recycled rather than deleted. This avoids
+     * creating and sizing files on the writer thread when the journal rolls over to a new segment.
+     *
+     * @param preallocateSegments Whether to preallocate segments.
+     * @return The journal builder.
+     */
+    public Builder<E> withPreallocateSegments(boolean preallocateSegments) {
+      this.preallocateSegments = preallocateSegments;
+      return this;
+    }
+
+    /**
+     * Sets the tiered memory budget, returning the builder for method chaining.
+     * <p>
+     * The budget applies to the {@link StorageLevel#TIERED} storage level. The most recent segments are memory mapped
+     * as long as their combined size fits within the budget, and older segments are migrated to disk on a background
+     * thread. The current segment is always memory mapped.
+     *
+     * @param tieredMemoryBudget The tiered memory budget in bytes.
+     * @return The journal builder.
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public Builder<E> withTieredMemoryBudget(long tieredMemoryBudget) {
+      checkArgument(tieredMemoryBudget >= 0, "tieredMemoryBudget must be positive");
+      this.tieredMemoryBudget = tieredMemoryBudget;
+      return this;
+    }
+
+    /**
+     * Sets the mapped memory budget, returning the builder for method chaining.
+     * <p>
+     * The budget applies to the {@link StorageLevel#MAPPED} storage level and may be shared by multiple journals.
+     * When the combined size of mapped segments exceeds the budget, the least recently used segments are unmapped
+     * and are mapped again when they are next read. The current segment and segments with open readers are never
+     * unmapped.
+     *
+     * @param mappedMemoryBudget The mapped memory budget.
+     * @return The journal builder.
+     * @throws NullPointerException if the budget is null
+     */
+    public Builder<E> withMappedMemoryBudget(MappedMemoryBudget mappedMemoryBudget) {
+      this.mappedMemoryBudget = checkNotNull(mappedMemoryBudget, "mappedMemoryBudget cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the shared write-ahead log, returning the builder for method chaining.
+     * <p>
+     * When a shared log is configured, entries are persisted only by writing them to the shared log, and the
+     * journal's segments hold the position of each entry in the shared log in memory regardless of the configured
+     * storage level. Readers read entries from the shared log's segments. Flushing the journal flushes the shared
+     * log, so a single flush persists the writes of all journals sharing the log. The positions of the journal's
+     * entries are recovered from the shared log when the journal is opened.
+     *
+     * @param sharedLog The shared write-ahead log.
+     * @return The journal builder.
+     * @throws NullPointerException if the shared log is null
+     */
+    public Builder<E> withSharedLog(SharedWriteAheadLog sharedLog) {
+      this.sharedLog = checkNotNull(sharedLog, "sharedLog cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables read-ahead for readers of disk segments, returning the builder for method chaining.
+     * <p>
+     * When read-ahead is enabled, readers of segments stored on disk read the chunk of the segment following their
+     * position on a background thread, and the entries in the chunk are verified and decoded before the reader
+     * consumes them. By default, chunks of up to {@code 1024 * 1024} bytes are read.
+     *
+     * @return The journal builder.
+     */
+    public Builder<E> withReadAhead() {
+      return withReadAheadSize(DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    /**
+     * Sets the read-ahead size, returning the builder for method chaining.
+     * <p>
+     * The read-ahead size applies to the {@link StorageLevel#DISK} storage level and to segments stored on disk by
+     * the {@link StorageLevel#TIERED} storage level. Readers of segments stored on disk read chunks of up to the
+     * given number of bytes ahead of their position on a background thread. An entry larger than a chunk is read
+     * synchronously. A size of {@code 0} disables read-ahead.
+     *
+     * @param readAheadSize The read-ahead size in bytes.
+     * @return The journal builder.
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public Builder<E> withReadAheadSize(int readAheadSize) {
+      checkArgument(readAheadSize >= 0, "readAheadSize must be positive");
+      this.readAheadSize = readAheadSize;
+      return this;
+    }
+
+    /**
+     * Enables compression of sealed segments, returning the builder for method chaining.
+     * <p>
+     * When compression is enabled, segments stored on disk are rewritten in compressed blocks on a background thread
+     * once the journal has rolled over to the next segment. By default, blocks of {@code 1024 * 64} uncompressed
+     * bytes are compressed.
+     *
+     * @return The journal builder.
+     */
+    public Builder<E> withCompression() {
+      return withCompressionBlockSize(DEFAULT_COMPRESSION_BLOCK_SIZE);
+    }
+
+    /**
+     * Sets the compression block size, returning the builder for method chaining.
+     * <p>
+     * The block size applies to the {@link StorageLevel#DISK} storage level. Sealed segments are rewritten in
+     * deflated blocks of the given number of uncompressed bytes, and an index of the blocks is stored at the head of
+     * the segment file, so reading an entry only inflates the block containing it. The current segment is never
+     * compressed. A size of {@code 0} disables compression, though existing compressed segments remain readable.
+     *
+     * @param compressionBlockSize The compression block size in bytes.
+     * @return The journal builder.
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public Builder<E> withCompressionBlockSize(int compressionBlockSize) {
+      checkArgument(compressionBlockSize >= 0, "compressionBlockSize must be positive");
+      this.compressionBlockSize = compressionBlockSize;
+      return this;
+    }
+
+    /**
+     * Sets the checksum algorithm of new segments, returning the builder for method chaining.
+     * <p>
+     * The algorithm is recorded in the descriptor of each new segment, so segments written with different algorithms
+     * can be read by the same journal. By default, {@link JournalChecksum#CRC32} is used, which is intrinsified by
+     * most JVMs.
+     *
+     * @param checksum The checksum algorithm.
+     * @return The journal builder.
+     * @throws NullPointerException if the checksum is null
+     */
+    public Builder<E> withChecksum(JournalChecksum checksum) {
+      this.checksum = checkNotNull(checksum, "checksum cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables background scrubbing of sealed segments, returning the builder for method chaining.
+     * <p>
+     * When scrubbing is enabled, the entries of sealed segments stored on disk are periodically re-verified on a
+     * background thread. By default, segments are read at up to {@code 1024 * 1024} bytes per second.
+     *
+     * @return The journal builder.
+     */
+    public Builder<E> withScrubbing() {
+      return withScrubRate(DEFAULT_SCRUB_RATE);
+    }
+
+    /**
+     * Sets the scrub rate, returning the builder for method chaining.
+     * <p>
+     * The rate applies to the {@link StorageLevel#DISK}, {@link StorageLevel#MAPPED} and {@link StorageLevel#TIERED}
+     * storage levels. Sealed segments are periodically read from disk on a low priority background thread at up to the
+     * given number of bytes per second, and segments containing entries that fail verification are logged and reported
+     * by {@link SegmentedJournal#getCorruptSegments()}. A rate of {@code 0} disables background scrubbing.
+     *
+     * @param scrubRate The scrub rate in bytes per second.
+     * @return The journal builder.
+     * @throws IllegalArgumentException if the rate is negative
+     */
+    public Builder<E> withScrubRate(int scrubRate) {
+      checkArgument(scrubRate >= 0, "scrubRate must be positive");
+      this.scrubRate = scrubRate;
+      return this;
+    }
+
+    /**
+     * Sets the memory account, returning the builder for method chaining.
+     * <p>
+     * The memory mapped by {@link StorageLevel#MAPPED} and {@link StorageLevel#TIERED} segments, the direct write
+     * buffers of segments stored on disk and the read-ahead chunks are charged to the account. By default, the
+     * journal is charged to the {@code journal-<name>} account of the {@link MemoryAccounting#global() global}
+     * accounting.
+     *
+     * @param memoryAccount The memory account.
+     * @return The journal builder.
+     * @throws NullPointerException if the account is null
+     */
+    public Builder<E> withMemoryAccount(MemoryAccount memoryAccount) {
+      this.memoryAccount = checkNotNull(memoryAccount, "memoryAccount cannot be null");
+      return this;
+    }
+
     /**
      * Builds the journal.
      *
@@ -764,7 +1784,8 @@ public class SegmentedJournal<E> implements Journal<E> {
      */
     @Override
     public SegmentedJournal<E> build() {
-      return new SegmentedJournal<>(name, storageLevel, directory, serializer, maxSegmentSize, maxEntriesPerSegment);
+      return new SegmentedJournal<>(name, storageLevel, directory, serializer, maxSegmentSize, maxEntriesPerSegment, indexDensity, flushPolicy, preallocateSegments, tieredMemoryBudget, mappedMemoryBudget, sharedLog, readAheadSize, compressionBlockSize, checksum, scrubRate,
+          memoryAccount != null ? memoryAccount : MemoryAccounting.global().account("journal-" + name));
     }
   }
 }
\ No newline at end of file
@@ -15,7 +15,9 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.Collection;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Segmented journal reader.
@@ -24,12 +26,16 @@ import java.util.NoSuchElementException;
  */
 public class SegmentedJournalReader<E> implements JournalReader<E> {
   private final SegmentedJournal<E> journal;
+  private final SharedWriteAheadLog.EntryReader sharedReader;
   private JournalSegment<E> currentSegment;
   private Indexed<E> previousEntry;
   private JournalSegmentReader<E> currentReader;
+  private Indexed<E> position;
+  private Indexed<E> entry;
 
   public SegmentedJournalReader(SegmentedJournal<E> journal, long index) {
     this.journal = journal;
+    this.sharedReader = journal.sharedLog() != null ? journal.sharedLog().openReader(journal.name()) : null;
     initialize(index);
   }
 
@@ -38,11 +44,10 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
    */
   private void initialize(long index) {
     currentSegment = journal.getSegment(index);
-    currentReader = currentSegment.createReader();
-    long nextIndex = getNextIndex();
-    while (index > nextIndex && hasNext()) {
-      next();
-      nextIndex = getNextIndex();
+    currentReader = currentSegment.createReader(journal.readAhead());
+    if (index > currentReader.getNextIndex()) {
+      currentReader.reset(index);
+      forward(index);
     }
   }
 
@@ -71,9 +76,27 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
   public Indexed<E> getCurrentEntry() {
     Indexed<E> currentEntry = currentReader.getCurrentEntry();
     if (currentEntry != null) {
-      return currentEntry;
+      return read(currentEntry);
     }
-    return previousEntry;
+    return read(previousEntry);
+  }
+
+  /**
+   * Reads an entry read from a segment of a journal sharing a write-ahead log from the shared log.
+   * <p>
+   * The segments of a journal sharing a log store the position of each entry in the shared log, so the entry is
+   * read from the shared log's segments. The last entry read is retained so that the current entry is not read
+   * again for each call to {@link #getCurrentEntry()}.
+   */
+  private Indexed<E> read(Indexed<E> position) {
+    if (sharedReader == null || position == null) {
+      return position;
+    }
+    if (position != this.position) {
+      entry = sharedReader.read(position.index(), position.bytes(), journal.serializer());
+      this.position = position;
+    }
+    return entry;
   }
 
   @Override
@@ -85,7 +108,7 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
   public void reset() {
     currentReader.close();
     currentSegment = journal.getFirstSegment();
-    currentReader = currentSegment.createReader();
+    currentReader = currentSegment.createReader(journal.readAhead());
     previousEntry = null;
   }
 
@@ -112,7 +135,7 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
       if (segment != null) {
         currentReader.close();
         currentSegment = segment;
-        currentReader = currentSegment.createReader();
+        currentReader = currentSegment.createReader(journal.readAhead());
       }
     }
 
@@ -124,19 +147,56 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
    * Fast forwards the journal to the given index.
    */
   private void forward(long index) {
-    while (getNextIndex() < index && hasNext()) {
+    while (hasNext() && getNextIndex() < index) {
       next();
     }
   }
 
+  /**
+   * Returns a future to be completed once the reader's next entry has been appended to the journal.
+   * <p>
+   * Readers tailing the journal can wait on the future and then {@link #drain(int) drain} the entries appended in
+   * the meantime as a batch, rather than repeatedly checking {@link #hasNext()}.
+   *
+   * @return a future to be completed with the last index in the journal once the next entry can be read
+   */
+  public CompletableFuture<Long> awaitNext() {
+    return journal.awaitAppend(getNextIndex());
+  }
+
+  /**
+   * Repositions the reader if the segment it is reading has been replaced by compaction.
+   *
+   * @param segments the segments that have been replaced
+   */
+  void refresh(Collection<JournalSegment<E>> segments) {
+    if (segments.contains(currentSegment)) {
+      long nextIndex = getNextIndex();
+      Indexed<E> currentEntry = getCurrentEntry();
+      currentReader.close();
+      currentSegment = journal.getSegment(nextIndex);
+      currentReader = currentSegment.createReader(journal.readAhead());
+      currentReader.reset(nextIndex);
+      previousEntry = currentEntry;
+    }
+  }
+
+  /**
+   * Discards entries read ahead of the reader's position.
+   */
+  void invalidate() {
+    currentReader.invalidate();
+  }
+
   @Override
   public boolean hasNext() {
     if (!currentReader.hasNext()) {
       JournalSegment<E> nextSegment = journal.getNextSegment(currentSegment.index());
       if (nextSegment != null) {
         previousEntry = currentReader.getCurrentEntry();
+        currentReader.close();
         currentSegment = nextSegment;
-        currentReader = currentSegment.createReader();
+        currentReader = currentSegment.createReader(journal.readAhead());
         return currentReader.hasNext();
       }
       return false;
@@ -150,21 +210,25 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
       JournalSegment<E> nextSegment = journal.getNextSegment(currentSegment.index());
       if (nextSegment != null) {
         previousEntry = currentReader.getCurrentEntry();
+        currentReader.close();
         currentSegment = nextSegment;
-        currentReader = currentSegment.createReader();
-        return currentReader.next();
+        currentReader = currentSegment.createReader(journal.readAhead());
+        return read(currentReader.next());
       } else {
         throw new NoSuchElementException();
       }
     } else {
       previousEntry = currentReader.getCurrentEntry();
-      return currentReader.next();
+      return read(currentReader.next());
     }
   }
 
   @Override
   public void close() {
     currentReader.close();
+    if (sharedReader != null) {
+      sharedReader.close();
+    }
     journal.closeReader(this);
   }
 }
\ No newline at end of file
@@ -15,18 +15,32 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Checksum;
+
 /**
  * Log writer.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class SegmentedJournalWriter<E> implements JournalWriter<E> {
+  private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+  private static final int RECOVERY_BATCH_SIZE = 1024;
+
   private final SegmentedJournal<E> journal;
+  private final SharedWriteAheadLog sharedLog;
+  private final Checksum checksum;
   private JournalSegment<E> currentSegment;
   private JournalSegmentWriter<E> currentWriter;
+  private Indexed<E> lastEntry;
+  private boolean recovering;
 
   public SegmentedJournalWriter(SegmentedJournal<E> journal) {
     this.journal = journal;
+    this.sharedLog = journal.sharedLog();
+    this.checksum = journal.checksum().newChecksum();
     this.currentSegment = journal.getLastSegment();
     this.currentWriter = currentSegment.writer();
   }
@@ -38,7 +52,21 @@ public class SegmentedJournalWriter<E> implements JournalWriter<E> {
 
   @Override
   public Indexed<E> getLastEntry() {
-    return currentWriter.getLastEntry();
+    if (sharedLog == null) {
+      return currentWriter.getLastEntry();
+    }
+
+    // The segments of a journal sharing a log store the positions of entries, so read the entry from the shared log.
+    Indexed<E> position = currentWriter.getLastEntry();
+    if (position == null) {
+      return null;
+    }
+    if (lastEntry == null || lastEntry.index() != position.index()) {
+      try (SharedWriteAheadLog.EntryReader reader = sharedLog.openReader(journal.name())) {
+        lastEntry = reader.read(position.index(), position.bytes(), journal.serializer());
+      }
+    }
+    return lastEntry;
   }
 
   @Override
@@ -55,25 +83,180 @@ public class SegmentedJournalWriter<E> implements JournalWriter<E> {
     currentWriter.close();
     currentSegment = journal.resetSegments(index);
     currentWriter = currentSegment.writer();
+    lastEntry = null;
     journal.resetHead(index);
+    if (!recovering) {
+      if (sharedLog != null) {
+        sharedLog.reset(journal.name(), index);
+      }
+      journal.flusher().truncated(getLastIndex());
+      journal.appendNotifier().update(getLastIndex());
+    }
+  }
+
+  /**
+   * Recovers the journal from the positions of its entries in its shared log.
+   *
+   * @param positions the positions of the journal's entries in the shared log
+   */
+  void recover(SharedWriteAheadLog.Positions positions) {
+    recovering = true;
+    try {
+      if (positions.firstIndex() != getNextIndex()) {
+        reset(positions.firstIndex());
+      }
+      List<Indexed<E>> entries = new ArrayList<>(Math.min(positions.size(), RECOVERY_BATCH_SIZE));
+      for (int i = 0; i < positions.size(); i++) {
+        entries.add(new Indexed<>(positions.firstIndex() + i, positions.get(i), 0, journal.serializer()));
+        if (entries.size() == RECOVERY_BATCH_SIZE) {
+          write(entries);
+          entries = new ArrayList<>(RECOVERY_BATCH_SIZE);
+        }
+      }
+      write(entries);
+    } finally {
+      recovering = false;
+    }
+  }
+
+  /**
+   * Serializes an entry so that its bytes can be written to the shared log.
+   */
+  private <T extends E> Indexed<T> serialize(long index, T entry) {
+    byte[] bytes = journal.serializer().encode(entry);
+    checksum.reset();
+    checksum.update(bytes, 0, bytes.length);
+    return new Indexed<>(index, entry, bytes, checksum.getValue(), journal.serializer());
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public <T extends E> Indexed<T> append(T entry) {
+    if (sharedLog != null) {
+      Indexed<T> indexedEntry = serialize(getNextIndex(), entry);
+      appendShared(Collections.singletonList((Indexed<E>) indexedEntry));
+      return indexedEntry;
+    }
+
     if (currentWriter.isFull()) {
       currentSegment = journal.getNextSegment();
       currentWriter = currentSegment.writer();
     }
-    return currentWriter.append(entry);
+    Indexed<T> indexedEntry = currentWriter.append(entry);
+    journal.flusher().appended(indexedEntry.index(), indexedEntry.size() + ENTRY_HEADER_BYTES);
+    journal.appendNotifier().update(indexedEntry.index());
+    return indexedEntry;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends E> List<Indexed<T>> append(List<T> entries) {
+    if (sharedLog != null) {
+      List<Indexed<E>> serializedEntries = new ArrayList<>(entries.size());
+      long index = getNextIndex();
+      for (T entry : entries) {
+        serializedEntries.add(serialize(index++, entry));
+      }
+      return (List) appendShared(serializedEntries);
+    }
+
+    List<Indexed<T>> indexedEntries = new ArrayList<>(entries.size());
+    while (indexedEntries.size() < entries.size()) {
+      if (currentWriter.isFull()) {
+        currentSegment = journal.getNextSegment();
+        currentWriter = currentSegment.writer();
+      }
+      indexedEntries.addAll(currentWriter.append(entries.subList(indexedEntries.size(), entries.size())));
+    }
+    appended(indexedEntries);
+    return indexedEntries;
   }
 
   @Override
   public void append(Indexed<E> entry) {
+    // If the entry's index is less than the next index, truncate the journal.
+    if (entry.index() < getNextIndex()) {
+      truncate(entry.index() - 1);
+    }
+
+    if (sharedLog != null) {
+      appendShared(Collections.singletonList(entry.isSerialized() ? entry : serialize(entry.index(), entry.entry())));
+      return;
+    }
+
     if (currentWriter.isFull()) {
       currentSegment = journal.getNextSegment();
       currentWriter = currentSegment.writer();
     }
     currentWriter.append(entry);
+    appended(Collections.singletonList(entry));
+  }
+
+  @Override
+  public List<Indexed<E>> appendIndexed(List<Indexed<E>> entries) {
+    // If the first entry's index is less than the next index, truncate the journal.
+    if (!entries.isEmpty() && entries.get(0).index() < getNextIndex()) {
+      truncate(entries.get(0).index() - 1);
+    }
+
+    if (sharedLog != null) {
+      List<Indexed<E>> serializedEntries = new ArrayList<>(entries.size());
+      for (Indexed<E> entry : entries) {
+        serializedEntries.add(entry.isSerialized() ? entry : serialize(entry.index(), entry.entry()));
+      }
+      return appendShared(serializedEntries);
+    }
+
+    List<Indexed<E>> indexedEntries = write(entries);
+    appended(indexedEntries);
+    return indexedEntries;
+  }
+
+  /**
+   * Writes serialized entries to the shared log and their positions in the shared log to the journal's segments.
+   */
+  private List<Indexed<E>> appendShared(List<Indexed<E>> entries) {
+    if (entries.isEmpty()) {
+      return entries;
+    }
+    List<byte[]> positions = sharedLog.append(journal.name(), entries);
+    List<Indexed<E>> positionEntries = new ArrayList<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      positionEntries.add(new Indexed<>(entries.get(i).index(), positions.get(i), 0, journal.serializer()));
+    }
+    write(positionEntries);
+    lastEntry = entries.get(entries.size() - 1);
+    appended(entries);
+    return entries;
+  }
+
+  /**
+   * Writes indexed entries to the journal's segments, rolling over to new segments as segments fill up.
+   */
+  private List<Indexed<E>> write(List<Indexed<E>> entries) {
+    List<Indexed<E>> indexedEntries = new ArrayList<>(entries.size());
+    while (indexedEntries.size() < entries.size()) {
+      if (currentWriter.isFull()) {
+        currentSegment = journal.getNextSegment();
+        currentWriter = currentSegment.writer();
+      }
+      indexedEntries.addAll(currentWriter.appendIndexed(entries.subList(indexedEntries.size(), entries.size())));
+    }
+    return indexedEntries;
+  }
+
+  /**
+   * Records a batch of appended entries with the journal flusher, and notifies readers waiting for the entries.
+   */
+  private void appended(List<? extends Indexed<?>> entries) {
+    if (!entries.isEmpty() && !recovering) {
+      long bytes = 0;
+      for (Indexed<?> entry : entries) {
+        bytes += entry.size() + ENTRY_HEADER_BYTES;
+      }
+      journal.flusher().appended(entries.get(entries.size() - 1).index(), bytes);
+      journal.appendNotifier().update(entries.get(entries.size() - 1).index());
+    }
   }
 
   @Override
@@ -88,14 +271,22 @@ public class SegmentedJournalWriter<E> implements JournalWriter<E> {
 
     // Truncate the current index.
     currentWriter.truncate(index);
+    lastEntry = null;
 
     // Reset segment readers.
     journal.resetTail(index + 1);
+    if (!recovering) {
+      if (sharedLog != null) {
+        sharedLog.truncate(journal.name(), index);
+      }
+      journal.flusher().truncated(getLastIndex());
+      journal.appendNotifier().update(getLastIndex());
+    }
   }
 
   @Override
   public void flush() {
-    currentWriter.flush();
+    journal.flusher().flush();
   }
 
   @Override
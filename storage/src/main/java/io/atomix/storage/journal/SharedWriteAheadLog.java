@@ -0,0 +1,594 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.StorageLevel;
+import io.atomix.utils.serializer.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Write-ahead log shared by multiple segmented journals.
+ * <p>
+ * Journals built {@link SegmentedJournal.Builder#withSharedLog(SharedWriteAheadLog) with} a shared log write every
+ * append, truncation and reset to the shared log as a record tagged with the journal's name and the journal's own
+ * index. Writes from all journals are appended to a single sequential segmented journal, and a flush of any journal
+ * flushes the shared log once on behalf of all journals that have written to it since the last flush.
+ * <p>
+ * The shared log holds the only copy of each entry. A journal's segments store the {@link Positions position} of
+ * each of its entries in the shared log, and readers of the journal read entries from the shared log's segments
+ * when they're needed. When the shared log is opened, it rebuilds the positions of every journal's entries in a
+ * single scan, and when a journal is closed, its positions are handed back to the shared log, so the journal can be
+ * reopened without scanning the log again.
+ * <p>
+ * Segments of the shared log are deleted once every journal that has written to them has compacted past the
+ * entries they contain. Journal names must be unique among the journals sharing a log.
+ */
+public class SharedWriteAheadLog implements AutoCloseable {
+  private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+
+  /**
+   * Returns a new shared write-ahead log builder.
+   *
+   * @return A new shared write-ahead log builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final SegmentedJournal<Record> journal;
+  private final SegmentedJournalWriter<Record> writer;
+  private final Map<String, Positions> positions = new HashMap<>();
+  private final Map<String, Long> compactIndexes = new HashMap<>();
+  private final NavigableMap<Long, Map<String, Long>> segmentIndexes = new TreeMap<>();
+  private final Object flushLock = new Object();
+  private final AtomicLong flushCount = new AtomicLong();
+  private volatile long writtenIndex;
+  private volatile long flushedIndex;
+
+  SharedWriteAheadLog(SegmentedJournal<Record> journal) {
+    this.journal = checkNotNull(journal, "journal cannot be null");
+    this.writer = journal.writer();
+    recover();
+  }
+
+  /**
+   * Rebuilds the positions of all journals' entries from the records in the log.
+   */
+  private void recover() {
+    JournalSegment<Record> segment = journal.getFirstSegment();
+    while (segment != null) {
+      int offset = 0;
+      try (JournalSegmentReader<Record> reader = segment.createReader()) {
+        while (reader.hasNext()) {
+          Indexed<Record> indexed = reader.next();
+          Record record = indexed.entry();
+          Positions positions = this.positions.computeIfAbsent(record.log, l -> new Positions());
+          switch (record.type) {
+            case APPEND:
+              positions.append(record.index, position(indexed.index(), offset));
+              break;
+            case TRUNCATE:
+              positions.truncate(record.index);
+              break;
+            case RESET:
+              positions.reset(record.index);
+              compactIndexes.merge(record.log, record.index, Math::max);
+              break;
+            default:
+              throw new AssertionError();
+          }
+          track(segment.index(), record);
+          offset += ENTRY_HEADER_BYTES + indexed.size();
+        }
+      }
+      segment = journal.getNextSegment(segment.index());
+    }
+    writtenIndex = writer.getLastIndex();
+    flushedIndex = writtenIndex;
+  }
+
+  /**
+   * Records the journal index of a record written to the log segment starting at the given index.
+   */
+  private void track(long segmentIndex, Record record) {
+    segmentIndexes.computeIfAbsent(segmentIndex, i -> new HashMap<>()).merge(record.log, record.index, Math::max);
+  }
+
+  /**
+   * Returns the number of times the log has been flushed to disk.
+   *
+   * @return The number of times the log has been flushed to disk.
+   */
+  public long flushCount() {
+    return flushCount.get();
+  }
+
+  /**
+   * Registers a journal with the log, returning the positions from which to recover the journal.
+   *
+   * @param name the journal name
+   * @return the positions of the journal's entries, or {@code null} if the journal has not written to the log
+   */
+  synchronized Positions register(String name) {
+    return positions.remove(name);
+  }
+
+  /**
+   * Unregisters a closed journal from the log, retaining the positions of its entries in case it's opened again.
+   *
+   * @param name the journal name
+   * @param positions the positions of the journal's entries
+   */
+  synchronized void unregister(String name, Positions positions) {
+    this.positions.put(name, positions);
+  }
+
+  /**
+   * Writes entries appended to a journal to the log.
+   *
+   * @param name the journal name
+   * @param entries the serialized entries appended to the journal
+   * @return the {@link #position(long, int) positions} of the entries in the log
+   */
+  synchronized List<byte[]> append(String name, List<? extends Indexed<?>> entries) {
+    List<Record> records = new ArrayList<>(entries.size());
+    for (Indexed<?> entry : entries) {
+      records.add(new Record(Record.Type.APPEND, name, entry.index(), entry.checksum(), entry.bytes()));
+    }
+    return write(records);
+  }
+
+  /**
+   * Writes the truncation of a journal to the log.
+   *
+   * @param name the journal name
+   * @param index the index to which the journal was truncated
+   */
+  synchronized void truncate(String name, long index) {
+    write(Collections.singletonList(new Record(Record.Type.TRUNCATE, name, index, 0, null)));
+  }
+
+  /**
+   * Writes the reset of a journal to the log.
+   *
+   * @param name the journal name
+   * @param index the index to which the head of the journal was reset
+   */
+  synchronized void reset(String name, long index) {
+    write(Collections.singletonList(new Record(Record.Type.RESET, name, index, 0, null)));
+    compactIndexes.merge(name, index, Math::max);
+  }
+
+  /**
+   * Writes records to the log, returning the position of each record.
+   */
+  private List<byte[]> write(List<Record> records) {
+    JournalSegment<Record> segment = journal.getLastSegment();
+    int offset = segment.writer().position();
+    List<Indexed<Record>> indexedRecords = writer.append(records);
+    List<byte[]> positions = new ArrayList<>(indexedRecords.size());
+    for (Indexed<Record> indexedRecord : indexedRecords) {
+      // If the writer rolled over to a new segment, the record is the first entry in the new segment.
+      if (indexedRecord.index() > segment.lastIndex()) {
+        segment = journal.getNextSegment(segment.index());
+        offset = 0;
+      }
+      track(segment.index(), indexedRecord.entry());
+      positions.add(position(indexedRecord.index(), offset));
+      offset += ENTRY_HEADER_BYTES + indexedRecord.size();
+    }
+    writtenIndex = writer.getLastIndex();
+    return positions;
+  }
+
+  /**
+   * Records that a journal no longer needs entries preceding the given index, deleting log segments that are no
+   * longer needed by any journal.
+   *
+   * @param name the journal name
+   * @param index the index preceding which the journal's entries are no longer needed
+   */
+  synchronized void compact(String name, long index) {
+    compactIndexes.merge(name, index, Math::max);
+
+    // Find the first segment containing entries that are still needed by some journal.
+    long compactIndex = journal.getLastSegment().index();
+    for (Map.Entry<Long, Map<String, Long>> entry : segmentIndexes.headMap(compactIndex).entrySet()) {
+      if (!isCompactable(entry.getValue())) {
+        compactIndex = entry.getKey();
+        break;
+      }
+    }
+
+    if (journal.isCompactable(compactIndex)) {
+      synchronized (flushLock) {
+        journal.compact(compactIndex);
+      }
+      segmentIndexes.headMap(compactIndex).clear();
+      log.debug("Compacted shared log {} to index {}", journal.name(), compactIndex);
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether all the given journal indexes precede their journals' compaction indexes.
+   */
+  private boolean isCompactable(Map<String, Long> indexes) {
+    for (Map.Entry<String, Long> entry : indexes.entrySet()) {
+      if (entry.getValue() >= compactIndexes.getOrDefault(entry.getKey(), 0L)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Opens a reader of the entries a journal has written to the log.
+   *
+   * @param name the journal name
+   * @return a new reader of the journal's entries
+   */
+  EntryReader openReader(String name) {
+    return new EntryReader(name);
+  }
+
+  /**
+   * Flushes the log to disk.
+   * <p>
+   * If the log was flushed by another journal after the calling journal's writes, the log is not flushed again.
+   */
+  void flush() {
+    long index = writtenIndex;
+    if (index <= flushedIndex) {
+      return;
+    }
+    synchronized (flushLock) {
+      if (index <= flushedIndex) {
+        return;
+      }
+      long flushIndex = writtenIndex;
+      writer.flush();
+      flushedIndex = flushIndex;
+      flushCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    journal.close();
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("name", journal.name())
+        .add("directory", journal.directory())
+        .toString();
+  }
+
+  /**
+   * Encodes the position of a record in the log as the index of the record and its offset in the log segment
+   * containing it.
+   *
+   * @param index the index of the record in the log
+   * @param offset the offset of the record in the log segment containing it
+   * @return the encoded position
+   */
+  static byte[] position(long index, int offset) {
+    return ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(index).putInt(offset).array();
+  }
+
+  /**
+   * Positions in the log of the entries of a journal.
+   * <p>
+   * Positions are held for a contiguous range of journal indexes as the index of each entry's record in the log and
+   * the offset of the record in the log segment containing it. Applying the appends, truncations and resets a journal
+   * has written to the log in order yields the positions of the journal's current entries.
+   */
+  static final class Positions {
+    private long firstIndex = 1;
+    private long[] indexes = new long[16];
+    private int[] offsets = new int[16];
+    private int size;
+
+    /**
+     * Returns the journal index of the first position.
+     */
+    long firstIndex() {
+      return firstIndex;
+    }
+
+    /**
+     * Returns the number of positions.
+     */
+    int size() {
+      return size;
+    }
+
+    /**
+     * Returns the encoded position of the entry at the given offset from the first index.
+     */
+    byte[] get(int i) {
+      return position(indexes[i], offsets[i]);
+    }
+
+    /**
+     * Appends the position of an entry, truncating the positions of the entries it replaces or resetting the
+     * positions if the entry does not follow them.
+     */
+    void append(long index, byte[] position) {
+      if (index >= firstIndex && index < firstIndex + size) {
+        truncate(index - 1);
+      } else if (index != firstIndex + size) {
+        reset(index);
+      }
+      if (size == indexes.length) {
+        indexes = Arrays.copyOf(indexes, size * 2);
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(position);
+      indexes[size] = buffer.getLong();
+      offsets[size] = buffer.getInt();
+      size++;
+    }
+
+    /**
+     * Discards the positions of entries following the given index.
+     */
+    void truncate(long index) {
+      if (index < firstIndex + size) {
+        size = (int) Math.max(index - firstIndex + 1, 0);
+      }
+    }
+
+    /**
+     * Discards all positions, resetting the first index to the given index.
+     */
+    void reset(long index) {
+      firstIndex = index;
+      size = 0;
+    }
+  }
+
+  /**
+   * Reader of the entries a journal has written to the log.
+   * <p>
+   * The reader retains a reader of the log segment from which it last read an entry, so entries written to the same
+   * segment are read without opening a new segment reader.
+   */
+  final class EntryReader implements AutoCloseable {
+    private final String name;
+    private JournalSegment<Record> segment;
+    private JournalSegmentReader<Record> reader;
+
+    private EntryReader(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Reads the entry at the given position in the log.
+     *
+     * @param index the journal index of the entry
+     * @param position the {@link #position(long, int) position} of the entry in the log
+     * @param serializer the serializer with which to decode the entry
+     * @return the entry
+     * @throws StorageException if the entry cannot be read from the log
+     */
+    <E> Indexed<E> read(long index, byte[] position, Serializer serializer) {
+      ByteBuffer buffer = ByteBuffer.wrap(position);
+      long logIndex = buffer.getLong();
+      int offset = buffer.getInt();
+      if (!contains(segment, logIndex)) {
+        close();
+        segment = journal.getSegment(logIndex);
+        reader = segment.createReader();
+      }
+
+      Indexed<Record> indexed = reader.read(offset, logIndex);
+      Record record = indexed != null ? indexed.entry() : null;
+      if (record == null || record.type != Record.Type.APPEND || record.index != index || !record.log.equals(name)) {
+        throw new StorageException("Failed to read entry " + index + " of " + name + " from shared log " + journal.name());
+      }
+      return new Indexed<>(index, record.bytes, record.checksum, serializer);
+    }
+
+    /**
+     * Returns a boolean indicating whether the given open log segment contains the given log index.
+     */
+    private boolean contains(JournalSegment<Record> segment, long index) {
+      if (segment == null || !segment.isOpen() || index < segment.index()) {
+        return false;
+      }
+      JournalSegment<Record> nextSegment = journal.getNextSegment(segment.index());
+      return nextSegment == null || index < nextSegment.index();
+    }
+
+    @Override
+    public void close() {
+      if (reader != null) {
+        reader.close();
+        reader = null;
+        segment = null;
+      }
+    }
+  }
+
+  /**
+   * Shared log record.
+   */
+  static final class Record {
+
+    /**
+     * Record type.
+     */
+    enum Type {
+      APPEND,
+      TRUNCATE,
+      RESET,
+    }
+
+    private final Type type;
+    private final String log;
+    private final long index;
+    private final long checksum;
+    private final byte[] bytes;
+
+    Record(Type type, String log, long index, long checksum, byte[] bytes) {
+      this.type = type;
+      this.log = log;
+      this.index = index;
+      this.checksum = checksum;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Shared log record serializer.
+   */
+  private static final Serializer SERIALIZER = new Serializer() {
+    @Override
+    public <T> byte[] encode(T object) {
+      Record record = (Record) object;
+      byte[] log = record.log.getBytes(StandardCharsets.UTF_8);
+      int length = record.bytes != null ? record.bytes.length : 0;
+      ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES + log.length + Long.BYTES + Long.BYTES + length);
+      buffer.put((byte) record.type.ordinal())
+          .putInt(log.length)
+          .put(log)
+          .putLong(record.index)
+          .putLong(record.checksum);
+      if (record.bytes != null) {
+        buffer.put(record.bytes);
+      }
+      return buffer.array();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] bytes) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      Record.Type type = Record.Type.values()[buffer.get()];
+      byte[] log = new byte[buffer.getInt()];
+      buffer.get(log);
+      long index = buffer.getLong();
+      long checksum = buffer.getLong();
+      byte[] entry = null;
+      if (type == Record.Type.APPEND) {
+        entry = new byte[buffer.remaining()];
+        buffer.get(entry);
+      }
+      return (T) new Record(type, new String(log, StandardCharsets.UTF_8), index, checksum, entry);
+    }
+  };
+
+  /**
+   * Shared write-ahead log builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<SharedWriteAheadLog> {
+    private static final String DEFAULT_NAME = "wal";
+    private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir");
+    private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
+
+    protected String name = DEFAULT_NAME;
+    protected StorageLevel storageLevel = StorageLevel.DISK;
+    protected File directory = new File(DEFAULT_DIRECTORY);
+    protected int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+
+    protected Builder() {
+    }
+
+    /**
+     * Sets the log name.
+     *
+     * @param name The log name.
+     * @return The log builder.
+     */
+    public Builder withName(String name) {
+      this.name = checkNotNull(name, "name cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the log storage level, returning the builder for method chaining.
+     *
+     * @param storageLevel The log storage level.
+     * @return The log builder.
+     * @throws IllegalArgumentException if the storage level is {@link StorageLevel#MEMORY}
+     */
+    public Builder withStorageLevel(StorageLevel storageLevel) {
+      checkArgument(checkNotNull(storageLevel, "storageLevel cannot be null") != StorageLevel.MEMORY,
+          "storageLevel cannot be MEMORY");
+      this.storageLevel = storageLevel;
+      return this;
+    }
+
+    /**
+     * Sets the log directory, returning the builder for method chaining.
+     *
+     * @param directory The log directory.
+     * @return The log builder.
+     * @throws NullPointerException If the {@code directory} is {@code null}
+     */
+    public Builder withDirectory(File directory) {
+      this.directory = checkNotNull(directory, "directory cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the maximum segment size in bytes, returning the builder for method chaining.
+     *
+     * @param maxSegmentSize The maximum segment size in bytes.
+     * @return The log builder.
+     * @throws IllegalArgumentException If the {@code maxSegmentSize} is not positive
+     */
+    public Builder withMaxSegmentSize(int maxSegmentSize) {
+      checkArgument(maxSegmentSize > JournalSegmentDescriptor.BYTES, "maxSegmentSize must be greater than " + JournalSegmentDescriptor.BYTES);
+      this.maxSegmentSize = maxSegmentSize;
+      return this;
+    }
+
+    @Override
+    public SharedWriteAheadLog build() {
+      return new SharedWriteAheadLog(SegmentedJournal.<Record>builder()
+          .withName(name)
+          .withStorageLevel(storageLevel)
+          .withDirectory(directory)
+          .withSerializer(SERIALIZER)
+          .withMaxSegmentSize(maxSegmentSize)
+          .build());
+    }
+  }
+}
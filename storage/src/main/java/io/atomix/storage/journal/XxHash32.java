@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+/**
+ * 32-bit xxHash checksum with a seed of {@code 0}.
+ */
+final class XxHash32 extends AbstractChecksum {
+  private static final int PRIME1 = 0x9E3779B1;
+  private static final int PRIME2 = 0x85EBCA77;
+  private static final int PRIME3 = 0xC2B2AE3D;
+  private static final int PRIME4 = 0x27D4EB2F;
+  private static final int PRIME5 = 0x165667B1;
+  private static final int STRIPE = 16;
+
+  private final byte[] buffer = new byte[STRIPE];
+  private int buffered;
+  private long length;
+  private int v1;
+  private int v2;
+  private int v3;
+  private int v4;
+
+  XxHash32() {
+    reset();
+  }
+
+  @Override
+  public void update(byte[] bytes, int offset, int length) {
+    this.length += length;
+
+    // Complete a partially buffered stripe.
+    if (buffered > 0) {
+      int count = Math.min(length, STRIPE - buffered);
+      System.arraycopy(bytes, offset, buffer, buffered, count);
+      buffered += count;
+      offset += count;
+      length -= count;
+      if (buffered < STRIPE) {
+        return;
+      }
+      stripe(buffer, 0);
+      buffered = 0;
+    }
+
+    while (length >= STRIPE) {
+      stripe(bytes, offset);
+      offset += STRIPE;
+      length -= STRIPE;
+    }
+
+    System.arraycopy(bytes, offset, buffer, 0, length);
+    buffered = length;
+  }
+
+  private void stripe(byte[] bytes, int offset) {
+    v1 = round(v1, getInt(bytes, offset));
+    v2 = round(v2, getInt(bytes, offset + 4));
+    v3 = round(v3, getInt(bytes, offset + 8));
+    v4 = round(v4, getInt(bytes, offset + 12));
+  }
+
+  private static int round(int acc, int input) {
+    return Integer.rotateLeft(acc + input * PRIME2, 13) * PRIME1;
+  }
+
+  private static int getInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff)
+        | (bytes[offset + 1] & 0xff) << 8
+        | (bytes[offset + 2] & 0xff) << 16
+        | (bytes[offset + 3] & 0xff) << 24;
+  }
+
+  @Override
+  public long getValue() {
+    int hash;
+    if (length >= STRIPE) {
+      hash = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+    } else {
+      hash = v3 + PRIME5;
+    }
+    hash += (int) length;
+
+    int offset = 0;
+    while (offset + 4 <= buffered) {
+      hash = Integer.rotateLeft(hash + getInt(buffer, offset) * PRIME3, 17) * PRIME4;
+      offset += 4;
+    }
+    while (offset < buffered) {
+      hash = Integer.rotateLeft(hash + (buffer[offset] & 0xff) * PRIME5, 11) * PRIME1;
+      offset++;
+    }
+
+    hash ^= hash >>> 15;
+    hash *= PRIME2;
+    hash ^= hash >>> 13;
+    hash *= PRIME3;
+    hash ^= hash >>> 16;
+    return hash & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    v1 = PRIME1 + PRIME2;
+    v2 = PRIME2;
+    v3 = 0;
+    v4 = -PRIME1;
+    buffered = 0;
+    length = 0;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal.index;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sparse index.
+ * <p>
+ * The sparse index stores the position of every {@code n}th entry in the segment, where {@code n} is determined
+ * by the configured index density. Lookups return the nearest indexed position at or before the requested index,
+ * bounding the number of entries a reader must scan to locate any index.
+ */
+public class SparseJournalIndex implements JournalIndex {
+  private final int density;
+  private final NavigableMap<Long, Integer> positions = new ConcurrentSkipListMap<>();
+
+  public SparseJournalIndex(double density) {
+    checkArgument(density > 0 && density <= 1, "density must be between 0 and 1");
+    this.density = (int) Math.ceil(1 / density);
+  }
+
+  @Override
+  public void index(long index, int position) {
+    if (index % density == 0) {
+      positions.put(index, position);
+    }
+  }
+
+  @Override
+  public Position lookup(long index) {
+    Map.Entry<Long, Integer> entry = positions.floorEntry(index);
+    return entry != null ? new Position(entry.getKey(), entry.getValue()) : null;
+  }
+
+  @Override
+  public void truncate(long index) {
+    positions.tailMap(index, false).clear();
+  }
+}
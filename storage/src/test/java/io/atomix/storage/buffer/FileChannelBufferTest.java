@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.buffer;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * File channel buffer test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class FileChannelBufferTest extends BufferTest {
+  @AfterClass
+  public static void afterTest() {
+    FileTesting.cleanFiles();
+  }
+
+  @Override
+  protected Buffer createBuffer(int capacity) {
+    return FileBuffer.allocateChannel(FileTesting.createFile(), capacity, Integer.MAX_VALUE);
+  }
+
+  @Override
+  protected Buffer createBuffer(int capacity, int maxCapacity) {
+    return FileBuffer.allocateChannel(FileTesting.createFile(), capacity, maxCapacity);
+  }
+
+  /**
+   * Tests that combined writes are visible to other handles to the file once drained.
+   */
+  @Test
+  public void testDrain() {
+    File file = FileTesting.createFile();
+    try (FileBuffer buffer = FileBuffer.allocateChannel(file, 16, 1024)) {
+      buffer.writeInt(0).writeLong(11).writeInt(0, 10);
+      try (FileBuffer other = FileBuffer.allocate(file, 16)) {
+        assertEquals(0, other.readInt());
+        ((FileChannelBytes) buffer.bytes()).drain();
+        assertEquals(10, other.rewind().readInt());
+        assertEquals(11, other.readLong());
+      }
+    }
+  }
+
+  /**
+   * Tests writing contiguous bytes that do not fit in the write buffer.
+   */
+  @Test
+  public void testLargeWrite() {
+    File file = FileTesting.createFile();
+    byte[] bytes = new byte[FileChannelBytes.DEFAULT_WRITE_BUFFER_SIZE * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    try (FileBuffer buffer = FileBuffer.allocateChannel(file, 16, Integer.MAX_VALUE)) {
+      buffer.writeInt(bytes.length).write(bytes).flush();
+    }
+    try (FileBuffer buffer = FileBuffer.allocate(file, 16)) {
+      assertEquals(bytes.length, buffer.readInt());
+      byte[] read = new byte[bytes.length];
+      buffer.read(read);
+      for (int i = 0; i < bytes.length; i++) {
+        assertEquals(bytes[i], read[i]);
+      }
+    }
+  }
+
+  /**
+   * Tests flushing the bytes from another thread while bytes are written.
+   */
+  @Test
+  public void testConcurrentFlush() throws Exception {
+    File file = FileTesting.createFile();
+    int count = 100000;
+    try (FileBuffer buffer = FileBuffer.allocateChannel(file, count * (Integer.BYTES + Long.BYTES), Integer.MAX_VALUE)) {
+      FileChannelBytes bytes = (FileChannelBytes) buffer.bytes();
+      AtomicBoolean writing = new AtomicBoolean(true);
+      AtomicReference<Throwable> error = new AtomicReference<>();
+      Thread flusher = new Thread(() -> {
+        try {
+          while (writing.get()) {
+            bytes.flush();
+          }
+        } catch (Throwable e) {
+          error.set(e);
+        }
+      });
+      flusher.start();
+      try {
+        for (int i = 0; i < count; i++) {
+          buffer.writeInt(i).writeLong(i);
+        }
+      } finally {
+        writing.set(false);
+        flusher.join();
+      }
+      assertNull(error.get());
+      buffer.flush();
+    }
+    try (FileBuffer buffer = FileBuffer.allocate(file, 16)) {
+      for (int i = 0; i < count; i++) {
+        assertEquals(i, buffer.readInt());
+        assertEquals(i, buffer.readLong());
+      }
+    }
+  }
+
+  /**
+   * Tests reopening a file that has been closed.
+   */
+  @Test
+  public void testPersist() {
+    File file = FileTesting.createFile();
+    try (FileBuffer buffer = FileBuffer.allocateChannel(file, 16, 1024)) {
+      buffer.writeLong(10).writeLong(11).flip();
+      assertEquals(buffer.readLong(), 10);
+      assertEquals(buffer.readLong(), 11);
+    }
+    try (FileBuffer buffer = FileBuffer.allocateChannel(file, 16, 1024)) {
+      assertEquals(buffer.readLong(), 10);
+      assertEquals(buffer.readLong(), 11);
+    }
+  }
+
+}
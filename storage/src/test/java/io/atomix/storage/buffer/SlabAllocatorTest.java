@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Slab allocator test.
+ */
+public class SlabAllocatorTest extends BufferTest {
+  private final SlabAllocator allocator = SlabAllocator.builder().build();
+
+  @Override
+  protected Buffer createBuffer(int capacity) {
+    return allocator.allocate(capacity);
+  }
+
+  @Override
+  protected Buffer createBuffer(int capacity, int maxCapacity) {
+    return allocator.allocate(capacity, maxCapacity);
+  }
+
+  @Test
+  public void testReleasedBufferIsReused() {
+    Buffer buffer = allocator.allocate(100);
+    buffer.writeLong(1).writeLong(2);
+    assertEquals(128, buffer.bytes().size());
+    buffer.release();
+
+    Buffer reused = allocator.allocate(120);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(120, reused.capacity());
+    assertEquals(1, reused.references());
+
+    Buffer other = allocator.allocate(1000);
+    assertNotSame(reused, other);
+    assertEquals(1024, other.bytes().size());
+  }
+
+  @Test
+  public void testBufferIsOnlyReleasedOnce() {
+    Buffer buffer = allocator.allocate(64);
+    buffer.acquire();
+    assertFalse(buffer.release());
+    assertTrue(buffer.release());
+    buffer.close();
+
+    Buffer first = allocator.allocate(64);
+    Buffer second = allocator.allocate(64);
+    assertSame(buffer, first);
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void testGrownBufferIsPooledInLargerSizeClass() {
+    Buffer buffer = allocator.allocate(64);
+    buffer.write(new byte[1000]);
+    assertEquals(1024, buffer.bytes().size());
+    buffer.close();
+
+    assertNotSame(buffer, allocator.allocate(64));
+    assertSame(buffer, allocator.allocate(1024));
+  }
+
+  @Test
+  public void testLargeBuffersAreNotPooled() {
+    SlabAllocator allocator = SlabAllocator.builder()
+        .withMaxPooledSize(1000)
+        .build();
+    assertEquals(1024, allocator.maxPooledSize());
+    Buffer buffer = allocator.allocate(2048);
+    buffer.close();
+    assertNotSame(buffer, allocator.allocate(2048));
+  }
+
+  @Test
+  public void testDepotSharesBuffersAcrossThreads() throws Exception {
+    SlabAllocator allocator = SlabAllocator.builder()
+        .withMagazineSize(4)
+        .build();
+
+    List<Buffer> buffers = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      buffers.add(allocator.allocate(256));
+    }
+    Thread thread = new Thread(() -> buffers.forEach(Buffer::release));
+    thread.start();
+    thread.join();
+
+    // The releasing thread keeps two magazines and passes the others to the depot.
+    Set<Buffer> reused = new HashSet<>();
+    for (int i = 0; i < 16; i++) {
+      reused.add(allocator.allocate(256));
+    }
+    reused.retainAll(buffers);
+    assertEquals(8, reused.size());
+  }
+
+  @Test
+  public void testDirectAllocator() {
+    SlabAllocator allocator = SlabAllocator.builder()
+        .withDirect(true)
+        .build();
+    Buffer buffer = allocator.allocate(512);
+    assertTrue(buffer.isDirect());
+    buffer.writeLong(1234).flip();
+    assertEquals(1234, buffer.readLong());
+    buffer.release();
+    assertSame(buffer, allocator.allocate(512));
+    allocator.close();
+  }
+
+  @Test
+  public void testLeakDetection() throws Exception {
+    SlabAllocator allocator = SlabAllocator.builder()
+        .withLeakDetection()
+        .build();
+    allocator.allocate(64).release();
+    allocator.allocate(64);
+    for (int i = 0; i < 50 && allocator.leakCount() == 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(1, allocator.leakCount());
+  }
+}
@@ -15,14 +15,39 @@
  */
 package io.atomix.storage.journal;
 
+import io.atomix.utils.memory.MemoryAccount;
+import io.atomix.utils.memory.MemoryAccounting;
 import io.atomix.utils.serializer.Serializer;
 import io.atomix.utils.serializer.KryoNamespace;
+import io.atomix.storage.StorageException;
 import io.atomix.storage.StorageLevel;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+import java.util.zip.Checksum;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Log test.
@@ -35,17 +60,55 @@ public class JournalTest {
       .register(byte[].class)
       .build());
 
-  private Journal<TestEntry> createJournal() {
-    return SegmentedJournal.<TestEntry>builder()
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+
+  @Before
+  public void createDirectory() {
+    directory = temporaryFolder.getRoot();
+  }
+
+  /**
+   * Creates a journal in the test directory, applying the given options to the builder. Journals are named "test" and
+   * stored in memory unless the options override the name or storage level.
+   */
+  private SegmentedJournal<TestEntry> createJournal(UnaryOperator<SegmentedJournal.Builder<TestEntry>> options) {
+    return options.apply(SegmentedJournal.<TestEntry>builder()
         .withName("test")
+        .withDirectory(directory)
         .withSerializer(serializer)
-        .withStorageLevel(StorageLevel.MEMORY)
+        .withStorageLevel(StorageLevel.MEMORY))
         .build();
   }
 
+  private static SegmentedJournal.Builder<TestEntry> indexed(SegmentedJournal.Builder<TestEntry> builder) {
+    return builder.withMaxEntriesPerSegment(10).withIndexDensity(.2);
+  }
+
+  private static SegmentedJournal.Builder<TestEntry> persisted(SegmentedJournal.Builder<TestEntry> builder) {
+    return builder.withStorageLevel(StorageLevel.DISK).withMaxEntriesPerSegment(10);
+  }
+
+  private static SegmentedJournal.Builder<TestEntry> compressed(SegmentedJournal.Builder<TestEntry> builder, int compressionBlockSize) {
+    return builder
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(100)
+        .withCompressionBlockSize(compressionBlockSize);
+  }
+
+  private static SegmentedJournal.Builder<TestEntry> scrubbed(SegmentedJournal.Builder<TestEntry> builder, JournalChecksum checksum) {
+    return builder
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(100)
+        .withChecksum(checksum)
+        .withScrubbing();
+  }
+
   @Test
   public void testLogWriteRead() throws Exception {
-    Journal<TestEntry> journal = createJournal();
+    Journal<TestEntry> journal = createJournal(UnaryOperator.identity());
     JournalWriter<TestEntry> writer = journal.writer();
     JournalReader<TestEntry> reader = journal.openReader(1);
 
@@ -136,4 +199,963 @@ public class JournalTest {
     assertEquals(reader.getCurrentIndex(), 2);
     assertFalse(reader.hasNext());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testResetTruncateIndexed() throws Exception {
+    Journal<TestEntry> journal = createJournal(JournalTest::indexed);
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 50; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+
+    // Open readers at indexed and non-indexed positions across segments.
+    for (long i = 1; i <= 50; i++) {
+      JournalReader<TestEntry> reader = journal.openReader(i);
+      assertEquals(i, reader.getNextIndex());
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+      reader.close();
+    }
+
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    reader.reset(37);
+    assertEquals(37, reader.next().index());
+    assertEquals(37, reader.getCurrentIndex());
+    reader.reset(12);
+    assertEquals(11, reader.getCurrentIndex());
+    assertEquals(12, reader.next().index());
+
+    // Truncate the journal to an index in the middle of a segment and rewrite entries.
+    writer.truncate(23);
+    assertEquals(23, writer.getLastIndex());
+    reader.reset(23);
+    assertEquals(23, reader.next().index());
+    assertFalse(reader.hasNext());
+
+    for (int i = 24; i <= 30; i++) {
+      assertEquals(i, writer.append(new TestEntry(i + 100)).index());
+    }
+
+    reader.reset(26);
+    Indexed<TestEntry> entry = reader.next();
+    assertEquals(26, entry.index());
+    assertEquals(126, entry.entry().bytes().length);
+
+    writer.truncate(25);
+    reader.reset(25);
+    assertEquals(25, reader.next().index());
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testBatchAppend() throws Exception {
+    Journal<TestEntry> journal = createJournal(JournalTest::indexed);
+    JournalWriter<TestEntry> writer = journal.writer();
+    assertEquals(1, writer.append(new TestEntry(1)).index());
+
+    // Append a batch spanning multiple segments.
+    List<TestEntry> entries = new ArrayList<>();
+    for (int i = 2; i <= 25; i++) {
+      entries.add(new TestEntry(i));
+    }
+    List<Indexed<TestEntry>> indexed = writer.append(entries);
+    assertEquals(24, indexed.size());
+    for (int i = 0; i < indexed.size(); i++) {
+      assertEquals(i + 2, indexed.get(i).index());
+    }
+    assertEquals(25, writer.getLastIndex());
+    assertEquals(26, writer.getNextIndex());
+
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 25; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    reader.reset(17);
+    assertEquals(17, reader.next().index());
+
+    // Truncate within a batch and append a new batch.
+    writer.truncate(15);
+    indexed = writer.append(Arrays.asList(new TestEntry(116), new TestEntry(117)));
+    assertEquals(16, indexed.get(0).index());
+    assertEquals(17, indexed.get(1).index());
+    reader.reset(16);
+    assertEquals(116, reader.next().entry().bytes().length);
+    assertEquals(117, reader.next().entry().bytes().length);
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testAppendSerialized() throws Exception {
+    Journal<TestEntry> source = createJournal(JournalTest::indexed);
+    JournalWriter<TestEntry> sourceWriter = source.writer();
+    for (int i = 1; i <= 15; i++) {
+      sourceWriter.append(new TestEntry(i));
+    }
+
+    // Read the serialized entries from the source journal.
+    List<Indexed<TestEntry>> entries = new ArrayList<>();
+    JournalReader<TestEntry> sourceReader = source.openReader(1);
+    while (sourceReader.hasNext()) {
+      Indexed<TestEntry> entry = sourceReader.next();
+      assertTrue(entry.isSerialized());
+      entries.add(new Indexed<>(entry.index(), entry.bytes(), entry.checksum(), null));
+    }
+
+    // Append the serialized entries to the target journal without decoding them.
+    Journal<TestEntry> target = createJournal(JournalTest::indexed);
+    JournalWriter<TestEntry> writer = target.writer();
+    List<Indexed<TestEntry>> indexed = writer.appendIndexed(entries);
+    assertEquals(15, indexed.size());
+    assertEquals(15, writer.getLastIndex());
+    assertEquals(15, writer.getLastEntry().entry().bytes().length);
+
+    JournalReader<TestEntry> reader = target.openReader(1);
+    for (int i = 1; i <= 15; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    // Appending from an earlier index truncates the journal.
+    indexed = writer.appendIndexed(entries.subList(4, 6));
+    assertEquals(5, indexed.get(0).index());
+    assertEquals(6, writer.getLastIndex());
+    reader.reset(5);
+    assertEquals(5, reader.next().entry().bytes().length);
+    assertEquals(6, reader.next().entry().bytes().length);
+    assertFalse(reader.hasNext());
+
+    // A batch with an out-of-order index is rejected without writing or indexing any of its entries.
+    try {
+      writer.appendIndexed(Arrays.asList(entries.get(6), entries.get(7), entries.get(9)));
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+    }
+    assertEquals(6, writer.getLastIndex());
+    writer.appendIndexed(entries.subList(6, 9));
+    assertEquals(9, writer.getLastIndex());
+    reader.reset(7);
+    for (int i = 7; i <= 9; i++) {
+      assertEquals(i, reader.next().entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testAppendBeyondBufferCapacity() throws Exception {
+    Journal<TestEntry> journal = createJournal(UnaryOperator.identity());
+    JournalWriter<TestEntry> writer = journal.writer();
+
+    // Append entries until the segment buffer has grown several times.
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i * 100)).index());
+    }
+
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 100; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i * 100, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testTailJournal() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(JournalTest::indexed);
+    JournalWriter<TestEntry> writer = journal.writer();
+    SegmentedJournalReader<TestEntry> reader = journal.openReader(1);
+    assertTrue(reader.drain(10).isEmpty());
+
+    // Verify a tailing reader is notified once its next entry is appended.
+    CompletableFuture<Long> future = reader.awaitNext();
+    assertFalse(future.isDone());
+    writer.append(new TestEntry(32));
+    assertEquals(1, future.get(10, TimeUnit.SECONDS).longValue());
+
+    // Verify appended entries are drained in bounded batches across segments.
+    List<TestEntry> entries = new ArrayList<>();
+    for (int i = 2; i <= 25; i++) {
+      entries.add(new TestEntry(32));
+    }
+    future = journal.awaitAppend(25);
+    writer.append(entries);
+    assertEquals(25, future.get(10, TimeUnit.SECONDS).longValue());
+    List<Indexed<TestEntry>> batch = reader.drain(15);
+    assertEquals(15, batch.size());
+    assertEquals(1, batch.get(0).index());
+    assertEquals(15, batch.get(14).index());
+    batch = reader.drain(15);
+    assertEquals(10, batch.size());
+    assertEquals(25, batch.get(9).index());
+    assertTrue(journal.awaitAppend(25).isDone());
+
+    // Verify waiters continue to wait for indexes removed by truncation.
+    future = journal.awaitAppend(26);
+    writer.truncate(20);
+    assertTrue(journal.awaitAppend(20).isDone());
+    CompletableFuture<Long> truncatedFuture = journal.awaitAppend(21);
+    assertFalse(truncatedFuture.isDone());
+    writer.append(new TestEntry(32));
+    assertEquals(21, truncatedFuture.get(10, TimeUnit.SECONDS).longValue());
+    assertFalse(future.isDone());
+
+    journal.close();
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testFlushPolicyNever() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.never()));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    writer.append(new TestEntry(32));
+    CompletableFuture<Void> future = journal.awaitDurable(2);
+    assertEquals(0, journal.getDurableIndex());
+    assertFalse(future.isDone());
+    writer.flush();
+    assertEquals(2, journal.getDurableIndex());
+    assertTrue(future.isDone());
+    journal.close();
+  }
+
+  @Test
+  public void testAwaitDurableClosed() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.never()));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    CompletableFuture<Void> future = journal.awaitDurable(1);
+    assertFalse(future.isDone());
+    journal.close();
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testAwaitDurableFlushFailure() throws Exception {
+    AtomicBoolean failing = new AtomicBoolean(true);
+    SegmentedJournal.Builder<TestEntry> builder = new SegmentedJournal.Builder<TestEntry>() {
+      @Override
+      public SegmentedJournal<TestEntry> build() {
+        return new SegmentedJournal<TestEntry>(name, storageLevel, directory, serializer, maxSegmentSize, maxEntriesPerSegment,
+            indexDensity, flushPolicy, preallocateSegments, tieredMemoryBudget, mappedMemoryBudget, sharedLog, readAheadSize,
+            compressionBlockSize, checksum, scrubRate, new MemoryAccounting().account(name)) {
+          @Override
+          void flush(long index) {
+            if (failing.get()) {
+              throw new StorageException("flush failed");
+            }
+            super.flush(index);
+          }
+        };
+      }
+    };
+    SegmentedJournal<TestEntry> journal = builder
+        .withName("test")
+        .withDirectory(directory)
+        .withSerializer(serializer)
+        .withStorageLevel(StorageLevel.MEMORY)
+        .withFlushPolicy(FlushPolicy.every(Duration.ofMillis(10)))
+        .build();
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+
+    // Futures waiting on entries that fail to be flushed are completed exceptionally.
+    try {
+      journal.awaitDurable(1).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof StorageException);
+    }
+    assertEquals(0, journal.getDurableIndex());
+
+    // Entries are flushed once flushes succeed again.
+    failing.set(false);
+    journal.awaitDurable(1).get(10, TimeUnit.SECONDS);
+    assertEquals(1, journal.getDurableIndex());
+    journal.close();
+  }
+
+  @Test
+  public void testFlushPolicyAlways() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.always()));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    assertEquals(1, journal.getDurableIndex());
+    writer.append(Arrays.asList(new TestEntry(32), new TestEntry(32)));
+    assertEquals(3, journal.getDurableIndex());
+    writer.truncate(1);
+    assertEquals(1, journal.getDurableIndex());
+    journal.close();
+  }
+
+  @Test
+  public void testFlushPolicyAsync() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.async()));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    journal.awaitDurable(1).get(10, TimeUnit.SECONDS);
+    assertTrue(journal.getDurableIndex() >= 1);
+    writer.append(Arrays.asList(new TestEntry(32), new TestEntry(32)));
+    journal.awaitDurable(3).get(10, TimeUnit.SECONDS);
+    assertEquals(3, journal.getDurableIndex());
+    journal.close();
+  }
+
+  @Test
+  public void testFlushPolicySize() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.everyBytes(1024)));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    CompletableFuture<Void> future = journal.awaitDurable(1);
+    assertFalse(future.isDone());
+    for (int i = 0; i < 10; i++) {
+      writer.append(new TestEntry(128));
+    }
+    future.get(10, TimeUnit.SECONDS);
+    assertTrue(journal.getDurableIndex() >= 1);
+    journal.close();
+  }
+
+  @Test
+  public void testFlushPolicyInterval() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder.withFlushPolicy(FlushPolicy.every(Duration.ofMillis(10))));
+    JournalWriter<TestEntry> writer = journal.writer();
+    writer.append(new TestEntry(32));
+    writer.append(new TestEntry(32));
+    journal.awaitDurable(2).get(10, TimeUnit.SECONDS);
+    assertEquals(2, journal.getDurableIndex());
+    journal.close();
+  }
+
+  @Test
+  public void testPreallocateSegments() throws Exception {
+    UnaryOperator<SegmentedJournal.Builder<TestEntry>> options = builder -> builder
+        .withStorageLevel(StorageLevel.MAPPED)
+        .withMaxSegmentSize(1024 * 64)
+        .withMaxEntriesPerSegment(10)
+        .withPreallocateSegments();
+    SegmentedJournal<TestEntry> journal = createJournal(options);
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 50; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+
+    // Compact the journal, recycling the compacted segment files, and continue writing.
+    journal.compact(31);
+    for (int i = 51; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+    journal.close();
+
+    // Reopen the journal and verify that recycled segment files did not retain stale entries.
+    journal = createJournal(options);
+    JournalReader<TestEntry> reader = journal.openReader(31);
+    for (int i = 31; i <= 100; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testRecoverSegments() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(JournalTest::persisted);
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 55; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+    journal.close();
+
+    // Reopen the journal and verify the last entry is recovered without being deserialized.
+    journal = createJournal(JournalTest::persisted);
+    writer = journal.writer();
+    assertEquals(55, writer.getLastIndex());
+    Indexed<TestEntry> lastEntry = writer.getLastEntry();
+    assertTrue(lastEntry.isSerialized());
+    assertEquals(55, lastEntry.index());
+    assertEquals(55, lastEntry.entry().bytes().length);
+
+    // Verify all segments were recovered and writing continues from the recovered tail.
+    assertEquals(56, writer.append(new TestEntry(56)).index());
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 56; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testCompactWithPredicate() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(JournalTest::persisted);
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+
+    // Position a reader inside a segment that will be replaced.
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 15; i++) {
+      assertEquals(i, reader.next().index());
+    }
+
+    // Retain only every fifth entry in the first six segments, which are merged into a single segment.
+    journal.compact(61, entry -> entry.index() % 5 == 0);
+    assertEquals(5, directory.listFiles((dir, name) -> JournalSegmentFile.isSegmentFile("test", name)).length);
+
+    // The reader skips the removed entries and continues through the retained ones.
+    for (int i = 20; i <= 60; i += 5) {
+      assertEquals(i, reader.next().index());
+    }
+    for (int i = 61; i <= 100; i++) {
+      assertEquals(i, reader.next().index());
+    }
+    assertFalse(reader.hasNext());
+    assertEquals(101, writer.append(new TestEntry(101)).index());
+    journal.close();
+
+    // Reopen the journal and verify the compacted segment is recovered.
+    journal = createJournal(JournalTest::persisted);
+    assertEquals(101, journal.writer().getLastIndex());
+    reader = journal.openReader(1);
+    for (int i = 5; i <= 60; i += 5) {
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    for (int i = 61; i <= 101; i++) {
+      assertEquals(i, reader.next().index());
+    }
+    assertFalse(reader.hasNext());
+
+    // Readers opened at a removed index start at the next retained entry.
+    reader = journal.openReader(32);
+    assertEquals(35, reader.next().index());
+
+    // Compact the already compacted segment again along with the remaining full segments.
+    journal.compact(101, entry -> entry.index() % 10 == 0);
+    reader = journal.openReader(1);
+    for (int i = 10; i <= 100; i += 10) {
+      assertEquals(i, reader.next().index());
+    }
+    assertEquals(101, reader.next().index());
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testTieredStorage() throws Exception {
+    UnaryOperator<SegmentedJournal.Builder<TestEntry>> options = builder -> builder
+        .withStorageLevel(StorageLevel.TIERED)
+        .withMaxEntriesPerSegment(10)
+        .withTieredMemoryBudget(3000);
+    SegmentedJournal<TestEntry> journal = createJournal(options);
+    JournalWriter<TestEntry> writer = journal.writer();
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+      assertEquals(i, reader.next().index());
+    }
+    assertTrue(journal.isMapped(journal.getLastSegment()));
+    journal.close();
+
+    // Reopen the journal and verify that only the most recent segments are memory mapped.
+    journal = createJournal(options);
+    List<JournalSegment<TestEntry>> segments = journal.getSegments();
+    assertEquals(10, segments.size());
+    assertFalse(journal.isMapped(segments.get(0)));
+    assertTrue(journal.isMapped(segments.get(8)));
+    assertTrue(journal.isMapped(segments.get(9)));
+
+    reader = journal.openReader(1);
+    for (int i = 1; i <= 100; i++) {
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testTruncateTieredStorage() throws Exception {
+    UnaryOperator<SegmentedJournal.Builder<TestEntry>> options = builder -> builder
+        .withStorageLevel(StorageLevel.TIERED)
+        .withMaxEntriesPerSegment(10)
+        .withTieredMemoryBudget(3000);
+    SegmentedJournal<TestEntry> journal = createJournal(options);
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+    journal.close();
+
+    // Truncate the reopened journal so that the older disk segments fit within the memory budget, and prepare their
+    // migrations to memory.
+    journal = createJournal(options);
+    writer = journal.writer();
+    writer.truncate(45);
+    JournalSegment<TestEntry> truncatedSegment = journal.getSegments().get(2);
+    assertFalse(journal.isMapped(truncatedSegment));
+    journal.migrator().prepare();
+
+    // Truncate into a segment with a prepared migration and rewrite it until the journal rolls to a new segment.
+    writer.truncate(25);
+    assertEquals(truncatedSegment, journal.getLastSegment());
+    for (int i = 26; i <= 35; i++) {
+      assertEquals(i, writer.append(new TestEntry(100)).index());
+    }
+
+    // Verify that only the migrations of segments preceding the truncated segment were applied.
+    List<JournalSegment<TestEntry>> segments = journal.getSegments();
+    assertEquals(4, segments.size());
+    assertTrue(journal.isMapped(segments.get(0)));
+    assertTrue(journal.isMapped(segments.get(1)));
+    assertSame(truncatedSegment, segments.get(2));
+    assertFalse(journal.isMapped(truncatedSegment));
+
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 35; i++) {
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i <= 25 ? i : 100, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testMappedMemoryBudget() throws Exception {
+    MappedMemoryBudget budget = new MappedMemoryBudget(4096 * 3);
+    UnaryOperator<SegmentedJournal.Builder<TestEntry>> options = builder -> builder
+        .withStorageLevel(StorageLevel.MAPPED)
+        .withMaxSegmentSize(4096)
+        .withMaxEntriesPerSegment(10)
+        .withMappedMemoryBudget(budget);
+    SegmentedJournal<TestEntry> journal1 = createJournal(builder -> options.apply(builder.withName("test1")));
+    SegmentedJournal<TestEntry> journal2 = createJournal(builder -> options.apply(builder.withName("test2")));
+    JournalWriter<TestEntry> writer1 = journal1.writer();
+    JournalWriter<TestEntry> writer2 = journal2.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer1.append(new TestEntry(i)).index());
+      assertEquals(i, writer2.append(new TestEntry(i)).index());
+    }
+    assertEquals(20, budget.mapCount());
+    assertTrue(budget.unmapCount() > 0);
+    assertTrue(budget.mappedSize() <= budget.maxSize());
+
+    // Read both journals to remap the unmapped segments.
+    long unmapCount = budget.unmapCount();
+    for (SegmentedJournal<TestEntry> journal : Arrays.asList(journal1, journal2)) {
+      JournalReader<TestEntry> reader = journal.openReader(1);
+      for (int i = 1; i <= 100; i++) {
+        Indexed<TestEntry> entry = reader.next();
+        assertEquals(i, entry.index());
+        assertEquals(i, entry.entry().bytes().length);
+      }
+      assertFalse(reader.hasNext());
+      reader.close();
+    }
+    assertTrue(budget.mapCount() > 20);
+    assertTrue(budget.unmapCount() > unmapCount);
+    assertTrue(budget.mappedSize() <= budget.maxSize());
+
+    // Verify that entries can still be written to the current segments.
+    assertEquals(101, writer1.append(new TestEntry(101)).index());
+    assertEquals(101, writer2.append(new TestEntry(101)).index());
+    journal1.close();
+    journal2.close();
+    assertEquals(0, budget.mappedSize());
+  }
+
+  @Test
+  public void testMemoryAccounting() throws Exception {
+    MemoryAccount account = new MemoryAccounting().account("test");
+    MappedMemoryBudget budget = new MappedMemoryBudget(4096 * 3);
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder
+        .withStorageLevel(StorageLevel.MAPPED)
+        .withMaxSegmentSize(4096)
+        .withMaxEntriesPerSegment(10)
+        .withMappedMemoryBudget(budget)
+        .withMemoryAccount(account));
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+
+    // Segments unmapped by the budget release their charge.
+    assertTrue(budget.unmapCount() > 0);
+    assertEquals(budget.mappedSize(), account.liveBytes());
+    assertTrue(account.peakBytes() > account.liveBytes());
+    journal.close();
+    assertEquals(0, account.liveBytes());
+
+    // Write buffers of disk segments and read-ahead chunks are charged until the journal is closed.
+    journal = createJournal(builder -> builder
+        .withName("disk")
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(10)
+        .withReadAheadSize(1024)
+        .withMemoryAccount(account));
+    writer = journal.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer.append(new TestEntry(i)).index());
+    }
+    assertTrue(account.liveBytes() > 0);
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, reader.next().index());
+    }
+    reader.close();
+    journal.close();
+    assertEquals(0, account.liveBytes());
+  }
+
+  @Test
+  public void testSharedLog() throws Exception {
+    SharedWriteAheadLog sharedLog = createSharedLog();
+    SegmentedJournal<TestEntry> journal1 = createSharedJournal("test1", sharedLog);
+    SegmentedJournal<TestEntry> journal2 = createSharedJournal("test2", sharedLog);
+    JournalWriter<TestEntry> writer1 = journal1.writer();
+    JournalWriter<TestEntry> writer2 = journal2.writer();
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(i, writer1.append(new TestEntry(i)).index());
+      assertEquals(i, writer2.append(new TestEntry(i)).index());
+    }
+    writer2.truncate(50);
+    assertEquals(51, writer2.append(new TestEntry(1)).index());
+    assertEquals(1, writer2.getLastEntry().entry().bytes().length);
+
+    // The journals' segments store only the positions of entries, which are read from the shared log's segments.
+    assertTrue(journal1.getLastSegment().size() < JournalSegmentDescriptor.BYTES + 91 * 10);
+    JournalReader<TestEntry> reader = journal1.openReader(1);
+    for (int i = 1; i <= 100; i++) {
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    reader.close();
+
+    // A flush of either journal flushes the shared log on behalf of both journals.
+    writer1.flush();
+    writer2.flush();
+    assertEquals(1, sharedLog.flushCount());
+    assertEquals(51, journal2.getDurableIndex());
+
+    // Compacting only one journal must not delete shared segments the other journal still needs.
+    int segmentFiles = directory.list().length;
+    journal1.compact(91);
+    assertEquals(segmentFiles, directory.list().length);
+    journal2.compact(91);
+    assertTrue(directory.list().length < segmentFiles);
+
+    journal1.close();
+    journal2.close();
+    sharedLog.close();
+
+    // Reopen the shared log and verify that both journals are recovered.
+    sharedLog = createSharedLog();
+    journal1 = createSharedJournal("test1", sharedLog);
+    journal2 = createSharedJournal("test2", sharedLog);
+    assertEquals(100, journal1.writer().getLastIndex());
+    assertEquals(100, journal1.writer().getLastEntry().entry().bytes().length);
+    assertEquals(51, journal2.writer().getLastIndex());
+
+    reader = journal1.openReader(91);
+    for (int i = 91; i <= 100; i++) {
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    reader = journal2.openReader(51);
+    assertEquals(1, reader.next().entry().bytes().length);
+    assertFalse(reader.hasNext());
+
+    // Reopening a journal while the shared log is open recovers the journal from the shared log.
+    journal2.close();
+    journal2 = createSharedJournal("test2", sharedLog);
+    assertEquals(51, journal2.writer().getLastIndex());
+    assertEquals(1, journal2.writer().getLastEntry().entry().bytes().length);
+    reader = journal2.openReader(51);
+    assertEquals(1, reader.next().entry().bytes().length);
+    assertFalse(reader.hasNext());
+
+    journal1.close();
+    journal2.close();
+    sharedLog.close();
+  }
+
+  @Test
+  public void testSharedLogCompactionAfterReset() throws Exception {
+    SharedWriteAheadLog sharedLog = createSharedLog();
+    SegmentedJournal<TestEntry> journal1 = createSharedJournal("test1", sharedLog);
+    SegmentedJournal<TestEntry> journal2 = createSharedJournal("test2", sharedLog);
+    for (int i = 1; i <= 100; i++) {
+      journal1.writer().append(new TestEntry(i));
+      journal2.writer().append(new TestEntry(i));
+    }
+    journal1.writer().reset(101);
+    journal1.close();
+    journal2.close();
+    sharedLog.close();
+
+    // The reset recovered from the shared log must allow segments preceding it to be deleted.
+    sharedLog = createSharedLog();
+    journal1 = createSharedJournal("test1", sharedLog);
+    journal2 = createSharedJournal("test2", sharedLog);
+    assertEquals(101, journal1.writer().getNextIndex());
+    int segmentFiles = directory.list().length;
+    journal2.compact(91);
+    assertTrue(directory.list().length < segmentFiles);
+
+    journal1.close();
+    journal2.close();
+    sharedLog.close();
+  }
+
+  @Test
+  public void testReadAhead() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> builder
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(100)
+        .withReadAheadSize(1024));
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 250; i++) {
+      assertEquals(i, writer.append(new TestEntry(i % 50 + 1)).index());
+    }
+
+    // Read all entries sequentially across segments.
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 120; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i % 50 + 1, entry.entry().bytes().length);
+    }
+
+    // Truncate the journal ahead of the reader and verify entries read ahead of the reader are discarded.
+    writer.truncate(150);
+    for (int i = 151; i <= 200; i++) {
+      assertEquals(i, writer.append(new TestEntry(100)).index());
+    }
+    for (int i = 121; i <= 200; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i <= 150 ? i % 50 + 1 : 100, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    // Reset the reader and verify entries are read from the reset index.
+    reader.reset(42);
+    for (int i = 42; i <= 200; i++) {
+      assertTrue(reader.hasNext());
+      assertEquals(i, reader.next().index());
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+  }
+
+  @Test
+  public void testCompressedSegments() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> compressed(builder, 0));
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 250; i++) {
+      assertEquals(i, writer.append(new TestEntry(i % 50 + 1)).index());
+    }
+
+    // Compress the sealed segments and verify the current segment is left uncompressed.
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    assertEquals(1, reader.next().index());
+    List<JournalSegment<TestEntry>> segments = journal.getSegments();
+    for (JournalSegment<TestEntry> segment : segments.subList(0, segments.size() - 1)) {
+      long size = segment.size();
+      assertTrue(journal.replaceCompressedSegment(segment, journal.compressSegment(segment, 256)));
+      assertTrue(segment.file().file().length() < size);
+    }
+    JournalSegment<TestEntry> compressedSegment = journal.compressSegment(journal.getLastSegment(), 256);
+    assertFalse(journal.replaceCompressedSegment(journal.getLastSegment(), compressedSegment));
+    compressedSegment.delete();
+    assertTrue(journal.getFirstSegment().descriptor().isCompressed());
+    assertFalse(journal.getLastSegment().descriptor().isCompressed());
+
+    // Verify a reader positioned in a compressed segment continues reading from the compressed segment.
+    for (int i = 2; i <= 250; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i % 50 + 1, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    // Verify readers seek within compressed segments.
+    reader.reset(142);
+    assertEquals(142, reader.next().index());
+    journal.close();
+
+    // Reopen the journal and truncate it into a compressed segment, which is decompressed to be written.
+    journal = createJournal(builder -> compressed(builder, 0));
+    assertTrue(journal.getFirstSegment().descriptor().isCompressed());
+    writer = journal.writer();
+    assertEquals(250, writer.getLastIndex());
+    writer.truncate(150);
+    assertFalse(journal.getLastSegment().descriptor().isCompressed());
+    for (int i = 151; i <= 200; i++) {
+      assertEquals(i, writer.append(new TestEntry(100)).index());
+    }
+    reader = journal.openReader(1);
+    for (int i = 1; i <= 200; i++) {
+      assertTrue(reader.hasNext());
+      Indexed<TestEntry> entry = reader.next();
+      assertEquals(i, entry.index());
+      assertEquals(i <= 150 ? i % 50 + 1 : 100, entry.entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+    journal.close();
+
+    // Verify sealed segments are compressed in the background as the journal rolls over to new segments.
+    journal = createJournal(builder -> compressed(builder, 256));
+    writer = journal.writer();
+    long index = writer.getLastIndex();
+    for (int i = 0; i < 100 && journal.getSegments().stream().filter(s -> s.descriptor().isCompressed()).count() < 2; i++) {
+      Thread.sleep(10);
+      for (int j = 0; j < 100; j++) {
+        assertEquals(++index, writer.append(new TestEntry(32)).index());
+      }
+    }
+    assertTrue(journal.getSegments().get(1).descriptor().isCompressed());
+    reader = journal.openReader(101);
+    for (long i = 101; i <= index; i++) {
+      assertTrue(reader.hasNext());
+      assertEquals(i, reader.next().index());
+    }
+    journal.close();
+  }
+
+  @Test
+  public void testChecksums() throws Exception {
+    byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(0xCBF43926L, checksum(JournalChecksum.CRC32, check));
+    assertEquals(0xE3069283L, checksum(JournalChecksum.CRC32C, check));
+    assertEquals(0x02CC5D05L, checksum(JournalChecksum.XXHASH32, new byte[0]));
+    assertEquals(0x32D153FFL, checksum(JournalChecksum.XXHASH32, "abc".getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(0xE2293B2FL, checksum(JournalChecksum.XXHASH32, "Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII)));
+
+    // Verify checksums computed over several updates and over direct buffers match checksums of the whole array.
+    byte[] bytes = new byte[1000];
+    new Random(1).nextBytes(bytes);
+    for (JournalChecksum type : JournalChecksum.values()) {
+      Checksum checksum = type.newChecksum();
+      checksum.update(bytes, 0, 7);
+      checksum.update(bytes[7]);
+      checksum.update(bytes, 8, 500);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+      buffer.put(bytes).position(508);
+      JournalChecksum.update(checksum, buffer);
+      assertEquals(checksum(type, bytes), checksum.getValue());
+      checksum.reset();
+      assertEquals(checksum(type, new byte[0]), checksum.getValue());
+    }
+  }
+
+  private long checksum(JournalChecksum type, byte[] bytes) {
+    Checksum checksum = type.newChecksum();
+    checksum.update(bytes, 0, bytes.length);
+    return checksum.getValue();
+  }
+
+  @Test
+  public void testScrubSegments() throws Exception {
+    SegmentedJournal<TestEntry> journal = createJournal(builder -> scrubbed(builder, JournalChecksum.CRC32C));
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 250; i++) {
+      assertEquals(i, writer.append(new TestEntry(i % 50 + 1)).index());
+    }
+    assertEquals(JournalChecksum.CRC32C, journal.getFirstSegment().descriptor().checksum());
+    journal.close();
+
+    // Reopen the journal with another checksum and verify segments are read with the checksum they were written with.
+    journal = createJournal(builder -> scrubbed(builder, JournalChecksum.XXHASH32));
+    writer = journal.writer();
+    assertEquals(250, writer.getLastIndex());
+    for (int i = 251; i <= 350; i++) {
+      assertEquals(i, writer.append(new TestEntry(i % 50 + 1)).index());
+    }
+    assertEquals(JournalChecksum.CRC32C, journal.getFirstSegment().descriptor().checksum());
+    assertEquals(JournalChecksum.XXHASH32, journal.getLastSegment().descriptor().checksum());
+    JournalReader<TestEntry> reader = journal.openReader(1);
+    for (int i = 1; i <= 350; i++) {
+      assertTrue(reader.hasNext());
+      assertEquals(i % 50 + 1, reader.next().entry().bytes().length);
+    }
+    assertFalse(reader.hasNext());
+
+    // Verify serialized entries are checksummed with the checksum of the segment to which they're appended.
+    Journal<TestEntry> target = createJournal(builder -> builder.withName("target"));
+    JournalWriter<TestEntry> targetWriter = target.writer();
+    reader.reset();
+    while (reader.hasNext()) {
+      Indexed<TestEntry> entry = reader.next();
+      targetWriter.append(new Indexed<>(entry.index(), entry.bytes(), entry.checksum(), null));
+    }
+    JournalReader<TestEntry> targetReader = target.openReader(1);
+    for (int i = 1; i <= 350; i++) {
+      assertTrue(targetReader.hasNext());
+      assertEquals(i % 50 + 1, targetReader.next().entry().bytes().length);
+    }
+    target.close();
+
+    // Compress a sealed segment and verify the sealed segments can be scrubbed.
+    JournalSegment<TestEntry> segment = journal.getSegments().get(1);
+    assertTrue(journal.replaceCompressedSegment(segment, journal.compressSegment(segment, 256)));
+    assertTrue(journal.scrub().isEmpty());
+
+    // Corrupt an entry in the first segment and verify the corruption is detected.
+    segment = journal.getFirstSegment();
+    try (RandomAccessFile file = new RandomAccessFile(segment.file().file(), "rw")) {
+      long position = JournalSegmentDescriptor.BYTES + 8 + 1;
+      file.seek(position);
+      int b = file.read();
+      file.seek(position);
+      file.write(b ^ 0xFF);
+    }
+    assertEquals(Collections.singletonList(segment), journal.scrub());
+    assertEquals(Collections.singletonList(segment), journal.getCorruptSegments());
+    journal.close();
+  }
+
+  private SharedWriteAheadLog createSharedLog() {
+    return SharedWriteAheadLog.builder()
+        .withName("wal")
+        .withDirectory(directory)
+        .withMaxSegmentSize(1024 * 4)
+        .build();
+  }
+
+  private SegmentedJournal<TestEntry> createSharedJournal(String name, SharedWriteAheadLog sharedLog) {
+    return createJournal(builder -> builder
+        .withName(name)
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(10)
+        .withSharedLog(sharedLog));
+  }
+}
@@ -35,6 +35,15 @@ public class TestEntry {
     this.bytes = bytes;
   }
 
+  /**
+   * Returns the entry bytes.
+   *
+   * @return the entry bytes
+   */
+  public byte[] bytes() {
+    return bytes;
+  }
+
   @Override
   public String toString() {
     return toStringHelper(this)
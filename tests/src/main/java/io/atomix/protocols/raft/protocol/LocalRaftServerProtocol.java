@@ -46,6 +46,7 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
   private Function<PollRequest, CompletableFuture<PollResponse>> pollHandler;
   private Function<VoteRequest, CompletableFuture<VoteResponse>> voteHandler;
   private Function<TransferRequest, CompletableFuture<TransferResponse>> transferHandler;
+  private Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> readIndexHandler;
   private Function<AppendRequest, CompletableFuture<AppendResponse>> appendHandler;
   private final Map<Long, Consumer<ResetRequest>> resetListeners = Maps.newConcurrentMap();
 
@@ -132,6 +133,11 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     return getServer(nodeId).thenCompose(listener -> listener.install(encode(request))).thenApply(this::decode);
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(NodeId nodeId, ReadIndexRequest request) {
+    return getServer(nodeId).thenCompose(listener -> listener.readIndex(encode(request))).thenApply(this::decode);
+  }
+
   @Override
   public CompletableFuture<PollResponse> poll(NodeId nodeId, PollRequest request) {
     return getServer(nodeId).thenCompose(listener -> listener.poll(encode(request))).thenApply(this::decode);
@@ -409,6 +415,24 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     }
   }
 
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    this.readIndexHandler = handler;
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    this.readIndexHandler = null;
+  }
+
+  CompletableFuture<byte[]> readIndex(byte[] request) {
+    if (readIndexHandler != null) {
+      return readIndexHandler.apply(decode(request)).thenApply(this::encode);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
   CompletableFuture<byte[]> append(byte[] request) {
     if (appendHandler != null) {
       return appendHandler.apply(decode(request)).thenApply(this::encode);
@@ -94,6 +94,11 @@ public class RaftServerMessagingProtocol extends RaftMessagingProtocol implement
     return sendAndReceive(nodeId, "transfer", request);
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(NodeId nodeId, ReadIndexRequest request) {
+    return sendAndReceive(nodeId, "read-index", request);
+  }
+
   @Override
   public CompletableFuture<PollResponse> poll(NodeId nodeId, PollRequest request) {
     return sendAndReceive(nodeId, "poll", request);
@@ -239,6 +244,16 @@ public class RaftServerMessagingProtocol extends RaftMessagingProtocol implement
     unregisterHandler("transfer");
   }
 
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    registerHandler("read-index", handler);
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    unregisterHandler("read-index");
+  }
+
   @Override
   public void registerPollHandler(Function<PollRequest, CompletableFuture<PollResponse>> handler) {
     registerHandler("poll", handler);
@@ -32,8 +32,27 @@ public class DirectMemory extends NativeMemory {
     return new DirectMemoryAllocator().allocate(size);
   }
 
+  /**
+   * Allocates direct memory charged to the given account.
+   *
+   * @param size The count of the memory to allocate.
+   * @param account The account to which to charge the memory.
+   * @return The allocated memory.
+   */
+  public static DirectMemory allocate(int size, MemoryAccount account) {
+    return new DirectMemoryAllocator(account).allocate(size);
+  }
+
   public DirectMemory(long address, int size, DirectMemoryAllocator allocator) {
     super(address, size, allocator);
   }
 
+  @Override
+  public void free() {
+    if (address() != 0) {
+      super.free();
+      ((DirectMemoryAllocator) allocator).account().release(size());
+    }
+  }
+
 }
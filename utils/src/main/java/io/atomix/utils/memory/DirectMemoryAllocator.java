@@ -17,21 +17,63 @@ package io.atomix.utils.memory;
 
 /**
  * Direct memory allocator.
+ * <p>
+ * Allocated memory is charged to a {@link MemoryAccount} until it's freed. Allocators that are not given an account
+ * charge the {@link #DEFAULT_OWNER} account of the {@link MemoryAccounting#global() global} memory accounting.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class DirectMemoryAllocator implements MemoryAllocator<NativeMemory> {
+  public static final String DEFAULT_OWNER = "direct";
+
+  private final MemoryAccount account;
+
+  public DirectMemoryAllocator() {
+    this(MemoryAccounting.global().account(DEFAULT_OWNER));
+  }
+
+  public DirectMemoryAllocator(MemoryAccount account) {
+    if (account == null)
+      throw new NullPointerException("account cannot be null");
+    this.account = account;
+  }
+
+  /**
+   * Returns the account to which allocated memory is charged.
+   *
+   * @return The account to which allocated memory is charged.
+   */
+  public MemoryAccount account() {
+    return account;
+  }
 
   @Override
   public DirectMemory allocate(int size) {
-    DirectMemory memory = new DirectMemory(DirectMemory.UNSAFE.allocateMemory(size), size, this);
+    account.reserve(size);
+    long address;
+    try {
+      address = DirectMemory.UNSAFE.allocateMemory(size);
+    } catch (OutOfMemoryError e) {
+      account.release(size);
+      throw e;
+    }
+    DirectMemory memory = new DirectMemory(address, size, this);
     DirectMemory.UNSAFE.setMemory(memory.address(), size, (byte) 0);
     return memory;
   }
 
   @Override
   public DirectMemory reallocate(NativeMemory memory, int size) {
-    DirectMemory newMemory = new DirectMemory(DirectMemory.UNSAFE.reallocateMemory(memory.address(), size), size, this);
+    account.reserve(size - memory.size());
+    long address;
+    try {
+      address = DirectMemory.UNSAFE.reallocateMemory(memory.address(), size);
+    } catch (OutOfMemoryError e) {
+      account.release(size - memory.size());
+      throw e;
+    }
+    account.release(memory.size() - size);
+    DirectMemory newMemory = new DirectMemory(address, size, this);
     if (newMemory.size() > memory.size()) {
       DirectMemory.UNSAFE.setMemory(newMemory.address(), newMemory.size() - memory.size(), (byte) 0);
     }
@@ -62,7 +62,22 @@ public class MappedMemory extends NativeMemory {
     return new MappedMemoryAllocator(file, mode).allocate(size);
   }
 
+  /**
+   * Immediately releases the memory mapping of the given buffer rather than waiting for the buffer to be garbage
+   * collected.
+   * <p>
+   * The buffer must not be accessed once it has been unmapped.
+   *
+   * @param buffer The buffer to unmap.
+   */
+  public static void unmap(MappedByteBuffer buffer) {
+    Cleaner cleaner = ((DirectBuffer) buffer).cleaner();
+    if (cleaner != null)
+      cleaner.clean();
+  }
+
   private final MappedByteBuffer buffer;
+  private boolean freed;
 
   public MappedMemory(MappedByteBuffer buffer, MappedMemoryAllocator allocator) {
     super(((DirectBuffer) buffer).address(), buffer.capacity(), allocator);
@@ -77,11 +92,12 @@ public class MappedMemory extends NativeMemory {
   }
 
   @Override
-  public void free() {
-    Cleaner cleaner = ((DirectBuffer) buffer).cleaner();
-    if (cleaner != null)
-      cleaner.clean();
-    ((MappedMemoryAllocator) allocator).release();
+  public synchronized void free() {
+    if (freed)
+      return;
+    freed = true;
+    unmap(buffer);
+    ((MappedMemoryAllocator) allocator).release(size());
   }
 
   public void close() {
@@ -28,17 +28,22 @@ import java.util.concurrent.atomic.AtomicInteger;
  * supports allocating memory in any {@link FileChannel.MapMode}. Once the file is mapped and the
  * memory has been allocated, the mapped allocator provides the memory address of the underlying
  * {@link java.nio.MappedByteBuffer} for access via {@link sun.misc.Unsafe}.
+ * <p>
+ * Mapped memory is charged to a {@link MemoryAccount} until it's freed. Allocators that are not given an account
+ * charge the {@link #DEFAULT_OWNER} account of the {@link MemoryAccounting#global() global} memory accounting.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class MappedMemoryAllocator implements MemoryAllocator<MappedMemory> {
   public static final FileChannel.MapMode DEFAULT_MAP_MODE = FileChannel.MapMode.READ_WRITE;
+  public static final String DEFAULT_OWNER = "mapped";
 
   private final AtomicInteger referenceCount = new AtomicInteger();
   private final RandomAccessFile file;
   private final FileChannel channel;
   private final FileChannel.MapMode mode;
   private final long offset;
+  private final MemoryAccount account;
 
   public MappedMemoryAllocator(File file) {
     this(file, DEFAULT_MAP_MODE, 0);
@@ -52,17 +57,28 @@ public class MappedMemoryAllocator implements MemoryAllocator<MappedMemory> {
     this(createFile(file, mode), mode, offset);
   }
 
+  public MappedMemoryAllocator(File file, FileChannel.MapMode mode, long offset, MemoryAccount account) {
+    this(createFile(file, mode), mode, offset, account);
+  }
+
   public MappedMemoryAllocator(RandomAccessFile file, FileChannel.MapMode mode, long offset) {
+    this(file, mode, offset, MemoryAccounting.global().account(DEFAULT_OWNER));
+  }
+
+  public MappedMemoryAllocator(RandomAccessFile file, FileChannel.MapMode mode, long offset, MemoryAccount account) {
     if (file == null)
       throw new NullPointerException("file cannot be null");
     if (mode == null)
       throw new NullPointerException("mode cannot be null");
     if (offset < 0)
       throw new IllegalArgumentException("offset cannot be negative");
+    if (account == null)
+      throw new NullPointerException("account cannot be null");
     this.file = file;
     this.channel = this.file.getChannel();
     this.mode = mode;
     this.offset = offset;
+    this.account = account;
   }
 
   private static RandomAccessFile createFile(File file, FileChannel.MapMode mode) {
@@ -88,12 +104,15 @@ public class MappedMemoryAllocator implements MemoryAllocator<MappedMemory> {
 
   @Override
   public MappedMemory allocate(int size) {
+    account.reserve(size);
     try {
       if (file.length() < size)
         file.setLength(size);
+      MappedMemory memory = new MappedMemory(channel.map(mode, offset, size), this);
       referenceCount.incrementAndGet();
-      return new MappedMemory(channel.map(mode, offset, size), this);
+      return memory;
     } catch (IOException e) {
+      account.release(size);
       throw new RuntimeException(e);
     }
   }
@@ -113,10 +132,22 @@ public class MappedMemoryAllocator implements MemoryAllocator<MappedMemory> {
     }
   }
 
+  /**
+   * Returns the account to which mapped memory is charged.
+   *
+   * @return The account to which mapped memory is charged.
+   */
+  public MemoryAccount account() {
+    return account;
+  }
+
   /**
    * Releases a reference from the allocator.
+   *
+   * @param size The size of the freed memory.
    */
-  void release() {
+  void release(int size) {
+    account.release(size);
     if (referenceCount.decrementAndGet() == 0) {
       close();
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.utils.memory;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Memory usage of a single owner, such as a journal, snapshot store or buffer pool.
+ * <p>
+ * Accounts are created by {@link MemoryAccounting#account(String)} and are passed to memory allocators, which
+ * reserve memory from the account before it's allocated and release it once it's freed.
+ */
+public class MemoryAccount {
+  private final MemoryAccounting accounting;
+  private final String owner;
+  volatile long limit = Long.MAX_VALUE;
+  volatile long liveBytes;
+  volatile long peakBytes;
+
+  MemoryAccount(MemoryAccounting accounting, String owner) {
+    this.accounting = accounting;
+    this.owner = owner;
+  }
+
+  /**
+   * Returns the owner of the account.
+   *
+   * @return The owner of the account.
+   */
+  public String owner() {
+    return owner;
+  }
+
+  /**
+   * Returns the memory accounting to which the account belongs.
+   *
+   * @return The memory accounting to which the account belongs.
+   */
+  public MemoryAccounting accounting() {
+    return accounting;
+  }
+
+  /**
+   * Returns the maximum number of bytes the owner may allocate.
+   *
+   * @return The maximum number of bytes the owner may allocate.
+   */
+  public long limit() {
+    return limit;
+  }
+
+  /**
+   * Sets the maximum number of bytes the owner may allocate.
+   * <p>
+   * Allocations that would exceed the limit are handled according to the {@link MemoryAccounting#limitPolicy()}.
+   *
+   * @param limit The maximum number of bytes the owner may allocate.
+   * @return The memory account.
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public MemoryAccount setLimit(long limit) {
+    checkArgument(limit > 0, "limit must be positive");
+    accounting.setLimit(this, limit);
+    return this;
+  }
+
+  /**
+   * Returns the number of bytes currently allocated by the owner.
+   *
+   * @return The number of bytes currently allocated by the owner.
+   */
+  public long liveBytes() {
+    return liveBytes;
+  }
+
+  /**
+   * Returns the maximum number of bytes that have been allocated by the owner at once.
+   *
+   * @return The peak number of bytes allocated by the owner.
+   */
+  public long peakBytes() {
+    return peakBytes;
+  }
+
+  /**
+   * Reserves memory before it's allocated.
+   *
+   * @param size The number of bytes to reserve.
+   * @throws MemoryLimitExceededException if the reservation would exceed the owner's or the node's limit
+   */
+  public void reserve(long size) {
+    accounting.reserve(this, size);
+  }
+
+  /**
+   * Releases memory after it's been freed.
+   *
+   * @param size The number of bytes to release.
+   */
+  public void release(long size) {
+    accounting.release(this, size);
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("owner", owner)
+        .add("liveBytes", liveBytes)
+        .add("peakBytes", peakBytes)
+        .add("limit", limit)
+        .toString();
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.utils.memory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Node-wide accounting of off-heap memory.
+ * <p>
+ * Memory allocated by {@link DirectMemoryAllocator} and {@link MappedMemoryAllocator} is charged to a
+ * {@link MemoryAccount} per owner, and allocators that are not given an account charge the
+ * {@link DirectMemoryAllocator#DEFAULT_OWNER direct} or {@link MappedMemoryAllocator#DEFAULT_OWNER mapped} accounts of
+ * the {@link #global() global} accounting. The live and peak number of bytes are tracked for each owner and for the
+ * node as a whole, and allocations that would exceed the node's limit or an owner's limit either fail or block until
+ * memory is freed according to the {@link MemoryLimitPolicy}.
+ */
+public class MemoryAccounting {
+  private static final MemoryAccounting GLOBAL = new MemoryAccounting();
+  private static final Duration DEFAULT_MAX_BLOCK_TIME = Duration.ofSeconds(30);
+
+  /**
+   * Returns the node-wide memory accounting.
+   *
+   * @return The node-wide memory accounting.
+   */
+  public static MemoryAccounting global() {
+    return GLOBAL;
+  }
+
+  private final Map<String, MemoryAccount> accounts = new ConcurrentHashMap<>();
+  private volatile long limit = Long.MAX_VALUE;
+  private volatile MemoryLimitPolicy limitPolicy = MemoryLimitPolicy.FAIL;
+  private volatile Duration maxBlockTime = DEFAULT_MAX_BLOCK_TIME;
+  private volatile long liveBytes;
+  private volatile long peakBytes;
+
+  /**
+   * Returns the account for the given owner, creating it if necessary.
+   *
+   * @param owner The owner of the account.
+   * @return The owner's memory account.
+   */
+  public MemoryAccount account(String owner) {
+    checkNotNull(owner, "owner cannot be null");
+    MemoryAccount account = accounts.get(owner);
+    return account != null ? account : accounts.computeIfAbsent(owner, o -> new MemoryAccount(this, o));
+  }
+
+  /**
+   * Returns all memory accounts.
+   *
+   * @return All memory accounts.
+   */
+  public Collection<MemoryAccount> accounts() {
+    return new ArrayList<>(accounts.values());
+  }
+
+  /**
+   * Returns the maximum number of bytes that may be allocated by all owners.
+   *
+   * @return The maximum number of bytes that may be allocated by all owners.
+   */
+  public long limit() {
+    return limit;
+  }
+
+  /**
+   * Sets the maximum number of bytes that may be allocated by all owners.
+   *
+   * @param limit The maximum number of bytes that may be allocated by all owners.
+   * @return The memory accounting.
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public synchronized MemoryAccounting setLimit(long limit) {
+    checkArgument(limit > 0, "limit must be positive");
+    this.limit = limit;
+    notifyAll();
+    return this;
+  }
+
+  /**
+   * Returns the policy applied to allocations that would exceed a limit.
+   *
+   * @return The policy applied to allocations that would exceed a limit.
+   */
+  public MemoryLimitPolicy limitPolicy() {
+    return limitPolicy;
+  }
+
+  /**
+   * Sets the policy applied to allocations that would exceed a limit.
+   *
+   * @param limitPolicy The policy applied to allocations that would exceed a limit.
+   * @return The memory accounting.
+   */
+  public synchronized MemoryAccounting setLimitPolicy(MemoryLimitPolicy limitPolicy) {
+    this.limitPolicy = checkNotNull(limitPolicy, "limitPolicy cannot be null");
+    notifyAll();
+    return this;
+  }
+
+  /**
+   * Returns the maximum time for which an allocation blocks under the {@link MemoryLimitPolicy#BLOCK} policy.
+   *
+   * @return The maximum time for which an allocation blocks.
+   */
+  public Duration maxBlockTime() {
+    return maxBlockTime;
+  }
+
+  /**
+   * Sets the maximum time for which an allocation blocks under the {@link MemoryLimitPolicy#BLOCK} policy.
+   *
+   * @param maxBlockTime The maximum time for which an allocation blocks.
+   * @return The memory accounting.
+   */
+  public MemoryAccounting setMaxBlockTime(Duration maxBlockTime) {
+    checkNotNull(maxBlockTime, "maxBlockTime cannot be null");
+    checkArgument(!maxBlockTime.isNegative(), "maxBlockTime cannot be negative");
+    this.maxBlockTime = maxBlockTime;
+    return this;
+  }
+
+  /**
+   * Returns the number of bytes currently allocated by all owners.
+   *
+   * @return The number of bytes currently allocated by all owners.
+   */
+  public long liveBytes() {
+    return liveBytes;
+  }
+
+  /**
+   * Returns the maximum number of bytes that have been allocated by all owners at once.
+   *
+   * @return The peak number of bytes allocated by all owners.
+   */
+  public long peakBytes() {
+    return peakBytes;
+  }
+
+  /**
+   * Sets the limit of the given account.
+   */
+  synchronized void setLimit(MemoryAccount account, long limit) {
+    account.limit = limit;
+    notifyAll();
+  }
+
+  /**
+   * Charges memory to the given account, failing or blocking if the allocation would exceed a limit.
+   */
+  synchronized void reserve(MemoryAccount account, long size) {
+    if (size <= 0) {
+      return;
+    }
+
+    long deadline = 0;
+    while (liveBytes + size > limit || account.liveBytes + size > account.limit) {
+      if (limitPolicy == MemoryLimitPolicy.FAIL || size > limit || size > account.limit) {
+        throw exceeded(account, size);
+      }
+
+      long now = System.nanoTime();
+      if (deadline == 0) {
+        deadline = now + maxBlockTime.toNanos();
+      }
+      if (now - deadline >= 0) {
+        throw exceeded(account, size);
+      }
+
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, deadline - now);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw exceeded(account, size);
+      }
+    }
+
+    liveBytes += size;
+    peakBytes = Math.max(peakBytes, liveBytes);
+    account.liveBytes += size;
+    account.peakBytes = Math.max(account.peakBytes, account.liveBytes);
+  }
+
+  /**
+   * Releases memory charged to the given account, waking blocked allocations.
+   */
+  synchronized void release(MemoryAccount account, long size) {
+    if (size <= 0) {
+      return;
+    }
+    liveBytes -= size;
+    account.liveBytes -= size;
+    notifyAll();
+  }
+
+  private MemoryLimitExceededException exceeded(MemoryAccount account, long size) {
+    if (account.liveBytes + size > account.limit) {
+      return new MemoryLimitExceededException("Cannot allocate %d bytes for %s: %d of %d bytes in use",
+          size, account.owner(), account.liveBytes, account.limit);
+    }
+    return new MemoryLimitExceededException("Cannot allocate %d bytes for %s: %d of %d node bytes in use",
+        size, account.owner(), liveBytes, limit);
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("liveBytes", liveBytes)
+        .add("peakBytes", peakBytes)
+        .add("limit", limit)
+        .add("accounts", accounts.values())
+        .toString();
+  }
+}
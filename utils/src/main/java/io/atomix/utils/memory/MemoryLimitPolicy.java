@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.utils.memory;
+
+/**
+ * Policy applied when an allocation would exceed a memory limit.
+ */
+public enum MemoryLimitPolicy {
+
+  /**
+   * Fails the allocation with a {@link MemoryLimitExceededException}.
+   */
+  FAIL,
+
+  /**
+   * Blocks the allocating thread until enough memory is freed, failing the allocation with a
+   * {@link MemoryLimitExceededException} if memory is not freed within the maximum block time.
+   */
+  BLOCK,
+}
@@ -16,6 +16,8 @@
 
 package io.atomix.utils.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for serialization of store artifacts.
  */
@@ -30,6 +32,21 @@ public interface Serializer {
    */
   <T> byte[] encode(T object);
 
+  /**
+   * Serialize the specified object directly into the given buffer.
+   * <p>
+   * The object is written starting at the buffer's current position, and the position is advanced past the
+   * written bytes. If the buffer does not have enough remaining space an exception is thrown, and the contents
+   * of the buffer following its original position are undefined.
+   *
+   * @param object object to serialize.
+   * @param buffer buffer to which to write the serialized object.
+   * @param <T>    encoded type
+   */
+  default <T> void encode(T object, ByteBuffer buffer) {
+    buffer.put(encode(object));
+  }
+
   /**
    * Deserialize the specified bytes.
    *
@@ -52,6 +69,11 @@ public interface Serializer {
         return namespace.serialize(object);
       }
 
+      @Override
+      public <T> void encode(T object, ByteBuffer buffer) {
+        namespace.serialize(object, buffer);
+      }
+
       @Override
       public <T> T decode(byte[] bytes) {
         return namespace.deserialize(bytes);
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.utils.memory;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Memory accounting test.
+ */
+public class MemoryAccountingTest {
+
+  @Test
+  public void testDirectMemoryAccounting() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    MemoryAccount account = accounting.account("test");
+    assertSame(account, accounting.account("test"));
+
+    DirectMemory memory = DirectMemory.allocate(1024, account);
+    assertEquals(1024, account.liveBytes());
+    assertEquals(1024, accounting.liveBytes());
+
+    NativeMemory reallocated = memory.allocator().reallocate(memory, 4096);
+    assertEquals(4096, account.liveBytes());
+    reallocated = reallocated.allocator().reallocate(reallocated, 2048);
+    assertEquals(2048, account.liveBytes());
+    assertEquals(4096, account.peakBytes());
+
+    reallocated.free();
+    reallocated.free();
+    assertEquals(0, account.liveBytes());
+    assertEquals(0, accounting.liveBytes());
+    assertEquals(4096, accounting.peakBytes());
+  }
+
+  @Test
+  public void testFailOnLimit() {
+    MemoryAccounting accounting = new MemoryAccounting().setLimit(2048);
+    MemoryAccount first = accounting.account("first").setLimit(1024);
+    MemoryAccount second = accounting.account("second");
+
+    DirectMemory memory = DirectMemory.allocate(1024, first);
+    try {
+      DirectMemory.allocate(1, first);
+      fail();
+    } catch (MemoryLimitExceededException e) {
+    }
+    assertEquals(1024, first.liveBytes());
+
+    DirectMemory.allocate(1024, second).free();
+    try {
+      DirectMemory.allocate(1025, second);
+      fail();
+    } catch (MemoryLimitExceededException e) {
+    }
+
+    memory.free();
+    DirectMemory.allocate(1024, first).free();
+    assertEquals(0, accounting.liveBytes());
+  }
+
+  @Test
+  public void testBlockOnLimit() throws Exception {
+    MemoryAccounting accounting = new MemoryAccounting()
+        .setLimit(1024)
+        .setLimitPolicy(MemoryLimitPolicy.BLOCK)
+        .setMaxBlockTime(Duration.ofSeconds(10));
+    MemoryAccount account = accounting.account("test");
+
+    DirectMemory memory = DirectMemory.allocate(1024, account);
+    CompletableFuture<DirectMemory> future = CompletableFuture.supplyAsync(() -> DirectMemory.allocate(512, account));
+    try {
+      future.get(100, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException e) {
+    }
+    assertFalse(future.isDone());
+
+    memory.free();
+    future.get(10, TimeUnit.SECONDS).free();
+    assertEquals(0, account.liveBytes());
+    assertEquals(1024, account.peakBytes());
+
+    accounting.setMaxBlockTime(Duration.ZERO);
+    memory = DirectMemory.allocate(1024, account);
+    try {
+      DirectMemory.allocate(1, account);
+      fail();
+    } catch (MemoryLimitExceededException e) {
+    }
+    memory.free();
+  }
+}